@@ -0,0 +1,21 @@
+#!/bin/bash
+set -euo pipefail
+
+# Results are written in JSON to be compared between builds.
+# The module is sonar-duplications-benchmark by default. Another one can be selected with
+# the variable BENCHMARK_MODULE, for example:
+#   BENCHMARK_MODULE=sonar-plugin-api-benchmark ./run-benchmarks.sh
+#   BENCHMARK_MODULE=sonar-core-benchmark ./run-benchmarks.sh
+#   BENCHMARK_MODULE=server/sonar-db-dao-benchmark ./run-benchmarks.sh
+#   BENCHMARK_MODULE=server/sonar-server-benchmark ./run-benchmarks.sh
+# Any JMH option can be appended, for example a regexp to filter benchmarks:
+#   ./run-benchmarks.sh CloneIndexBenchmark
+MODULE=${BENCHMARK_MODULE:-sonar-duplications-benchmark}
+RESULT_FILE=$MODULE/target/jmh-result.json
+
+echo "Build benchmarks of $MODULE"
+mvn install -B -e -V -Pbenchmarks -pl "$MODULE" -am -DskipTests
+
+echo 'Run benchmarks'
+java -jar "$MODULE/target/benchmarks.jar" -prof gc -rf json -rff "$RESULT_FILE" $*
+echo "Results: $RESULT_FILE"
@@ -86,6 +86,7 @@ public final class SqTables {
     "project_branches",
     "project_links",
     "project_measures",
+    "project_measures_history",
     "project_qprofiles",
     "properties",
     "qprofile_changes",
@@ -0,0 +1,147 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.api.notifications.Notification;
+import org.sonar.db.notification.NotificationQueueDto;
+
+/**
+ * Encoding of notifications when they are queued, and decoding when they are dequeued:
+ * <ul>
+ *   <li>ISSUE_CHANGE: a notification like those sent when an issue is updated</li>
+ *   <li>NEW_ISSUES: a large notification like the digests of new issues of an analysis</li>
+ * </ul>
+ * Each benchmark compares {@link NotificationQueueDto} with the Java serialization it replaces.
+ * The size of the encoded notifications is printed during setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class NotificationQueueDtoBenchmark {
+
+  public enum Payload {
+    ISSUE_CHANGE, NEW_ISSUES
+  }
+
+  @Param({"ISSUE_CHANGE", "NEW_ISSUES"})
+  public Payload payload;
+
+  private Notification notification;
+  private NotificationQueueDto encoded;
+  private byte[] serialized;
+
+  @Setup
+  public void setUp() throws IOException {
+    notification = payload == Payload.ISSUE_CHANGE ? newIssueChange() : newIssues();
+    encoded = NotificationQueueDto.toNotificationQueueDto(notification);
+    serialized = serialize(notification);
+    System.out.printf("%n%s: %d bytes encoded, %d bytes serialized%n", payload, encoded.getData().length, serialized.length);
+  }
+
+  @Benchmark
+  public NotificationQueueDto encode() {
+    return NotificationQueueDto.toNotificationQueueDto(notification);
+  }
+
+  @Benchmark
+  public Notification decode() throws IOException, ClassNotFoundException {
+    return encoded.toNotification();
+  }
+
+  @Benchmark
+  public byte[] javaSerialize() throws IOException {
+    return serialize(notification);
+  }
+
+  @Benchmark
+  public Notification javaDeserialize() throws IOException, ClassNotFoundException {
+    try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+      return (Notification) input.readObject();
+    }
+  }
+
+  private static byte[] serialize(Notification notification) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+      output.writeObject(notification);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static Notification newIssueChange() {
+    return new Notification("issue-changes")
+      .setFieldValue("key", "AWEBJSCYU0PBhq5V4-8u")
+      .setFieldValue("message", "Remove this unused private \"foo\" method.")
+      .setFieldValue("ruleName", "Unused private method should be removed")
+      .setFieldValue("projectKey", "org.sonarsource.sonarqube:sonarqube")
+      .setFieldValue("projectName", "SonarQube")
+      .setFieldValue("componentKey", "org.sonarsource.sonarqube:sonarqube:server/sonar-db-dao/src/main/java/org/sonar/db/DbClient.java")
+      .setFieldValue("componentName", "DbClient.java")
+      .setFieldValue("changeAuthor", "john.doe")
+      .setFieldValue("old.resolution", null)
+      .setFieldValue("new.resolution", "FIXED")
+      .setFieldValue("old.status", "OPEN")
+      .setFieldValue("new.status", "RESOLVED")
+      .setFieldValue("assignee", "jane.doe");
+  }
+
+  private static Notification newIssues() {
+    Notification notification = new Notification("new-issues")
+      .setFieldValue("projectKey", "org.sonarsource.sonarqube:sonarqube")
+      .setFieldValue("projectName", "SonarQube")
+      .setFieldValue("projectDate", "2018-01-23T10:45:12+0100")
+      .setFieldValue("projectVersion", "7.1-SNAPSHOT");
+    for (int i = 0; i < 5; i++) {
+      notification.setFieldValue("RULE." + (i + 1) + ".label", "Sections of code should not be commented out " + i);
+      notification.setFieldValue("RULE." + (i + 1) + ".count", String.valueOf(100 - i));
+      notification.setFieldValue("COMPONENT." + (i + 1) + ".label", "src/main/java/org/sonar/server/component/ComponentUpdater" + i + ".java");
+      notification.setFieldValue("COMPONENT." + (i + 1) + ".count", String.valueOf(50 - i));
+      notification.setFieldValue("TAG." + (i + 1) + ".label", "tag" + i);
+      notification.setFieldValue("TAG." + (i + 1) + ".count", String.valueOf(20 - i));
+      notification.setFieldValue("ASSIGNEE." + (i + 1) + ".label", "user" + i);
+      notification.setFieldValue("ASSIGNEE." + (i + 1) + ".count", String.valueOf(10 - i));
+    }
+    StringBuilder message = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      message.append("Issue ").append(i).append(" on src/main/java/org/sonar/server/component/ComponentUpdater.java\n");
+    }
+    return notification.setDefaultMessage(message.toString());
+  }
+}
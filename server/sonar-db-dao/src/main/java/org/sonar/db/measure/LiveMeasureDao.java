@@ -23,7 +23,6 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
-import javax.annotation.Nullable;
 import org.apache.ibatis.session.ResultHandler;
 import org.sonar.api.utils.System2;
 import org.sonar.core.util.Uuids;
@@ -33,6 +32,7 @@ import org.sonar.db.component.ComponentDto;
 
 import static java.util.Collections.singletonList;
 import static org.sonar.db.DatabaseUtils.executeLargeInputs;
+import static org.sonar.db.DatabaseUtils.executeLargeUpdates;
 
 public class LiveMeasureDao implements Dao {
 
@@ -52,6 +52,24 @@ public class LiveMeasureDao implements Dao {
       componentUuids -> mapper(dbSession).selectByComponentUuidsAndMetricIds(componentUuids, metricIds));
   }
 
+  /**
+   * Selects the measures of all the metrics of the specified components.
+   */
+  public List<LiveMeasureDto> selectByComponentUuids(DbSession dbSession, Collection<String> largeComponentUuids) {
+    if (largeComponentUuids.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    return executeLargeInputs(largeComponentUuids, componentUuids -> mapper(dbSession).selectByComponentUuids(componentUuids));
+  }
+
+  /**
+   * Selects the distinct uuids of the components which have measures in the specified project.
+   */
+  public List<String> selectComponentUuidsByProjectUuid(DbSession dbSession, String projectUuid) {
+    return mapper(dbSession).selectComponentUuidsByProjectUuid(projectUuid);
+  }
+
   public List<LiveMeasureDto> selectByComponentUuidsAndMetricKeys(DbSession dbSession, Collection<String> largeComponentUuids, Collection<String> metricKeys) {
     if (largeComponentUuids.isEmpty() || metricKeys.isEmpty()) {
       return Collections.emptyList();
@@ -79,22 +97,31 @@ public class LiveMeasureDao implements Dao {
   }
 
   public void insert(DbSession dbSession, LiveMeasureDto dto) {
-    mapper(dbSession).insert(dto, Uuids.create(), null, system2.now());
+    mapper(dbSession).insert(dto, Uuids.create(), system2.now());
   }
 
-  public void insertOrUpdate(DbSession dbSession, LiveMeasureDto dto, @Nullable String marker) {
+  public void insertOrUpdate(DbSession dbSession, LiveMeasureDto dto) {
     LiveMeasureMapper mapper = mapper(dbSession);
     long now = system2.now();
-    if (mapper.update(dto, marker, now) == 0) {
-      mapper.insert(dto, Uuids.create(), marker, now);
+    if (mapper.update(dto, now) == 0) {
+      mapper.insert(dto, Uuids.create(), now);
     }
   }
 
   /**
-   * Delete the rows that do NOT have the specified marker
+   * Updates the measure of the couple [component, metric]. Unlike {@link #insertOrUpdate(DbSession, LiveMeasureDto)},
+   * it does not rely on the number of updated rows, which is not known when the session batches its statements.
    */
-  public void deleteByProjectUuidExcludingMarker(DbSession dbSession, String projectUuid, String marker) {
-    mapper(dbSession).deleteByProjectUuidExcludingMarker(projectUuid, marker);
+  public void update(DbSession dbSession, LiveMeasureDto dto) {
+    mapper(dbSession).update(dto, system2.now());
+  }
+
+  public void deleteByComponentUuidAndMetricId(DbSession dbSession, String componentUuid, int metricId) {
+    mapper(dbSession).deleteByComponentUuidAndMetricId(componentUuid, metricId);
+  }
+
+  public void deleteByComponentUuids(DbSession dbSession, Collection<String> largeComponentUuids) {
+    executeLargeUpdates(largeComponentUuids, componentUuids -> mapper(dbSession).deleteByComponentUuids(componentUuids));
   }
 
   private static LiveMeasureMapper mapper(DbSession dbSession) {
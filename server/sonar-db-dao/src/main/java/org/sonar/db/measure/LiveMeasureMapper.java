@@ -21,7 +21,6 @@ package org.sonar.db.measure;
 
 import java.util.Collection;
 import java.util.List;
-import javax.annotation.Nullable;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.session.ResultHandler;
 
@@ -31,6 +30,10 @@ public interface LiveMeasureMapper {
     @Param("componentUuids") List<String> componentUuids,
     @Param("metricIds") Collection<Integer> metricIds);
 
+  List<LiveMeasureDto> selectByComponentUuids(@Param("componentUuids") List<String> componentUuids);
+
+  List<String> selectComponentUuidsByProjectUuid(@Param("projectUuid") String projectUuid);
+
   List<LiveMeasureDto> selectByComponentUuidsAndMetricKeys(
     @Param("componentUuids") List<String> componentUuids,
     @Param("metricKeys") Collection<String> metricKeys);
@@ -44,15 +47,15 @@ public interface LiveMeasureMapper {
   void insert(
     @Param("dto") LiveMeasureDto dto,
     @Param("uuid") String uuid,
-    @Nullable @Param("marker") String marker,
     @Param("now") long now);
 
   int update(
     @Param("dto") LiveMeasureDto dto,
-    @Nullable @Param("marker") String marker,
     @Param("now") long now);
 
-  void deleteByProjectUuidExcludingMarker(
-    @Param("projectUuid") String projectUuid,
-    @Param("marker") String marker);
+  void deleteByComponentUuidAndMetricId(
+    @Param("componentUuid") String componentUuid,
+    @Param("metricId") int metricId);
+
+  void deleteByComponentUuids(@Param("componentUuids") List<String> componentUuids);
 }
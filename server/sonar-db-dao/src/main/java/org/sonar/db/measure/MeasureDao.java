@@ -23,14 +23,23 @@ import com.google.common.collect.Lists;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import org.apache.ibatis.session.ResultHandler;
+import org.sonar.api.utils.System2;
 import org.sonar.db.Dao;
 import org.sonar.db.DbSession;
 
 import static java.util.Collections.emptyList;
 import static org.sonar.db.DatabaseUtils.executeLargeInputs;
+import static org.sonar.db.DatabaseUtils.executeLargeInputsWithoutOutput;
 
 public class MeasureDao implements Dao {
 
+  private final System2 system2;
+
+  public MeasureDao(System2 system2) {
+    this.system2 = system2;
+  }
+
   public Optional<MeasureDto> selectLastMeasure(DbSession dbSession, String componentUuid, String metricKey) {
     return Optional.ofNullable(mapper(dbSession).selectLastMeasure(componentUuid, metricKey));
   }
@@ -83,6 +92,16 @@ public class MeasureDao implements Dao {
       ids -> mapper(dbSession).selectPastMeasuresOnSingleAnalysis(componentUuid, analysisUuid, ids));
   }
 
+  /**
+   * Selects the measures of all the components of an analysis, ordered by component and metric. The result is
+   * not returned (since it can be big on large projects), but handed over to the <code>handler</code>.
+   */
+  public void scrollPastMeasures(DbSession dbSession, String analysisUuid, Collection<Integer> metricIds, ResultHandler<PastMeasureDto> handler) {
+    executeLargeInputsWithoutOutput(
+      metricIds,
+      ids -> mapper(dbSession).scrollPastMeasuresOfAnalysis(analysisUuid, ids, handler));
+  }
+
   /**
    * Select measures of:
    * - one component
@@ -110,6 +129,33 @@ public class MeasureDao implements Dao {
     insert(session, Lists.asList(item, others));
   }
 
+  /**
+   * Selects the histories of the specified metrics on a component. Metrics without history are absent from the
+   * result, which does not mean that the component has no measures on them in table PROJECT_MEASURES
+   * (see {@link #selectPastMeasures(DbSession, PastMeasureQuery)}).
+   */
+  public List<MeasureHistoryDto> selectHistory(DbSession dbSession, String componentUuid, Collection<Integer> metricIds) {
+    return executeLargeInputs(
+      metricIds,
+      ids -> mapper(dbSession).selectHistoryByComponentUuidAndMetricIds(componentUuid, ids));
+  }
+
+  public List<MeasureHistoryDto> selectHistory(DbSession dbSession, String componentUuid) {
+    return mapper(dbSession).selectHistoryByComponentUuid(componentUuid);
+  }
+
+  /**
+   * Callers decide between {@link #insertHistory(DbSession, MeasureHistoryDto)} and this method from the histories
+   * they have selected, as the number of updated rows is not known when the session is a batch session.
+   */
+  public void updateHistory(DbSession dbSession, MeasureHistoryDto dto) {
+    mapper(dbSession).updateHistory(dto, system2.now());
+  }
+
+  public void insertHistory(DbSession dbSession, MeasureHistoryDto dto) {
+    mapper(dbSession).insertHistory(dto, system2.now());
+  }
+
   private static MeasureMapper mapper(DbSession session) {
     return session.getMapper(MeasureMapper.class);
   }
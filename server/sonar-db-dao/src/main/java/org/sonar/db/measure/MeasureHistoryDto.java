@@ -0,0 +1,218 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.measure;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.db.protobuf.DbMeasures;
+
+import static java.lang.String.format;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+
+/**
+ * History of the values of a metric on a component, stored in a single row. It is an alternative to the rows of
+ * table PROJECT_MEASURES for reading the measures of all the analyses at once.
+ */
+public class MeasureHistoryDto {
+  private String componentUuid;
+  private int metricId;
+  private byte[] binaryHistory;
+  private long createdAt;
+  private long updatedAt;
+
+  public String getComponentUuid() {
+    return componentUuid;
+  }
+
+  public MeasureHistoryDto setComponentUuid(String s) {
+    this.componentUuid = s;
+    return this;
+  }
+
+  public int getMetricId() {
+    return metricId;
+  }
+
+  public MeasureHistoryDto setMetricId(int i) {
+    this.metricId = i;
+    return this;
+  }
+
+  @CheckForNull
+  public byte[] getBinaryHistory() {
+    return binaryHistory;
+  }
+
+  public MeasureHistoryDto setBinaryHistory(@Nullable byte[] b) {
+    this.binaryHistory = b;
+    return this;
+  }
+
+  public long getCreatedAt() {
+    return createdAt;
+  }
+
+  public MeasureHistoryDto setCreatedAt(long l) {
+    this.createdAt = l;
+    return this;
+  }
+
+  public long getUpdatedAt() {
+    return updatedAt;
+  }
+
+  public MeasureHistoryDto setUpdatedAt(long l) {
+    this.updatedAt = l;
+    return this;
+  }
+
+  /**
+   * Measures sorted by ascending date of analysis, optionally restricted to the analyses done from {@code from}
+   * (inclusive) to {@code to} (exclusive).
+   */
+  public List<MeasureDto> getMeasures(@Nullable Long from, @Nullable Long to) {
+    List<Point> points = decode();
+    List<MeasureDto> measures = new ArrayList<>(points.size());
+    for (Point point : points) {
+      if ((from == null || point.date >= from) && (to == null || point.date < to)) {
+        measures.add(toMeasure(point));
+      }
+    }
+    return measures;
+  }
+
+  /**
+   * Adds the measure of an analysis to the history. If the analysis is already in the history, its value is replaced.
+   */
+  public MeasureHistoryDto addMeasure(long analysisDate, MeasureDto measure) {
+    return addMeasures(singletonList(measure), singletonMap(measure.getAnalysisUuid(), analysisDate));
+  }
+
+  /**
+   * Same as {@link #addMeasure(long, MeasureDto)} for several analyses. Measures of the analyses which are not
+   * in {@code analysisDatesByUuid} are ignored.
+   */
+  public MeasureHistoryDto addMeasures(Collection<MeasureDto> measures, Map<String, Long> analysisDatesByUuid) {
+    Map<String, Point> pointsByAnalysisUuid = new HashMap<>();
+    decode().forEach(point -> pointsByAnalysisUuid.put(point.analysisUuid, point));
+    for (MeasureDto measure : measures) {
+      Long analysisDate = analysisDatesByUuid.get(measure.getAnalysisUuid());
+      if (analysisDate != null) {
+        pointsByAnalysisUuid.put(measure.getAnalysisUuid(), new Point(measure.getAnalysisUuid(), analysisDate, toValue(measure)));
+      }
+    }
+    List<Point> points = new ArrayList<>(pointsByAnalysisUuid.values());
+    points.sort(Comparator.comparingLong(point -> point.date));
+    encode(points);
+    return this;
+  }
+
+  /**
+   * Removes the analyses which are not in the specified set.
+   *
+   * @return {@code true} if at least one analysis has been removed
+   */
+  public boolean retainAnalyses(Set<String> analysisUuids) {
+    List<Point> points = decode();
+    if (!points.removeIf(point -> !analysisUuids.contains(point.analysisUuid))) {
+      return false;
+    }
+    encode(points);
+    return true;
+  }
+
+  private List<Point> decode() {
+    if (binaryHistory == null) {
+      return new ArrayList<>();
+    }
+    DbMeasures.MeasureHistory history;
+    try {
+      history = DbMeasures.MeasureHistory.parseFrom(binaryHistory);
+    } catch (InvalidProtocolBufferException e) {
+      throw new IllegalStateException(format("Fail to read history of metric %d on component %s", metricId, componentUuid), e);
+    }
+    List<Point> points = new ArrayList<>(history.getAnalysisUuidCount());
+    long date = 0L;
+    for (int i = 0; i < history.getAnalysisUuidCount(); i++) {
+      date += history.getAnalysisDateDelta(i);
+      points.add(new Point(history.getAnalysisUuid(i), date, history.getValue(i)));
+    }
+    return points;
+  }
+
+  private void encode(List<Point> points) {
+    DbMeasures.MeasureHistory.Builder history = DbMeasures.MeasureHistory.newBuilder();
+    long previousDate = 0L;
+    for (Point point : points) {
+      history.addAnalysisUuid(point.analysisUuid);
+      history.addAnalysisDateDelta(point.date - previousDate);
+      history.addValue(point.value);
+      previousDate = point.date;
+    }
+    this.binaryHistory = history.build().toByteArray();
+  }
+
+  private MeasureDto toMeasure(Point point) {
+    DbMeasures.Value value = point.value;
+    return new MeasureDto()
+      .setComponentUuid(componentUuid)
+      .setMetricId(metricId)
+      .setAnalysisUuid(point.analysisUuid)
+      .setValue(value.hasValue() ? value.getValue() : null)
+      .setVariation(value.hasVariation() ? value.getVariation() : null)
+      .setData(value.hasTextValue() ? value.getTextValue() : null);
+  }
+
+  private static DbMeasures.Value toValue(MeasureDto measure) {
+    DbMeasures.Value.Builder value = DbMeasures.Value.newBuilder();
+    if (measure.getValue() != null) {
+      value.setValue(measure.getValue());
+    }
+    if (measure.getVariation() != null) {
+      value.setVariation(measure.getVariation());
+    }
+    String data = measure.getData();
+    if (data != null) {
+      value.setTextValue(data);
+    }
+    return value.build();
+  }
+
+  private static class Point {
+    private final String analysisUuid;
+    private final long date;
+    private final DbMeasures.Value value;
+
+    private Point(String analysisUuid, long date, DbMeasures.Value value) {
+      this.analysisUuid = analysisUuid;
+      this.date = date;
+      this.value = value;
+    }
+  }
+}
@@ -22,6 +22,7 @@ package org.sonar.db.measure;
 import java.util.List;
 import javax.annotation.CheckForNull;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 
 public interface MeasureMapper {
 
@@ -47,7 +48,18 @@ public interface MeasureMapper {
   List<PastMeasureDto> selectPastMeasuresOnSingleAnalysis(@Param("componentUuid") String componentUuid, @Param("analysisUuid") String analysisUuid,
     @Param("metricIds") List<Integer> metricIds);
 
+  void scrollPastMeasuresOfAnalysis(@Param("analysisUuid") String analysisUuid, @Param("metricIds") List<Integer> metricIds,
+    ResultHandler<PastMeasureDto> handler);
+
   List<MeasureDto> selectPastMeasuresOnSeveralAnalyses(@Param("query") PastMeasureQuery query);
 
   void insert(MeasureDto measureDto);
+
+  List<MeasureHistoryDto> selectHistoryByComponentUuid(@Param("componentUuid") String componentUuid);
+
+  List<MeasureHistoryDto> selectHistoryByComponentUuidAndMetricIds(@Param("componentUuid") String componentUuid, @Param("metricIds") List<Integer> metricIds);
+
+  void insertHistory(@Param("dto") MeasureHistoryDto dto, @Param("now") long now);
+
+  void updateHistory(@Param("dto") MeasureHistoryDto dto, @Param("now") long now);
 }
@@ -26,6 +26,7 @@ import static java.util.Objects.requireNonNull;
 
 public class PastMeasureDto {
 
+  private String componentUuid;
   private int metricId;
 
   @CheckForNull
@@ -45,6 +46,18 @@ public class PastMeasureDto {
     return value != null;
   }
 
+  /**
+   * Only loaded by {@link MeasureDao#scrollPastMeasures(org.sonar.db.DbSession, String, java.util.Collection, org.apache.ibatis.session.ResultHandler)}
+   */
+  public String getComponentUuid() {
+    return componentUuid;
+  }
+
+  PastMeasureDto setComponentUuid(String componentUuid) {
+    this.componentUuid = componentUuid;
+    return this;
+  }
+
   public int getMetricId() {
     return metricId;
   }
@@ -22,19 +22,32 @@ package org.sonar.db.notification;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.util.Map;
+import net.jpountz.lz4.LZ4BlockInputStream;
+import net.jpountz.lz4.LZ4BlockOutputStream;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.builder.ToStringBuilder;
 import org.apache.commons.lang.builder.ToStringStyle;
 import org.sonar.api.notifications.Notification;
 import org.sonar.api.utils.SonarException;
+import org.sonar.db.protobuf.DbNotifications;
 
 /**
  * @since 3.7.1
  */
 public class NotificationQueueDto {
 
+  /**
+   * Values of the first byte of {@link #getData()} when the notification is not stored with Java
+   * serialization, whose streams always start with byte {@code 0xAC}.
+   */
+  private static final byte PROTOBUF_FORMAT = 1;
+  private static final byte COMPRESSED_PROTOBUF_FORMAT = 2;
+  private static final int COMPRESSION_THRESHOLD = 4 * 1024;
+
   private Long id;
   private byte[] data;
 
@@ -62,12 +75,49 @@ public class NotificationQueueDto {
   }
 
   public static NotificationQueueDto toNotificationQueueDto(Notification notification) {
+    if (notification.getClass() == Notification.class) {
+      return new NotificationQueueDto().setData(encodeFieldValues(notification));
+    }
+    return new NotificationQueueDto().setData(serialize(notification));
+  }
+
+  private static byte[] encodeFieldValues(Notification notification) {
+    DbNotifications.Notification.Builder builder = DbNotifications.Notification.newBuilder()
+      .setType(notification.getType());
+    DbNotifications.Field.Builder fieldBuilder = DbNotifications.Field.newBuilder();
+    for (Map.Entry<String, String> field : notification.getFieldValues().entrySet()) {
+      fieldBuilder.clear().setKey(field.getKey());
+      if (field.getValue() != null) {
+        fieldBuilder.setValue(field.getValue());
+      }
+      builder.addField(fieldBuilder);
+    }
+    DbNotifications.Notification message = builder.build();
+
+    ByteArrayOutputStream byteOutput = new ByteArrayOutputStream();
+    try {
+      if (message.getSerializedSize() < COMPRESSION_THRESHOLD) {
+        byteOutput.write(PROTOBUF_FORMAT);
+        message.writeTo(byteOutput);
+      } else {
+        byteOutput.write(COMPRESSED_PROTOBUF_FORMAT);
+        try (LZ4BlockOutputStream compressedOutput = new LZ4BlockOutputStream(byteOutput)) {
+          message.writeTo(compressedOutput);
+        }
+      }
+      return byteOutput.toByteArray();
+    } catch (IOException e) {
+      throw new SonarException("Unable to write notification", e);
+    }
+  }
+
+  private static byte[] serialize(Notification notification) {
     ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
     try {
       ObjectOutputStream objectOutputStream = new ObjectOutputStream(byteArrayOutputStream);
       objectOutputStream.writeObject(notification);
       objectOutputStream.close();
-      return new NotificationQueueDto().setData(byteArrayOutputStream.toByteArray());
+      return byteArrayOutputStream.toByteArray();
 
     } catch (IOException e) {
       throw new SonarException("Unable to write notification", e);
@@ -77,10 +127,35 @@ public class NotificationQueueDto {
     }
   }
 
+  /**
+   * Only instances of {@link Notification} itself are stored without Java serialization. Subclasses keep
+   * Java serialization, so that dispatchers can cast the dequeued notification to its original class.
+   */
   public Notification toNotification() throws IOException, ClassNotFoundException {
     if (this.data == null) {
       return null;
     }
+    if (data.length > 0 && data[0] == PROTOBUF_FORMAT) {
+      return decodeFieldValues(new ByteArrayInputStream(data, 1, data.length - 1));
+    }
+    if (data.length > 0 && data[0] == COMPRESSED_PROTOBUF_FORMAT) {
+      try (LZ4BlockInputStream compressedInput = new LZ4BlockInputStream(new ByteArrayInputStream(data, 1, data.length - 1))) {
+        return decodeFieldValues(compressedInput);
+      }
+    }
+    return deserialize();
+  }
+
+  private static Notification decodeFieldValues(InputStream input) throws IOException {
+    DbNotifications.Notification message = DbNotifications.Notification.parseFrom(input);
+    Notification notification = new Notification(message.getType());
+    for (DbNotifications.Field field : message.getFieldList()) {
+      notification.setFieldValue(field.getKey(), field.hasValue() ? field.getValue() : null);
+    }
+    return notification;
+  }
+
+  private Notification deserialize() throws IOException, ClassNotFoundException {
     ByteArrayInputStream byteArrayInputStream = null;
     try {
       byteArrayInputStream = new ByteArrayInputStream(this.data);
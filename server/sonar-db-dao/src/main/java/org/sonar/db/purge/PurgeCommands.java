@@ -34,11 +34,17 @@ class PurgeCommands {
   private final DbSession session;
   private final PurgeMapper purgeMapper;
   private final PurgeProfiler profiler;
+  private final PurgeThrottler throttler;
 
   PurgeCommands(DbSession session, PurgeMapper purgeMapper, PurgeProfiler profiler) {
+    this(session, purgeMapper, profiler, PurgeThrottler.NONE);
+  }
+
+  PurgeCommands(DbSession session, PurgeMapper purgeMapper, PurgeProfiler profiler, PurgeThrottler throttler) {
     this.session = session;
     this.purgeMapper = purgeMapper;
     this.profiler = profiler;
+    this.throttler = throttler;
   }
 
   @VisibleForTesting
@@ -124,8 +130,9 @@ class PurgeCommands {
     profiler.start("deleteSnapshotWastedMeasures (project_measures)");
     List<Long> metricIdsWithoutHistoricalData = purgeMapper.selectMetricIdsWithoutHistoricalData();
     if (!metricIdsWithoutHistoricalData.isEmpty()) {
-      analysisUuidsPartitions
-        .forEach(analysisUuidsPartition -> purgeMapper.deleteAnalysisWastedMeasures(analysisUuidsPartition, metricIdsWithoutHistoricalData));
+      for (List<String> analysisUuidsPartition : analysisUuidsPartitions) {
+        throttle(purgeMapper.deleteAnalysisWastedMeasures(analysisUuidsPartition, metricIdsWithoutHistoricalData));
+      }
       session.commit();
     }
     profiler.stop();
@@ -232,13 +239,24 @@ class PurgeCommands {
     profiler.start("deleteComponentMeasures");
     for (List<String> analysisUuidsPartition : analysisUuidsPartitions) {
       for (List<String> componentUuidsPartition : componentUuidsPartitions) {
-        purgeMapper.deleteComponentMeasures(analysisUuidsPartition, componentUuidsPartition);
+        throttle(purgeMapper.deleteComponentMeasures(analysisUuidsPartition, componentUuidsPartition));
       }
     }
     session.commit();
     profiler.stop();
   }
 
+  /**
+   * When throttled, deletions are committed before the purge is paused, so that locks are not held during the pause.
+   * The number of deleted rows is known only if the session is not a batch session.
+   */
+  private void throttle(int deletedRows) {
+    if (throttler != PurgeThrottler.NONE) {
+      session.commit();
+      throttler.onRowsDeleted(deletedRows);
+    }
+  }
+
   void deleteFileSources(String rootUuid) {
     profiler.start("deleteFileSources (file_sources)");
     purgeMapper.deleteFileSourcesByProjectUuid(rootUuid);
@@ -280,4 +298,11 @@ class PurgeCommands {
     session.commit();
     profiler.stop();
   }
+
+  void deleteMeasuresHistory(String rootUuid) {
+    profiler.start("deleteMeasuresHistory (project_measures_history)");
+    purgeMapper.deleteMeasuresHistoryByComponentUuid(rootUuid);
+    session.commit();
+    profiler.stop();
+  }
 }
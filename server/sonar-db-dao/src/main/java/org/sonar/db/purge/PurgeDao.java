@@ -24,6 +24,7 @@ import com.google.common.collect.Lists;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -38,6 +39,8 @@ import org.sonar.db.component.ComponentDao;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.ComponentTreeQuery;
 import org.sonar.db.component.ComponentTreeQuery.Strategy;
+import org.sonar.db.measure.MeasureDao;
+import org.sonar.db.measure.MeasureHistoryDto;
 
 import static java.util.Collections.emptyList;
 import static org.sonar.api.utils.DateUtils.dateToLong;
@@ -51,10 +54,12 @@ public class PurgeDao implements Dao {
   private static final String SCOPE_PROJECT = "PRJ";
 
   private final ComponentDao componentDao;
+  private final MeasureDao measureDao;
   private final System2 system2;
 
-  public PurgeDao(ComponentDao componentDao, System2 system2) {
+  public PurgeDao(ComponentDao componentDao, MeasureDao measureDao, System2 system2) {
     this.componentDao = componentDao;
+    this.measureDao = measureDao;
     this.system2 = system2;
   }
 
@@ -65,11 +70,29 @@ public class PurgeDao implements Dao {
     deleteAbortedAnalyses(rootUuid, commands);
     deleteDataOfComponentsWithoutHistoricalData(session, rootUuid, conf.getScopesWithoutHistoricalData(), commands);
     purgeAnalyses(commands, rootUuid);
+    purgeMeasuresHistory(session, commands, mapper, rootUuid);
     purgeDisabledComponents(session, conf, listener);
     deleteOldClosedIssues(conf, mapper, listener);
     purgeStaleBranches(commands, conf, mapper, rootUuid);
   }
 
+  /**
+   * Same as {@link #purge(DbSession, PurgeConfiguration, PurgeListener, PurgeProfiler)} except that data of disabled components
+   * is not purged (see {@link #purgeDisabledComponents(DbSession, PurgeConfiguration, PurgeListener)}). The throttler is
+   * called after each batch of deleted measures.
+   */
+  public void purgeHistory(DbSession session, PurgeConfiguration conf, PurgeListener listener, PurgeProfiler profiler, PurgeThrottler throttler) {
+    PurgeMapper mapper = session.getMapper(PurgeMapper.class);
+    PurgeCommands commands = new PurgeCommands(session, mapper, profiler, throttler);
+    String rootUuid = conf.rootProjectIdUuid().getUuid();
+    deleteAbortedAnalyses(rootUuid, commands);
+    deleteDataOfComponentsWithoutHistoricalData(session, rootUuid, conf.getScopesWithoutHistoricalData(), commands);
+    purgeAnalyses(commands, rootUuid);
+    purgeMeasuresHistory(session, commands, mapper, rootUuid);
+    deleteOldClosedIssues(conf, mapper, listener);
+    purgeStaleBranches(commands, conf, mapper, rootUuid);
+  }
+
   private static void purgeStaleBranches(PurgeCommands commands, PurgeConfiguration conf, PurgeMapper mapper, String rootUuid) {
     Optional<Date> maxDate = conf.maxLiveDateOfInactiveShortLivingBranches();
     if (!maxDate.isPresent()) {
@@ -94,6 +117,30 @@ public class PurgeDao implements Dao {
     commands.purgeAnalyses(analysisUuids);
   }
 
+  /**
+   * Removes from the measures history of the root component the analyses which do not exist anymore, for example
+   * because they have been deleted by {@link org.sonar.db.purge.period.DefaultPeriodCleaner}, so that the history stays
+   * consistent with table PROJECT_MEASURES. As done by {@link PurgeCommands#purgeAnalyses(List)}, the history of metrics
+   * without historical data is restricted to the analyses which have not been purged yet.
+   */
+  private void purgeMeasuresHistory(DbSession session, PurgeCommands commands, PurgeMapper mapper, String rootUuid) {
+    List<MeasureHistoryDto> histories = measureDao.selectHistory(session, rootUuid);
+    if (histories.isEmpty()) {
+      return;
+    }
+    Set<String> analysisUuids = new HashSet<>(commands.selectSnapshotUuids(new PurgeSnapshotQuery()
+      .setComponentUuid(rootUuid)));
+    Set<String> notPurgedAnalysisUuids = new HashSet<>(commands.selectSnapshotUuids(new PurgeSnapshotQuery()
+      .setComponentUuid(rootUuid)
+      .setNotPurged(true)));
+    Set<Long> metricIdsWithoutHistoricalData = new HashSet<>(mapper.selectMetricIdsWithoutHistoricalData());
+    histories.stream()
+      .filter(history -> history.retainAnalyses(
+        metricIdsWithoutHistoricalData.contains((long) history.getMetricId()) ? notPurgedAnalysisUuids : analysisUuids))
+      .forEach(history -> measureDao.updateHistory(session, history));
+    session.commit();
+  }
+
   private static void deleteOldClosedIssues(PurgeConfiguration conf, PurgeMapper mapper, PurgeListener listener) {
     Date toDate = conf.maxLiveDateOfClosedIssues();
     String rootUuid = conf.rootProjectIdUuid().getUuid();
@@ -142,7 +189,7 @@ public class PurgeDao implements Dao {
     purgeCommands.deleteComponentMeasures(analysisUuids, componentWithoutHistoricalDataUuids);
   }
 
-  private void purgeDisabledComponents(DbSession session, PurgeConfiguration conf, PurgeListener listener) {
+  public void purgeDisabledComponents(DbSession session, PurgeConfiguration conf, PurgeListener listener) {
     PurgeMapper mapper = mapper(session);
     executeLargeInputs(conf.getDisabledComponentUuids(),
       input -> {
@@ -204,6 +251,7 @@ public class PurgeDao implements Dao {
     commands.deleteWebhookDeliveries(rootUuid);
     commands.deleteBranch(rootUuid);
     commands.deleteLiveMeasures(rootUuid);
+    commands.deleteMeasuresHistory(rootUuid);
   }
 
   /**
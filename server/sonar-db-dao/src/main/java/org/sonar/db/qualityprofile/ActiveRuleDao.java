@@ -23,6 +23,7 @@ import com.google.common.base.Preconditions;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.function.Consumer;
 import org.sonar.core.util.stream.MoreCollectors;
@@ -35,6 +36,7 @@ import org.sonar.db.rule.RuleParamDto;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
 import static org.sonar.db.DatabaseUtils.executeLargeInputs;
 import static org.sonar.db.DatabaseUtils.executeLargeInputsWithoutOutput;
 import static org.sonar.db.KeyLongValue.toMap;
@@ -76,6 +78,19 @@ public class ActiveRuleDao implements Dao {
     return selectByProfileUuid(dbSession, profile.getKee());
   }
 
+  /**
+   * Most recent date of update of the rules activated in the given profiles, including removed rules.
+   * Zero is returned if the profiles have no active rules.
+   */
+  public long selectMaxRuleUpdatedAtByProfileUuids(DbSession dbSession, Collection<String> profileUuids) {
+    ActiveRuleMapper mapper = mapper(dbSession);
+    return executeLargeInputs(profileUuids, chunk -> singletonList(mapper.selectMaxRuleUpdatedAtByProfileUuids(chunk))).stream()
+      .filter(Objects::nonNull)
+      .mapToLong(Long::longValue)
+      .max()
+      .orElse(0L);
+  }
+
   public List<ActiveRuleDto> selectByRuleProfile(DbSession dbSession, RulesProfileDto ruleProfileDto) {
     return mapper(dbSession).selectByRuleProfileUuid(ruleProfileDto.getKee());
   }
@@ -53,6 +53,9 @@ public interface ActiveRuleMapper {
 
   List<OrgActiveRuleDto> selectByProfileUuid(String uuid);
 
+  @CheckForNull
+  Long selectMaxRuleUpdatedAtByProfileUuids(@Param("profileUuids") Collection<String> profileUuids);
+
   List<ActiveRuleDto> selectByRuleProfileUuid(@Param("ruleProfileUuid") String uuid);
 
   List<ActiveRuleDto> selectByRuleIdsAndRuleProfileUuids(
@@ -113,6 +113,14 @@ public class RuleDao implements Dao {
     return ensureOrganizationIsSet(organizationUuid, mapper(session).selectAll(organizationUuid));
   }
 
+  /**
+   * Rules whose definition, or metadata in the specified organization, has been updated
+   * at or after the specified date.
+   */
+  public List<RuleDto> selectUpdatedSince(DbSession session, String organizationUuid, long since) {
+    return ensureOrganizationIsSet(organizationUuid, mapper(session).selectUpdatedSince(organizationUuid, since));
+  }
+
   public List<RuleDefinitionDto> selectAllDefinitions(DbSession session) {
     return mapper(session).selectAllDefinitions();
   }
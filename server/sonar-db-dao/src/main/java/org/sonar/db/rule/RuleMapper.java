@@ -30,6 +30,8 @@ public interface RuleMapper {
 
   List<RuleDto> selectAll(@Param("organizationUuid") String organizationUuid);
 
+  List<RuleDto> selectUpdatedSince(@Param("organizationUuid") String organizationUuid, @Param("since") long since);
+
   List<RuleDefinitionDto> selectAllDefinitions();
 
   void selectEnabled(ResultHandler<RuleDefinitionDto> resultHandler);
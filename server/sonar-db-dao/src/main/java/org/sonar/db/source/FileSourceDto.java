@@ -49,9 +49,11 @@ public class FileSourceDto {
   private String lineHashes;
   private String srcHash;
   private byte[] binaryData;
+  private byte[] scmData;
   private String dataType;
   private String dataHash;
   private String revision;
+  private boolean hasScmData;
 
   public Long getId() {
     return id;
@@ -231,6 +233,108 @@ public class FileSourceDto {
     return this;
   }
 
+  /**
+   * Serialize and compress protobuf message {@link org.sonar.db.protobuf.DbFileSources.Scm}
+   * in the column SCM_DATA.
+   */
+  public static byte[] encodeScmData(DbFileSources.Scm scm) {
+    ByteArrayOutputStream byteOutput = new ByteArrayOutputStream();
+    LZ4BlockOutputStream compressedOutput = new LZ4BlockOutputStream(byteOutput);
+    try {
+      scm.writeTo(compressedOutput);
+      compressedOutput.close();
+      return byteOutput.toByteArray();
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to serialize and compress SCM data", e);
+    } finally {
+      IOUtils.closeQuietly(compressedOutput);
+    }
+  }
+
+  public DbFileSources.Scm decodeScmData(byte[] scmData) {
+    try (LZ4BlockInputStream lz4Input = new LZ4BlockInputStream(new ByteArrayInputStream(scmData))) {
+      return DbFileSources.Scm.parseFrom(lz4Input);
+    } catch (IOException e) {
+      throw new IllegalStateException(
+        format("Fail to decompress and deserialize SCM data [id=%s,fileUuid=%s,projectUuid=%s]", id, fileUuid, projectUuid),
+        e);
+    }
+  }
+
+  /**
+   * Groups the SCM information of the specified lines into runs of consecutive lines sharing the same author,
+   * revision and date.
+   */
+  public static DbFileSources.Scm toScmData(Iterable<DbFileSources.Line> lines) {
+    DbFileSources.Scm.Builder scm = DbFileSources.Scm.newBuilder();
+    DbFileSources.Scm.Changeset.Builder current = null;
+    for (DbFileSources.Line line : lines) {
+      DbFileSources.Scm.Changeset.Builder changeset = DbFileSources.Scm.Changeset.newBuilder();
+      if (line.hasScmRevision()) {
+        changeset.setRevision(line.getScmRevision());
+      }
+      if (line.hasScmAuthor()) {
+        changeset.setAuthor(line.getScmAuthor());
+      }
+      if (line.hasScmDate()) {
+        changeset.setDate(line.getScmDate());
+      }
+      if (current != null && isSameChangeset(current, changeset)) {
+        current.setLineCount(current.getLineCount() + 1);
+      } else {
+        if (current != null) {
+          scm.addChangesets(current);
+        }
+        current = changeset.setLineCount(1);
+      }
+    }
+    if (current != null) {
+      scm.addChangesets(current);
+    }
+    return scm.build();
+  }
+
+  private static boolean isSameChangeset(DbFileSources.Scm.ChangesetOrBuilder a, DbFileSources.Scm.ChangesetOrBuilder b) {
+    return a.hasRevision() == b.hasRevision() && a.getRevision().equals(b.getRevision())
+      && a.hasAuthor() == b.hasAuthor() && a.getAuthor().equals(b.getAuthor())
+      && a.hasDate() == b.hasDate() && a.getDate() == b.getDate();
+  }
+
+  /**
+   * Compressed value of serialized protobuf message {@link org.sonar.db.protobuf.DbFileSources.Scm}.
+   * Null on rows persisted before the column was introduced.
+   */
+  @CheckForNull
+  public byte[] getBinaryScmData() {
+    return scmData;
+  }
+
+  public FileSourceDto setBinaryScmData(@Nullable byte[] scmData) {
+    this.scmData = scmData;
+    return this;
+  }
+
+  @CheckForNull
+  public DbFileSources.Scm getScmData() {
+    return scmData == null ? null : decodeScmData(scmData);
+  }
+
+  public FileSourceDto setScmData(DbFileSources.Scm scm) {
+    this.scmData = encodeScmData(scm);
+    return this;
+  }
+
+  /**
+   * Whether the column SCM_DATA is set. Loaded by queries which do not load the column itself.
+   */
+  public boolean isHasScmData() {
+    return hasScmData;
+  }
+
+  protected void setHasScmData(boolean hasScmData) {
+    this.hasScmData = hasScmData;
+  }
+
   @CheckForNull
   public String getLineHashes() {
     return lineHashes;
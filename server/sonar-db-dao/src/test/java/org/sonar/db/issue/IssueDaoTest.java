@@ -44,6 +44,7 @@ import org.sonar.db.rule.RuleDto;
 import org.sonar.db.rule.RuleTesting;
 
 import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.sonar.db.component.ComponentTesting.newFileDto;
 import static org.sonar.db.component.ComponentTesting.newModuleDto;
@@ -157,6 +158,26 @@ public class IssueDaoTest {
     assertThat(accumulator.list).isEmpty();
   }
 
+  @Test
+  public void scrollNonClosedByComponentUuids() {
+    RuleDefinitionDto rule = db.rules().insert();
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto file1 = db.components().insertComponent(newFileDto(project));
+    ComponentDto file2 = db.components().insertComponent(newFileDto(project));
+    IssueDto openIssueOnFile1 = db.issues().insert(rule, project, file1, i -> i.setStatus("OPEN").setResolution(null));
+    IssueDto closedIssueOnFile1 = db.issues().insert(rule, project, file1, i -> i.setStatus("CLOSED").setResolution("FIXED"));
+    IssueDto openIssueOnFile2 = db.issues().insert(rule, project, file2, i -> i.setStatus("OPEN").setResolution(null));
+    IssueDto openIssueOnProject = db.issues().insert(rule, project, project, i -> i.setStatus("OPEN").setResolution(null));
+
+    Accumulator accumulator = new Accumulator();
+    underTest.scrollNonClosedByComponentUuids(db.getSession(), asList(file1.uuid(), file2.uuid(), "does_not_exist"), accumulator);
+    accumulator.assertThatContainsOnly(openIssueOnFile1, openIssueOnFile2);
+
+    accumulator.clear();
+    underTest.scrollNonClosedByComponentUuids(db.getSession(), emptyList(), accumulator);
+    assertThat(accumulator.list).isEmpty();
+  }
+
   @Test
   public void scrollNonClosedByModuleOrProject() {
     RuleDefinitionDto rule = db.rules().insert();
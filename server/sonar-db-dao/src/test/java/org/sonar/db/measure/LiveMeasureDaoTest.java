@@ -93,6 +93,43 @@ public class LiveMeasureDaoTest {
     assertThat(selected).isEmpty();
   }
 
+  @Test
+  public void test_selectByComponentUuids() {
+    MetricDto otherMetric = db.measures().insertMetric();
+    LiveMeasureDto measure1 = newLiveMeasure().setMetricId(metric.getId());
+    LiveMeasureDto measure2 = newLiveMeasure().setComponentUuid(measure1.getComponentUuid()).setMetricId(otherMetric.getId());
+    LiveMeasureDto measureOfOtherComponent = newLiveMeasure().setMetricId(metric.getId());
+    underTest.insert(db.getSession(), measure1);
+    underTest.insert(db.getSession(), measure2);
+    underTest.insert(db.getSession(), measureOfOtherComponent);
+
+    List<LiveMeasureDto> selected = underTest.selectByComponentUuids(db.getSession(), asList(measure1.getComponentUuid(), "_missing_"));
+    assertThat(selected)
+      .extracting(LiveMeasureDto::getComponentUuid, LiveMeasureDto::getMetricId, LiveMeasureDto::getValue, LiveMeasureDto::getDataAsString)
+      .containsExactlyInAnyOrder(
+        tuple(measure1.getComponentUuid(), measure1.getMetricId(), measure1.getValue(), measure1.getDataAsString()),
+        tuple(measure2.getComponentUuid(), measure2.getMetricId(), measure2.getValue(), measure2.getDataAsString()));
+
+    assertThat(underTest.selectByComponentUuids(db.getSession(), emptyList())).isEmpty();
+  }
+
+  @Test
+  public void selectComponentUuidsByProjectUuid() {
+    MetricDto otherMetric = db.measures().insertMetric();
+    LiveMeasureDto measure1 = newLiveMeasure().setProjectUuid("P1").setMetricId(metric.getId());
+    LiveMeasureDto measure2 = newLiveMeasure().setProjectUuid("P1").setComponentUuid(measure1.getComponentUuid()).setMetricId(otherMetric.getId());
+    LiveMeasureDto measure3 = newLiveMeasure().setProjectUuid("P1").setMetricId(metric.getId());
+    LiveMeasureDto measureOfOtherProject = newLiveMeasure().setProjectUuid("P2").setMetricId(metric.getId());
+    underTest.insert(db.getSession(), measure1);
+    underTest.insert(db.getSession(), measure2);
+    underTest.insert(db.getSession(), measure3);
+    underTest.insert(db.getSession(), measureOfOtherProject);
+
+    assertThat(underTest.selectComponentUuidsByProjectUuid(db.getSession(), "P1"))
+      .containsExactlyInAnyOrder(measure1.getComponentUuid(), measure3.getComponentUuid());
+    assertThat(underTest.selectComponentUuidsByProjectUuid(db.getSession(), "_missing_")).isEmpty();
+  }
+
   @Test
   public void test_selectByComponentUuidsAndMetricKeys() {
     LiveMeasureDto measure1 = newLiveMeasure().setMetricId(metric.getId());
@@ -218,7 +255,7 @@ public class LiveMeasureDaoTest {
   public void test_insertOrUpdate() {
     // insert
     LiveMeasureDto dto = newLiveMeasure();
-    underTest.insertOrUpdate(db.getSession(), dto, "foo");
+    underTest.insertOrUpdate(db.getSession(), dto);
     verifyPersisted(dto);
     verifyTableSize(1);
 
@@ -226,30 +263,68 @@ public class LiveMeasureDaoTest {
     dto.setValue(dto.getValue() + 1);
     dto.setVariation(dto.getVariation() + 10);
     dto.setData(dto.getDataAsString() + "_new");
-    underTest.insertOrUpdate(db.getSession(), dto, "foo");
+    underTest.insertOrUpdate(db.getSession(), dto);
     verifyPersisted(dto);
     verifyTableSize(1);
   }
 
   @Test
-  public void deleteByProjectUuidExcludingMarker() {
-    LiveMeasureDto measure1 = newLiveMeasure().setProjectUuid("P1");
-    LiveMeasureDto measure2 = newLiveMeasure().setProjectUuid("P1");
-    LiveMeasureDto measure3DifferentMarker = newLiveMeasure().setProjectUuid("P1");
-    LiveMeasureDto measure4NoMarker = newLiveMeasure().setProjectUuid("P1");
-    LiveMeasureDto measure5OtherProject = newLiveMeasure().setProjectUuid("P2");
-    underTest.insertOrUpdate(db.getSession(), measure1, "foo");
-    underTest.insertOrUpdate(db.getSession(), measure2, "foo");
-    underTest.insertOrUpdate(db.getSession(), measure3DifferentMarker, "bar");
-    underTest.insertOrUpdate(db.getSession(), measure4NoMarker, null);
-    underTest.insertOrUpdate(db.getSession(), measure5OtherProject, "foo");
-
-    underTest.deleteByProjectUuidExcludingMarker(db.getSession(), "P1", "foo");
-
-    verifyTableSize(3);
-    verifyPersisted(measure1);
+  public void update() {
+    LiveMeasureDto dto = newLiveMeasure();
+    LiveMeasureDto otherDto = newLiveMeasure();
+    underTest.insert(db.getSession(), dto);
+    underTest.insert(db.getSession(), otherDto);
+
+    dto.setValue(dto.getValue() + 1);
+    dto.setVariation(dto.getVariation() + 10);
+    dto.setData(dto.getDataAsString() + "_new");
+    underTest.update(db.getSession(), dto);
+
+    verifyPersisted(dto);
+    verifyPersisted(otherDto);
+    verifyTableSize(2);
+  }
+
+  @Test
+  public void update_does_not_insert_missing_measure() {
+    underTest.update(db.getSession(), newLiveMeasure());
+
+    verifyTableSize(0);
+  }
+
+  @Test
+  public void deleteByComponentUuidAndMetricId() {
+    MetricDto otherMetric = db.measures().insertMetric();
+    LiveMeasureDto measure1 = newLiveMeasure().setMetricId(metric.getId());
+    LiveMeasureDto measure2 = newLiveMeasure().setComponentUuid(measure1.getComponentUuid()).setMetricId(otherMetric.getId());
+    LiveMeasureDto measure3 = newLiveMeasure().setMetricId(metric.getId());
+    underTest.insert(db.getSession(), measure1);
+    underTest.insert(db.getSession(), measure2);
+    underTest.insert(db.getSession(), measure3);
+
+    underTest.deleteByComponentUuidAndMetricId(db.getSession(), measure1.getComponentUuid(), metric.getId());
+
+    verifyTableSize(2);
     verifyPersisted(measure2);
-    verifyPersisted(measure5OtherProject);
+    verifyPersisted(measure3);
+  }
+
+  @Test
+  public void deleteByComponentUuids() {
+    MetricDto otherMetric = db.measures().insertMetric();
+    LiveMeasureDto measure1 = newLiveMeasure().setMetricId(metric.getId());
+    LiveMeasureDto measure2 = newLiveMeasure().setComponentUuid(measure1.getComponentUuid()).setMetricId(otherMetric.getId());
+    LiveMeasureDto measure3 = newLiveMeasure().setMetricId(metric.getId());
+    LiveMeasureDto measure4 = newLiveMeasure().setMetricId(metric.getId());
+    underTest.insert(db.getSession(), measure1);
+    underTest.insert(db.getSession(), measure2);
+    underTest.insert(db.getSession(), measure3);
+    underTest.insert(db.getSession(), measure4);
+
+    underTest.deleteByComponentUuids(db.getSession(), asList(measure1.getComponentUuid(), measure3.getComponentUuid()));
+
+    verifyTableSize(1);
+    verifyPersisted(measure4);
   }
 
   private void verifyTableSize(int expectedSize) {
@@ -19,6 +19,7 @@
  */
 package org.sonar.db.measure;
 
+import java.util.ArrayList;
 import java.util.List;
 import org.junit.Rule;
 import org.junit.Test;
@@ -37,6 +38,7 @@ import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.sonar.api.utils.DateUtils.parseDate;
 import static org.sonar.db.component.ComponentTesting.newFileDto;
 import static org.sonar.db.component.ComponentTesting.newModuleDto;
@@ -205,6 +207,102 @@ public class MeasureDaoTest {
     assertThat(result).hasSize(2).extracting(MeasureDto::getData).containsOnly("PROJECT_M1", "PROJECT_M2");
   }
 
+  @Test
+  public void scroll_past_measures_of_analysis() {
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto module = db.components().insertComponent(newModuleDto(project));
+    SnapshotDto lastAnalysis = insertAnalysis(project.uuid(), true);
+    SnapshotDto pastAnalysis = insertAnalysis(project.uuid(), false);
+    insertMeasure("PROJECT_M1", pastAnalysis.getUuid(), project.uuid(), NCLOC_METRIC_ID);
+    insertMeasure("PROJECT_M2", pastAnalysis.getUuid(), project.uuid(), COVERAGE_METRIC_ID);
+    insertMeasure("PROJECT_M3", pastAnalysis.getUuid(), project.uuid(), COMPLEXITY_METRIC_ID);
+    insertMeasure("MODULE_M1", pastAnalysis.getUuid(), module.uuid(), NCLOC_METRIC_ID);
+    insertMeasure("PROJECT_M4", lastAnalysis.getUuid(), project.uuid(), NCLOC_METRIC_ID);
+    db.commit();
+
+    List<PastMeasureDto> result = new ArrayList<>();
+    underTest.scrollPastMeasures(db.getSession(), pastAnalysis.getUuid(), asList(NCLOC_METRIC_ID, COVERAGE_METRIC_ID),
+      context -> result.add(context.getResultObject()));
+
+    assertThat(result)
+      .extracting(PastMeasureDto::getComponentUuid, PastMeasureDto::getMetricId)
+      .containsExactlyInAnyOrder(
+        tuple(project.uuid(), NCLOC_METRIC_ID),
+        tuple(project.uuid(), COVERAGE_METRIC_ID),
+        tuple(module.uuid(), NCLOC_METRIC_ID));
+  }
+
+  @Test
+  public void scroll_past_measures_does_nothing_if_no_metrics() {
+    ComponentDto project = db.components().insertPrivateProject();
+    SnapshotDto pastAnalysis = insertAnalysis(project.uuid(), false);
+    insertMeasure("PROJECT_M1", pastAnalysis.getUuid(), project.uuid(), NCLOC_METRIC_ID);
+    db.commit();
+
+    List<PastMeasureDto> result = new ArrayList<>();
+    underTest.scrollPastMeasures(db.getSession(), pastAnalysis.getUuid(), emptyList(), context -> result.add(context.getResultObject()));
+
+    assertThat(result).isEmpty();
+  }
+
+  @Test
+  public void insert_and_select_history() {
+    ComponentDto project = db.components().insertPrivateProject();
+    MeasureHistoryDto history = new MeasureHistoryDto()
+      .setComponentUuid(project.uuid())
+      .setMetricId(NCLOC_METRIC_ID)
+      .addMeasure(1_000L, new MeasureDto().setAnalysisUuid("A1").setValue(10d));
+
+    underTest.insertHistory(dbSession, history);
+
+    List<MeasureHistoryDto> histories = underTest.selectHistory(dbSession, project.uuid(), asList(NCLOC_METRIC_ID, COVERAGE_METRIC_ID));
+    assertThat(histories).extracting(MeasureHistoryDto::getComponentUuid, MeasureHistoryDto::getMetricId)
+      .containsExactly(tuple(project.uuid(), NCLOC_METRIC_ID));
+    assertThat(histories.get(0).getMeasures(null, null)).extracting(MeasureDto::getAnalysisUuid, MeasureDto::getValue)
+      .containsExactly(tuple("A1", 10d));
+    assertThat(histories.get(0).getCreatedAt()).isEqualTo(histories.get(0).getUpdatedAt()).isPositive();
+    assertThat(underTest.selectHistory(dbSession, project.uuid(), singletonList(COVERAGE_METRIC_ID))).isEmpty();
+    assertThat(underTest.selectHistory(dbSession, project.uuid(), emptyList())).isEmpty();
+  }
+
+  @Test
+  public void update_history() {
+    ComponentDto project = db.components().insertPrivateProject();
+    MeasureHistoryDto history = new MeasureHistoryDto()
+      .setComponentUuid(project.uuid())
+      .setMetricId(NCLOC_METRIC_ID)
+      .addMeasure(1_000L, new MeasureDto().setAnalysisUuid("A1").setValue(10d));
+    underTest.insertHistory(dbSession, history);
+
+    underTest.updateHistory(dbSession, history.addMeasure(2_000L, new MeasureDto().setAnalysisUuid("A2").setValue(20d)));
+
+    List<MeasureHistoryDto> histories = underTest.selectHistory(dbSession, project.uuid());
+    assertThat(histories).hasSize(1);
+    assertThat(histories.get(0).getMeasures(null, null)).extracting(MeasureDto::getAnalysisUuid, MeasureDto::getValue)
+      .containsExactly(tuple("A1", 10d), tuple("A2", 20d));
+  }
+
+  @Test
+  public void insert_and_update_history_in_batch_session() {
+    ComponentDto project = db.components().insertPrivateProject();
+    MeasureHistoryDto history = new MeasureHistoryDto()
+      .setComponentUuid(project.uuid())
+      .setMetricId(NCLOC_METRIC_ID)
+      .addMeasure(1_000L, new MeasureDto().setAnalysisUuid("A1").setValue(10d));
+
+    try (DbSession batchSession = db.myBatis().openSession(true)) {
+      underTest.insertHistory(batchSession, history);
+      batchSession.commit();
+      underTest.updateHistory(batchSession, history.addMeasure(2_000L, new MeasureDto().setAnalysisUuid("A2").setValue(20d)));
+      batchSession.commit();
+    }
+
+    List<MeasureHistoryDto> histories = underTest.selectHistory(dbSession, project.uuid());
+    assertThat(histories).hasSize(1);
+    assertThat(histories.get(0).getMeasures(null, null)).extracting(MeasureDto::getAnalysisUuid, MeasureDto::getValue)
+      .containsExactly(tuple("A1", 10d), tuple("A2", 20d));
+  }
+
   private void verifyMeasures(MeasureQuery.Builder query, String... expectedIds) {
     List<MeasureDto> measures = underTest.selectByQuery(db.getSession(), query.build());
     assertThat(measures).extracting(MeasureDto::getData).containsOnly(expectedIds);
@@ -0,0 +1,105 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.measure;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class MeasureHistoryDtoTest {
+
+  private MeasureHistoryDto underTest = new MeasureHistoryDto().setComponentUuid("C1").setMetricId(10);
+
+  @Test
+  public void empty_history() {
+    assertThat(underTest.getMeasures(null, null)).isEmpty();
+  }
+
+  @Test
+  public void measures_are_sorted_by_date_of_analysis() {
+    underTest
+      .addMeasure(3_000L, new MeasureDto().setAnalysisUuid("A3").setValue(3d))
+      .addMeasure(1_000L, new MeasureDto().setAnalysisUuid("A1").setValue(1d))
+      .addMeasure(2_000L, new MeasureDto().setAnalysisUuid("A2").setValue(2d));
+
+    assertThat(underTest.getMeasures(null, null))
+      .extracting(MeasureDto::getComponentUuid, MeasureDto::getMetricId, MeasureDto::getAnalysisUuid, MeasureDto::getValue)
+      .containsExactly(tuple("C1", 10, "A1", 1d), tuple("C1", 10, "A2", 2d), tuple("C1", 10, "A3", 3d));
+  }
+
+  @Test
+  public void value_variation_and_data_are_stored() {
+    underTest
+      .addMeasure(1_000L, new MeasureDto().setAnalysisUuid("A1").setValue(1.5d).setVariation(-2d).setData("foo"))
+      .addMeasure(2_000L, new MeasureDto().setAnalysisUuid("A2"));
+
+    assertThat(underTest.getMeasures(null, null))
+      .extracting(MeasureDto::getValue, MeasureDto::getVariation, MeasureDto::getData)
+      .containsExactly(tuple(1.5d, -2d, "foo"), tuple(null, null, null));
+  }
+
+  @Test
+  public void measure_of_analysis_already_in_history_is_replaced() {
+    underTest
+      .addMeasure(1_000L, new MeasureDto().setAnalysisUuid("A1").setValue(1d))
+      .addMeasure(1_000L, new MeasureDto().setAnalysisUuid("A1").setValue(2d));
+
+    assertThat(underTest.getMeasures(null, null)).extracting(MeasureDto::getValue).containsExactly(2d);
+  }
+
+  @Test
+  public void add_measures_of_several_analyses() {
+    underTest.addMeasures(
+      asList(
+        new MeasureDto().setAnalysisUuid("A2").setValue(2d),
+        new MeasureDto().setAnalysisUuid("A1").setValue(1d),
+        new MeasureDto().setAnalysisUuid("UNKNOWN").setValue(3d)),
+      ImmutableMap.of("A1", 1_000L, "A2", 2_000L));
+
+    assertThat(underTest.getMeasures(null, null)).extracting(MeasureDto::getAnalysisUuid).containsExactly("A1", "A2");
+  }
+
+  @Test
+  public void filter_measures_by_date_from_inclusive_to_exclusive() {
+    underTest
+      .addMeasure(1_000L, new MeasureDto().setAnalysisUuid("A1"))
+      .addMeasure(2_000L, new MeasureDto().setAnalysisUuid("A2"))
+      .addMeasure(3_000L, new MeasureDto().setAnalysisUuid("A3"));
+
+    assertThat(underTest.getMeasures(2_000L, null)).extracting(MeasureDto::getAnalysisUuid).containsExactly("A2", "A3");
+    assertThat(underTest.getMeasures(null, 3_000L)).extracting(MeasureDto::getAnalysisUuid).containsExactly("A1", "A2");
+    assertThat(underTest.getMeasures(1_500L, 2_500L)).extracting(MeasureDto::getAnalysisUuid).containsExactly("A2");
+  }
+
+  @Test
+  public void retainAnalyses_removes_analyses_which_are_not_in_specified_set() {
+    underTest
+      .addMeasure(1_000L, new MeasureDto().setAnalysisUuid("A1"))
+      .addMeasure(2_000L, new MeasureDto().setAnalysisUuid("A2"));
+
+    assertThat(underTest.retainAnalyses(ImmutableSet.of("A1", "A2", "A3"))).isFalse();
+    assertThat(underTest.retainAnalyses(ImmutableSet.of("A2"))).isTrue();
+    assertThat(underTest.getMeasures(null, null)).extracting(MeasureDto::getAnalysisUuid).containsExactly("A2");
+  }
+}
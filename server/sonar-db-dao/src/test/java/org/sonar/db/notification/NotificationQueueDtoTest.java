@@ -0,0 +1,119 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.notification;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import org.apache.commons.lang.StringUtils;
+import org.junit.Test;
+import org.sonar.api.notifications.Notification;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NotificationQueueDtoTest {
+
+  @Test
+  public void encode_and_decode_field_values() throws Exception {
+    Notification notification = new Notification("issue-changes")
+      .setFieldValue("key", "ABCDE")
+      .setFieldValue("assignee", null)
+      .setDefaultMessage("Issue ABCDE has changed");
+
+    NotificationQueueDto dto = NotificationQueueDto.toNotificationQueueDto(notification);
+
+    assertThat(dto.getData()[0]).isEqualTo((byte) 1);
+    Notification decoded = dto.toNotification();
+    assertThat(decoded).isEqualTo(notification);
+    assertThat(decoded.getFieldValues()).containsOnlyKeys("key", "assignee", "default_message");
+    assertThat(decoded.getFieldValue("assignee")).isNull();
+  }
+
+  @Test
+  public void compress_large_notifications() throws Exception {
+    Notification notification = new Notification("new-issues")
+      .setFieldValue("description", StringUtils.repeat("lorem ipsum ", 1_000));
+
+    NotificationQueueDto dto = NotificationQueueDto.toNotificationQueueDto(notification);
+
+    assertThat(dto.getData()[0]).isEqualTo((byte) 2);
+    assertThat(dto.getData().length).isLessThan(1_000);
+    assertThat(dto.toNotification()).isEqualTo(notification);
+  }
+
+  @Test
+  public void serialize_subclasses_without_other_state() throws Exception {
+    Notification notification = new WithoutState().setFieldValue("key", "ABCDE");
+
+    NotificationQueueDto dto = NotificationQueueDto.toNotificationQueueDto(notification);
+
+    assertThat(dto.getData()[0]).isEqualTo((byte) 0xAC);
+    Notification decoded = dto.toNotification();
+    assertThat(decoded).isInstanceOf(WithoutState.class);
+    assertThat(decoded.getFieldValue("key")).isEqualTo("ABCDE");
+  }
+
+  @Test
+  public void serialize_subclasses_with_state() throws Exception {
+    WithState notification = new WithState();
+    notification.state = "foo";
+
+    NotificationQueueDto dto = NotificationQueueDto.toNotificationQueueDto(notification);
+
+    assertThat(dto.getData()[0]).isEqualTo((byte) 0xAC);
+    Notification decoded = dto.toNotification();
+    assertThat(decoded).isInstanceOf(WithState.class);
+    assertThat(((WithState) decoded).state).isEqualTo("foo");
+  }
+
+  @Test
+  public void decode_notifications_queued_with_java_serialization() throws Exception {
+    Notification notification = new Notification("issue-changes").setFieldValue("key", "ABCDE");
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+      output.writeObject(notification);
+    }
+
+    NotificationQueueDto dto = new NotificationQueueDto().setData(bytes.toByteArray());
+
+    assertThat(dto.toNotification()).isEqualTo(notification);
+  }
+
+  @Test
+  public void decode_null_data() throws Exception {
+    assertThat(new NotificationQueueDto().toNotification()).isNull();
+  }
+
+  private static class WithoutState extends Notification {
+    private static final long serialVersionUID = 1L;
+
+    WithoutState() {
+      super("without-state");
+    }
+  }
+
+  private static class WithState extends Notification {
+    private static final long serialVersionUID = 1L;
+    private String state;
+
+    WithState() {
+      super("with-state");
+    }
+  }
+}
@@ -48,7 +48,9 @@ import org.sonar.db.component.BranchType;
 import org.sonar.db.component.ComponentDbTester;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.ComponentTesting;
+import org.sonar.db.component.SnapshotDto;
 import org.sonar.db.measure.MeasureDto;
+import org.sonar.db.measure.MeasureHistoryDto;
 import org.sonar.db.measure.custom.CustomMeasureDto;
 import org.sonar.db.metric.MetricDto;
 import org.sonar.db.property.PropertyDto;
@@ -59,6 +61,7 @@ import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 import static org.apache.commons.lang.RandomStringUtils.randomAlphabetic;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
@@ -416,6 +419,65 @@ public class PurgeDaoTest {
     assertThat(dbClient.liveMeasureDao().selectByComponentUuidsAndMetricIds(dbSession, asList(project2.uuid(), module2.uuid()), asList(metric.getId()))).hasSize(2);
   }
 
+  @Test
+  public void purge_removes_deleted_analyses_from_measures_history() {
+    MetricDto metric = dbTester.measures().insertMetric(m -> m.setDeleteHistoricalData(false));
+    ComponentDto project = dbTester.components().insertPrivateProject();
+    SnapshotDto analysis = dbTester.components().insertSnapshot(project);
+    insertHistory(project, metric, analysis.getUuid(), "deleted_analysis");
+
+    underTest.purge(dbSession, newConfigurationWith30Days(system2, project.uuid()), PurgeListener.EMPTY, new PurgeProfiler());
+
+    assertThat(selectHistoryAnalysisUuids(project)).containsExactly(analysis.getUuid());
+  }
+
+  @Test
+  public void purge_restricts_measures_history_of_metrics_without_historical_data_to_analyses_not_purged() {
+    MetricDto metricWithHistory = dbTester.measures().insertMetric(m -> m.setDeleteHistoricalData(false));
+    MetricDto metricWithoutHistory = dbTester.measures().insertMetric(m -> m.setDeleteHistoricalData(true));
+    ComponentDto project = dbTester.components().insertPrivateProject();
+    SnapshotDto pastAnalysis = dbTester.components().insertSnapshot(project, s -> s.setLast(false).setCreatedAt(1_000L));
+    SnapshotDto lastAnalysis = dbTester.components().insertSnapshot(project, s -> s.setLast(true).setCreatedAt(2_000L));
+    insertHistory(project, metricWithHistory, pastAnalysis.getUuid(), lastAnalysis.getUuid());
+    insertHistory(project, metricWithoutHistory, pastAnalysis.getUuid(), lastAnalysis.getUuid());
+
+    underTest.purge(dbSession, newConfigurationWith30Days(system2, project.uuid()), PurgeListener.EMPTY, new PurgeProfiler());
+
+    assertThat(dbClient.measureDao().selectHistory(dbSession, project.uuid()))
+      .extracting(MeasureHistoryDto::getMetricId, history -> history.getMeasures(null, null).size())
+      .containsOnly(tuple(metricWithHistory.getId(), 2), tuple(metricWithoutHistory.getId(), 1));
+  }
+
+  @Test
+  public void delete_measures_history_when_deleting_project() {
+    MetricDto metric = dbTester.measures().insertMetric();
+    ComponentDto project1 = dbTester.components().insertPrivateProject();
+    ComponentDto project2 = dbTester.components().insertPrivateProject();
+    insertHistory(project1, metric, "a1");
+    insertHistory(project2, metric, "a2");
+
+    underTest.deleteProject(dbSession, project1.uuid());
+
+    assertThat(dbClient.measureDao().selectHistory(dbSession, project1.uuid())).isEmpty();
+    assertThat(dbClient.measureDao().selectHistory(dbSession, project2.uuid())).hasSize(1);
+  }
+
+  private void insertHistory(ComponentDto component, MetricDto metric, String... analysisUuids) {
+    MeasureHistoryDto history = new MeasureHistoryDto().setComponentUuid(component.uuid()).setMetricId(metric.getId());
+    for (int i = 0; i < analysisUuids.length; i++) {
+      history.addMeasure(i, new MeasureDto().setAnalysisUuid(analysisUuids[i]).setValue((double) i));
+    }
+    dbClient.measureDao().insertHistory(dbSession, history);
+    dbSession.commit();
+  }
+
+  private List<String> selectHistoryAnalysisUuids(ComponentDto component) {
+    return dbClient.measureDao().selectHistory(dbSession, component.uuid()).stream()
+      .flatMap(history -> history.getMeasures(null, null).stream())
+      .map(MeasureDto::getAnalysisUuid)
+      .collect(Collectors.toList());
+  }
+
   private void verifyNoEffect(ComponentDto firstRoot, ComponentDto... otherRoots) {
     DbSession dbSession = mock(DbSession.class);
 
@@ -151,6 +151,21 @@ public class ActiveRuleDaoTest {
     assertThat(underTest.selectByProfile(dbSession, profile2)).isEmpty();
   }
 
+  @Test
+  public void selectMaxRuleUpdatedAtByProfileUuids() {
+    RuleDefinitionDto oldRule = db.rules().insert(r -> r.setUpdatedAt(1_000L));
+    RuleDefinitionDto recentRule = db.rules().insert(r -> r.setUpdatedAt(2_000L));
+    RuleDefinitionDto ruleOfOtherProfile = db.rules().insert(r -> r.setUpdatedAt(3_000L));
+    QProfileDto profile3 = db.qualityProfiles().insert(organization);
+    db.qualityProfiles().activateRule(profile1, oldRule);
+    db.qualityProfiles().activateRule(profile2, recentRule);
+    db.qualityProfiles().activateRule(profile3, ruleOfOtherProfile);
+
+    assertThat(underTest.selectMaxRuleUpdatedAtByProfileUuids(dbSession, asList(profile1.getKee(), profile2.getKee()))).isEqualTo(2_000L);
+    assertThat(underTest.selectMaxRuleUpdatedAtByProfileUuids(dbSession, asList(profile1.getKee()))).isEqualTo(1_000L);
+    assertThat(underTest.selectMaxRuleUpdatedAtByProfileUuids(dbSession, asList(db.qualityProfiles().insert(organization).getKee()))).isZero();
+  }
+
   @Test
   public void selectByProfileUuid_ignores_removed_rules() {
     ActiveRuleDto activeRule = createFor(profile1, removedRule).setSeverity(BLOCKER);
@@ -255,6 +255,24 @@ public class RuleDaoTest {
       .containsExactly(organizationUuid, organizationUuid, organizationUuid);
   }
 
+  @Test
+  public void selectUpdatedSince_returns_rules_with_updated_definition_or_metadata() {
+    RuleDefinitionDto oldRule = db.rules().insert(r -> r.setCreatedAt(1_000L).setUpdatedAt(1_000L));
+    RuleDefinitionDto updatedRule = db.rules().insert(r -> r.setCreatedAt(1_000L).setUpdatedAt(2_000L));
+    RuleDefinitionDto ruleWithUpdatedMetadata = db.rules().insert(r -> r.setCreatedAt(1_000L).setUpdatedAt(1_000L));
+    db.rules().insertOrUpdateMetadata(ruleWithUpdatedMetadata, organization, m -> m.setCreatedAt(1_000L).setUpdatedAt(3_000L));
+    OrganizationDto otherOrganization = db.organizations().insert();
+    db.rules().insertOrUpdateMetadata(oldRule, otherOrganization, m -> m.setCreatedAt(1_000L).setUpdatedAt(3_000L));
+
+    assertThat(underTest.selectUpdatedSince(db.getSession(), ORGANIZATION_UUID, 2_000L))
+      .extracting(RuleDto::getId, RuleDto::getOrganizationUuid)
+      .containsOnly(tuple(updatedRule.getId(), ORGANIZATION_UUID), tuple(ruleWithUpdatedMetadata.getId(), ORGANIZATION_UUID));
+    assertThat(underTest.selectUpdatedSince(db.getSession(), ORGANIZATION_UUID, 3_001L)).isEmpty();
+    assertThat(underTest.selectUpdatedSince(db.getSession(), otherOrganization.getUuid(), 2_500L))
+      .extracting(RuleDto::getId)
+      .containsOnly(oldRule.getId());
+  }
+
   @Test
   public void selectAllDefinitions() {
     db.prepareDbUnit(getClass(), "shared.xml");
@@ -21,6 +21,8 @@ package org.sonar.db.source;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.Function;
 import javax.annotation.Nullable;
 import org.apache.commons.io.IOUtils;
@@ -29,10 +31,13 @@ import org.junit.Test;
 import org.sonar.api.utils.System2;
 import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
+import org.sonar.db.protobuf.DbFileSources;
 import org.sonar.db.source.FileSourceDto.Type;
 
+import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.fail;
+import static org.assertj.core.api.Assertions.tuple;
 
 public class FileSourceDaoTest {
 
@@ -110,6 +115,32 @@ public class FileSourceDaoTest {
       "project_uuid", "file_uuid", "data_hash", "line_hashes", "src_hash", "created_at", "updated_at", "data_type", "revision");
   }
 
+  @Test
+  public void scrollScmDataByFileUuids() {
+    dbTester.prepareDbUnit(getClass(), "shared.xml");
+    DbFileSources.Scm scm = DbFileSources.Scm.newBuilder()
+      .addChangesets(DbFileSources.Scm.Changeset.newBuilder().setRevision("rev1").setDate(10L).setLineCount(3))
+      .build();
+    underTest.insert(session, new FileSourceDto()
+      .setProjectUuid("PRJ_UUID")
+      .setFileUuid("FILE2_UUID")
+      .setBinaryData("FILE2_BINARY_DATA".getBytes())
+      .setScmData(scm)
+      .setSrcHash("FILE2_HASH")
+      .setDataType(Type.SOURCE)
+      .setCreatedAt(1500000000000L)
+      .setUpdatedAt(1500000000001L));
+    session.commit();
+
+    List<FileSourceDto> dtos = new ArrayList<>();
+    underTest.scrollScmDataByFileUuids(session, asList("FILE1_UUID", "FILE2_UUID", "unknown"), context -> dtos.add(context.getResultObject()));
+
+    assertThat(dtos).extracting(FileSourceDto::getFileUuid, FileSourceDto::getSrcHash)
+      .containsOnly(tuple("FILE1_UUID", "FILE_HASH"), tuple("FILE2_UUID", "FILE2_HASH"));
+    assertThat(dtos.stream().filter(dto -> dto.getFileUuid().equals("FILE1_UUID")).findFirst().get().getScmData()).isNull();
+    assertThat(dtos.stream().filter(dto -> dto.getFileUuid().equals("FILE2_UUID")).findFirst().get().getScmData()).isEqualTo(scm);
+  }
+
   @Test
   public void selectLineHashes_does_not_fail_when_lineshashes_is_null() {
     dbTester.prepareDbUnit(getClass(), "shared.xml");
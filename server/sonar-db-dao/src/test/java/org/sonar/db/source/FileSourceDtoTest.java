@@ -21,12 +21,14 @@ package org.sonar.db.source;
 
 import java.util.Arrays;
 import java.util.List;
+import javax.annotation.Nullable;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.sonar.db.protobuf.DbFileSources;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 public class FileSourceDtoTest {
   private static final String LOREM_IPSUM = "Lorem ipsum dolor sit amet, consectetur adipiscing elit. Aliquam ac magna libero. " +
@@ -80,6 +82,50 @@ public class FileSourceDtoTest {
     assertThat(data.getLinesCount()).isEqualTo(build.getLinesCount());
   }
 
+  @Test
+  public void toScmData_groups_consecutive_lines_with_same_scm_info() {
+    List<DbFileSources.Line> lines = Arrays.asList(
+      line(1, "rev1", "henry", 10L),
+      line(2, "rev1", "henry", 10L),
+      line(3, "rev2", "bob", 20L),
+      DbFileSources.Line.newBuilder().setLine(4).build(),
+      line(5, "rev1", "henry", 10L));
+
+    DbFileSources.Scm scm = FileSourceDto.toScmData(lines);
+
+    assertThat(scm.getChangesetsList()).extracting(DbFileSources.Scm.Changeset::getRevision, DbFileSources.Scm.Changeset::getLineCount)
+      .containsExactly(tuple("rev1", 2), tuple("rev2", 1), tuple("", 1), tuple("rev1", 1));
+    assertThat(scm.getChangesets(2).hasRevision()).isFalse();
+    assertThat(scm.getChangesets(1).getAuthor()).isEqualTo("bob");
+    assertThat(scm.getChangesets(1).getDate()).isEqualTo(20L);
+  }
+
+  @Test
+  public void encode_and_decode_scm_data() {
+    DbFileSources.Scm scm = FileSourceDto.toScmData(Arrays.asList(line(1, "rev1", "henry", 10L), line(2, "rev2", null, 20L)));
+
+    FileSourceDto underTest = new FileSourceDto().setScmData(scm);
+
+    assertThat(underTest.getBinaryScmData()).isNotEmpty();
+    assertThat(underTest.getScmData()).isEqualTo(scm);
+  }
+
+  @Test
+  public void getScmData_returns_null_when_column_is_not_set() {
+    assertThat(new FileSourceDto().getScmData()).isNull();
+  }
+
+  private static DbFileSources.Line line(int line, String revision, @Nullable String author, long date) {
+    DbFileSources.Line.Builder builder = DbFileSources.Line.newBuilder()
+      .setLine(line)
+      .setScmRevision(revision)
+      .setScmDate(date);
+    if (author != null) {
+      builder.setScmAuthor(author);
+    }
+    return builder.build();
+  }
+
   private static DbFileSources.Data createOver64MBDataStructure() {
     DbFileSources.Data.Builder dataBuilder = DbFileSources.Data.newBuilder();
     DbFileSources.Line.Builder lineBuilder = DbFileSources.Line.newBuilder();
@@ -27,6 +27,8 @@ public class DbVersion71 implements DbVersion {
   @Override
   public void addSteps(MigrationStepRegistry registry) {
     registry
-      .add(2000, "Delete settings defined in sonar.properties from PROPERTIES table", DeleteSettingsDefinedInSonarDotProperties.class);
+      .add(2000, "Delete settings defined in sonar.properties from PROPERTIES table", DeleteSettingsDefinedInSonarDotProperties.class)
+      .add(2001, "Add SCM_DATA to FILE_SOURCES", AddScmDataToFileSources.class)
+      .add(2002, "Create table PROJECT_MEASURES_HISTORY", CreateTableProjectMeasuresHistory.class);
   }
 }
@@ -0,0 +1,209 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.api.utils.ZipUtils;
+import org.sonar.core.util.CloseableIterator;
+import org.sonar.scanner.protocol.Constants;
+import org.sonar.scanner.protocol.output.ScannerReport;
+import org.sonar.scanner.protocol.output.ScannerReportWriter;
+import org.sonar.server.computation.task.projectanalysis.batch.BatchReportDirectoryHolderImpl;
+import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReaderImpl;
+
+/**
+ * Reading of an analysis report by the Compute Engine, with {@link BatchReportReaderImpl}:
+ * <ul>
+ *   <li>readFromZip: entries are decompressed on demand from the zipped report, as done by ExtractReportStep</li>
+ *   <li>extractThenRead: the report is extracted to a temp directory, then read from there and deleted, as done
+ *   before 7.1</li>
+ * </ul>
+ * Each file of the report is read once, like the steps of an analysis do: component, issues, measures,
+ * changesets and source. The size of the report is printed during setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class BatchReportReaderBenchmark {
+
+  private static final int LINES_PER_FILE = 200;
+
+  @Param({"100", "1000"})
+  public int files;
+
+  private File workDir;
+  private File zipFile;
+  private List<Integer> fileRefs;
+
+  @Setup
+  public void setUp() throws IOException {
+    workDir = Files.createTempDirectory("report-benchmark").toFile();
+    File reportDir = new File(workDir, "report");
+    FileUtils.forceMkdir(reportDir);
+    fileRefs = writeReport(new ScannerReportWriter(reportDir), files);
+    zipFile = new File(workDir, "report.zip");
+    ZipUtils.zipDir(reportDir, zipFile);
+    FileUtils.deleteDirectory(reportDir);
+    System.out.printf("%n%d files: %d bytes zipped%n", files, zipFile.length());
+  }
+
+  @TearDown
+  public void tearDown() {
+    FileUtils.deleteQuietly(workDir);
+  }
+
+  @Benchmark
+  public void readFromZip(Blackhole blackhole) {
+    BatchReportDirectoryHolderImpl holder = new BatchReportDirectoryHolderImpl();
+    holder.setZipFile(zipFile);
+    read(holder, blackhole);
+  }
+
+  @Benchmark
+  public void extractThenRead(Blackhole blackhole) throws IOException {
+    File extractedDir = new File(workDir, "extracted");
+    try {
+      ZipUtils.unzip(zipFile, extractedDir);
+      BatchReportDirectoryHolderImpl holder = new BatchReportDirectoryHolderImpl();
+      holder.setDirectory(extractedDir);
+      read(holder, blackhole);
+    } finally {
+      FileUtils.deleteDirectory(extractedDir);
+    }
+  }
+
+  private void read(BatchReportDirectoryHolderImpl holder, Blackhole blackhole) {
+    BatchReportReaderImpl reader = new BatchReportReaderImpl(holder);
+    reader.start();
+    try {
+      blackhole.consume(reader.readMetadata());
+      for (int ref : fileRefs) {
+        blackhole.consume(reader.readComponent(ref));
+        consume(reader.readComponentIssues(ref), blackhole);
+        consume(reader.readComponentMeasures(ref), blackhole);
+        blackhole.consume(reader.readChangesets(ref));
+        Optional<CloseableIterator<String>> source = reader.readFileSource(ref);
+        source.ifPresent(lines -> consume(lines, blackhole));
+      }
+    } finally {
+      reader.stop();
+    }
+  }
+
+  private static void consume(CloseableIterator<?> iterator, Blackhole blackhole) {
+    try (CloseableIterator<?> it = iterator) {
+      while (it.hasNext()) {
+        blackhole.consume(it.next());
+      }
+    }
+  }
+
+  private static List<Integer> writeReport(ScannerReportWriter writer, int files) throws IOException {
+    int projectRef = 1;
+    List<Integer> fileRefs = new ArrayList<>();
+    for (int i = 0; i < files; i++) {
+      fileRefs.add(projectRef + 1 + i);
+    }
+
+    writer.writeMetadata(ScannerReport.Metadata.newBuilder()
+      .setProjectKey("org.sonarsource.sonarqube:sonarqube")
+      .setRootComponentRef(projectRef)
+      .setAnalysisDate(1_500_000_000_000L)
+      .build());
+    writer.writeComponent(ScannerReport.Component.newBuilder()
+      .setRef(projectRef)
+      .setType(ScannerReport.Component.ComponentType.PROJECT)
+      .setKey("org.sonarsource.sonarqube:sonarqube")
+      .addAllChildRef(fileRefs)
+      .build());
+    for (int ref : fileRefs) {
+      writeFile(writer, ref);
+    }
+    return fileRefs;
+  }
+
+  private static void writeFile(ScannerReportWriter writer, int ref) throws IOException {
+    String path = "src/main/java/org/sonar/server/component/ComponentUpdater" + ref + ".java";
+    writer.writeComponent(ScannerReport.Component.newBuilder()
+      .setRef(ref)
+      .setType(ScannerReport.Component.ComponentType.FILE)
+      .setPath(path)
+      .setProjectRelativePath("server/sonar-server/" + path)
+      .setLanguage("java")
+      .setLines(LINES_PER_FILE)
+      .build());
+
+    List<ScannerReport.Issue> issues = new ArrayList<>();
+    for (int i = 1; i <= 10; i++) {
+      issues.add(ScannerReport.Issue.newBuilder()
+        .setRuleRepository("squid")
+        .setRuleKey("S" + (1000 + i))
+        .setMsg("Remove this unused private \"foo" + i + "\" method.")
+        .setSeverity(Constants.Severity.MAJOR)
+        .setTextRange(ScannerReport.TextRange.newBuilder().setStartLine(i).setEndLine(i).setStartOffset(2).setEndOffset(10))
+        .build());
+    }
+    writer.writeComponentIssues(ref, issues);
+
+    List<ScannerReport.Measure> measures = new ArrayList<>();
+    for (String metricKey : new String[] {"ncloc", "lines", "functions", "statements", "classes", "complexity", "comment_lines"}) {
+      measures.add(ScannerReport.Measure.newBuilder()
+        .setMetricKey(metricKey)
+        .setIntValue(ScannerReport.Measure.IntValue.newBuilder().setValue(ref % 100))
+        .build());
+    }
+    writer.writeComponentMeasures(ref, measures);
+
+    ScannerReport.Changesets.Builder changesets = ScannerReport.Changesets.newBuilder()
+      .setComponentRef(ref)
+      .addChangeset(ScannerReport.Changesets.Changeset.newBuilder().setAuthor("john.doe").setRevision("rev-1").setDate(1_400_000_000_000L))
+      .addChangeset(ScannerReport.Changesets.Changeset.newBuilder().setAuthor("jane.doe").setRevision("rev-2").setDate(1_500_000_000_000L));
+    List<String> lines = new ArrayList<>();
+    for (int line = 0; line < LINES_PER_FILE; line++) {
+      changesets.addChangesetIndexByLine(line % 2);
+      lines.add("    measureRepository.add(component, metric, Measure.newMeasureBuilder().create(" + line + "));");
+    }
+    writer.writeComponentChangesets(changesets.build());
+    FileUtils.writeLines(writer.getSourceFile(ref), "UTF-8", lines);
+  }
+}
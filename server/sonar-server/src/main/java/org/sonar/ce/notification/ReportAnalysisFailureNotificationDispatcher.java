@@ -27,7 +27,6 @@ import org.sonar.api.notifications.NotificationChannel;
 import org.sonar.api.web.UserRole;
 import org.sonar.server.notification.NotificationDispatcher;
 import org.sonar.server.notification.NotificationDispatcherMetadata;
-import org.sonar.server.notification.NotificationManager;
 import org.sonar.server.notification.NotificationManager.SubscriberPermissionsOnProject;
 
 public class ReportAnalysisFailureNotificationDispatcher extends NotificationDispatcher {
@@ -35,11 +34,8 @@ public class ReportAnalysisFailureNotificationDispatcher extends NotificationDis
   public static final String KEY = "CeReportTaskFailure";
   private static final SubscriberPermissionsOnProject REQUIRED_SUBSCRIBER_PERMISSIONS = new SubscriberPermissionsOnProject(UserRole.ADMIN, UserRole.USER);
 
-  private final NotificationManager manager;
-
-  public ReportAnalysisFailureNotificationDispatcher(NotificationManager manager) {
+  public ReportAnalysisFailureNotificationDispatcher() {
     super(ReportAnalysisFailureNotification.TYPE);
-    this.manager = manager;
   }
 
   public static NotificationDispatcherMetadata newMetadata() {
@@ -56,8 +52,7 @@ public class ReportAnalysisFailureNotificationDispatcher extends NotificationDis
   @Override
   public void dispatch(Notification notification, Context context) {
     String projectKey = notification.getFieldValue("project.key");
-    Multimap<String, NotificationChannel> subscribedRecipients = manager
-      .findSubscribedRecipientsForDispatcher(this, projectKey, REQUIRED_SUBSCRIBER_PERMISSIONS);
+    Multimap<String, NotificationChannel> subscribedRecipients = context.findSubscribedRecipients(projectKey, REQUIRED_SUBSCRIBER_PERMISSIONS);
 
     for (Map.Entry<String, Collection<NotificationChannel>> channelsByRecipients : subscribedRecipients.asMap().entrySet()) {
       String userLogin = channelsByRecipients.getKey();
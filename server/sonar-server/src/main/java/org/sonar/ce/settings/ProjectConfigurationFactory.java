@@ -24,6 +24,7 @@ import org.sonar.api.config.Configuration;
 import org.sonar.api.config.Settings;
 import org.sonar.api.config.internal.ConfigurationBridge;
 import org.sonar.db.DbClient;
+import org.sonar.db.component.ComponentDto;
 import org.sonar.server.computation.task.projectanalysis.analysis.Branch;
 import org.sonar.server.settings.ChildSettings;
 
@@ -47,6 +48,18 @@ public class ProjectConfigurationFactory {
     return new ConfigurationBridge(projectSettings);
   }
 
+  /**
+   * Configuration of the specified project or branch, for tasks which are not project analyses
+   */
+  public Configuration newProjectConfiguration(ComponentDto projectOrBranch) {
+    Settings projectSettings = new ChildSettings(globalSettings);
+    addSettings(projectSettings, projectOrBranch.getKey());
+    if (projectOrBranch.getBranch() != null) {
+      addSettings(projectSettings, projectOrBranch.getDbKey());
+    }
+    return new ConfigurationBridge(projectSettings);
+  }
+
   private void addSettings(Settings settings, String componentDbKey) {
     dbClient.propertiesDao()
       .selectProjectProperties(componentDbKey)
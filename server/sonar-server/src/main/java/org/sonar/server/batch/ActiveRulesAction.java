@@ -0,0 +1,259 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.batch;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import javax.annotation.Nullable;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.sonar.api.platform.Server;
+import org.sonar.api.rule.RuleStatus;
+import org.sonar.api.server.ws.Request;
+import org.sonar.api.server.ws.Response;
+import org.sonar.api.server.ws.WebService;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.permission.OrganizationPermission;
+import org.sonar.db.qualityprofile.ActiveRuleParamDto;
+import org.sonar.db.qualityprofile.OrgActiveRuleDto;
+import org.sonar.db.qualityprofile.QProfileDto;
+import org.sonar.db.rule.RuleDefinitionDto;
+import org.sonar.db.rule.RuleParamDto;
+import org.sonar.scanner.protocol.input.ScannerInput;
+import org.sonar.server.exceptions.ForbiddenException;
+import org.sonar.server.exceptions.NotFoundException;
+import org.sonar.server.user.UserSession;
+import org.sonarqube.ws.MediaTypes;
+
+import static java.lang.String.format;
+import static java.net.HttpURLConnection.HTTP_NOT_MODIFIED;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+import static org.sonar.api.web.UserRole.USER;
+import static org.sonar.core.permission.GlobalPermissions.SCAN_EXECUTION;
+import static org.sonar.core.util.Protobuf.setNullable;
+import static org.sonar.core.util.stream.MoreCollectors.index;
+import static org.sonar.core.util.stream.MoreCollectors.uniqueIndex;
+import static org.sonar.server.ws.KeyExamples.KEY_PROJECT_EXAMPLE_001;
+
+/**
+ * Streams the rules activated in a set of quality profiles, so that the scanner loads them in a single
+ * request instead of paginating through api/rules/search.
+ * <p>
+ * The response has an ETag computed from the dates of last change of the profiles and of the activated rules. It
+ * is checked before loading the active rules: when it matches the If-None-Match header of the request, the status
+ * 304 is returned without body and the scanner keeps using its local copy.
+ * </p>
+ */
+public class ActiveRulesAction implements BatchWsAction {
+
+  static final String PARAM_QPROFILE = "qprofile";
+  static final String PARAM_PROJECT = "project";
+  static final String ETAG_HEADER = "ETag";
+  static final String IF_NONE_MATCH_HEADER = "If-None-Match";
+
+  private static final Comparator<ScannerInput.ActiveRule> ORDERING = Comparator.comparing(ScannerInput.ActiveRule::getQprofileKey)
+    .thenComparing(ScannerInput.ActiveRule::getRuleRepository)
+    .thenComparing(ScannerInput.ActiveRule::getRuleKey);
+
+  private final DbClient dbClient;
+  private final UserSession userSession;
+  private final Server server;
+
+  public ActiveRulesAction(DbClient dbClient, UserSession userSession, Server server) {
+    this.dbClient = dbClient;
+    this.userSession = userSession;
+    this.server = server;
+  }
+
+  @Override
+  public void define(WebService.NewController controller) {
+    WebService.NewAction action = controller.createAction("active_rules")
+      .setDescription("Return the rules activated in the given quality profiles, as a stream of delimited protobuf messages. " +
+        "The response has an ETag header. Status 304 is returned without content if it matches the If-None-Match header of the request.")
+      .setSince("7.1")
+      .setInternal(true)
+      .setHandler(this);
+
+    action
+      .createParam(PARAM_QPROFILE)
+      .setRequired(true)
+      .setDescription("Comma-separated list of quality profile keys")
+      .setExampleValue("AU-Tpxb--iU5OvuD2FLy,AU-TpxcA-iU5OvuD2FLz");
+
+    action
+      .createParam(PARAM_PROJECT)
+      .setDescription("Key of the analyzed project. If the project does not exist yet, the permission 'Execute Analysis' " +
+        "is required on the organization of the quality profiles.")
+      .setExampleValue(KEY_PROJECT_EXAMPLE_001);
+  }
+
+  @Override
+  public void handle(Request request, Response response) throws Exception {
+    List<ScannerInput.ActiveRule> activeRules;
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      List<QProfileDto> profiles = loadProfiles(dbSession, request.mandatoryParamAsStrings(PARAM_QPROFILE));
+      checkPermission(dbSession, request.param(PARAM_PROJECT), profiles);
+
+      String etag = etagOf(dbSession, profiles);
+      response.setHeader(ETAG_HEADER, etag);
+      if (request.header(IF_NONE_MATCH_HEADER).filter(etag::equals).isPresent()) {
+        response.stream().setStatus(HTTP_NOT_MODIFIED);
+        return;
+      }
+      activeRules = loadActiveRules(dbSession, profiles);
+    }
+
+    response.stream().setMediaType(MediaTypes.PROTOBUF);
+    OutputStream output = response.stream().output();
+    for (ScannerInput.ActiveRule activeRule : activeRules) {
+      try {
+        activeRule.writeDelimitedTo(output);
+      } catch (IOException e) {
+        throw new IllegalStateException("Unable to serialize active rule", e);
+      }
+    }
+  }
+
+  private List<QProfileDto> loadProfiles(DbSession dbSession, List<String> keys) {
+    List<QProfileDto> profiles = dbClient.qualityProfileDao().selectByUuids(dbSession, keys);
+    if (profiles.size() < keys.size()) {
+      Set<String> foundKeys = profiles.stream().map(QProfileDto::getKee).collect(toSet());
+      List<String> missingKeys = keys.stream().filter(key -> !foundKeys.contains(key)).collect(toList());
+      throw new NotFoundException(format("Quality profiles not found: %s", String.join(", ", missingKeys)));
+    }
+    return profiles;
+  }
+
+  /**
+   * Same permissions as api/batch/project: the user must be allowed to browse or to analyze the project. When the
+   * project does not exist yet, analysis must be allowed in the organizations of the profiles.
+   */
+  private void checkPermission(DbSession dbSession, @Nullable String projectKey, List<QProfileDto> profiles) {
+    ComponentDto project = projectKey == null ? null : dbClient.componentDao().selectByKey(dbSession, projectKey).orNull();
+    if (project == null) {
+      boolean hasScanPerm = profiles.stream()
+        .map(QProfileDto::getOrganizationUuid)
+        .distinct()
+        .allMatch(organizationUuid -> userSession.hasPermission(OrganizationPermission.SCAN, organizationUuid));
+      if (!hasScanPerm) {
+        throw new ForbiddenException(Messages.NO_PERMISSION);
+      }
+      return;
+    }
+    boolean hasScanPerm = userSession.hasComponentPermission(SCAN_EXECUTION, project) ||
+      userSession.hasPermission(OrganizationPermission.SCAN, project.getOrganizationUuid());
+    boolean hasBrowsePerm = userSession.hasComponentPermission(USER, project);
+    boolean sameOrganization = profiles.stream().allMatch(profile -> profile.getOrganizationUuid().equals(project.getOrganizationUuid()));
+    if ((!hasScanPerm && !hasBrowsePerm) || !sameOrganization) {
+      throw new ForbiddenException(Messages.NO_PERMISSION);
+    }
+  }
+
+  private List<ScannerInput.ActiveRule> loadActiveRules(DbSession dbSession, List<QProfileDto> profiles) {
+    List<OrgActiveRuleDto> activeRuleDtos = new ArrayList<>();
+    profiles.forEach(profile -> activeRuleDtos.addAll(dbClient.activeRuleDao().selectByProfile(dbSession, profile)));
+
+    List<Integer> ruleIds = activeRuleDtos.stream().map(OrgActiveRuleDto::getRuleId).distinct().collect(toList());
+    Map<Integer, RuleDefinitionDto> rulesById = loadRulesById(dbSession, ruleIds);
+    Map<Integer, Collection<RuleParamDto>> ruleParamsByRuleId = dbClient.ruleDao().selectRuleParamsByRuleIds(dbSession, ruleIds).stream()
+      .collect(index(RuleParamDto::getRuleId)).asMap();
+    List<Integer> activeRuleIds = activeRuleDtos.stream().map(OrgActiveRuleDto::getId).collect(toList());
+    Map<Integer, Collection<ActiveRuleParamDto>> paramsByActiveRuleId = dbClient.activeRuleDao().selectParamsByActiveRuleIds(dbSession, activeRuleIds).stream()
+      .collect(index(ActiveRuleParamDto::getActiveRuleId)).asMap();
+
+    List<ScannerInput.ActiveRule> activeRules = new ArrayList<>(activeRuleDtos.size());
+    ScannerInput.ActiveRule.Builder builder = ScannerInput.ActiveRule.newBuilder();
+    for (OrgActiveRuleDto activeRuleDto : activeRuleDtos) {
+      RuleDefinitionDto rule = rulesById.get(activeRuleDto.getRuleId());
+      if (rule == null || rule.getStatus() == RuleStatus.REMOVED) {
+        continue;
+      }
+      builder.clear()
+        .setQprofileKey(activeRuleDto.getProfileUuid())
+        .setRuleRepository(rule.getRepositoryKey())
+        .setRuleKey(rule.getRuleKey())
+        .setSeverity(activeRuleDto.getSeverityString())
+        .setCreatedAt(activeRuleDto.getCreatedAt());
+      setNullable(rule.getName(), builder::setName);
+      setNullable(rule.getLanguage(), builder::setLanguage);
+      setNullable(rule.getConfigKey(), builder::setInternalKey);
+      if (rule.getTemplateId() != null) {
+        setNullable(rulesById.get(rule.getTemplateId()), template -> builder.setTemplateRuleKey(template.getRuleKey()));
+      }
+      Map<String, String> params = new HashMap<>();
+      ruleParamsByRuleId.getOrDefault(rule.getId(), emptyList())
+        .forEach(param -> params.put(param.getName(), Objects.toString(param.getDefaultValue(), "")));
+      // overrides default values
+      paramsByActiveRuleId.getOrDefault(activeRuleDto.getId(), emptyList())
+        .forEach(param -> params.put(param.getKey(), Objects.toString(param.getValue(), "")));
+      builder.putAllParams(params);
+      activeRules.add(builder.build());
+    }
+    activeRules.sort(ORDERING);
+    return activeRules;
+  }
+
+  /**
+   * Template rules are loaded along with the activated rules, in order to return the keys of templates
+   */
+  private Map<Integer, RuleDefinitionDto> loadRulesById(DbSession dbSession, List<Integer> ruleIds) {
+    Map<Integer, RuleDefinitionDto> rulesById = new HashMap<>(dbClient.ruleDao().selectDefinitionByIds(dbSession, ruleIds).stream()
+      .collect(uniqueIndex(RuleDefinitionDto::getId)));
+    List<Integer> missingTemplateIds = rulesById.values().stream()
+      .map(RuleDefinitionDto::getTemplateId)
+      .filter(templateId -> templateId != null && !rulesById.containsKey(templateId))
+      .distinct()
+      .collect(toList());
+    if (!missingTemplateIds.isEmpty()) {
+      dbClient.ruleDao().selectDefinitionByIds(dbSession, missingTemplateIds).forEach(template -> rulesById.put(template.getId(), template));
+    }
+    return rulesById;
+  }
+
+  /**
+   * Activations and deactivations update the dates of the profiles. The definitions of rules (name, default values
+   * of parameters, ...) are changed either by users, who update the date of the rule, or on server startup, without
+   * any date being updated. That's why the startup date of the server is part of the tag.
+   */
+  private String etagOf(DbSession dbSession, List<QProfileDto> profiles) {
+    MessageDigest digest = DigestUtils.getMd5Digest();
+    profiles.stream()
+      .sorted(Comparator.comparing(QProfileDto::getKee))
+      .forEach(profile -> digest.update((profile.getKee() + "|" + profile.getRulesUpdatedAt() + "|").getBytes(UTF_8)));
+    List<String> profileUuids = profiles.stream().map(QProfileDto::getKee).collect(toList());
+    long rulesUpdatedAt = dbClient.activeRuleDao().selectMaxRuleUpdatedAtByProfileUuids(dbSession, profileUuids);
+    digest.update((rulesUpdatedAt + "|" + server.getStartedAt().getTime()).getBytes(UTF_8));
+    return "\"" + Hex.encodeHexString(digest.digest()) + "\"";
+  }
+}
@@ -26,6 +26,7 @@ import com.google.common.collect.Ordering;
 import com.google.common.collect.Sets;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -92,6 +93,7 @@ public class TreeAction implements ComponentsWsAction {
   private static final String PATH_SORT = "path";
   private static final String QUALIFIER_SORT = "qualifier";
   private static final Set<String> SORTS = ImmutableSortedSet.of(NAME_SORT, PATH_SORT, QUALIFIER_SORT);
+  private static final String COMPONENTS_FIELD = "components";
 
   private final DbClient dbClient;
   private final ComponentFinder componentFinder;
@@ -165,27 +167,34 @@ public class TreeAction implements ComponentsWsAction {
 
   @Override
   public void handle(org.sonar.api.server.ws.Request request, Response response) throws Exception {
-    TreeWsResponse treeWsResponse = doHandle(toTreeWsRequest(request));
-    writeProtobuf(treeWsResponse, request, response);
-  }
-
-  private TreeWsResponse doHandle(Request treeRequest) {
+    Request treeRequest = toTreeWsRequest(request);
+    ComponentDto baseComponent;
+    OrganizationDto organizationDto;
+    List<ComponentDto> components;
+    Map<String, ComponentDto> referenceComponentsByUuid;
+    int total;
     try (DbSession dbSession = dbClient.openSession(false)) {
-      ComponentDto baseComponent = loadComponent(dbSession, treeRequest);
+      baseComponent = loadComponent(dbSession, treeRequest);
       checkPermissions(baseComponent);
-      OrganizationDto organizationDto = componentFinder.getOrganization(dbSession, baseComponent);
+      organizationDto = componentFinder.getOrganization(dbSession, baseComponent);
 
       ComponentTreeQuery query = toComponentTreeQuery(treeRequest, baseComponent);
-      List<ComponentDto> components = dbClient.componentDao().selectDescendants(dbSession, query);
-      int total = components.size();
+      components = dbClient.componentDao().selectDescendants(dbSession, query);
+      total = components.size();
       components = sortComponents(components, treeRequest);
       components = paginateComponents(components, treeRequest);
 
-      Map<String, ComponentDto> referenceComponentsByUuid = searchReferenceComponentsByUuid(dbSession, components);
-
-      return buildResponse(baseComponent, organizationDto, components, referenceComponentsByUuid,
-        Paging.forPageIndex(treeRequest.getPage()).withPageSize(treeRequest.getPageSize()).andTotal(total));
+      referenceComponentsByUuid = searchReferenceComponentsByUuid(dbSession, components);
     }
+
+    // components are converted to protobuf messages while being written to the response, so that
+    // the whole page of messages is never loaded in memory
+    TreeWsResponse header = buildResponseHeader(baseComponent, organizationDto, referenceComponentsByUuid,
+      Paging.forPageIndex(treeRequest.getPage()).withPageSize(treeRequest.getPageSize()).andTotal(total));
+    Iterator<Components.Component> wsComponents = components.stream()
+      .map(dto -> toWsComponent(dto, organizationDto, referenceComponentsByUuid).build())
+      .iterator();
+    writeProtobuf(header, COMPONENTS_FIELD, wsComponents, request, response);
   }
 
   private ComponentDto loadComponent(DbSession dbSession, Request request) {
@@ -215,7 +224,7 @@ public class TreeAction implements ComponentsWsAction {
     userSession.checkComponentPermission(UserRole.USER, baseComponent);
   }
 
-  private static TreeWsResponse buildResponse(ComponentDto baseComponent, OrganizationDto organizationDto, List<ComponentDto> components,
+  private static TreeWsResponse buildResponseHeader(ComponentDto baseComponent, OrganizationDto organizationDto,
     Map<String, ComponentDto> referenceComponentsByUuid, Paging paging) {
     TreeWsResponse.Builder response = TreeWsResponse.newBuilder();
     response.getPagingBuilder()
@@ -225,9 +234,6 @@ public class TreeAction implements ComponentsWsAction {
       .build();
 
     response.setBaseComponent(toWsComponent(baseComponent, organizationDto, referenceComponentsByUuid));
-    for (ComponentDto dto : components) {
-      response.addComponents(toWsComponent(dto, organizationDto, referenceComponentsByUuid));
-    }
 
     return response.build();
   }
@@ -0,0 +1,68 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.dbcleaner;
+
+import org.sonar.api.ce.ComputeEngineSide;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.ce.queue.CeQueue;
+import org.sonar.ce.queue.CeTaskSubmit;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.ce.CeQueueDto;
+import org.sonar.db.ce.CeTaskTypes;
+
+/**
+ * Records that the history of a project must be purged, by submitting a {@link CeTaskTypes#PROJECT_PURGE} task
+ * processed by {@link ProjectPurgeTaskProcessor}.
+ */
+@ComputeEngineSide
+public class ProjectPurgeScheduler {
+  private static final Logger LOG = Loggers.get(ProjectPurgeScheduler.class);
+
+  private final DbClient dbClient;
+  private final CeQueue ceQueue;
+
+  public ProjectPurgeScheduler(DbClient dbClient, CeQueue ceQueue) {
+    this.dbClient = dbClient;
+    this.ceQueue = ceQueue;
+  }
+
+  /**
+   * Submits a purge task for the specified project or view, unless one is already pending. As a purge task works on
+   * the state of the DB when it's executed, a single pending task covers all the analyses done before it starts.
+   */
+  public void schedule(String rootUuid) {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      boolean alreadyPending = dbClient.ceQueueDao().selectByComponentUuid(dbSession, rootUuid)
+        .stream()
+        .anyMatch(task -> CeTaskTypes.PROJECT_PURGE.equals(task.getTaskType()) && task.getStatus() == CeQueueDto.Status.PENDING);
+      if (alreadyPending) {
+        LOG.debug("Purge of component {} is already pending", rootUuid);
+        return;
+      }
+    }
+
+    CeTaskSubmit.Builder submit = ceQueue.prepareSubmit();
+    submit.setType(CeTaskTypes.PROJECT_PURGE);
+    submit.setComponentUuid(rootUuid);
+    ceQueue.submit(submit.build());
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.dbcleaner;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
+import java.util.Collections;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import org.sonar.api.config.Configuration;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.ce.queue.CeTask;
+import org.sonar.ce.queue.CeTaskResult;
+import org.sonar.ce.settings.ProjectConfigurationFactory;
+import org.sonar.ce.taskprocessor.CeTaskProcessor;
+import org.sonar.core.config.PurgeConstants;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.ce.CeTaskTypes;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.purge.IdUuidPair;
+import org.sonar.db.purge.PurgeThrottler;
+
+/**
+ * Purges the history of a project or view, out of the processing of its analyses.
+ * <p>
+ * As any other task of the component, the purge is executed only when no other task of the component is in progress,
+ * and no other task of the component starts until the purge is over. A purge slowed down by
+ * {@link PurgeConstants#BACKGROUND_PURGE_MAX_ROWS_PER_SECOND} therefore delays the next analysis of the project by as much.
+ * </p>
+ *
+ * @see ProjectPurgeScheduler
+ */
+public class ProjectPurgeTaskProcessor implements CeTaskProcessor {
+  private static final Logger LOG = Loggers.get(ProjectPurgeTaskProcessor.class);
+  private static final Set<String> HANDLED_TYPES = Collections.singleton(CeTaskTypes.PROJECT_PURGE);
+
+  private final DbClient dbClient;
+  private final ProjectCleaner projectCleaner;
+  private final ProjectConfigurationFactory projectConfigurationFactory;
+  private final System2 system2;
+
+  public ProjectPurgeTaskProcessor(DbClient dbClient, ProjectCleaner projectCleaner, ProjectConfigurationFactory projectConfigurationFactory,
+    System2 system2) {
+    this.dbClient = dbClient;
+    this.projectCleaner = projectCleaner;
+    this.projectConfigurationFactory = projectConfigurationFactory;
+    this.system2 = system2;
+  }
+
+  @Override
+  public Set<String> getHandledCeTaskTypes() {
+    return HANDLED_TYPES;
+  }
+
+  @Override
+  @CheckForNull
+  public CeTaskResult process(CeTask task) {
+    // not a batch session, as the throttler needs the number of rows deleted by each statement
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      Optional<ComponentDto> root = dbClient.componentDao().selectByUuid(dbSession, task.getComponentUuid());
+      if (!root.isPresent()) {
+        LOG.info("Component {} does not exist anymore. Nothing to purge.", task.getComponentUuid());
+        return null;
+      }
+      Configuration config = projectConfigurationFactory.newProjectConfiguration(root.get());
+      IdUuidPair rootId = new IdUuidPair(root.get().getId(), root.get().uuid());
+      projectCleaner.purgeHistory(dbSession, rootId, config, createThrottler(config));
+      dbSession.commit();
+    }
+    return null;
+  }
+
+  private PurgeThrottler createThrottler(Configuration config) {
+    int maxRowsPerSecond = config.getInt(PurgeConstants.BACKGROUND_PURGE_MAX_ROWS_PER_SECOND).orElse(0);
+    if (maxRowsPerSecond <= 0) {
+      return PurgeThrottler.NONE;
+    }
+    return newRowsPerSecondThrottler(maxRowsPerSecond);
+  }
+
+  @VisibleForTesting
+  RowsPerSecondPurgeThrottler newRowsPerSecondThrottler(int maxRowsPerSecond) {
+    return new RowsPerSecondPurgeThrottler(system2, maxRowsPerSecond);
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.dbcleaner;
+
+import org.sonar.api.utils.System2;
+import org.sonar.db.purge.PurgeThrottler;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Pauses the purge as long as more rows have been deleted since the first call than allowed by the maximum rate.
+ */
+class RowsPerSecondPurgeThrottler implements PurgeThrottler {
+  private final System2 system2;
+  private final int maxRowsPerSecond;
+  private long start = -1L;
+  private long deletedRows = 0L;
+
+  RowsPerSecondPurgeThrottler(System2 system2, int maxRowsPerSecond) {
+    checkArgument(maxRowsPerSecond > 0, "Maximum number of rows per second must be strictly positive");
+    this.system2 = system2;
+    this.maxRowsPerSecond = maxRowsPerSecond;
+  }
+
+  @Override
+  public void onRowsDeleted(int rows) {
+    long now = system2.now();
+    if (start < 0L) {
+      start = now;
+    }
+    deletedRows += rows;
+    long minDurationMs = deletedRows * 1_000L / maxRowsPerSecond;
+    long pauseMs = start + minDurationMs - now;
+    if (pauseMs > 0L) {
+      pause(pauseMs);
+    }
+  }
+
+  void pause(long durationMs) {
+    try {
+      Thread.sleep(durationMs);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
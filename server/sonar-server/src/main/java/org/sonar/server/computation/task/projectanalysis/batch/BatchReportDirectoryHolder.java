@@ -20,6 +20,7 @@
 package org.sonar.server.computation.task.projectanalysis.batch;
 
 import java.io.File;
+import java.util.Optional;
 import org.sonar.ce.queue.CeTask;
 
 public interface BatchReportDirectoryHolder {
@@ -30,4 +31,10 @@ public interface BatchReportDirectoryHolder {
    */
   File getDirectory();
 
+  /**
+   * The zipped Batch report of the current {@link CeTask}, when it is read without being extracted to a directory.
+   * When present, it takes precedence over {@link #getDirectory()}.
+   */
+  Optional<File> getZipFile();
+
 }
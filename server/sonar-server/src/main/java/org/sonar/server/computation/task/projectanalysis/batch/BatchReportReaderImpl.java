@@ -21,26 +21,41 @@ package org.sonar.server.computation.task.projectanalysis.batch;
 
 import com.google.common.base.Throwables;
 import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
 import com.google.protobuf.Parser;
+import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import javax.annotation.CheckForNull;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.LineIterator;
+import org.picocontainer.Startable;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.core.util.LineReaderIterator;
+import org.sonar.core.util.Protobuf;
+import org.sonar.scanner.protocol.output.FileStructure;
 import org.sonar.scanner.protocol.output.ScannerReport;
 
-public class BatchReportReaderImpl implements BatchReportReader {
+import static org.sonar.core.util.CloseableIterator.emptyCloseableIterator;
+import static org.sonar.scanner.protocol.output.FileStructure.fileNameFor;
+
+/**
+ * Reads the report either from the directory it has been extracted to, or straight from the zipped report when
+ * {@link BatchReportDirectoryHolder#getZipFile()} is present. In the latter case, entries are located through the
+ * central directory of the zip and are decompressed only when they are read.
+ */
+public class BatchReportReaderImpl implements BatchReportReader, Startable {
 
   private final BatchReportDirectoryHolder batchReportDirectoryHolder;
-  private org.sonar.scanner.protocol.output.ScannerReportReader delegate;
+  private ReportEntries entries;
   // caching of metadata which are read often
   private ScannerReport.Metadata metadata;
 
@@ -49,109 +64,117 @@ public class BatchReportReaderImpl implements BatchReportReader {
   }
 
   private void ensureInitialized() {
-    if (this.delegate == null) {
-      this.delegate = new org.sonar.scanner.protocol.output.ScannerReportReader(batchReportDirectoryHolder.getDirectory());
+    if (this.entries == null) {
+      Optional<File> zipFile = batchReportDirectoryHolder.getZipFile();
+      if (zipFile.isPresent()) {
+        this.entries = new ZipReportEntries(zipFile.get());
+      } else {
+        this.entries = new DirectoryReportEntries(batchReportDirectoryHolder.getDirectory());
+      }
+    }
+  }
+
+  @Override
+  public void start() {
+    // nothing to do, report is opened lazily
+  }
+
+  @Override
+  public void stop() {
+    if (this.entries != null) {
+      this.entries.close();
+      this.entries = null;
     }
   }
 
   @Override
   public ScannerReport.Metadata readMetadata() {
-    ensureInitialized();
     if (this.metadata == null) {
-      this.metadata = delegate.readMetadata();
+      InputStream input = open(FileStructure.METADATA_FILE_NAME);
+      if (input == null) {
+        throw new IllegalStateException("Metadata file is missing in analysis report: " + FileStructure.METADATA_FILE_NAME);
+      }
+      this.metadata = Protobuf.read(input, ScannerReport.Metadata.parser());
     }
     return this.metadata;
   }
 
   @Override
   public CloseableIterator<String> readScannerLogs() {
-    ensureInitialized();
-    File file = delegate.getFileStructure().analysisLog();
-    if (!file.exists()) {
-      return CloseableIterator.emptyCloseableIterator();
-    }
-    try {
-      InputStreamReader reader = new InputStreamReader(FileUtils.openInputStream(file), StandardCharsets.UTF_8);
-      return new LineReaderIterator(reader);
-    } catch (IOException e) {
-      throw new IllegalStateException("Fail to open file " + file, e);
+    InputStream input = open(FileStructure.ANALYSIS_LOG_FILE_NAME);
+    if (input == null) {
+      return emptyCloseableIterator();
     }
+    return new LineReaderIterator(new InputStreamReader(input, StandardCharsets.UTF_8));
   }
 
   @Override
   public CloseableIterator<ScannerReport.ActiveRule> readActiveRules() {
-    ensureInitialized();
-    return delegate.readActiveRules();
+    return readStream(FileStructure.ACTIVE_RULES_FILE_NAME, ScannerReport.ActiveRule.parser());
   }
 
   @Override
   public CloseableIterator<ScannerReport.Measure> readComponentMeasures(int componentRef) {
-    ensureInitialized();
-    return delegate.readComponentMeasures(componentRef);
+    return readStream(fileNameFor(FileStructure.Domain.MEASURES, componentRef), ScannerReport.Measure.parser());
   }
 
   @Override
   @CheckForNull
   public ScannerReport.Changesets readChangesets(int componentRef) {
-    ensureInitialized();
-    return delegate.readChangesets(componentRef);
+    InputStream input = open(fileNameFor(FileStructure.Domain.CHANGESETS, componentRef));
+    if (input == null) {
+      return null;
+    }
+    return Protobuf.read(input, ScannerReport.Changesets.parser());
   }
 
   @Override
   public ScannerReport.Component readComponent(int componentRef) {
-    ensureInitialized();
-    return delegate.readComponent(componentRef);
+    String fileName = fileNameFor(FileStructure.Domain.COMPONENT, componentRef);
+    InputStream input = open(fileName);
+    if (input == null) {
+      throw new IllegalStateException("Unable to find report for component #" + componentRef + ". File does not exist: " + fileName);
+    }
+    return Protobuf.read(input, ScannerReport.Component.parser());
   }
 
   @Override
   public CloseableIterator<ScannerReport.Issue> readComponentIssues(int componentRef) {
-    ensureInitialized();
-    return delegate.readComponentIssues(componentRef);
+    return readStream(fileNameFor(FileStructure.Domain.ISSUES, componentRef), ScannerReport.Issue.parser());
   }
 
   @Override
   public CloseableIterator<ScannerReport.Duplication> readComponentDuplications(int componentRef) {
-    ensureInitialized();
-    return delegate.readComponentDuplications(componentRef);
+    return readStream(fileNameFor(FileStructure.Domain.DUPLICATIONS, componentRef), ScannerReport.Duplication.parser());
   }
 
   @Override
   public CloseableIterator<ScannerReport.CpdTextBlock> readCpdTextBlocks(int componentRef) {
-    ensureInitialized();
-    return delegate.readCpdTextBlocks(componentRef);
+    return readStream(fileNameFor(FileStructure.Domain.CPD_TEXT_BLOCKS, componentRef), ScannerReport.CpdTextBlock.parser());
   }
 
   @Override
   public CloseableIterator<ScannerReport.Symbol> readComponentSymbols(int componentRef) {
-    ensureInitialized();
-    return delegate.readComponentSymbols(componentRef);
+    return readStream(fileNameFor(FileStructure.Domain.SYMBOLS, componentRef), ScannerReport.Symbol.parser());
   }
 
   @Override
   public CloseableIterator<ScannerReport.SyntaxHighlightingRule> readComponentSyntaxHighlighting(int fileRef) {
-    ensureInitialized();
-    return delegate.readComponentSyntaxHighlighting(fileRef);
+    return readStream(fileNameFor(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, fileRef), ScannerReport.SyntaxHighlightingRule.parser());
   }
 
   @Override
   public CloseableIterator<ScannerReport.LineCoverage> readComponentCoverage(int fileRef) {
-    ensureInitialized();
-    return delegate.readComponentCoverage(fileRef);
+    return readStream(fileNameFor(FileStructure.Domain.COVERAGES, fileRef), ScannerReport.LineCoverage.parser());
   }
 
   @Override
   public Optional<CloseableIterator<String>> readFileSource(int fileRef) {
-    ensureInitialized();
-    File file = delegate.readFileSource(fileRef);
-    if (file == null) {
+    InputStream input = open(fileNameFor(FileStructure.Domain.SOURCE, fileRef));
+    if (input == null) {
       return Optional.empty();
     }
-
-    try {
-      return Optional.of(new CloseableLineIterator(IOUtils.lineIterator(FileUtils.openInputStream(file), StandardCharsets.UTF_8)));
-    } catch (IOException e) {
-      throw new IllegalStateException("Fail to traverse file: " + file, e);
-    }
+    return Optional.of(new CloseableLineIterator(IOUtils.lineIterator(input, StandardCharsets.UTF_8)));
   }
 
   private static class CloseableLineIterator extends CloseableIterator<String> {
@@ -185,57 +208,62 @@ public class BatchReportReaderImpl implements BatchReportReader {
 
   @Override
   public CloseableIterator<ScannerReport.Test> readTests(int testFileRef) {
-    ensureInitialized();
-    File file = delegate.readTests(testFileRef);
-    if (file == null) {
-      return CloseableIterator.emptyCloseableIterator();
-    }
-
-    try {
-      return new ParserCloseableIterator<>(ScannerReport.Test.parser(), FileUtils.openInputStream(file));
-    } catch (IOException e) {
-      Throwables.propagate(e);
-      // actually never reached
-      return CloseableIterator.emptyCloseableIterator();
+    InputStream input = open(fileNameFor(FileStructure.Domain.TESTS, testFileRef));
+    if (input == null) {
+      return emptyCloseableIterator();
     }
+    return new ParserCloseableIterator<>(ScannerReport.Test.parser(), input);
   }
 
   @Override
   public CloseableIterator<ScannerReport.CoverageDetail> readCoverageDetails(int testFileRef) {
-    ensureInitialized();
-    File file = delegate.readCoverageDetails(testFileRef);
-    if (file == null) {
-      return CloseableIterator.emptyCloseableIterator();
-    }
-
-    try {
-      return new ParserCloseableIterator<>(ScannerReport.CoverageDetail.parser(), FileUtils.openInputStream(file));
-    } catch (IOException e) {
-      Throwables.propagate(e);
-      // actually never reached
-      return CloseableIterator.emptyCloseableIterator();
+    InputStream input = open(fileNameFor(FileStructure.Domain.COVERAGE_DETAILS, testFileRef));
+    if (input == null) {
+      return emptyCloseableIterator();
     }
+    return new ParserCloseableIterator<>(ScannerReport.CoverageDetail.parser(), input);
   }
 
   @Override
   public CloseableIterator<ScannerReport.ContextProperty> readContextProperties() {
+    return readStream(FileStructure.CONTEXT_PROPERTIES_FILE_NAME, ScannerReport.ContextProperty.parser());
+  }
+
+  private <T extends Message> CloseableIterator<T> readStream(String fileName, Parser<T> parser) {
+    InputStream input = open(fileName);
+    if (input == null) {
+      return emptyCloseableIterator();
+    }
+    // the input stream is closed by the CloseableIterator
+    return Protobuf.readStream(input, parser);
+  }
+
+  /**
+   * @return {@code null} if the report does not contain the specified file
+   */
+  @CheckForNull
+  private InputStream open(String fileName) {
     ensureInitialized();
-    return delegate.readContextProperties();
+    try {
+      return entries.open(fileName);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to open file " + fileName + " of analysis report", e);
+    }
   }
 
   private static class ParserCloseableIterator<T> extends CloseableIterator<T> {
     private final Parser<T> parser;
-    private final FileInputStream fileInputStream;
+    private final InputStream inputStream;
 
-    public ParserCloseableIterator(Parser<T> parser, FileInputStream fileInputStream) {
+    public ParserCloseableIterator(Parser<T> parser, InputStream inputStream) {
       this.parser = parser;
-      this.fileInputStream = fileInputStream;
+      this.inputStream = inputStream;
     }
 
     @Override
     protected T doNext() {
       try {
-        return parser.parseDelimitedFrom(fileInputStream);
+        return parser.parseDelimitedFrom(inputStream);
       } catch (InvalidProtocolBufferException e) {
         Throwables.propagate(e);
         // actually never reached
@@ -245,7 +273,67 @@ public class BatchReportReaderImpl implements BatchReportReader {
 
     @Override
     protected void doClose() throws Exception {
-      fileInputStream.close();
+      inputStream.close();
+    }
+  }
+
+  private interface ReportEntries {
+    /**
+     * @return {@code null} if the report does not contain the specified file
+     */
+    @CheckForNull
+    InputStream open(String fileName) throws IOException;
+
+    void close();
+  }
+
+  private static class DirectoryReportEntries implements ReportEntries {
+    private final FileStructure fileStructure;
+
+    private DirectoryReportEntries(File directory) {
+      this.fileStructure = new FileStructure(directory);
+    }
+
+    @Override
+    @CheckForNull
+    public InputStream open(String fileName) throws IOException {
+      File file = new File(fileStructure.root(), fileName);
+      if (!file.isFile()) {
+        return null;
+      }
+      return new BufferedInputStream(FileUtils.openInputStream(file));
+    }
+
+    @Override
+    public void close() {
+      // nothing to release
+    }
+  }
+
+  private static class ZipReportEntries implements ReportEntries {
+    private final ZipFile zipFile;
+
+    private ZipReportEntries(File file) {
+      try {
+        this.zipFile = new ZipFile(file);
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to open analysis report " + file, e);
+      }
+    }
+
+    @Override
+    @CheckForNull
+    public InputStream open(String fileName) throws IOException {
+      ZipEntry entry = zipFile.getEntry(fileName);
+      if (entry == null || entry.isDirectory()) {
+        return null;
+      }
+      return new BufferedInputStream(zipFile.getInputStream(entry));
+    }
+
+    @Override
+    public void close() {
+      IOUtils.closeQuietly(zipFile);
     }
   }
 }
@@ -19,12 +19,14 @@
  */
 package org.sonar.server.computation.task.projectanalysis.component;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import org.sonar.core.util.Uuids;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
+import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.KeyWithUuidDto;
 
 public class ComponentUuidFactory {
@@ -38,6 +40,16 @@ public class ComponentUuidFactory {
     }
   }
 
+  /**
+   * Uses the components already loaded from database, for example by {@link ExistingComponentsHolder}, instead of
+   * reading the keys and UUIDs of the project.
+   */
+  public ComponentUuidFactory(Collection<ComponentDto> existingComponents) {
+    for (ComponentDto dto : existingComponents) {
+      uuidsByKey.put(dto.getDbKey(), dto.uuid());
+    }
+  }
+
   /**
    * Get UUID from database if it exists, otherwise generate a new one.
    */
@@ -0,0 +1,39 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.component;
+
+import java.util.Collection;
+import java.util.Optional;
+import org.sonar.db.component.ComponentDto;
+
+/**
+ * Components of the analyzed branch, including the disabled ones, as they were persisted in database before the
+ * processing of the report. They are loaded when building the tree and released once persisted, so that they are
+ * not kept in memory for the rest of the task.
+ */
+public interface ExistingComponentsHolder {
+
+  /**
+   * @return empty if the components have not been loaded, for example when the tree is not built from a
+   *         report, or if they have already been released
+   */
+  Optional<Collection<ComponentDto>> getComponents();
+
+}
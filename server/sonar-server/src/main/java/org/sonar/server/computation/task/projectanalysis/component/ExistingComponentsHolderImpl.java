@@ -0,0 +1,48 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.component;
+
+import java.util.Collection;
+import java.util.Optional;
+import org.sonar.db.component.ComponentDto;
+
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.Objects.requireNonNull;
+
+public class ExistingComponentsHolderImpl implements MutableExistingComponentsHolder {
+
+  private Collection<ComponentDto> components;
+
+  @Override
+  public Optional<Collection<ComponentDto>> getComponents() {
+    return Optional.ofNullable(components);
+  }
+
+  @Override
+  public void setComponents(Collection<ComponentDto> components) {
+    checkState(this.components == null, "Components have already been set in holder");
+    this.components = requireNonNull(components, "Components can't be null");
+  }
+
+  @Override
+  public void clear() {
+    this.components = null;
+  }
+}
@@ -0,0 +1,34 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.component;
+
+/**
+ * Marker interface of the {@link TypeAwareVisitor} which can be executed by a {@link VisitorsCrawler} running
+ * in fork/join mode.
+ * <p>
+ * In this mode, sibling subtrees of the component tree are visited concurrently: the visit methods of such a visitor
+ * can be called at the same time from different threads, for components which are neither the ancestor nor the
+ * descendant of one another. The order of the visits of a given component, and of a component relative to its
+ * ancestors, is the same as in sequential mode: pre-order visits are done before the ones of the children and
+ * post-order visits are done once all the children have been visited.
+ * </p>
+ */
+public interface ThreadSafeVisitor extends ComponentVisitor {
+}
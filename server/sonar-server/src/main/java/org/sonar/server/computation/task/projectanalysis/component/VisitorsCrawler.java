@@ -23,20 +23,32 @@ import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.util.logs.Profiler;
 
 import static com.google.common.collect.FluentIterable.from;
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.collect.Iterables.concat;
 import static java.util.Objects.requireNonNull;
 
 /**
  * This crawler make any number of {@link TypeAwareVisitor} or {@link PathAwareVisitor} defined in a list visit a component tree, component per component, in the order of the list
+ * <p>
+ * When created with a {@link ForkJoinPool}, the crawler runs in fork/join mode: the subtrees of the children of a
+ * component are visited in parallel by the threads of the pool, while the leaves are visited by the current thread.
+ * The post-order visit of a component always happens once all its children have been visited. Only visitors which are
+ * both {@link TypeAwareVisitor} and {@link ThreadSafeVisitor} are supported in this mode.
+ * </p>
  */
 public class VisitorsCrawler implements ComponentCrawler {
 
@@ -44,17 +56,36 @@ public class VisitorsCrawler implements ComponentCrawler {
   private final Map<ComponentVisitor, VisitorDuration> visitorCumulativeDurations;
   private final List<VisitorWrapper> preOrderVisitorWrappers;
   private final List<VisitorWrapper> postOrderVisitorWrappers;
+  @CheckForNull
+  private final ForkJoinPool forkJoinPool;
 
   public VisitorsCrawler(Iterable<ComponentVisitor> visitors) {
     this(visitors, false);
   }
 
   public VisitorsCrawler(Iterable<ComponentVisitor> visitors, boolean computeDuration) {
+    this(visitors, computeDuration, null);
+  }
+
+  /**
+   * @param forkJoinPool when not {@code null}, the pool used to visit the component tree in fork/join mode
+   *
+   * @throws IllegalArgumentException if {@code forkJoinPool} is not {@code null} and any visitor is not a {@link ThreadSafeVisitor}
+   *         {@link TypeAwareVisitor}
+   */
+  public VisitorsCrawler(Iterable<ComponentVisitor> visitors, boolean computeDuration, @Nullable ForkJoinPool forkJoinPool) {
+    if (forkJoinPool != null) {
+      for (ComponentVisitor visitor : visitors) {
+        checkArgument(visitor instanceof TypeAwareVisitor && visitor instanceof ThreadSafeVisitor,
+          "Only thread-safe TypeAwareVisitor can be used in fork/join mode, got %s", visitor.getClass().getName());
+      }
+    }
     List<VisitorWrapper> visitorWrappers = from(visitors).transform(ToVisitorWrapper.INSTANCE).toList();
     this.preOrderVisitorWrappers = from(visitorWrappers).filter(MathPreOrderVisitor.INSTANCE).toList();
     this.postOrderVisitorWrappers = from(visitorWrappers).filter(MatchPostOrderVisitor.INSTANCE).toList();
     this.computeDuration = computeDuration;
     this.visitorCumulativeDurations = computeDuration ? from(visitors).toMap(VisitorWrapperToInitialDuration.INSTANCE) : Collections.emptyMap();
+    this.forkJoinPool = forkJoinPool;
   }
 
   public Map<ComponentVisitor, Long> getCumulativeDurations() {
@@ -68,6 +99,14 @@ public class VisitorsCrawler implements ComponentCrawler {
 
   @Override
   public void visit(final Component component) {
+    if (forkJoinPool == null) {
+      visitAndWrap(component);
+    } else {
+      forkJoinPool.invoke(new VisitTask(component));
+    }
+  }
+
+  private void visitAndWrap(Component component) {
     try {
       visitImpl(component);
     } catch (RuntimeException e) {
@@ -106,8 +145,29 @@ public class VisitorsCrawler implements ComponentCrawler {
   }
 
   private void visitChildren(Component component) {
+    if (forkJoinPool == null) {
+      for (Component child : component.getChildren()) {
+        visitAndWrap(child);
+      }
+      return;
+    }
+
+    List<VisitTask> subtreeTasks = new ArrayList<>();
     for (Component child : component.getChildren()) {
-      visit(child);
+      if (!child.getChildren().isEmpty()) {
+        VisitTask task = new VisitTask(child);
+        task.fork();
+        subtreeTasks.add(task);
+      }
+    }
+    for (Component child : component.getChildren()) {
+      if (child.getChildren().isEmpty()) {
+        visitAndWrap(child);
+      }
+    }
+    // joining in the order of the children makes the failure reported deterministic when several subtrees fail
+    for (VisitTask task : subtreeTasks) {
+      task.join();
     }
   }
 
@@ -150,6 +210,19 @@ public class VisitorsCrawler implements ComponentCrawler {
     }
   }
 
+  private final class VisitTask extends RecursiveAction {
+    private final transient Component component;
+
+    private VisitTask(Component component) {
+      this.component = component;
+    }
+
+    @Override
+    protected void compute() {
+      visitAndWrap(component);
+    }
+  }
+
   private enum ToVisitorWrapper implements Function<ComponentVisitor, VisitorWrapper> {
     INSTANCE;
 
@@ -211,14 +284,14 @@ public class VisitorsCrawler implements ComponentCrawler {
   }
 
   private static final class VisitorDuration {
-    private long duration = 0;
+    private final AtomicLong duration = new AtomicLong();
 
     public void increment(long duration) {
-      this.duration += duration;
+      this.duration.addAndGet(duration);
     }
 
     public long getDuration() {
-      return duration;
+      return duration.get();
     }
   }
 
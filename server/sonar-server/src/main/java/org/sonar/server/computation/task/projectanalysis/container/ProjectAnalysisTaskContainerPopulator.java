@@ -38,6 +38,7 @@ import org.sonar.server.computation.task.projectanalysis.component.BranchPersist
 import org.sonar.server.computation.task.projectanalysis.component.ConfigurationRepositoryImpl;
 import org.sonar.server.computation.task.projectanalysis.component.DbIdsRepositoryImpl;
 import org.sonar.server.computation.task.projectanalysis.component.DisabledComponentsHolderImpl;
+import org.sonar.server.computation.task.projectanalysis.component.ExistingComponentsHolderImpl;
 import org.sonar.server.computation.task.projectanalysis.component.MergeBranchComponentUuids;
 import org.sonar.server.computation.task.projectanalysis.component.ShortBranchComponentsWithIssues;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolderImpl;
@@ -115,8 +116,17 @@ import org.sonar.server.computation.task.projectanalysis.scm.ScmInfoRepositoryIm
 import org.sonar.server.computation.task.projectanalysis.source.LastCommitVisitor;
 import org.sonar.server.computation.task.projectanalysis.source.SourceHashRepositoryImpl;
 import org.sonar.server.computation.task.projectanalysis.source.SourceLinesRepositoryImpl;
+import org.sonar.server.computation.task.projectanalysis.step.CommentMeasuresStep;
+import org.sonar.server.computation.task.projectanalysis.step.ComplexityMeasuresStep;
+import org.sonar.server.computation.task.projectanalysis.step.CoverageMeasuresStep;
+import org.sonar.server.computation.task.projectanalysis.step.DuplicationMeasuresStep;
+import org.sonar.server.computation.task.projectanalysis.step.LanguageDistributionMeasuresStep;
+import org.sonar.server.computation.task.projectanalysis.step.NewCoverageMeasuresStep;
+import org.sonar.server.computation.task.projectanalysis.step.NewSizeMeasuresStep;
 import org.sonar.server.computation.task.projectanalysis.step.ReportComputationSteps;
+import org.sonar.server.computation.task.projectanalysis.step.SizeMeasuresStep;
 import org.sonar.server.computation.task.projectanalysis.step.SmallChangesetQualityGateSpecialCase;
+import org.sonar.server.computation.task.projectanalysis.step.UnitTestMeasuresStep;
 import org.sonar.server.computation.task.projectanalysis.webhook.WebhookPostTask;
 import org.sonar.server.computation.task.step.ComputationStepExecutor;
 import org.sonar.server.computation.task.step.ComputationSteps;
@@ -185,6 +195,7 @@ public final class ProjectAnalysisTaskContainerPopulator implements ContainerPop
       ConfigurationRepositoryImpl.class,
       DbIdsRepositoryImpl.class,
       DisabledComponentsHolderImpl.class,
+      ExistingComponentsHolderImpl.class,
       QualityGateServiceImpl.class,
       EvaluationResultTextConverterImpl.class,
       SourceLinesRepositoryImpl.class,
@@ -270,6 +281,17 @@ public final class ProjectAnalysisTaskContainerPopulator implements ContainerPop
       MeasureToMeasureDto.class,
       SmallChangesetQualityGateSpecialCase.class,
 
+      // steps executed by ExecuteFormulasStep
+      SizeMeasuresStep.class,
+      NewCoverageMeasuresStep.class,
+      CoverageMeasuresStep.class,
+      CommentMeasuresStep.class,
+      DuplicationMeasuresStep.class,
+      NewSizeMeasuresStep.class,
+      LanguageDistributionMeasuresStep.class,
+      UnitTestMeasuresStep.class,
+      ComplexityMeasuresStep.class,
+
       // webhooks
       WebhookPostTask.class);
   }
@@ -76,9 +76,13 @@ public class DuplicationMeasures {
     this(treeRootHolder, metricRepository, measureRepository, null);
   }
 
+  public Iterable<Formula> getFormulas() {
+    return formulas;
+  }
+
   public void execute() {
     new PathAwareCrawler<>(
-      FormulaExecutorComponentVisitor.newBuilder(metricRepository, measureRepository).buildFor(formulas))
+      FormulaExecutorComponentVisitor.newBuilder(metricRepository, measureRepository).buildFor(getFormulas()))
         .visit(treeRootHolder.getRoot());
   }
 
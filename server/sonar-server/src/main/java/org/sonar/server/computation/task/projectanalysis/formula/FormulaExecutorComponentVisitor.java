@@ -21,9 +21,12 @@ package org.sonar.server.computation.task.projectanalysis.formula;
 
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.CheckForNull;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor;
@@ -64,6 +67,8 @@ public class FormulaExecutorComponentVisitor extends PathAwareVisitorAdapter<For
   private final MetricRepository metricRepository;
   private final MeasureRepository measureRepository;
   private final List<Formula> formulas;
+  @CheckForNull
+  private final long[] cumulativeDurationsInNanos;
 
   private FormulaExecutorComponentVisitor(Builder builder, Iterable<Formula> formulas) {
     super(CrawlerDepthLimit.LEAVES, ComponentVisitor.Order.POST_ORDER, COUNTERS_FACTORY);
@@ -71,6 +76,7 @@ public class FormulaExecutorComponentVisitor extends PathAwareVisitorAdapter<For
     this.measureRepository = builder.measureRepository;
     this.metricRepository = builder.metricRepository;
     this.formulas = ImmutableList.copyOf(formulas);
+    this.cumulativeDurationsInNanos = builder.computeDuration ? new long[this.formulas.size()] : null;
   }
 
   public static Builder newBuilder(MetricRepository metricRepository, MeasureRepository measureRepository) {
@@ -82,6 +88,7 @@ public class FormulaExecutorComponentVisitor extends PathAwareVisitorAdapter<For
     private final MeasureRepository measureRepository;
     @CheckForNull
     private PeriodHolder periodHolder;
+    private boolean computeDuration = false;
 
     private Builder(MetricRepository metricRepository, MeasureRepository measureRepository) {
       this.metricRepository = requireNonNull(metricRepository);
@@ -97,11 +104,33 @@ public class FormulaExecutorComponentVisitor extends PathAwareVisitorAdapter<For
       return this;
     }
 
+    /**
+     * Measure the time spent in each formula, see {@link FormulaExecutorComponentVisitor#getCumulativeDurations()}
+     */
+    public Builder withDurations(boolean computeDuration) {
+      this.computeDuration = computeDuration;
+      return this;
+    }
+
     public FormulaExecutorComponentVisitor buildFor(Iterable<Formula> formulas) {
       return new FormulaExecutorComponentVisitor(this, formulas);
     }
   }
 
+  /**
+   * Time spent in each formula, in milliseconds. Empty if durations are not enabled with {@link Builder#withDurations(boolean)}.
+   */
+  public Map<Formula, Long> getCumulativeDurations() {
+    if (cumulativeDurationsInNanos == null) {
+      return Collections.emptyMap();
+    }
+    Map<Formula, Long> result = new LinkedHashMap<>();
+    for (int i = 0; i < formulas.size(); i++) {
+      result.put(formulas.get(i), TimeUnit.NANOSECONDS.toMillis(cumulativeDurationsInNanos[i]));
+    }
+    return result;
+  }
+
   @Override
   public void visitProject(Component project, Path<FormulaExecutorComponentVisitor.Counters> path) {
     process(project, path);
@@ -146,7 +175,9 @@ public class FormulaExecutorComponentVisitor extends PathAwareVisitorAdapter<For
   }
 
   private void processNotLeaf(Component component, Path<FormulaExecutorComponentVisitor.Counters> path) {
-    for (Formula formula : formulas) {
+    for (int i = 0; i < formulas.size(); i++) {
+      long start = startTime();
+      Formula formula = formulas.get(i);
       Counter counter = path.current().getCounter(formula);
       // If there were no file under this node, the counter won't be initialized
       if (counter != null) {
@@ -155,18 +186,32 @@ public class FormulaExecutorComponentVisitor extends PathAwareVisitorAdapter<For
         }
         aggregateToParent(path, formula, counter);
       }
+      incrementDuration(i, start);
     }
   }
 
   private void processLeaf(Component file, Path<FormulaExecutorComponentVisitor.Counters> path) {
     CounterInitializationContext counterContext = new CounterInitializationContextImpl(file);
-    for (Formula formula : formulas) {
+    for (int i = 0; i < formulas.size(); i++) {
+      long start = startTime();
+      Formula formula = formulas.get(i);
       Counter counter = formula.createNewCounter();
       counter.initialize(counterContext);
       for (String metricKey : formula.getOutputMetricKeys()) {
         addNewMeasure(file, metricKey, formula, counter);
       }
       aggregateToParent(path, formula, counter);
+      incrementDuration(i, start);
+    }
+  }
+
+  private long startTime() {
+    return cumulativeDurationsInNanos == null ? 0L : System.nanoTime();
+  }
+
+  private void incrementDuration(int formulaIndex, long start) {
+    if (cumulativeDurationsInNanos != null) {
+      cumulativeDurationsInNanos[formulaIndex] += System.nanoTime() - start;
     }
   }
 
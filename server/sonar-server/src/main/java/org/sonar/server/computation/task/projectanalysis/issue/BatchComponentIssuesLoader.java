@@ -0,0 +1,106 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.CrawlerDepthLimit;
+import org.sonar.server.computation.task.projectanalysis.component.DepthTraversalTypeAwareCrawler;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
+import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisitorAdapter;
+
+import static java.util.Collections.singletonList;
+import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.POST_ORDER;
+
+/**
+ * Loads the issues of the components of the tree by batches of {@link #BATCH_SIZE} components, following the order
+ * in which {@link IntegrateIssuesVisitor} visits the tree. This replaces one DB session and one query per component
+ * by one session and one streamed query per batch, while only the issues of the current batch are kept in memory.
+ * <p>
+ * The issues of a component are handed out only once: asking again for them triggers a new load, so that callers
+ * never share mutable {@link DefaultIssue} instances.
+ */
+class BatchComponentIssuesLoader {
+  static final int BATCH_SIZE = 100;
+
+  private final TreeRootHolder treeRootHolder;
+  private final Function<Component, String> uuidMapper;
+  private final Function<Collection<String>, Map<String, List<DefaultIssue>>> loader;
+  private final Map<String, List<DefaultIssue>> issuesOfCurrentBatch = new HashMap<>();
+  private List<String> uuidsInVisitOrder;
+  private Map<String, Integer> indexByUuid;
+
+  /**
+   * @param uuidMapper returns the uuid under which the issues of the component are stored, or {@code null} if the
+   *                   component has no such uuid
+   * @param loader loads the issues of the specified uuids, each of them being a key of the returned map
+   */
+  BatchComponentIssuesLoader(TreeRootHolder treeRootHolder, Function<Component, String> uuidMapper,
+    Function<Collection<String>, Map<String, List<DefaultIssue>>> loader) {
+    this.treeRootHolder = treeRootHolder;
+    this.uuidMapper = uuidMapper;
+    this.loader = loader;
+  }
+
+  synchronized List<DefaultIssue> load(String uuid) {
+    List<DefaultIssue> issues = issuesOfCurrentBatch.remove(uuid);
+    if (issues != null) {
+      return issues;
+    }
+
+    initVisitOrder();
+    Integer index = indexByUuid.get(uuid);
+    if (index == null) {
+      // not part of the tree, do not discard the current batch
+      return loader.apply(singletonList(uuid)).get(uuid);
+    }
+
+    List<String> batch = uuidsInVisitOrder.subList(index, Math.min(index + BATCH_SIZE, uuidsInVisitOrder.size()));
+    issuesOfCurrentBatch.clear();
+    issuesOfCurrentBatch.putAll(loader.apply(batch));
+    return issuesOfCurrentBatch.remove(uuid);
+  }
+
+  private void initVisitOrder() {
+    if (uuidsInVisitOrder != null) {
+      return;
+    }
+    List<String> uuids = new ArrayList<>();
+    Map<String, Integer> indexes = new HashMap<>();
+    new DepthTraversalTypeAwareCrawler(
+      new TypeAwareVisitorAdapter(CrawlerDepthLimit.FILE, POST_ORDER) {
+        @Override
+        public void visitAny(Component component) {
+          String uuid = uuidMapper.apply(component);
+          if (uuid != null && indexes.putIfAbsent(uuid, uuids.size()) == null) {
+            uuids.add(uuid);
+          }
+        }
+      }).visit(treeRootHolder.getRoot());
+    this.uuidsInVisitOrder = uuids;
+    this.indexByUuid = indexes;
+  }
+}
@@ -20,6 +20,8 @@
 package org.sonar.server.computation.task.projectanalysis.issue;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import org.sonar.api.rule.RuleKey;
@@ -28,6 +30,7 @@ import org.sonar.core.issue.DefaultIssue;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.issue.IssueChangeDto;
+import org.sonar.db.issue.IssueDto;
 import org.sonar.db.issue.IssueMapper;
 import org.sonar.server.computation.task.projectanalysis.qualityprofile.ActiveRulesHolder;
 
@@ -70,22 +73,62 @@ public class ComponentIssuesLoader {
 
   private List<DefaultIssue> loadForComponentUuid(String componentUuid, DbSession dbSession) {
     List<DefaultIssue> result = new ArrayList<>();
-    dbSession.getMapper(IssueMapper.class).scrollNonClosedByComponentUuid(componentUuid, resultContext -> {
-      DefaultIssue issue = (resultContext.getResultObject()).toDefaultIssue();
-
-      // TODO this field should be set outside this class
-      if (!isActive(issue.ruleKey()) || ruleRepository.getByKey(issue.ruleKey()).getStatus() == RuleStatus.REMOVED) {
-        issue.setOnDisabledRule(true);
-        // TODO to be improved, why setOnDisabledRule(true) is not enough ?
-        issue.setBeingClosed(true);
-      }
-      // FIXME
-      issue.setSelectedAt(System.currentTimeMillis());
-      result.add(issue);
+    dbSession.getMapper(IssueMapper.class).scrollNonClosedByComponentUuid(componentUuid,
+      resultContext -> result.add(toDefaultIssue(resultContext.getResultObject())));
+    return result;
+  }
+
+  /**
+   * Loads the non-closed issues of several components at once, with a single session and a streamed cursor.
+   * Every requested component is present in the returned map, with an empty list when it has no issues.
+   */
+  public Map<String, List<DefaultIssue>> loadForComponentUuids(Collection<String> componentUuids) {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      return loadForComponentUuids(componentUuids, dbSession);
+    }
+  }
+
+  /**
+   * Same as {@link #loadForComponentUuids(Collection)}, but changes and comments are attached to the returned issues.
+   */
+  public Map<String, List<DefaultIssue>> loadForComponentUuidsWithChanges(Collection<String> componentUuids) {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      Map<String, List<DefaultIssue>> result = loadForComponentUuids(componentUuids, dbSession);
+
+      List<String> issueKeys = result.values().stream().flatMap(List::stream).map(DefaultIssue::key).collect(toList());
+      Map<String, List<IssueChangeDto>> changeDtoByIssueKey = dbClient.issueChangeDao()
+        .selectByIssueKeys(dbSession, issueKeys)
+        .stream()
+        .collect(groupingBy(IssueChangeDto::getIssueKey));
+      result.values().forEach(issues -> issues.forEach(i -> setChanges(changeDtoByIssueKey, i)));
+      return result;
+    }
+  }
+
+  private Map<String, List<DefaultIssue>> loadForComponentUuids(Collection<String> componentUuids, DbSession dbSession) {
+    Map<String, List<DefaultIssue>> result = new HashMap<>();
+    componentUuids.forEach(uuid -> result.put(uuid, new ArrayList<>()));
+    dbClient.issueDao().scrollNonClosedByComponentUuids(dbSession, componentUuids, resultContext -> {
+      DefaultIssue issue = toDefaultIssue(resultContext.getResultObject());
+      result.computeIfAbsent(issue.componentUuid(), k -> new ArrayList<>()).add(issue);
     });
     return result;
   }
 
+  private DefaultIssue toDefaultIssue(IssueDto dto) {
+    DefaultIssue issue = dto.toDefaultIssue();
+
+    // TODO this field should be set outside this class
+    if (!isActive(issue.ruleKey()) || ruleRepository.getByKey(issue.ruleKey()).getStatus() == RuleStatus.REMOVED) {
+      issue.setOnDisabledRule(true);
+      // TODO to be improved, why setOnDisabledRule(true) is not enough ?
+      issue.setBeingClosed(true);
+    }
+    // FIXME
+    issue.setSelectedAt(System.currentTimeMillis());
+    return issue;
+  }
+
   public static void setChanges(Map<String, List<IssueChangeDto>> changeDtoByIssueKey, DefaultIssue i) {
     changeDtoByIssueKey.computeIfAbsent(i.key(), k -> emptyList()).forEach(c -> {
       switch (c.getChangeType()) {
@@ -20,14 +20,10 @@
 package org.sonar.server.computation.task.projectanalysis.issue;
 
 import com.google.common.base.Optional;
-import com.google.common.collect.ImmutableMap;
-import java.util.Map;
 import javax.annotation.CheckForNull;
 import org.sonar.api.rule.RuleKey;
-import org.sonar.db.DbClient;
-import org.sonar.db.DbSession;
-import org.sonar.db.rule.RuleDto;
 import org.sonar.server.computation.task.projectanalysis.analysis.AnalysisMetadataHolder;
+import org.sonar.server.computation.task.projectanalysis.issue.RuleSnapshotCache.RuleSnapshot;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Objects.requireNonNull;
@@ -35,15 +31,13 @@ import static java.util.Objects.requireNonNull;
 public class RuleRepositoryImpl implements RuleRepository {
 
   @CheckForNull
-  private Map<RuleKey, Rule> rulesByKey;
-  @CheckForNull
-  private Map<Integer, Rule> rulesById;
+  private RuleSnapshot snapshot;
 
-  private final DbClient dbClient;
+  private final RuleSnapshotCache ruleSnapshotCache;
   private final AnalysisMetadataHolder analysisMetadataHolder;
 
-  public RuleRepositoryImpl(DbClient dbClient, AnalysisMetadataHolder analysisMetadataHolder) {
-    this.dbClient = dbClient;
+  public RuleRepositoryImpl(RuleSnapshotCache ruleSnapshotCache, AnalysisMetadataHolder analysisMetadataHolder) {
+    this.ruleSnapshotCache = ruleSnapshotCache;
     this.analysisMetadataHolder = analysisMetadataHolder;
   }
 
@@ -53,7 +47,7 @@ public class RuleRepositoryImpl implements RuleRepository {
 
     ensureInitialized();
 
-    Rule rule = rulesByKey.get(key);
+    Rule rule = snapshot.getByKey(key);
     checkArgument(rule != null, "Can not find rule for key %s. This rule does not exist in DB", key);
     return rule;
   }
@@ -64,14 +58,14 @@ public class RuleRepositoryImpl implements RuleRepository {
 
     ensureInitialized();
 
-    return Optional.fromNullable(rulesByKey.get(key));
+    return Optional.fromNullable(snapshot.getByKey(key));
   }
 
   @Override
   public Rule getById(int id) {
     ensureInitialized();
 
-    Rule rule = rulesById.get(id);
+    Rule rule = snapshot.getById(id);
     checkArgument(rule != null, "Can not find rule for id %s. This rule does not exist in DB", id);
     return rule;
   }
@@ -80,7 +74,7 @@ public class RuleRepositoryImpl implements RuleRepository {
   public Optional<Rule> findById(int id) {
     ensureInitialized();
 
-    return Optional.fromNullable(rulesById.get(id));
+    return Optional.fromNullable(snapshot.getById(id));
   }
 
   private static void verifyKeyArgument(RuleKey key) {
@@ -88,24 +82,9 @@ public class RuleRepositoryImpl implements RuleRepository {
   }
 
   private void ensureInitialized() {
-    if (rulesByKey == null) {
-      try (DbSession dbSession = dbClient.openSession(false)) {
-        loadRulesFromDb(dbSession);
-      }
-    }
-  }
-
-  private void loadRulesFromDb(DbSession dbSession) {
-    ImmutableMap.Builder<RuleKey, Rule> rulesByKeyBuilder = ImmutableMap.builder();
-    ImmutableMap.Builder<Integer, Rule> rulesByIdBuilder = ImmutableMap.builder();
-    String organizationUuid = analysisMetadataHolder.getOrganization().getUuid();
-    for (RuleDto ruleDto : dbClient.ruleDao().selectAll(dbSession, organizationUuid)) {
-      Rule rule = new RuleImpl(ruleDto);
-      rulesByKeyBuilder.put(ruleDto.getKey(), rule);
-      rulesByIdBuilder.put(ruleDto.getId(), rule);
+    if (snapshot == null) {
+      snapshot = ruleSnapshotCache.get(analysisMetadataHolder.getOrganization().getUuid());
     }
-    this.rulesByKey = rulesByKeyBuilder.build();
-    this.rulesById = rulesByIdBuilder.build();
   }
 
 }
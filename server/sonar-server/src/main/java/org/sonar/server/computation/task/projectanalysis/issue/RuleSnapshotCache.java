@@ -0,0 +1,155 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import javax.annotation.CheckForNull;
+import javax.annotation.concurrent.Immutable;
+import org.sonar.api.ce.ComputeEngineSide;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.api.utils.log.Profiler;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.rule.RuleDto;
+
+import static java.util.Collections.unmodifiableMap;
+
+/**
+ * Immutable snapshots of the rules of organizations, shared by all the workers of the
+ * Compute Engine. Instead of loading all the rules for each task, the snapshot of an
+ * organization is refreshed with the rules whose definition or metadata have been updated
+ * since it was built.
+ */
+@ComputeEngineSide
+public class RuleSnapshotCache {
+
+  private static final Logger LOG = Loggers.get(RuleSnapshotCache.class);
+
+  /**
+   * Rules updated within this delay before the most recent known update are read again,
+   * so that changes committed by concurrent transactions with an older date are not missed.
+   */
+  private static final long UPDATE_DATE_MARGIN = TimeUnit.MINUTES.toMillis(1);
+  private static final int MAX_CACHED_ORGANIZATIONS = 10;
+
+  private final DbClient dbClient;
+  private final Map<String, RuleSnapshot> snapshotsByOrganizationUuid = new LinkedHashMap<String, RuleSnapshot>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, RuleSnapshot> eldest) {
+      return size() > MAX_CACHED_ORGANIZATIONS;
+    }
+  };
+
+  public RuleSnapshotCache(DbClient dbClient) {
+    this.dbClient = dbClient;
+  }
+
+  /**
+   * Up-to-date snapshot of the rules of the specified organization. The returned snapshot
+   * does not change afterwards, so it is consistent for the whole duration of a task.
+   */
+  public RuleSnapshot get(String organizationUuid) {
+    RuleSnapshot snapshot;
+    synchronized (snapshotsByOrganizationUuid) {
+      snapshot = snapshotsByOrganizationUuid.get(organizationUuid);
+    }
+
+    Profiler profiler = Profiler.create(LOG).startDebug("Load rules");
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      if (snapshot == null) {
+        List<RuleDto> rules = dbClient.ruleDao().selectAll(dbSession, organizationUuid);
+        snapshot = RuleSnapshot.of(rules);
+        profiler.addContext("loaded", rules.size());
+      } else {
+        List<RuleDto> rules = dbClient.ruleDao().selectUpdatedSince(dbSession, organizationUuid, snapshot.maxUpdatedAt - UPDATE_DATE_MARGIN);
+        snapshot = snapshot.refresh(rules);
+        profiler.addContext("reloaded", rules.size());
+      }
+    }
+    profiler.stopDebug();
+
+    synchronized (snapshotsByOrganizationUuid) {
+      snapshotsByOrganizationUuid.put(organizationUuid, snapshot);
+    }
+    return snapshot;
+  }
+
+  @Immutable
+  public static final class RuleSnapshot {
+    private final Map<RuleKey, Rule> rulesByKey;
+    private final Map<Integer, Rule> rulesById;
+    private final Map<Integer, Long> updatedAtById;
+    private final long maxUpdatedAt;
+
+    private RuleSnapshot(Map<RuleKey, Rule> rulesByKey, Map<Integer, Rule> rulesById, Map<Integer, Long> updatedAtById) {
+      this.rulesByKey = unmodifiableMap(rulesByKey);
+      this.rulesById = unmodifiableMap(rulesById);
+      this.updatedAtById = unmodifiableMap(updatedAtById);
+      this.maxUpdatedAt = updatedAtById.values().stream().mapToLong(Long::longValue).max().orElse(0L);
+    }
+
+    private static RuleSnapshot of(List<RuleDto> rules) {
+      return new RuleSnapshot(new HashMap<>(rules.size()), new HashMap<>(rules.size()), new HashMap<>(rules.size())).refresh(rules);
+    }
+
+    /**
+     * Returns this snapshot if none of the specified rules changed since it was built,
+     * otherwise a copy including the changes.
+     */
+    private RuleSnapshot refresh(List<RuleDto> rules) {
+      List<RuleDto> changed = rules.stream()
+        .filter(rule -> {
+          Long updatedAt = updatedAtById.get(rule.getId());
+          return updatedAt == null || updatedAt != rule.getUpdatedAt();
+        })
+        .collect(Collectors.toList());
+      if (changed.isEmpty()) {
+        return this;
+      }
+      Map<RuleKey, Rule> newRulesByKey = new HashMap<>(rulesByKey);
+      Map<Integer, Rule> newRulesById = new HashMap<>(rulesById);
+      Map<Integer, Long> newUpdatedAtById = new HashMap<>(updatedAtById);
+      for (RuleDto dto : changed) {
+        Rule rule = new RuleImpl(dto);
+        newRulesByKey.put(dto.getKey(), rule);
+        newRulesById.put(dto.getId(), rule);
+        newUpdatedAtById.put(dto.getId(), dto.getUpdatedAt());
+      }
+      return new RuleSnapshot(newRulesByKey, newRulesById, newUpdatedAtById);
+    }
+
+    @CheckForNull
+    public Rule getByKey(RuleKey key) {
+      return rulesByKey.get(key);
+    }
+
+    @CheckForNull
+    public Rule getById(int id) {
+      return rulesById.get(id);
+    }
+  }
+}
@@ -30,6 +30,7 @@ import org.sonar.core.issue.tracking.LineHashSequence;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.server.computation.task.projectanalysis.filemove.MovedFilesRepository;
 import org.sonar.server.computation.task.projectanalysis.filemove.MovedFilesRepository.OriginalFile;
 
@@ -39,20 +40,26 @@ import org.sonar.server.computation.task.projectanalysis.filemove.MovedFilesRepo
 public class TrackerBaseInputFactory {
   private static final LineHashSequence EMPTY_LINE_HASH_SEQUENCE = new LineHashSequence(Collections.emptyList());
 
-  private final ComponentIssuesLoader issuesLoader;
   private final DbClient dbClient;
   private final MovedFilesRepository movedFilesRepository;
+  private final BatchComponentIssuesLoader batchIssuesLoader;
 
-  public TrackerBaseInputFactory(ComponentIssuesLoader issuesLoader, DbClient dbClient, MovedFilesRepository movedFilesRepository) {
-    this.issuesLoader = issuesLoader;
+  public TrackerBaseInputFactory(ComponentIssuesLoader issuesLoader, DbClient dbClient, MovedFilesRepository movedFilesRepository,
+    TreeRootHolder treeRootHolder) {
     this.dbClient = dbClient;
     this.movedFilesRepository = movedFilesRepository;
+    this.batchIssuesLoader = new BatchComponentIssuesLoader(treeRootHolder, this::effectiveUuid, issuesLoader::loadForComponentUuids);
   }
 
   public Input<DefaultIssue> create(Component component) {
     return new BaseLazyInput(component, movedFilesRepository.getOriginalFile(component).orNull());
   }
 
+  private String effectiveUuid(Component component) {
+    OriginalFile originalFile = movedFilesRepository.getOriginalFile(component).orNull();
+    return originalFile == null ? component.getUuid() : originalFile.getUuid();
+  }
+
   private class BaseLazyInput extends LazyInput<DefaultIssue> {
     private final Component component;
     @CheckForNull
@@ -80,7 +87,7 @@ public class TrackerBaseInputFactory {
 
     @Override
     protected List<DefaultIssue> loadIssues() {
-      return issuesLoader.loadForComponentUuid(effectiveUuid);
+      return batchIssuesLoader.load(effectiveUuid);
     }
   }
 }
@@ -30,18 +30,21 @@ import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.MergeBranchComponentUuids;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
 
 public class TrackerMergeBranchInputFactory {
   private static final LineHashSequence EMPTY_LINE_HASH_SEQUENCE = new LineHashSequence(Collections.emptyList());
 
-  private final ComponentIssuesLoader mergeIssuesLoader;
   private final DbClient dbClient;
   private final MergeBranchComponentUuids mergeBranchComponentUuids;
+  private final BatchComponentIssuesLoader batchIssuesLoader;
 
-  public TrackerMergeBranchInputFactory(ComponentIssuesLoader mergeIssuesLoader, MergeBranchComponentUuids mergeBranchComponentUuids, DbClient dbClient) {
-    this.mergeIssuesLoader = mergeIssuesLoader;
+  public TrackerMergeBranchInputFactory(ComponentIssuesLoader mergeIssuesLoader, MergeBranchComponentUuids mergeBranchComponentUuids, DbClient dbClient,
+    TreeRootHolder treeRootHolder) {
     this.mergeBranchComponentUuids = mergeBranchComponentUuids;
     this.dbClient = dbClient;
+    this.batchIssuesLoader = new BatchComponentIssuesLoader(treeRootHolder, c -> mergeBranchComponentUuids.getUuid(c.getKey()),
+      mergeIssuesLoader::loadForComponentUuidsWithChanges);
     // TODO detect file moves?
   }
 
@@ -79,7 +82,7 @@ public class TrackerMergeBranchInputFactory {
       if (mergeBranchComponentUuid == null) {
         return Collections.emptyList();
       }
-      return mergeIssuesLoader.loadForComponentUuidWithChanges(mergeBranchComponentUuid);
+      return batchIssuesLoader.load(mergeBranchComponentUuid);
     }
   }
 
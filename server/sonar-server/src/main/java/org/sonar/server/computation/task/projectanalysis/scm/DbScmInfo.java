@@ -20,6 +20,8 @@
 package org.sonar.server.computation.task.projectanalysis.scm;
 
 import com.google.common.base.Optional;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -61,6 +63,34 @@ class DbScmInfo implements ScmInfo {
     return Optional.of(new DbScmInfo(new ScmInfoImpl(lineChangesets)));
   }
 
+  /**
+   * Same as {@link #create(Component, Iterable)} but based on the compact SCM information of column FILE_SOURCES.SCM_DATA
+   */
+  static Optional<ScmInfo> create(Component component, DbFileSources.Scm scm) {
+    Map<String, Changeset> cache = new HashMap<>();
+    Changeset.Builder builder = Changeset.newChangesetBuilder();
+    List<Changeset> lineChangesets = new ArrayList<>();
+    boolean encounteredLineWithoutScmInfo = false;
+    for (DbFileSources.Scm.Changeset run : scm.getChangesetsList()) {
+      if (run.hasRevision() && run.hasDate()) {
+        Changeset changeset = cache.computeIfAbsent(run.getRevision(), revision -> builder
+          .setRevision(revision)
+          .setAuthor(run.hasAuthor() ? run.getAuthor() : null)
+          .setDate(run.getDate())
+          .build());
+        lineChangesets.addAll(Collections.nCopies(run.getLineCount(), changeset));
+      } else {
+        encounteredLineWithoutScmInfo = true;
+      }
+    }
+    if (lineChangesets.isEmpty()) {
+      return Optional.absent();
+    }
+    checkState(!encounteredLineWithoutScmInfo,
+      "Partial scm information stored in DB for component '%s'. Not all lines have SCM info. Can not proceed", component);
+    return Optional.of(new DbScmInfo(new ScmInfoImpl(lineChangesets)));
+  }
+
   @Override
   public Changeset getLatestChangeset() {
     return delegate.getLatestChangeset();
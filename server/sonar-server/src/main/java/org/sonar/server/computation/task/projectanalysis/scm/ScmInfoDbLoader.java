@@ -19,7 +19,13 @@
  */
 package org.sonar.server.computation.task.projectanalysis.scm;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import javax.annotation.CheckForNull;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.db.DbClient;
@@ -29,10 +35,17 @@ import org.sonar.server.computation.task.projectanalysis.analysis.AnalysisMetada
 import org.sonar.server.computation.task.projectanalysis.analysis.Branch;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.Component.Status;
+import org.sonar.server.computation.task.projectanalysis.component.CrawlerDepthLimit;
+import org.sonar.server.computation.task.projectanalysis.component.DepthTraversalTypeAwareCrawler;
 import org.sonar.server.computation.task.projectanalysis.component.MergeBranchComponentUuids;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
+import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisitorAdapter;
 import org.sonar.server.computation.task.projectanalysis.scm.ScmInfoRepositoryImpl.NoScmInfo;
 import org.sonar.server.computation.task.projectanalysis.source.SourceHashRepository;
 
+import static java.util.Collections.singletonList;
+import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.PRE_ORDER;
+
 public class ScmInfoDbLoader {
   private static final Logger LOGGER = Loggers.get(ScmInfoDbLoader.class);
 
@@ -40,13 +53,24 @@ public class ScmInfoDbLoader {
   private final DbClient dbClient;
   private final SourceHashRepository sourceHashRepository;
   private final MergeBranchComponentUuids mergeBranchComponentUuid;
+  private final TreeRootHolder treeRootHolder;
+  /**
+   * SCM data of all the files of the tree, loaded at once on first use. Entries are removed once read.
+   */
+  private Map<String, FileSourceDto> scmDataByFileUuid;
+  /**
+   * UUIDs of the files whose SCM data was prefetched, including the files which have no sources in DB.
+   * Entries are removed once read.
+   */
+  private Set<String> prefetchedFileUuids;
 
   public ScmInfoDbLoader(AnalysisMetadataHolder analysisMetadataHolder, DbClient dbClient,
-    SourceHashRepository sourceHashRepository, MergeBranchComponentUuids mergeBranchComponentUuid) {
+    SourceHashRepository sourceHashRepository, MergeBranchComponentUuids mergeBranchComponentUuid, TreeRootHolder treeRootHolder) {
     this.analysisMetadataHolder = analysisMetadataHolder;
     this.dbClient = dbClient;
     this.sourceHashRepository = sourceHashRepository;
     this.mergeBranchComponentUuid = mergeBranchComponentUuid;
+    this.treeRootHolder = treeRootHolder;
   }
 
   public ScmInfo getScmInfoFromDb(Component file) {
@@ -57,13 +81,66 @@ public class ScmInfoDbLoader {
     }
 
     LOGGER.trace("Reading SCM info from db for file '{}'", uuid.get());
+    FileSourceDto dto = getPrefetchedScmData(uuid.get());
+    if (dto == null || !isDtoValid(file, dto)) {
+      return NoScmInfo.INSTANCE;
+    }
+    if (dto.getBinaryScmData() != null) {
+      return DbScmInfo.create(file, dto.getScmData()).or(NoScmInfo.INSTANCE);
+    }
+
+    // sources persisted before column SCM_DATA was introduced
     try (DbSession dbSession = dbClient.openSession(false)) {
-      FileSourceDto dto = dbClient.fileSourceDao().selectSourceByFileUuid(dbSession, uuid.get());
-      if (dto == null || !isDtoValid(file, dto)) {
+      FileSourceDto sourceDto = dbClient.fileSourceDao().selectSourceByFileUuid(dbSession, uuid.get());
+      if (sourceDto == null) {
         return NoScmInfo.INSTANCE;
       }
-      return DbScmInfo.create(file, dto.getSourceData().getLinesList()).or(NoScmInfo.INSTANCE);
+      return DbScmInfo.create(file, sourceDto.getSourceData().getLinesList()).or(NoScmInfo.INSTANCE);
+    }
+  }
+
+  @CheckForNull
+  private FileSourceDto getPrefetchedScmData(String fileUuid) {
+    if (scmDataByFileUuid == null) {
+      prefetchedFileUuids = collectFileUuidsOfTree();
+      scmDataByFileUuid = loadScmDataOfTree(prefetchedFileUuids);
+    }
+    boolean prefetched = prefetchedFileUuids.remove(fileUuid);
+    FileSourceDto dto = scmDataByFileUuid.remove(fileUuid);
+    if (dto == null && !prefetched) {
+      // file already read or not part of the tree
+      try (DbSession dbSession = dbClient.openSession(false)) {
+        return loadScmData(dbSession, singletonList(fileUuid)).get(fileUuid);
+      }
     }
+    return dto;
+  }
+
+  private Set<String> collectFileUuidsOfTree() {
+    Set<String> fileUuids = new HashSet<>();
+    new DepthTraversalTypeAwareCrawler(
+      new TypeAwareVisitorAdapter(CrawlerDepthLimit.FILE, PRE_ORDER) {
+        @Override
+        public void visitFile(Component file) {
+          getFileUUid(file).ifPresent(fileUuids::add);
+        }
+      }).visit(treeRootHolder.getRoot());
+    return fileUuids;
+  }
+
+  private Map<String, FileSourceDto> loadScmDataOfTree(Set<String> fileUuids) {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      return loadScmData(dbSession, fileUuids);
+    }
+  }
+
+  private Map<String, FileSourceDto> loadScmData(DbSession dbSession, Collection<String> fileUuids) {
+    Map<String, FileSourceDto> result = new HashMap<>();
+    dbClient.fileSourceDao().scrollScmDataByFileUuids(dbSession, fileUuids, context -> {
+      FileSourceDto dto = context.getResultObject();
+      result.put(dto.getFileUuid(), dto);
+    });
+    return result;
   }
 
   private Optional<String> getFileUUid(Component file) {
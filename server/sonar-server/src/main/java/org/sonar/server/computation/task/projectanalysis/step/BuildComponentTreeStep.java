@@ -19,10 +19,12 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
+import java.util.List;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
+import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.SnapshotDto;
 import org.sonar.db.component.SnapshotQuery;
 import org.sonar.scanner.protocol.output.ScannerReport;
@@ -35,6 +37,7 @@ import org.sonar.server.computation.task.projectanalysis.component.ComponentKeyG
 import org.sonar.server.computation.task.projectanalysis.component.ComponentTreeBuilder;
 import org.sonar.server.computation.task.projectanalysis.component.ComponentUuidFactory;
 import org.sonar.server.computation.task.projectanalysis.component.DefaultBranchImpl;
+import org.sonar.server.computation.task.projectanalysis.component.MutableExistingComponentsHolder;
 import org.sonar.server.computation.task.projectanalysis.component.MutableTreeRootHolder;
 import org.sonar.server.computation.task.step.ComputationStep;
 
@@ -47,13 +50,16 @@ public class BuildComponentTreeStep implements ComputationStep {
   private final BatchReportReader reportReader;
   private final MutableTreeRootHolder treeRootHolder;
   private final MutableAnalysisMetadataHolder analysisMetadataHolder;
+  private final MutableExistingComponentsHolder existingComponentsHolder;
 
   public BuildComponentTreeStep(DbClient dbClient, BatchReportReader reportReader,
-    MutableTreeRootHolder treeRootHolder, MutableAnalysisMetadataHolder analysisMetadataHolder) {
+    MutableTreeRootHolder treeRootHolder, MutableAnalysisMetadataHolder analysisMetadataHolder,
+    MutableExistingComponentsHolder existingComponentsHolder) {
     this.dbClient = dbClient;
     this.reportReader = reportReader;
     this.treeRootHolder = treeRootHolder;
     this.analysisMetadataHolder = analysisMetadataHolder;
+    this.existingComponentsHolder = existingComponentsHolder;
   }
 
   @Override
@@ -71,8 +77,12 @@ public class BuildComponentTreeStep implements ComputationStep {
       // root key of branch, not necessarily of project
       String rootKey = keyGenerator.generateKey(reportProject, null);
 
-      // loads the UUIDs from database. If they don't exist, then generate new ones
-      ComponentUuidFactory componentUuidFactory = new ComponentUuidFactory(dbClient, dbSession, rootKey);
+      // loads the components from database, once for all the steps which need them
+      List<ComponentDto> existingComponents = dbClient.componentDao().selectAllComponentsFromProjectKey(dbSession, rootKey);
+      existingComponentsHolder.setComponents(existingComponents);
+
+      // UUIDs of existing components are kept. If they don't exist, then generate new ones
+      ComponentUuidFactory componentUuidFactory = new ComponentUuidFactory(existingComponents);
 
       String rootUuid = componentUuidFactory.getOrCreateForKey(rootKey);
       SnapshotDto baseAnalysis = loadBaseAnalysis(dbSession, rootUuid);
@@ -35,7 +35,6 @@ import org.sonar.server.computation.task.projectanalysis.measure.Measure;
 import org.sonar.server.computation.task.projectanalysis.measure.MeasureRepository;
 import org.sonar.server.computation.task.projectanalysis.metric.Metric;
 import org.sonar.server.computation.task.projectanalysis.metric.MetricRepository;
-import org.sonar.server.computation.task.step.ComputationStep;
 
 import static org.sonar.api.measures.CoreMetrics.COMMENTED_OUT_CODE_LINES_KEY;
 import static org.sonar.api.measures.CoreMetrics.COMMENT_LINES_DENSITY_KEY;
@@ -49,7 +48,7 @@ import static org.sonar.server.computation.task.projectanalysis.formula.SumFormu
 /**
  * Computes comments measures on files and then aggregates them on higher components.
  */
-public class CommentMeasuresStep implements ComputationStep {
+public class CommentMeasuresStep implements FormulaStep {
 
   private final TreeRootHolder treeRootHolder;
   private final MetricRepository metricRepository;
@@ -66,6 +65,11 @@ public class CommentMeasuresStep implements ComputationStep {
       new CommentDensityFormula());
   }
 
+  @Override
+  public Iterable<Formula> getFormulas() {
+    return formulas;
+  }
+
   @Override
   public void execute() {
     new PathAwareCrawler<>(
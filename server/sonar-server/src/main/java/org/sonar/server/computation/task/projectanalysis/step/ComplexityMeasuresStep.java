@@ -28,7 +28,6 @@ import org.sonar.server.computation.task.projectanalysis.formula.Formula;
 import org.sonar.server.computation.task.projectanalysis.formula.FormulaExecutorComponentVisitor;
 import org.sonar.server.computation.task.projectanalysis.measure.MeasureRepository;
 import org.sonar.server.computation.task.projectanalysis.metric.MetricRepository;
-import org.sonar.server.computation.task.step.ComputationStep;
 
 import static org.sonar.api.measures.CoreMetrics.CLASSES_KEY;
 import static org.sonar.api.measures.CoreMetrics.CLASS_COMPLEXITY_DISTRIBUTION_KEY;
@@ -48,7 +47,7 @@ import static org.sonar.server.computation.task.projectanalysis.formula.SumFormu
 /**
  * Computes complexity measures on files and then aggregates them on higher components.
  */
-public class ComplexityMeasuresStep implements ComputationStep {
+public class ComplexityMeasuresStep implements FormulaStep {
 
   private static final ImmutableList<Formula> FORMULAS = ImmutableList.of(
     createIntSumFormula(COMPLEXITY_KEY),
@@ -81,6 +80,11 @@ public class ComplexityMeasuresStep implements ComputationStep {
     this.measureRepository = measureRepository;
   }
 
+  @Override
+  public Iterable<Formula> getFormulas() {
+    return FORMULAS;
+  }
+
   @Override
   public void execute() {
     new PathAwareCrawler<>(
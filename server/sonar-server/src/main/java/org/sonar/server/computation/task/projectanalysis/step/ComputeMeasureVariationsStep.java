@@ -20,8 +20,11 @@
 package org.sonar.server.computation.task.projectanalysis.step;
 
 import com.google.common.base.Optional;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -43,14 +46,11 @@ import org.sonar.server.computation.task.projectanalysis.measure.MeasureKey;
 import org.sonar.server.computation.task.projectanalysis.measure.MeasureRepository;
 import org.sonar.server.computation.task.projectanalysis.metric.Metric;
 import org.sonar.server.computation.task.projectanalysis.metric.MetricRepository;
-import org.sonar.server.computation.task.projectanalysis.period.Period;
 import org.sonar.server.computation.task.projectanalysis.period.PeriodHolder;
 import org.sonar.server.computation.task.step.ComputationStep;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.lang.String.format;
-import static java.util.function.Function.identity;
-import static org.sonar.core.util.stream.MoreCollectors.uniqueIndex;
 import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.DIRECTORY;
 import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.SUBVIEW;
 import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.PRE_ORDER;
@@ -63,6 +63,9 @@ import static org.sonar.server.computation.task.projectanalysis.component.Compon
  */
 public class ComputeMeasureVariationsStep implements ComputationStep {
 
+  // measures on files are currently purged, so past measures are not available on files
+  private static final CrawlerDepthLimit VISITED_DEPTH = CrawlerDepthLimit.reportMaxDepth(DIRECTORY).withViewsMaxDepth(SUBVIEW);
+
   private final DbClient dbClient;
   private final TreeRootHolder treeRootHolder;
   private final PeriodHolder periodHolder;
@@ -80,53 +83,67 @@ public class ComputeMeasureVariationsStep implements ComputationStep {
 
   @Override
   public void execute() {
+    if (!periodHolder.hasPeriod()) {
+      return;
+    }
+    List<Metric> metrics = StreamSupport.stream(metricRepository.getAll().spliterator(), false).filter(isNumeric()).collect(MoreCollectors.toList());
+    Map<String, PastMeasureValues> pastMeasuresByComponentUuid = loadPastMeasures(metrics);
+    new DepthTraversalTypeAwareCrawler(new VariationMeasuresVisitor(pastMeasuresByComponentUuid, metrics))
+      .visit(treeRootHolder.getRoot());
+  }
+
+  /**
+   * Past measures of all the components are read at once, instead of one query per component.
+   */
+  private Map<String, PastMeasureValues> loadPastMeasures(List<Metric> metrics) {
+    Set<String> componentUuids = new HashSet<>();
+    new DepthTraversalTypeAwareCrawler(new TypeAwareVisitorAdapter(VISITED_DEPTH, PRE_ORDER) {
+      @Override
+      public void visitAny(Component component) {
+        componentUuids.add(component.getUuid());
+      }
+    }).visit(treeRootHolder.getRoot());
+
+    Set<Integer> metricIds = metrics.stream().map(Metric::getId).collect(MoreCollectors.toSet());
+    Map<String, PastMeasureValues.Builder> builders = new HashMap<>();
     try (DbSession dbSession = dbClient.openSession(false)) {
-      List<Metric> metrics = StreamSupport.stream(metricRepository.getAll().spliterator(), false).filter(isNumeric()).collect(MoreCollectors.toList());
-      new DepthTraversalTypeAwareCrawler(new VariationMeasuresVisitor(dbSession, metrics))
-        .visit(treeRootHolder.getRoot());
+      dbClient.measureDao().scrollPastMeasures(dbSession, periodHolder.getPeriod().getAnalysisUuid(), metricIds, context -> {
+        PastMeasureDto pastMeasure = context.getResultObject();
+        // measures of components which are not visited (for example the files) are ignored
+        if (componentUuids.contains(pastMeasure.getComponentUuid())) {
+          builders.computeIfAbsent(pastMeasure.getComponentUuid(), k -> new PastMeasureValues.Builder())
+            .add(pastMeasure.getMetricId(), pastMeasure.hasValue() ? pastMeasure.getValue() : 0d);
+        }
+      });
     }
+    Map<String, PastMeasureValues> result = new HashMap<>(builders.size());
+    builders.forEach((componentUuid, builder) -> result.put(componentUuid, builder.build()));
+    return result;
   }
 
   private class VariationMeasuresVisitor extends TypeAwareVisitorAdapter {
 
-    private final DbSession session;
-    private final Set<Integer> metricIds;
+    private final Map<String, PastMeasureValues> pastMeasuresByComponentUuid;
     private final List<Metric> metrics;
 
-    VariationMeasuresVisitor(DbSession session, List<Metric> metrics) {
-      // measures on files are currently purged, so past measures are not available on files
-      super(CrawlerDepthLimit.reportMaxDepth(DIRECTORY).withViewsMaxDepth(SUBVIEW), PRE_ORDER);
-      this.session = session;
-      this.metricIds = metrics.stream().map(Metric::getId).collect(MoreCollectors.toSet());
+    VariationMeasuresVisitor(Map<String, PastMeasureValues> pastMeasuresByComponentUuid, List<Metric> metrics) {
+      super(VISITED_DEPTH, PRE_ORDER);
+      this.pastMeasuresByComponentUuid = pastMeasuresByComponentUuid;
       this.metrics = metrics;
     }
 
     @Override
     public void visitAny(Component component) {
-      MeasuresWithVariationRepository measuresWithVariationRepository = computeMeasuresWithVariations(component);
-      processMeasuresWithVariation(component, measuresWithVariationRepository);
-    }
-
-    private MeasuresWithVariationRepository computeMeasuresWithVariations(Component component) {
       MeasuresWithVariationRepository measuresWithVariationRepository = new MeasuresWithVariationRepository();
-      if (periodHolder.hasPeriod()) {
-        Period period = periodHolder.getPeriod();
-        List<PastMeasureDto> pastMeasures = dbClient.measureDao()
-          .selectPastMeasures(session, component.getUuid(), period.getAnalysisUuid(), metricIds);
-        setVariationMeasures(component, pastMeasures, measuresWithVariationRepository);
-      }
-      return measuresWithVariationRepository;
+      setVariationMeasures(component, pastMeasuresByComponentUuid.getOrDefault(component.getUuid(), PastMeasureValues.EMPTY), measuresWithVariationRepository);
+      processMeasuresWithVariation(component, measuresWithVariationRepository);
     }
 
-    private void setVariationMeasures(Component component, List<PastMeasureDto> pastMeasures, MeasuresWithVariationRepository measuresWithVariationRepository) {
-      Map<MeasureKey, PastMeasureDto> pastMeasuresByMeasureKey = pastMeasures
-        .stream()
-        .collect(uniqueIndex(m -> new MeasureKey(metricRepository.getById((long) m.getMetricId()).getKey(), null), identity()));
+    private void setVariationMeasures(Component component, PastMeasureValues pastMeasures, MeasuresWithVariationRepository measuresWithVariationRepository) {
       for (Metric metric : metrics) {
         Optional<Measure> measure = measureRepository.getRawMeasure(component, metric);
         if (measure.isPresent() && !measure.get().hasVariation()) {
-          PastMeasureDto pastMeasure = pastMeasuresByMeasureKey.get(new MeasureKey(metric.getKey(), null));
-          double pastValue = (pastMeasure != null && pastMeasure.hasValue()) ? pastMeasure.getValue() : 0d;
+          double pastValue = pastMeasures.getValue(metric.getId());
           measuresWithVariationRepository.add(metric, measure.get(), computeVariation(measure.get(), pastValue));
         }
       }
@@ -174,6 +191,65 @@ public class ComputeMeasureVariationsStep implements ComputationStep {
     }
   }
 
+  /**
+   * Values of the past measures of a component. Metric ids and values are kept in primitive arrays sorted
+   * by metric id, so that large trees do not retain one object per measure. A missing measure or a
+   * measure without value is considered as 0.
+   */
+  private static final class PastMeasureValues {
+    private static final PastMeasureValues EMPTY = new PastMeasureValues(new int[0], new double[0]);
+
+    private final int[] metricIds;
+    private final double[] values;
+
+    private PastMeasureValues(int[] metricIds, double[] values) {
+      this.metricIds = metricIds;
+      this.values = values;
+    }
+
+    double getValue(int metricId) {
+      int index = Arrays.binarySearch(metricIds, metricId);
+      return index >= 0 ? values[index] : 0d;
+    }
+
+    private static final class Builder {
+      private int[] metricIds = new int[8];
+      private double[] values = new double[8];
+      private int size = 0;
+      private boolean sorted = true;
+
+      void add(int metricId, double value) {
+        if (size == metricIds.length) {
+          metricIds = Arrays.copyOf(metricIds, size * 2);
+          values = Arrays.copyOf(values, size * 2);
+        }
+        // rows are ordered by metric, except when metrics are split into several queries
+        sorted &= size == 0 || metricIds[size - 1] < metricId;
+        metricIds[size] = metricId;
+        values[size] = value;
+        size++;
+      }
+
+      PastMeasureValues build() {
+        if (sorted) {
+          return new PastMeasureValues(Arrays.copyOf(metricIds, size), Arrays.copyOf(values, size));
+        }
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+          order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt(i -> metricIds[i]));
+        int[] sortedMetricIds = new int[size];
+        double[] sortedValues = new double[size];
+        for (int i = 0; i < size; i++) {
+          sortedMetricIds[i] = metricIds[order[i]];
+          sortedValues[i] = values[order[i]];
+        }
+        return new PastMeasureValues(sortedMetricIds, sortedValues);
+      }
+    }
+  }
+
   private static final class MeasureWithVariation {
     private final Metric metric;
     private final Measure measure;
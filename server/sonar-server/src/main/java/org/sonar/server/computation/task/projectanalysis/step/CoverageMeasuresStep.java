@@ -30,7 +30,6 @@ import org.sonar.server.computation.task.projectanalysis.formula.coverage.Single
 import org.sonar.server.computation.task.projectanalysis.formula.coverage.SingleWithUncoveredMetricKeys;
 import org.sonar.server.computation.task.projectanalysis.measure.MeasureRepository;
 import org.sonar.server.computation.task.projectanalysis.metric.MetricRepository;
-import org.sonar.server.computation.task.step.ComputationStep;
 
 import static org.sonar.api.measures.CoreMetrics.BRANCH_COVERAGE_KEY;
 import static org.sonar.api.measures.CoreMetrics.CONDITIONS_TO_COVER_KEY;
@@ -44,7 +43,7 @@ import static org.sonar.server.computation.task.projectanalysis.formula.SumFormu
 /**
  * Computes coverage measures on files and then aggregates them on higher components.
  */
-public class CoverageMeasuresStep implements ComputationStep {
+public class CoverageMeasuresStep implements FormulaStep {
   private static final ImmutableList<Formula> COVERAGE_FORMULAS = ImmutableList.of(
     createIntSumFormula(LINES_TO_COVER_KEY),
     createIntSumFormula(UNCOVERED_LINES_KEY),
@@ -64,6 +63,11 @@ public class CoverageMeasuresStep implements ComputationStep {
     this.measureRepository = measureRepository;
   }
 
+  @Override
+  public Iterable<Formula> getFormulas() {
+    return COVERAGE_FORMULAS;
+  }
+
   @Override
   public void execute() {
     new PathAwareCrawler<>(
@@ -21,14 +21,14 @@ package org.sonar.server.computation.task.projectanalysis.step;
 
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.server.computation.task.projectanalysis.duplication.DuplicationMeasures;
-import org.sonar.server.computation.task.step.ComputationStep;
+import org.sonar.server.computation.task.projectanalysis.formula.Formula;
 
 /**
  * Computes duplication measures on files and then aggregates them on higher components.
  * 
  * This step must be executed after {@link CommentMeasuresStep} as it depends on {@link CoreMetrics#COMMENT_LINES}
  */
-public class DuplicationMeasuresStep implements ComputationStep {
+public class DuplicationMeasuresStep implements FormulaStep {
   private final DuplicationMeasures defaultDuplicationMeasures;
 
   public DuplicationMeasuresStep(DuplicationMeasures defaultDuplicationMeasures) {
@@ -40,6 +40,11 @@ public class DuplicationMeasuresStep implements ComputationStep {
     return "Compute duplication measures";
   }
 
+  @Override
+  public Iterable<Formula> getFormulas() {
+    return defaultDuplicationMeasures.getFormulas();
+  }
+
   @Override
   public void execute() {
     defaultDuplicationMeasures.execute();
@@ -0,0 +1,132 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.step;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
+import org.sonar.server.computation.task.projectanalysis.component.VisitorsCrawler;
+import org.sonar.server.computation.task.projectanalysis.formula.Formula;
+import org.sonar.server.computation.task.projectanalysis.formula.FormulaExecutorComponentVisitor;
+import org.sonar.server.computation.task.projectanalysis.measure.MeasureRepository;
+import org.sonar.server.computation.task.projectanalysis.metric.MetricRepository;
+import org.sonar.server.computation.task.projectanalysis.period.PeriodHolder;
+import org.sonar.server.computation.task.step.ComputationStep;
+
+/**
+ * Executes the formulas of several {@link FormulaStep}s in a single traversal of the component tree, instead
+ * of one traversal per step. All the formulas share the same counters on each component.
+ * <p>
+ * Formulas are executed in the order of the steps, so a formula can still read the measures created by the
+ * formulas of the previous steps on the same component.
+ */
+public class ExecuteFormulasStep implements ComputationStep {
+
+  private static final Logger LOGGER = Loggers.get(ExecuteFormulasStep.class);
+
+  private final TreeRootHolder treeRootHolder;
+  private final MetricRepository metricRepository;
+  private final MeasureRepository measureRepository;
+  private final PeriodHolder periodHolder;
+  private final List<FormulaStep> steps;
+
+  public ExecuteFormulasStep(TreeRootHolder treeRootHolder, MetricRepository metricRepository, MeasureRepository measureRepository,
+    PeriodHolder periodHolder, SizeMeasuresStep sizeMeasuresStep, NewCoverageMeasuresStep newCoverageMeasuresStep,
+    CoverageMeasuresStep coverageMeasuresStep, CommentMeasuresStep commentMeasuresStep, DuplicationMeasuresStep duplicationMeasuresStep,
+    NewSizeMeasuresStep newSizeMeasuresStep, LanguageDistributionMeasuresStep languageDistributionMeasuresStep,
+    UnitTestMeasuresStep unitTestMeasuresStep, ComplexityMeasuresStep complexityMeasuresStep) {
+    this(treeRootHolder, metricRepository, measureRepository, periodHolder, Arrays.asList(
+      sizeMeasuresStep,
+      newCoverageMeasuresStep,
+      coverageMeasuresStep,
+      // depends on ncloc
+      commentMeasuresStep,
+      // depends on lines, ncloc and comment lines
+      duplicationMeasuresStep,
+      newSizeMeasuresStep,
+      languageDistributionMeasuresStep,
+      unitTestMeasuresStep,
+      // depends on files, classes and functions
+      complexityMeasuresStep));
+  }
+
+  @VisibleForTesting
+  ExecuteFormulasStep(TreeRootHolder treeRootHolder, MetricRepository metricRepository, MeasureRepository measureRepository,
+    PeriodHolder periodHolder, List<FormulaStep> steps) {
+    this.treeRootHolder = treeRootHolder;
+    this.metricRepository = metricRepository;
+    this.measureRepository = measureRepository;
+    this.periodHolder = periodHolder;
+    this.steps = steps;
+  }
+
+  @Override
+  public String getDescription() {
+    return "Compute measures with formulas";
+  }
+
+  @Override
+  public void execute() {
+    boolean computeDuration = LOGGER.isDebugEnabled();
+    List<ComponentVisitor> visitors = new ArrayList<>();
+    List<Formula> formulas = new ArrayList<>();
+    Map<Object, FormulaStep> stepsByVisitorOrFormula = new IdentityHashMap<>();
+    for (FormulaStep step : steps) {
+      for (ComponentVisitor visitor : step.createVisitors()) {
+        visitors.add(visitor);
+        stepsByVisitorOrFormula.put(visitor, step);
+      }
+      for (Formula formula : step.getFormulas()) {
+        formulas.add(formula);
+        stepsByVisitorOrFormula.put(formula, step);
+      }
+    }
+    FormulaExecutorComponentVisitor formulaVisitor = FormulaExecutorComponentVisitor.newBuilder(metricRepository, measureRepository)
+      .withVariationSupport(periodHolder)
+      .withDurations(computeDuration)
+      .buildFor(formulas);
+    visitors.add(formulaVisitor);
+
+    VisitorsCrawler visitorsCrawler = new VisitorsCrawler(visitors, computeDuration);
+    visitorsCrawler.visit(treeRootHolder.getRoot());
+
+    if (computeDuration) {
+      Map<FormulaStep, Long> durationsByStep = new LinkedHashMap<>();
+      steps.forEach(step -> durationsByStep.put(step, 0L));
+      visitorsCrawler.getCumulativeDurations().forEach((visitor, duration) -> {
+        if (visitor != formulaVisitor) {
+          durationsByStep.merge(stepsByVisitorOrFormula.get(visitor), duration, Long::sum);
+        }
+      });
+      formulaVisitor.getCumulativeDurations()
+        .forEach((formula, duration) -> durationsByStep.merge(stepsByVisitorOrFormula.get(formula), duration, Long::sum));
+      LOGGER.debug("  Execution time for each step:");
+      durationsByStep.forEach((step, duration) -> LOGGER.debug("  - {} | time={}ms", step.getDescription(), duration));
+    }
+  }
+}
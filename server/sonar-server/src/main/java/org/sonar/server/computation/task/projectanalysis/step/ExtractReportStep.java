@@ -19,14 +19,15 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
-import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.Optional;
+import java.util.zip.ZipFile;
 import org.sonar.api.utils.MessageException;
 import org.sonar.api.utils.TempFolder;
-import org.sonar.api.utils.ZipUtils;
 import org.sonar.ce.queue.CeTask;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
@@ -35,8 +36,12 @@ import org.sonar.server.computation.task.projectanalysis.batch.MutableBatchRepor
 import org.sonar.server.computation.task.step.ComputationStep;
 
 /**
- * Extracts the content zip file of the {@link CeTask} to a temp directory and adds a {@link File}
- * representing that temp directory to the {@link MutableBatchReportDirectoryHolder}.
+ * Copies the content zip file of the {@link CeTask} to a temp file and adds a {@link File} representing
+ * that zip file to the {@link MutableBatchReportDirectoryHolder}.
+ * <p>
+ * The report is not extracted: its entries are decompressed on demand when they are read by
+ * {@link org.sonar.server.computation.task.projectanalysis.batch.BatchReportReader}.
+ * </p>
  */
 public class ExtractReportStep implements ComputationStep {
 
@@ -58,20 +63,32 @@ public class ExtractReportStep implements ComputationStep {
     try (DbSession dbSession = dbClient.openSession(false)) {
       Optional<CeTaskInputDao.DataStream> opt = dbClient.ceTaskInputDao().selectData(dbSession, task.getUuid());
       if (opt.isPresent()) {
-        File unzippedDir = tempFolder.newDir();
+        File zipFile = tempFolder.newFile();
         try (CeTaskInputDao.DataStream reportStream = opt.get();
-             InputStream zipStream = new BufferedInputStream(reportStream.getInputStream())) {
-          ZipUtils.unzip(zipStream, unzippedDir);
+             InputStream zipStream = reportStream.getInputStream()) {
+          Files.copy(zipStream, zipFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
         } catch (IOException e) {
           throw new IllegalStateException("Fail to extract report " + task.getUuid() + " from database", e);
         }
-        reportDirectoryHolder.setDirectory(unzippedDir);
+        checkIsZip(zipFile);
+        reportDirectoryHolder.setZipFile(zipFile);
       } else {
         throw MessageException.of("Analysis report " + task.getUuid() + " is missing in database");
       }
     }
   }
 
+  /**
+   * Fails fast on a corrupted report rather than when its entries are first read
+   */
+  private void checkIsZip(File zipFile) {
+    try (ZipFile zip = new ZipFile(zipFile)) {
+      // only reads the central directory
+    } catch (IOException e) {
+      throw new IllegalStateException("Report " + task.getUuid() + " is not a valid zip file", e);
+    }
+  }
+
   @Override
   public String getDescription() {
     return "Extract report";
@@ -0,0 +1,47 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.step;
+
+import java.util.Collections;
+import java.util.List;
+import org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor;
+import org.sonar.server.computation.task.projectanalysis.formula.Formula;
+import org.sonar.server.computation.task.step.ComputationStep;
+
+/**
+ * A step which computes its measures with {@link Formula}s. Instead of executing each of these steps,
+ * {@link ExecuteFormulasStep} executes all their formulas in a single traversal of the component tree.
+ */
+public interface FormulaStep extends ComputationStep {
+
+  /**
+   * The formulas of the step, in execution order. On a given component, a formula can read the measures
+   * created by the formulas of the previous steps.
+   */
+  Iterable<Formula> getFormulas();
+
+  /**
+   * Visitors creating measures which are not computed by formulas. On each component they are executed
+   * before the formulas.
+   */
+  default List<ComponentVisitor> createVisitors() {
+    return Collections.emptyList();
+  }
+}
@@ -40,7 +40,6 @@ import org.sonar.server.computation.task.projectanalysis.formula.FormulaExecutor
 import org.sonar.server.computation.task.projectanalysis.measure.Measure;
 import org.sonar.server.computation.task.projectanalysis.measure.MeasureRepository;
 import org.sonar.server.computation.task.projectanalysis.metric.MetricRepository;
-import org.sonar.server.computation.task.step.ComputationStep;
 
 import static com.google.common.collect.Maps.asMap;
 import static org.sonar.api.measures.CoreMetrics.NCLOC_LANGUAGE_DISTRIBUTION_KEY;
@@ -49,7 +48,7 @@ import static org.sonar.api.utils.KeyValueFormat.newIntegerConverter;
 import static org.sonar.api.utils.KeyValueFormat.newStringConverter;
 import static org.sonar.server.computation.task.projectanalysis.measure.Measure.newMeasureBuilder;
 
-public class LanguageDistributionMeasuresStep implements ComputationStep {
+public class LanguageDistributionMeasuresStep implements FormulaStep {
 
   private static final String UNKNOWN_LANGUAGE_KEY = "<null>";
 
@@ -67,6 +66,11 @@ public class LanguageDistributionMeasuresStep implements ComputationStep {
     this.measureRepository = measureRepository;
   }
 
+  @Override
+  public Iterable<Formula> getFormulas() {
+    return FORMULAS;
+  }
+
   @Override
   public void execute() {
     new PathAwareCrawler<>(FormulaExecutorComponentVisitor.newBuilder(metricRepository, measureRepository).buildFor(FORMULAS))
@@ -47,6 +47,7 @@ import org.sonar.server.computation.task.projectanalysis.component.CrawlerDepthL
 import org.sonar.server.computation.task.projectanalysis.component.DbIdsRepositoryImpl;
 import org.sonar.server.computation.task.projectanalysis.component.MutableDbIdsRepository;
 import org.sonar.server.computation.task.projectanalysis.component.MutableDisabledComponentsHolder;
+import org.sonar.server.computation.task.projectanalysis.component.MutableExistingComponentsHolder;
 import org.sonar.server.computation.task.projectanalysis.component.PathAwareCrawler;
 import org.sonar.server.computation.task.projectanalysis.component.PathAwareVisitor;
 import org.sonar.server.computation.task.projectanalysis.component.PathAwareVisitorAdapter;
@@ -72,11 +73,12 @@ public class PersistComponentsStep implements ComputationStep {
   private final MutableDisabledComponentsHolder disabledComponentsHolder;
   private final AnalysisMetadataHolder analysisMetadataHolder;
   private final BranchPersister branchPersister;
+  private final MutableExistingComponentsHolder existingComponentsHolder;
 
   public PersistComponentsStep(DbClient dbClient, TreeRootHolder treeRootHolder,
     MutableDbIdsRepository dbIdsRepository, System2 system2,
     MutableDisabledComponentsHolder disabledComponentsHolder, AnalysisMetadataHolder analysisMetadataHolder,
-    BranchPersister branchPersister) {
+    BranchPersister branchPersister, MutableExistingComponentsHolder existingComponentsHolder) {
     this.dbClient = dbClient;
     this.treeRootHolder = treeRootHolder;
     this.dbIdsRepository = dbIdsRepository;
@@ -84,6 +86,7 @@ public class PersistComponentsStep implements ComputationStep {
     this.disabledComponentsHolder = disabledComponentsHolder;
     this.analysisMetadataHolder = analysisMetadataHolder;
     this.branchPersister = branchPersister;
+    this.existingComponentsHolder = existingComponentsHolder;
   }
 
   @Override
@@ -102,6 +105,7 @@ public class PersistComponentsStep implements ComputationStep {
       dbClient.componentDao().resetBChangedForRootComponentUuid(dbSession, projectUuid);
 
       Map<String, ComponentDto> existingDtosByKeys = indexExistingDtosByKey(dbSession);
+      existingComponentsHolder.clear();
       boolean isRootPrivate = isRootPrivate(treeRootHolder.getRoot(), existingDtosByKeys);
       String mainBranchProjectUuid = loadProjectUuidOfMainBranch();
 
@@ -157,9 +161,17 @@ public class PersistComponentsStep implements ComputationStep {
   /**
    * Returns a mutable map of the components currently persisted in database for the project, including
    * disabled components.
+   * <p>
+   * Components loaded when building the tree are reused, unless the root component is not among them: it is then
+   * inserted by {@link BranchPersister} at the first analysis of a branch and must be read from database.
+   * </p>
    */
   private Map<String, ComponentDto> indexExistingDtosByKey(DbSession session) {
-    return dbClient.componentDao().selectAllComponentsFromProjectKey(session, treeRootHolder.getRoot().getKey())
+    String rootKey = treeRootHolder.getRoot().getKey();
+    Collection<ComponentDto> existingDtos = existingComponentsHolder.getComponents()
+      .filter(dtos -> dtos.stream().anyMatch(dto -> rootKey.equals(dto.getDbKey())))
+      .orElseGet(() -> dbClient.componentDao().selectAllComponentsFromProjectKey(session, rootKey));
+    return existingDtos
       .stream()
       .collect(Collectors.toMap(ComponentDto::getDbKey, Function.identity()));
   }
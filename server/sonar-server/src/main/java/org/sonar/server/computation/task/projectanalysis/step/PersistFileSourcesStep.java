@@ -128,6 +128,7 @@ public class PersistFileSourcesStep implements ComputationStep {
       DbFileSources.Data fileData = fileSourceData.getFileSourceData();
 
       byte[] data = FileSourceDto.encodeSourceData(fileData);
+      byte[] scmData = FileSourceDto.encodeScmData(FileSourceDto.toScmData(fileData.getLinesList()));
       String dataHash = DigestUtils.md5Hex(data);
       String srcHash = fileSourceData.getSrcHash();
       String lineHashes = fileSourceData.getLineHashes();
@@ -139,6 +140,7 @@ public class PersistFileSourcesStep implements ComputationStep {
           .setFileUuid(componentUuid)
           .setDataType(Type.SOURCE)
           .setBinaryData(data)
+          .setBinaryScmData(scmData)
           .setSrcHash(srcHash)
           .setDataHash(dataHash)
           .setLineHashes(lineHashes)
@@ -148,14 +150,16 @@ public class PersistFileSourcesStep implements ComputationStep {
         dbClient.fileSourceDao().insert(session, dto);
         session.commit();
       } else {
-        // Update only if data_hash has changed or if src_hash is missing or revision is missing (progressive migration)
+        // Update only if data_hash has changed or if src_hash, revision or scm_data is missing (progressive migration)
         boolean binaryDataUpdated = !dataHash.equals(previousDto.getDataHash());
         boolean srcHashUpdated = !srcHash.equals(previousDto.getSrcHash());
         String revision = computeRevision(latestChange);
         boolean revisionUpdated = !ObjectUtils.equals(revision, previousDto.getRevision());
-        if (binaryDataUpdated || srcHashUpdated || revisionUpdated) {
+        boolean scmDataMissing = !previousDto.isHasScmData();
+        if (binaryDataUpdated || srcHashUpdated || revisionUpdated || scmDataMissing) {
           previousDto
             .setBinaryData(data)
+            .setBinaryScmData(scmData)
             .setDataHash(dataHash)
             .setSrcHash(srcHash)
             .setLineHashes(lineHashes)
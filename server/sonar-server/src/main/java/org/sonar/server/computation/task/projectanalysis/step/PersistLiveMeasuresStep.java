@@ -20,14 +20,20 @@
 package org.sonar.server.computation.task.projectanalysis.step;
 
 import com.google.common.collect.Multimap;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.function.Predicate;
 import javax.annotation.Nonnull;
-import org.sonar.core.util.Uuids;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.core.util.stream.MoreCollectors;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.measure.LiveMeasureDao;
@@ -54,6 +60,8 @@ import static org.sonar.server.computation.task.projectanalysis.component.Compon
 
 public class PersistLiveMeasuresStep implements ComputationStep {
 
+  private static final Logger LOGGER = Loggers.get(PersistLiveMeasuresStep.class);
+
   /**
    * List of metrics that should not be persisted on file measure.
    */
@@ -62,6 +70,18 @@ public class PersistLiveMeasuresStep implements ComputationStep {
     FUNCTION_COMPLEXITY_DISTRIBUTION_KEY,
     CLASS_COMPLEXITY_DISTRIBUTION_KEY)));
 
+  /**
+   * Number of components whose existing measures are loaded at once.
+   */
+  private static final int COMPONENT_BATCH_SIZE = 100;
+
+  /**
+   * Maximum number of rows inserted, updated or deleted in a transaction. Transactions are kept short
+   * in order to avoid potential deadlocks on MySQL.
+   * https://jira.sonarsource.com/browse/SONAR-10117?focusedCommentId=153555&page=com.atlassian.jira.plugin.system.issuetabpanels:comment-tabpanel#comment-153555
+   */
+  private static final int MAX_WRITES_PER_TRANSACTION = 100;
+
   private final DbClient dbClient;
   private final MetricRepository metricRepository;
   private final MeasureToMeasureDto measureToMeasureDto;
@@ -84,29 +104,72 @@ public class PersistLiveMeasuresStep implements ComputationStep {
 
   @Override
   public void execute() {
-    try (DbSession dbSession = dbClient.openSession(false)) {
-      String marker = Uuids.create();
+    try (DbSession dbSession = dbClient.openSession(true)) {
       Component root = treeRootHolder.getRoot();
-      new DepthTraversalTypeAwareCrawler(new MeasureVisitor(dbSession, marker)).visit(root);
-      dbClient.liveMeasureDao().deleteByProjectUuidExcludingMarker(dbSession, root.getUuid(), marker);
+      MeasureVisitor visitor = new MeasureVisitor(dbSession);
+      new DepthTraversalTypeAwareCrawler(visitor).visit(root);
+      visitor.flush();
+      int removedComponents = deleteMeasuresOfRemovedComponents(dbSession, root, visitor.visitedComponentUuids);
       dbSession.commit();
+      LOGGER.debug("Live measures: {} written, {} unchanged, {} deleted, {} removed components purged",
+        visitor.writtenCount, visitor.unchangedCount, visitor.deletedCount, removedComponents);
     }
   }
 
+  /**
+   * @return the number of components which are not part of the tree anymore and whose measures have been deleted
+   */
+  private int deleteMeasuresOfRemovedComponents(DbSession dbSession, Component root, Set<String> visitedComponentUuids) {
+    LiveMeasureDao dao = dbClient.liveMeasureDao();
+    List<String> removedComponentUuids = dao.selectComponentUuidsByProjectUuid(dbSession, root.getUuid()).stream()
+      .filter(componentUuid -> !visitedComponentUuids.contains(componentUuid))
+      .collect(MoreCollectors.toList());
+    if (!removedComponentUuids.isEmpty()) {
+      dao.deleteByComponentUuids(dbSession, removedComponentUuids);
+    }
+    return removedComponentUuids.size();
+  }
+
+  /**
+   * Rows are compared on the columns written by {@link LiveMeasureDao#update(DbSession, LiveMeasureDto)}.
+   */
+  private static boolean hasSameValues(LiveMeasureDto dto, LiveMeasureDto existing) {
+    return Objects.equals(dto.getValue(), existing.getValue())
+      && Objects.equals(dto.getVariation(), existing.getVariation())
+      && Objects.equals(dto.getTextValue(), existing.getTextValue())
+      && Arrays.equals(dto.getData(), existing.getData());
+  }
+
+  /**
+   * Buffers the measures of the visited components and writes them by batches of {@link #COMPONENT_BATCH_SIZE}
+   * components. The existing measures of a batch are loaded with a single query, so that only the new measures
+   * are inserted, only the changed ones are updated and the ones which are not computed anymore are deleted.
+   */
   private class MeasureVisitor extends TypeAwareVisitorAdapter {
     private final DbSession dbSession;
-    private final String marker;
+    private final Map<String, Map<Integer, LiveMeasureDto>> measuresByComponentUuid = new LinkedHashMap<>();
+    private final Set<String> visitedComponentUuids = new HashSet<>();
+    private int writtenCount = 0;
+    private int unchangedCount = 0;
+    private int deletedCount = 0;
+    private int uncommittedWrites = 0;
 
-    private MeasureVisitor(DbSession dbSession, String marker) {
+    private MeasureVisitor(DbSession dbSession) {
       super(CrawlerDepthLimit.LEAVES, PRE_ORDER);
       this.dbSession = dbSession;
-      this.marker = marker;
     }
 
     @Override
     public void visitAny(Component component) {
-      int count = 0;
-      LiveMeasureDao dao = dbClient.liveMeasureDao();
+      visitedComponentUuids.add(component.getUuid());
+      measuresByComponentUuid.put(component.getUuid(), toLiveMeasures(component));
+      if (measuresByComponentUuid.size() >= COMPONENT_BATCH_SIZE) {
+        flush();
+      }
+    }
+
+    private Map<Integer, LiveMeasureDto> toLiveMeasures(Component component) {
+      Map<Integer, LiveMeasureDto> liveMeasuresByMetricId = new HashMap<>();
       Multimap<String, Measure> measures = measureRepository.getRawMeasures(component);
       for (Map.Entry<String, Collection<Measure>> measuresByMetricKey : measures.asMap().entrySet()) {
         String metricKey = measuresByMetricKey.getKey();
@@ -115,20 +178,57 @@ public class PersistLiveMeasuresStep implements ComputationStep {
         }
         Metric metric = metricRepository.getByKey(metricKey);
         Predicate<Measure> notBestValueOptimized = BestValueOptimization.from(metric, component).negate();
-        Iterator<LiveMeasureDto> liveMeasures = measuresByMetricKey.getValue().stream()
+        measuresByMetricKey.getValue().stream()
           .filter(NonEmptyMeasure.INSTANCE)
           .filter(notBestValueOptimized)
           .map(measure -> measureToMeasureDto.toLiveMeasureDto(measure, metric, component))
-          .iterator();
-        while (liveMeasures.hasNext()) {
-          dao.insertOrUpdate(dbSession, liveMeasures.next(), marker);
-          count++;
-          if (count % 100 == 0) {
-            // use short transactions to avoid potential deadlocks on MySQL
-            // https://jira.sonarsource.com/browse/SONAR-10117?focusedCommentId=153555&page=com.atlassian.jira.plugin.system.issuetabpanels:comment-tabpanel#comment-153555
-            dbSession.commit();
+          .forEach(dto -> liveMeasuresByMetricId.put(dto.getMetricId(), dto));
+      }
+      return liveMeasuresByMetricId;
+    }
+
+    private void flush() {
+      if (measuresByComponentUuid.isEmpty()) {
+        return;
+      }
+      LiveMeasureDao dao = dbClient.liveMeasureDao();
+      Map<String, Map<Integer, LiveMeasureDto>> existingByComponentUuid = new HashMap<>();
+      dao.selectByComponentUuids(dbSession, measuresByComponentUuid.keySet())
+        .forEach(dto -> existingByComponentUuid.computeIfAbsent(dto.getComponentUuid(), k -> new HashMap<>()).put(dto.getMetricId(), dto));
+
+      for (Map.Entry<String, Map<Integer, LiveMeasureDto>> entry : measuresByComponentUuid.entrySet()) {
+        Map<Integer, LiveMeasureDto> existingByMetricId = existingByComponentUuid.getOrDefault(entry.getKey(), new HashMap<>());
+        for (LiveMeasureDto dto : entry.getValue().values()) {
+          LiveMeasureDto existing = existingByMetricId.remove(dto.getMetricId());
+          if (existing == null) {
+            dao.insert(dbSession, dto);
+            writtenCount++;
+            commitIfNeeded();
+          } else if (hasSameValues(dto, existing)) {
+            unchangedCount++;
+          } else {
+            dao.update(dbSession, dto);
+            writtenCount++;
+            commitIfNeeded();
           }
         }
+        // remaining measures are not computed anymore
+        for (Integer metricId : existingByMetricId.keySet()) {
+          dao.deleteByComponentUuidAndMetricId(dbSession, entry.getKey(), metricId);
+          deletedCount++;
+          commitIfNeeded();
+        }
+      }
+      dbSession.commit();
+      uncommittedWrites = 0;
+      measuresByComponentUuid.clear();
+    }
+
+    private void commitIfNeeded() {
+      uncommittedWrites++;
+      if (uncommittedWrites >= MAX_WRITES_PER_TRANSACTION) {
+        dbSession.commit();
+        uncommittedWrites = 0;
       }
     }
   }
@@ -20,16 +20,30 @@
 package org.sonar.server.computation.task.projectanalysis.step;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Multimap;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Predicate;
 import javax.annotation.Nonnull;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.config.PurgeConstants;
+import org.sonar.core.util.stream.MoreCollectors;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
+import org.sonar.db.component.SnapshotDto;
+import org.sonar.db.component.SnapshotQuery;
 import org.sonar.db.measure.MeasureDao;
 import org.sonar.db.measure.MeasureDto;
+import org.sonar.db.measure.MeasureHistoryDto;
+import org.sonar.db.measure.PastMeasureQuery;
+import org.sonar.server.computation.task.projectanalysis.analysis.AnalysisMetadataHolder;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.ConfigurationRepository;
 import org.sonar.server.computation.task.projectanalysis.component.CrawlerDepthLimit;
@@ -47,27 +61,31 @@ import static org.sonar.server.computation.task.projectanalysis.component.Compon
 
 public class PersistMeasuresStep implements ComputationStep {
 
+  private static final Logger LOGGER = Loggers.get(PersistMeasuresStep.class);
+
   private final DbClient dbClient;
   private final MetricRepository metricRepository;
   private final MeasureToMeasureDto measureToMeasureDto;
   private final TreeRootHolder treeRootHolder;
   private final MeasureRepository measureRepository;
+  private final AnalysisMetadataHolder analysisMetadataHolder;
   private final boolean persistDirectories;
 
   public PersistMeasuresStep(DbClient dbClient, MetricRepository metricRepository, MeasureToMeasureDto measureToMeasureDto,
-    TreeRootHolder treeRootHolder, MeasureRepository measureRepository, ConfigurationRepository settings) {
-    this(dbClient, metricRepository, measureToMeasureDto, treeRootHolder,measureRepository,
+    TreeRootHolder treeRootHolder, MeasureRepository measureRepository, AnalysisMetadataHolder analysisMetadataHolder, ConfigurationRepository settings) {
+    this(dbClient, metricRepository, measureToMeasureDto, treeRootHolder, measureRepository, analysisMetadataHolder,
       !settings.getConfiguration().getBoolean(PurgeConstants.PROPERTY_CLEAN_DIRECTORY).orElseThrow(() -> new IllegalStateException("Missing default value")));
   }
 
   @VisibleForTesting
   PersistMeasuresStep(DbClient dbClient, MetricRepository metricRepository, MeasureToMeasureDto measureToMeasureDto, TreeRootHolder treeRootHolder,
-    MeasureRepository measureRepository, boolean persistDirectories) {
+    MeasureRepository measureRepository, AnalysisMetadataHolder analysisMetadataHolder, boolean persistDirectories) {
     this.dbClient = dbClient;
     this.metricRepository = metricRepository;
     this.measureToMeasureDto = measureToMeasureDto;
     this.treeRootHolder = treeRootHolder;
     this.measureRepository = measureRepository;
+    this.analysisMetadataHolder = analysisMetadataHolder;
     this.persistDirectories = persistDirectories;
   }
 
@@ -79,13 +97,75 @@ public class PersistMeasuresStep implements ComputationStep {
   @Override
   public void execute() {
     try (DbSession dbSession = dbClient.openSession(true)) {
-      new DepthTraversalTypeAwareCrawler(new MeasureVisitor(dbSession)).visit(treeRootHolder.getRoot());
+      MeasureVisitor visitor = new MeasureVisitor(dbSession);
+      new DepthTraversalTypeAwareCrawler(visitor).visit(treeRootHolder.getRoot());
+      persistHistory(dbSession, treeRootHolder.getRoot(), visitor.rootMeasures);
       dbSession.commit();
+      LOGGER.debug("Measures: {} written", visitor.writtenCount);
+    }
+  }
+
+  /**
+   * Adds the measures of the root component to its history. The history of a metric which does not have one yet is
+   * initialized with the measures of the previous analyses.
+   */
+  private void persistHistory(DbSession dbSession, Component root, List<MeasureDto> rootMeasures) {
+    if (rootMeasures.isEmpty()) {
+      return;
+    }
+    MeasureDao measureDao = dbClient.measureDao();
+    List<Integer> metricIds = rootMeasures.stream().map(MeasureDto::getMetricId).distinct().collect(MoreCollectors.toList());
+    Map<Integer, MeasureHistoryDto> historiesByMetricId = new HashMap<>();
+    measureDao.selectHistory(dbSession, root.getUuid(), metricIds).forEach(history -> historiesByMetricId.put(history.getMetricId(), history));
+    // the session is a batch session, which does not tell whether an update matched a row
+    Set<Integer> metricIdsWithHistory = new HashSet<>(historiesByMetricId.keySet());
+    List<Integer> metricIdsWithoutHistory = metricIds.stream()
+      .filter(metricId -> !metricIdsWithHistory.contains(metricId))
+      .collect(MoreCollectors.toList());
+    if (!metricIdsWithoutHistory.isEmpty()) {
+      initHistories(dbSession, root, metricIdsWithoutHistory).forEach(history -> historiesByMetricId.put(history.getMetricId(), history));
+    }
+
+    long analysisDate = analysisMetadataHolder.getAnalysisDate();
+    for (MeasureDto measure : rootMeasures) {
+      MeasureHistoryDto history = historiesByMetricId.get(measure.getMetricId()).addMeasure(analysisDate, measure);
+      if (metricIdsWithHistory.contains(measure.getMetricId())) {
+        measureDao.updateHistory(dbSession, history);
+      } else {
+        measureDao.insertHistory(dbSession, history);
+        metricIdsWithHistory.add(measure.getMetricId());
+      }
     }
   }
 
+  private List<MeasureHistoryDto> initHistories(DbSession dbSession, Component root, List<Integer> metricIds) {
+    Map<String, Long> analysisDatesByUuid = dbClient.snapshotDao()
+      .selectAnalysesByQuery(dbSession, new SnapshotQuery().setComponentUuid(root.getUuid()).setStatus(SnapshotDto.STATUS_PROCESSED))
+      .stream()
+      .collect(MoreCollectors.uniqueIndex(SnapshotDto::getUuid, SnapshotDto::getCreatedAt));
+    ListMultimap<Integer, MeasureDto> pastMeasuresByMetricId = dbClient.measureDao()
+      .selectPastMeasures(dbSession, new PastMeasureQuery(root.getUuid(), metricIds, null, null))
+      .stream()
+      .collect(MoreCollectors.index(MeasureDto::getMetricId));
+    return metricIds.stream()
+      .map(metricId -> new MeasureHistoryDto()
+        .setComponentUuid(root.getUuid())
+        .setMetricId(metricId)
+        .addMeasures(pastMeasuresByMetricId.get(metricId), analysisDatesByUuid))
+      .collect(MoreCollectors.toList(metricIds.size()));
+  }
+
+  /**
+   * History is not maintained for data metrics, which are not displayed over time and can be large.
+   */
+  private static boolean hasHistory(Metric metric) {
+    return metric.getType() != Metric.MetricType.DATA && metric.getType() != Metric.MetricType.DISTRIB;
+  }
+
   private class MeasureVisitor extends TypeAwareVisitorAdapter {
     private final DbSession session;
+    private final List<MeasureDto> rootMeasures = new ArrayList<>();
+    private int writtenCount = 0;
 
     private MeasureVisitor(DbSession session) {
       super(CrawlerDepthLimit.LEAVES, PRE_ORDER);
@@ -94,37 +174,37 @@ public class PersistMeasuresStep implements ComputationStep {
 
     @Override
     public void visitProject(Component project) {
-      persistMeasures(project);
+      persistMeasures(project, true);
     }
 
     @Override
     public void visitModule(Component module) {
-      persistMeasures(module);
+      persistMeasures(module, false);
     }
 
     @Override
     public void visitDirectory(Component directory) {
       if (persistDirectories) {
-        persistMeasures(directory);
+        persistMeasures(directory, false);
       }
     }
 
     @Override
     public void visitView(Component view) {
-      persistMeasures(view);
+      persistMeasures(view, true);
     }
 
     @Override
     public void visitSubView(Component subView) {
-      persistMeasures(subView);
+      persistMeasures(subView, false);
     }
 
     @Override
     public void visitProjectView(Component projectView) {
-      persistMeasures(projectView);
+      persistMeasures(projectView, false);
     }
 
-    private void persistMeasures(Component component) {
+    private void persistMeasures(Component component, boolean root) {
       Multimap<String, Measure> measures = measureRepository.getRawMeasures(component);
       for (Map.Entry<String, Collection<Measure>> measuresByMetricKey : measures.asMap().entrySet()) {
         String metricKey = measuresByMetricKey.getKey();
@@ -133,6 +213,10 @@ public class PersistMeasuresStep implements ComputationStep {
         measuresByMetricKey.getValue().stream().filter(NonEmptyMeasure.INSTANCE).forEach(measure -> {
           MeasureDto measureDto = measureToMeasureDto.toMeasureDto(measure, metric, component);
           measureDao.insert(session, measureDto);
+          writtenCount++;
+          if (root && hasHistory(metric)) {
+            rootMeasures.add(measureDto);
+          }
         });
       }
     }
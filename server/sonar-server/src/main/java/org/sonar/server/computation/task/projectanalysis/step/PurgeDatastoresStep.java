@@ -19,6 +19,8 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
+import org.sonar.api.config.Configuration;
+import org.sonar.core.config.PurgeConstants;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.purge.IdUuidPair;
@@ -30,6 +32,7 @@ import org.sonar.server.computation.task.projectanalysis.component.Configuration
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisitorAdapter;
 import org.sonar.server.computation.dbcleaner.ProjectCleaner;
+import org.sonar.server.computation.dbcleaner.ProjectPurgeScheduler;
 import org.sonar.server.computation.task.step.ComputationStep;
 
 import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.PROJECT;
@@ -45,15 +48,17 @@ public class PurgeDatastoresStep implements ComputationStep {
   private final TreeRootHolder treeRootHolder;
   private final ConfigurationRepository configRepository;
   private final DisabledComponentsHolder disabledComponentsHolder;
+  private final ProjectPurgeScheduler purgeScheduler;
 
   public PurgeDatastoresStep(DbClient dbClient, ProjectCleaner projectCleaner, DbIdsRepository dbIdsRepository, TreeRootHolder treeRootHolder,
-    ConfigurationRepository configRepository, DisabledComponentsHolder disabledComponentsHolder) {
+    ConfigurationRepository configRepository, DisabledComponentsHolder disabledComponentsHolder, ProjectPurgeScheduler purgeScheduler) {
     this.projectCleaner = projectCleaner;
     this.dbClient = dbClient;
     this.dbIdsRepository = dbIdsRepository;
     this.treeRootHolder = treeRootHolder;
     this.configRepository = configRepository;
     this.disabledComponentsHolder = disabledComponentsHolder;
+    this.purgeScheduler = purgeScheduler;
   }
 
   @Override
@@ -73,11 +78,21 @@ public class PurgeDatastoresStep implements ComputationStep {
   }
 
   private void execute(Component root) {
+    Configuration config = configRepository.getConfiguration();
+    boolean purgeInBackground = config.getBoolean(PurgeConstants.PURGE_IN_BACKGROUND).orElse(false);
     try (DbSession dbSession = dbClient.openSession(true)) {
       IdUuidPair idUuidPair = new IdUuidPair(dbIdsRepository.getComponentId(root), root.getUuid());
-      projectCleaner.purge(dbSession, idUuidPair, configRepository.getConfiguration(), disabledComponentsHolder.getUuids());
+      if (purgeInBackground) {
+        // data of components disabled by this analysis can't wait
+        projectCleaner.purgeDisabledComponents(dbSession, idUuidPair, config, disabledComponentsHolder.getUuids());
+      } else {
+        projectCleaner.purge(dbSession, idUuidPair, config, disabledComponentsHolder.getUuids());
+      }
       dbSession.commit();
     }
+    if (purgeInBackground) {
+      purgeScheduler.schedule(root.getUuid());
+    }
   }
 
   @Override
@@ -55,17 +55,10 @@ public class ReportComputationSteps extends AbstractComputationSteps {
     LoadCrossProjectDuplicationsRepositoryStep.class,
 
     // data computation
-    SizeMeasuresStep.class,
-    NewCoverageMeasuresStep.class,
-    CoverageMeasuresStep.class,
-    CommentMeasuresStep.class,
+    // size, coverage, comment, duplication, language distribution, test and complexity measures
+    ExecuteFormulasStep.class,
     CustomMeasuresCopyStep.class,
-    DuplicationMeasuresStep.class,
     DuplicationDataMeasuresStep.class,
-    NewSizeMeasuresStep.class,
-    LanguageDistributionMeasuresStep.class,
-    UnitTestMeasuresStep.class,
-    ComplexityMeasuresStep.class,
 
     LoadMeasureComputersStep.class,
     ExecuteVisitorsStep.class,
@@ -23,7 +23,9 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -61,6 +63,7 @@ public class SendIssueNotificationsStep implements ComputationStep {
    * Types of the notifications sent by this step
    */
   static final Set<String> NOTIF_TYPES = ImmutableSet.of(IssueChangeNotification.TYPE, NewIssuesNotification.TYPE, MyNewIssuesNotification.MY_NEW_ISSUES_NOTIF_TYPE);
+  static final int CHANGE_NOTIFICATIONS_BATCH_SIZE = 1_000;
 
   private final IssueCache issueCache;
   private final RuleRepository rules;
@@ -112,24 +115,36 @@ public class SendIssueNotificationsStep implements ComputationStep {
     return Date.from(instant).getTime();
   }
 
+  /**
+   * Issue change notifications are delivered by batches, so that subscribers of the project
+   * are resolved once per batch rather than once per changed issue.
+   */
   private void processIssues(NewIssuesStatistics newIssuesStats, CloseableIterator<DefaultIssue> issues, Component project) {
+    List<IssueChangeNotification> changeNotifications = new ArrayList<>();
     while (issues.hasNext()) {
       DefaultIssue issue = issues.next();
       if (issue.isNew() && issue.resolution() == null) {
         newIssuesStats.add(issue);
       } else if (issue.isChanged() && issue.mustSendNotifications()) {
-        sendIssueChangeNotification(issue, project);
+        changeNotifications.add(newIssueChangeNotification(issue, project));
+        if (changeNotifications.size() >= CHANGE_NOTIFICATIONS_BATCH_SIZE) {
+          service.deliver(changeNotifications);
+          changeNotifications = new ArrayList<>();
+        }
       }
     }
+    if (!changeNotifications.isEmpty()) {
+      service.deliver(changeNotifications);
+    }
   }
 
-  private void sendIssueChangeNotification(DefaultIssue issue, Component project) {
+  private IssueChangeNotification newIssueChangeNotification(DefaultIssue issue, Component project) {
     IssueChangeNotification changeNotification = new IssueChangeNotification();
     changeNotification.setRuleName(rules.getByKey(issue.ruleKey()).getName());
     changeNotification.setIssue(issue);
     changeNotification.setProject(project.getPublicKey(), project.getName(), getBranchName());
     getComponentKey(issue).ifPresent(c -> changeNotification.setComponent(c.getPublicKey(), c.getName()));
-    service.deliver(changeNotification);
+    return changeNotification;
   }
 
   private void sendNewIssuesNotification(NewIssuesStatistics statistics, Component project, long analysisDate) {
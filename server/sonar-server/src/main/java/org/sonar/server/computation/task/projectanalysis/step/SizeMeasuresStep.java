@@ -38,24 +38,25 @@ import java.util.Collections;
 import java.util.List;
 
 import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor;
 import org.sonar.server.computation.task.projectanalysis.component.CrawlerDepthLimit;
 import org.sonar.server.computation.task.projectanalysis.component.PathAwareCrawler;
 import org.sonar.server.computation.task.projectanalysis.component.PathAwareVisitorAdapter;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
+import org.sonar.server.computation.task.projectanalysis.component.VisitorsCrawler;
 import org.sonar.server.computation.task.projectanalysis.formula.Formula;
 import org.sonar.server.computation.task.projectanalysis.formula.FormulaExecutorComponentVisitor;
 import org.sonar.server.computation.task.projectanalysis.measure.Measure;
 import org.sonar.server.computation.task.projectanalysis.measure.MeasureRepository;
 import org.sonar.server.computation.task.projectanalysis.metric.Metric;
 import org.sonar.server.computation.task.projectanalysis.metric.MetricRepository;
-import org.sonar.server.computation.task.step.ComputationStep;
 
 import com.google.common.base.Optional;
 
 /**
  * Compute size measures
  */
-public class SizeMeasuresStep implements ComputationStep {
+public class SizeMeasuresStep implements FormulaStep {
   private static final CounterStackElementFactory COUNTER_STACK_ELEMENT_FACTORY = new CounterStackElementFactory();
   private static final List<Formula> AGGREGATED_SIZE_MEASURE_FORMULAS = Collections.unmodifiableList(Arrays.asList(
     createIntSumFormula(GENERATED_LINES_KEY),
@@ -77,12 +78,21 @@ public class SizeMeasuresStep implements ComputationStep {
   }
 
   @Override
-  public void execute() {
-    new PathAwareCrawler<>(new FileAndDirectoryMeasureVisitor(
+  public Iterable<Formula> getFormulas() {
+    return AGGREGATED_SIZE_MEASURE_FORMULAS;
+  }
+
+  @Override
+  public List<ComponentVisitor> createVisitors() {
+    return Collections.singletonList(new FileAndDirectoryMeasureVisitor(
       metricRepository.getByKey(DIRECTORIES_KEY),
       metricRepository.getByKey(FILES_KEY),
-      metricRepository.getByKey(LINES_KEY)))
-        .visit(treeRootHolder.getRoot());
+      metricRepository.getByKey(LINES_KEY)));
+  }
+
+  @Override
+  public void execute() {
+    new VisitorsCrawler(createVisitors()).visit(treeRootHolder.getRoot());
     new PathAwareCrawler<>(FormulaExecutorComponentVisitor.newBuilder(metricRepository, measureRepository)
       .buildFor(AGGREGATED_SIZE_MEASURE_FORMULAS))
         .visit(treeRootHolder.getRoot());
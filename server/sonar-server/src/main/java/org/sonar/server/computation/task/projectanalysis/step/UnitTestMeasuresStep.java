@@ -34,7 +34,6 @@ import org.sonar.server.computation.task.projectanalysis.formula.counter.IntSumC
 import org.sonar.server.computation.task.projectanalysis.measure.Measure;
 import org.sonar.server.computation.task.projectanalysis.measure.MeasureRepository;
 import org.sonar.server.computation.task.projectanalysis.metric.MetricRepository;
-import org.sonar.server.computation.task.step.ComputationStep;
 
 import static org.sonar.api.measures.CoreMetrics.SKIPPED_TESTS_KEY;
 import static org.sonar.api.measures.CoreMetrics.TESTS_KEY;
@@ -48,7 +47,7 @@ import static org.sonar.server.computation.task.projectanalysis.formula.SumFormu
 /**
  * Computes unit test measures on files and then aggregates them on higher components.
  */
-public class UnitTestMeasuresStep implements ComputationStep {
+public class UnitTestMeasuresStep implements FormulaStep {
 
   private static final String[] METRICS = new String[] {TESTS_KEY, TEST_ERRORS_KEY, TEST_FAILURES_KEY, TEST_SUCCESS_DENSITY_KEY};
 
@@ -67,6 +66,11 @@ public class UnitTestMeasuresStep implements ComputationStep {
     this.measureRepository = measureRepository;
   }
 
+  @Override
+  public Iterable<Formula> getFormulas() {
+    return FORMULAS;
+  }
+
   @Override
   public void execute() {
     new PathAwareCrawler<>(
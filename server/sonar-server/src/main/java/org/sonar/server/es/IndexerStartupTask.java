@@ -19,7 +19,18 @@
  */
 package org.sonar.server.es;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import org.elasticsearch.action.admin.cluster.health.ClusterHealthAction;
 import org.elasticsearch.client.Client;
@@ -30,12 +41,20 @@ import org.sonar.api.utils.log.Loggers;
 import org.sonar.api.utils.log.Profiler;
 import org.sonar.server.es.metadata.MetadataIndex;
 
-import static java.util.Arrays.stream;
+import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
 
+/**
+ * Indexes the types that are not initialized yet, for example after a change of index
+ * definitions or after an upgrade. Indexers that do not share indices are executed
+ * concurrently. A type is flagged as initialized as soon as its indexer is done, so
+ * an interrupted startup only re-indexes the types that were not completed.
+ */
 public class IndexerStartupTask {
 
   private static final Logger LOG = Loggers.get(IndexerStartupTask.class);
+  static final String PROPERTY_THREADS = "sonar.internal.es.startupIndexers.threads";
+  private static final int DEFAULT_THREADS = 4;
 
   private final EsClient esClient;
   private final Configuration config;
@@ -51,8 +70,76 @@ public class IndexerStartupTask {
 
   public void execute() {
     if (indexesAreEnabled()) {
-      stream(indexers)
-        .forEach(this::indexUninitializedTypes);
+      List<Map<StartupIndexer, Set<IndexType>>> lanes = groupByIndex();
+      if (lanes.size() <= 1) {
+        lanes.forEach(this::indexUninitializedTypes);
+      } else {
+        indexConcurrently(lanes);
+      }
+    }
+  }
+
+  /**
+   * Indexers that share an index (for example the rules and active rules, or the authorization types)
+   * are grouped in the same lane and executed sequentially, because large bulk indexing temporarily
+   * changes the settings of the whole index. Lanes are independent from each other.
+   */
+  private List<Map<StartupIndexer, Set<IndexType>>> groupByIndex() {
+    List<Set<String>> laneIndices = new ArrayList<>();
+    List<Map<StartupIndexer, Set<IndexType>>> lanes = new ArrayList<>();
+    for (StartupIndexer indexer : indexers) {
+      Set<IndexType> indexTypes = indexer.getIndexTypes();
+      Set<IndexType> uninitializedTypes = getUninitializedTypes(indexTypes);
+      if (uninitializedTypes.isEmpty()) {
+        continue;
+      }
+      Set<String> indices = indexTypes.stream().map(IndexType::getIndex).collect(toSet());
+      Set<String> mergedIndices = new HashSet<>(indices);
+      Map<StartupIndexer, Set<IndexType>> mergedLane = new LinkedHashMap<>();
+      for (int i = lanes.size() - 1; i >= 0; i--) {
+        if (!Collections.disjoint(laneIndices.get(i), indices)) {
+          mergedIndices.addAll(laneIndices.remove(i));
+          Map<StartupIndexer, Set<IndexType>> lane = lanes.remove(i);
+          lane.putAll(mergedLane);
+          mergedLane = lane;
+        }
+      }
+      mergedLane.put(indexer, uninitializedTypes);
+      laneIndices.add(mergedIndices);
+      lanes.add(mergedLane);
+    }
+    return lanes;
+  }
+
+  private void indexConcurrently(List<Map<StartupIndexer, Set<IndexType>>> lanes) {
+    int threads = Math.max(1, Math.min(lanes.size(), config.getInt(PROPERTY_THREADS).orElse(DEFAULT_THREADS)));
+    ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+      .setNameFormat("IndexerStartupTask-%d")
+      .setDaemon(true)
+      .build());
+    try {
+      List<Future<?>> futures = lanes.stream()
+        .map(lane -> executor.submit(() -> indexUninitializedTypes(lane)))
+        .collect(toList());
+      for (Future<?> future : futures) {
+        waitFor(future);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static void waitFor(Future<?> future) {
+    try {
+      future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while indexing on startup", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException("Fail to index on startup", e.getCause());
     }
   }
 
@@ -60,19 +147,20 @@ public class IndexerStartupTask {
     return !config.getBoolean("sonar.internal.es.disableIndexes").orElse(false);
   }
 
-  private void indexUninitializedTypes(StartupIndexer indexer) {
-    Set<IndexType> uninitializedTypes = getUninitializedTypes(indexer);
-    if (!uninitializedTypes.isEmpty()) {
-      Profiler profiler = Profiler.create(LOG);
-      profiler.startInfo(getLogMessage(uninitializedTypes, "..."));
-      indexer.indexOnStartup(uninitializedTypes);
-      uninitializedTypes.forEach(this::setInitialized);
-      profiler.stopInfo(getLogMessage(uninitializedTypes, "done"));
-    }
+  private void indexUninitializedTypes(Map<StartupIndexer, Set<IndexType>> lane) {
+    lane.forEach(this::indexUninitializedTypes);
+  }
+
+  private void indexUninitializedTypes(StartupIndexer indexer, Set<IndexType> uninitializedTypes) {
+    Profiler profiler = Profiler.create(LOG);
+    profiler.startInfo(getLogMessage(uninitializedTypes, "..."));
+    indexer.indexOnStartup(uninitializedTypes);
+    uninitializedTypes.forEach(this::setInitialized);
+    profiler.stopInfo(getLogMessage(uninitializedTypes, "done"));
   }
 
-  private Set<IndexType> getUninitializedTypes(StartupIndexer indexer) {
-    return indexer.getIndexTypes().stream().filter(indexType -> !metadataIndex.getInitialized(indexType)).collect(toSet());
+  private Set<IndexType> getUninitializedTypes(Set<IndexType> indexTypes) {
+    return indexTypes.stream().filter(indexType -> !metadataIndex.getInitialized(indexType)).collect(toSet());
   }
 
   private void setInitialized(IndexType indexType) {
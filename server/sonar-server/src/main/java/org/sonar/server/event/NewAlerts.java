@@ -26,7 +26,6 @@ import org.sonar.api.notifications.Notification;
 import org.sonar.api.notifications.NotificationChannel;
 import org.sonar.server.notification.NotificationDispatcher;
 import org.sonar.server.notification.NotificationDispatcherMetadata;
-import org.sonar.server.notification.NotificationManager;
 
 import static org.sonar.server.notification.NotificationManager.SubscriberPermissionsOnProject.ALL_MUST_HAVE_ROLE_USER;
 
@@ -38,11 +37,9 @@ import static org.sonar.server.notification.NotificationManager.SubscriberPermis
 public class NewAlerts extends NotificationDispatcher {
 
   public static final String KEY = "NewAlerts";
-  private final NotificationManager notifications;
 
-  public NewAlerts(NotificationManager notifications) {
+  public NewAlerts() {
     super("alerts");
-    this.notifications = notifications;
   }
 
   @Override
@@ -60,8 +57,7 @@ public class NewAlerts extends NotificationDispatcher {
   public void dispatch(Notification notification, Context context) {
     String projectKey = notification.getFieldValue("projectKey");
     if (projectKey != null) {
-      Multimap<String, NotificationChannel> subscribedRecipients = notifications
-          .findSubscribedRecipientsForDispatcher(this, projectKey, ALL_MUST_HAVE_ROLE_USER);
+      Multimap<String, NotificationChannel> subscribedRecipients = context.findSubscribedRecipients(projectKey, ALL_MUST_HAVE_ROLE_USER);
 
       for (Map.Entry<String, Collection<NotificationChannel>> channelsByRecipients : subscribedRecipients.asMap().entrySet()) {
         String userLogin = channelsByRecipients.getKey();
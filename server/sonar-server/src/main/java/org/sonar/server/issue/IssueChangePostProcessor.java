@@ -30,7 +30,9 @@ import org.sonar.db.component.ComponentDto;
 public interface IssueChangePostProcessor {
 
   /**
-   * Refresh measures, quality gate status and send webhooks
+   * Refresh measures, quality gate status and send webhooks.
+   * Depending on configuration, the refresh can be deferred and merged with the
+   * other changes on the same projects.
    *
    * @param components the components of changed issues
    */
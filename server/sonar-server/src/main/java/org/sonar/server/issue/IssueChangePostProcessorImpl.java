@@ -19,28 +19,139 @@
  */
 package org.sonar.server.issue;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.CheckForNull;
+import org.sonar.api.Startable;
+import org.sonar.api.config.Configuration;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.issue.DefaultIssue;
+import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.server.measure.live.LiveMeasureComputer;
 import org.sonar.server.qualitygate.changeevent.QGChangeEvent;
 import org.sonar.server.qualitygate.changeevent.QGChangeEventListeners;
 
-public class IssueChangePostProcessorImpl implements IssueChangePostProcessor {
+import static java.util.stream.Collectors.groupingBy;
 
+/**
+ * By default measures are refreshed synchronously, so that the caller reads its own
+ * changes once the request is completed.
+ *
+ * When {@link #PROPERTY_REFRESH_DELAY} is set, the refresh of a project is deferred by
+ * this delay. The components and issues touched in the meantime on the same project are
+ * merged, so that a burst of issue changes recomputes the project only once.
+ */
+public class IssueChangePostProcessorImpl implements IssueChangePostProcessor, Startable {
+
+  static final String PROPERTY_REFRESH_DELAY = "sonar.issues.liveMeasures.refreshDelayInMs";
+  private static final Logger LOGGER = Loggers.get(IssueChangePostProcessorImpl.class);
+
+  private final DbClient dbClient;
   private final LiveMeasureComputer liveMeasureComputer;
   private final QGChangeEventListeners qualityGateListeners;
+  private final long refreshDelayInMs;
+  // guarded by "this"
+  private final Map<String, PendingRefresh> pendingRefreshesByProjectUuid = new HashMap<>();
+  private ScheduledExecutorService executorService;
 
-  public IssueChangePostProcessorImpl(LiveMeasureComputer liveMeasureComputer, QGChangeEventListeners qualityGateListeners) {
+  public IssueChangePostProcessorImpl(DbClient dbClient, Configuration config, LiveMeasureComputer liveMeasureComputer,
+    QGChangeEventListeners qualityGateListeners) {
+    this.dbClient = dbClient;
     this.liveMeasureComputer = liveMeasureComputer;
     this.qualityGateListeners = qualityGateListeners;
+    this.refreshDelayInMs = config.getLong(PROPERTY_REFRESH_DELAY).orElse(0L);
+  }
+
+  @Override
+  public void start() {
+    if (refreshDelayInMs > 0) {
+      LOGGER.debug("Live measures are refreshed with a delay of {}ms", refreshDelayInMs);
+      executorService = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder()
+          .setNameFormat("LiveMeasuresRefresh-%d")
+          .build());
+    }
+  }
+
+  @Override
+  public void stop() {
+    if (executorService == null) {
+      return;
+    }
+    executorService.shutdownNow();
+    // do not lose the changes which are not refreshed yet
+    List<String> projectUuids;
+    synchronized (this) {
+      projectUuids = new ArrayList<>(pendingRefreshesByProjectUuid.keySet());
+    }
+    projectUuids.forEach(this::refreshPending);
   }
 
   @Override
   public void process(DbSession dbSession, List<DefaultIssue> changedIssues, Collection<ComponentDto> components) {
+    if (executorService == null) {
+      refresh(dbSession, changedIssues, components);
+      return;
+    }
+
+    Map<String, List<DefaultIssue>> issuesByProjectUuid = changedIssues.stream().collect(groupingBy(DefaultIssue::projectUuid));
+    Map<String, List<ComponentDto>> componentsByProjectUuid = components.stream().collect(groupingBy(ComponentDto::projectUuid));
+    synchronized (this) {
+      componentsByProjectUuid.forEach((projectUuid, projectComponents) -> {
+        PendingRefresh pending = pendingRefreshesByProjectUuid.computeIfAbsent(projectUuid, this::schedule);
+        pending.add(issuesByProjectUuid.getOrDefault(projectUuid, new ArrayList<>()), projectComponents);
+      });
+    }
+  }
+
+  private PendingRefresh schedule(String projectUuid) {
+    executorService.schedule(() -> refreshPending(projectUuid), refreshDelayInMs, TimeUnit.MILLISECONDS);
+    return new PendingRefresh();
+  }
+
+  @VisibleForTesting
+  void refreshPending(String projectUuid) {
+    PendingRefresh pending = removePending(projectUuid);
+    if (pending == null) {
+      return;
+    }
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      refresh(dbSession, new ArrayList<>(pending.issuesByKey.values()), pending.componentsByUuid.values());
+    } catch (Exception e) {
+      LOGGER.error("Fail to refresh live measures of project {}", projectUuid, e);
+    }
+  }
+
+  @CheckForNull
+  private synchronized PendingRefresh removePending(String projectUuid) {
+    return pendingRefreshesByProjectUuid.remove(projectUuid);
+  }
+
+  private void refresh(DbSession dbSession, List<DefaultIssue> changedIssues, Collection<ComponentDto> components) {
     List<QGChangeEvent> gateChangeEvents = liveMeasureComputer.refresh(dbSession, components);
     qualityGateListeners.broadcastOnIssueChange(changedIssues, gateChangeEvents);
   }
+
+  private static class PendingRefresh {
+    private final Map<String, DefaultIssue> issuesByKey = new LinkedHashMap<>();
+    private final Map<String, ComponentDto> componentsByUuid = new LinkedHashMap<>();
+
+    private void add(List<DefaultIssue> issues, List<ComponentDto> components) {
+      // the latest state of an issue changed several times is kept
+      issues.forEach(i -> issuesByKey.put(i.key(), i));
+      components.forEach(c -> componentsByUuid.put(c.uuid(), c));
+    }
+  }
 }
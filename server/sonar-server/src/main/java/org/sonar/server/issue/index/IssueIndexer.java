@@ -23,10 +23,15 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ListMultimap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.sonar.api.resources.Qualifiers;
@@ -35,6 +40,7 @@ import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.util.stream.MoreCollectors;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
+import org.sonar.db.component.ComponentDto;
 import org.sonar.db.es.EsQueueDto;
 import org.sonar.db.issue.IssueDto;
 import org.sonar.server.es.BulkIndexer;
@@ -50,6 +56,7 @@ import org.sonar.server.permission.index.AuthorizationScope;
 import org.sonar.server.permission.index.NeedAuthorizationIndexer;
 
 import static java.util.Collections.emptyList;
+import static java.util.Collections.singleton;
 import static org.elasticsearch.index.query.QueryBuilders.boolQuery;
 import static org.elasticsearch.index.query.QueryBuilders.termQuery;
 import static org.sonar.server.issue.index.IssueIndexDefinition.FIELD_ISSUE_PROJECT_UUID;
@@ -68,6 +75,7 @@ public class IssueIndexer implements ProjectIndexer, NeedAuthorizationIndexer {
   private static final Logger LOGGER = Loggers.get(IssueIndexer.class);
   private static final AuthorizationScope AUTHORIZATION_SCOPE = new AuthorizationScope(INDEX_TYPE_ISSUE, project -> Qualifiers.PROJECT.equals(project.getQualifier()));
   private static final ImmutableSet<IndexType> INDEX_TYPES = ImmutableSet.of(INDEX_TYPE_ISSUE);
+  private static final int STARTUP_READERS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
 
   private final EsClient esClient;
   private final DbClient dbClient;
@@ -89,10 +97,56 @@ public class IssueIndexer implements ProjectIndexer, NeedAuthorizationIndexer {
     return INDEX_TYPES;
   }
 
+  /**
+   * Issues are read by slices of enabled projects (including branches), so that multiple db cursors
+   * feed the same bulk indexer concurrently.
+   */
   @Override
   public void indexOnStartup(Set<IndexType> uninitializedIndexTypes) {
-    try (IssueIterator issues = issueIteratorFactory.createForAll()) {
-      doIndex(issues, Size.LARGE, IndexingListener.FAIL_ON_ERROR);
+    List<String> projectUuids;
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      projectUuids = dbClient.componentDao().selectComponentsByQualifiers(dbSession, singleton(Qualifiers.PROJECT)).stream()
+        .filter(ComponentDto::isRootProject)
+        .filter(ComponentDto::isEnabled)
+        .map(ComponentDto::uuid)
+        .collect(MoreCollectors.toList());
+    }
+
+    BulkIndexer bulk = createBulkIndexer(Size.LARGE, IndexingListener.FAIL_ON_ERROR);
+    bulk.start();
+    ExecutorService executor = Executors.newFixedThreadPool(STARTUP_READERS, new ThreadFactoryBuilder()
+      .setNameFormat("IssueIndexer-%d")
+      .setDaemon(true)
+      .build());
+    try {
+      List<Future<?>> slices = projectUuids.stream()
+        .map(projectUuid -> executor.submit(() -> indexProjectSlice(bulk, projectUuid)))
+        .collect(MoreCollectors.toList(projectUuids.size()));
+      for (Future<?> slice : slices) {
+        waitFor(slice);
+      }
+    } finally {
+      executor.shutdownNow();
+      bulk.stop();
+    }
+  }
+
+  private void indexProjectSlice(BulkIndexer bulk, String projectUuid) {
+    try (IssueIterator issues = issueIteratorFactory.createForProject(projectUuid)) {
+      while (issues.hasNext()) {
+        bulk.add(newIndexRequest(issues.next()));
+      }
+    }
+  }
+
+  private static void waitFor(Future<?> slice) {
+    try {
+      slice.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while indexing issues", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Fail to index issues", e.getCause());
     }
   }
 
@@ -27,7 +27,6 @@ import org.sonar.api.notifications.Notification;
 import org.sonar.api.notifications.NotificationChannel;
 import org.sonar.server.notification.NotificationDispatcher;
 import org.sonar.server.notification.NotificationDispatcherMetadata;
-import org.sonar.server.notification.NotificationManager;
 
 import static org.sonar.server.notification.NotificationManager.SubscriberPermissionsOnProject.ALL_MUST_HAVE_ROLE_USER;
 
@@ -39,11 +38,9 @@ import static org.sonar.server.notification.NotificationManager.SubscriberPermis
 public class ChangesOnMyIssueNotificationDispatcher extends NotificationDispatcher {
 
   public static final String KEY = "ChangesOnMyIssue";
-  private NotificationManager notificationManager;
 
-  public ChangesOnMyIssueNotificationDispatcher(NotificationManager notificationManager) {
+  public ChangesOnMyIssueNotificationDispatcher() {
     super(IssueChangeNotification.TYPE);
-    this.notificationManager = notificationManager;
   }
 
   @Override
@@ -60,8 +57,7 @@ public class ChangesOnMyIssueNotificationDispatcher extends NotificationDispatch
   @Override
   public void dispatch(Notification notification, Context context) {
     String projectKey = notification.getFieldValue("projectKey");
-    Multimap<String, NotificationChannel> subscribedRecipients = notificationManager
-      .findSubscribedRecipientsForDispatcher(this, projectKey, ALL_MUST_HAVE_ROLE_USER);
+    Multimap<String, NotificationChannel> subscribedRecipients = context.findSubscribedRecipients(projectKey, ALL_MUST_HAVE_ROLE_USER);
 
     // See available fields in the class IssueNotifications.
 
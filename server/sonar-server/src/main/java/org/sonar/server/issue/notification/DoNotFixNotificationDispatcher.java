@@ -28,7 +28,6 @@ import org.sonar.api.notifications.Notification;
 import org.sonar.api.notifications.NotificationChannel;
 import org.sonar.server.notification.NotificationDispatcher;
 import org.sonar.server.notification.NotificationDispatcherMetadata;
-import org.sonar.server.notification.NotificationManager;
 
 import static org.sonar.server.notification.NotificationManager.SubscriberPermissionsOnProject.ALL_MUST_HAVE_ROLE_USER;
 
@@ -39,11 +38,8 @@ public class DoNotFixNotificationDispatcher extends NotificationDispatcher {
 
   public static final String KEY = "NewFalsePositiveIssue";
 
-  private final NotificationManager notifications;
-
-  public DoNotFixNotificationDispatcher(NotificationManager notifications) {
+  public DoNotFixNotificationDispatcher() {
     super(IssueChangeNotification.TYPE);
-    this.notifications = notifications;
   }
 
   @Override
@@ -63,8 +59,7 @@ public class DoNotFixNotificationDispatcher extends NotificationDispatcher {
     if (Objects.equals(newResolution, Issue.RESOLUTION_FALSE_POSITIVE) || Objects.equals(newResolution, Issue.RESOLUTION_WONT_FIX)) {
       String author = notification.getFieldValue("changeAuthor");
       String projectKey = notification.getFieldValue("projectKey");
-      Multimap<String, NotificationChannel> subscribedRecipients = notifications
-        .findSubscribedRecipientsForDispatcher(this, projectKey, ALL_MUST_HAVE_ROLE_USER);
+      Multimap<String, NotificationChannel> subscribedRecipients = context.findSubscribedRecipients(projectKey, ALL_MUST_HAVE_ROLE_USER);
       notify(author, context, subscribedRecipients);
     }
   }
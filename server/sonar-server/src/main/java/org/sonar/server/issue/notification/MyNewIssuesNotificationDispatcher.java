@@ -25,7 +25,6 @@ import org.sonar.api.notifications.Notification;
 import org.sonar.api.notifications.NotificationChannel;
 import org.sonar.server.notification.NotificationDispatcher;
 import org.sonar.server.notification.NotificationDispatcherMetadata;
-import org.sonar.server.notification.NotificationManager;
 
 import static org.sonar.server.notification.NotificationManager.SubscriberPermissionsOnProject.ALL_MUST_HAVE_ROLE_USER;
 
@@ -35,11 +34,9 @@ import static org.sonar.server.notification.NotificationManager.SubscriberPermis
 public class MyNewIssuesNotificationDispatcher extends NotificationDispatcher {
 
   public static final String KEY = "SQ-MyNewIssues";
-  private final NotificationManager manager;
 
-  public MyNewIssuesNotificationDispatcher(NotificationManager manager) {
+  public MyNewIssuesNotificationDispatcher() {
     super(MyNewIssuesNotification.MY_NEW_ISSUES_NOTIF_TYPE);
-    this.manager = manager;
   }
 
   public static NotificationDispatcherMetadata newMetadata() {
@@ -57,8 +54,7 @@ public class MyNewIssuesNotificationDispatcher extends NotificationDispatcher {
   public void dispatch(Notification notification, Context context) {
     String projectKey = notification.getFieldValue("projectKey");
     String assignee = notification.getFieldValue("assignee");
-    Multimap<String, NotificationChannel> subscribedRecipients = manager
-        .findSubscribedRecipientsForDispatcher(this, projectKey, ALL_MUST_HAVE_ROLE_USER);
+    Multimap<String, NotificationChannel> subscribedRecipients = context.findSubscribedRecipients(projectKey, ALL_MUST_HAVE_ROLE_USER);
 
     Collection<NotificationChannel> channels = subscribedRecipients.get(assignee);
     for (NotificationChannel channel : channels) {
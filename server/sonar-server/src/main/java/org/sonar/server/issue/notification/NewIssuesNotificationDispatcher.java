@@ -26,7 +26,6 @@ import org.sonar.api.notifications.Notification;
 import org.sonar.api.notifications.NotificationChannel;
 import org.sonar.server.notification.NotificationDispatcher;
 import org.sonar.server.notification.NotificationDispatcherMetadata;
-import org.sonar.server.notification.NotificationManager;
 
 import static org.sonar.server.notification.NotificationManager.SubscriberPermissionsOnProject.ALL_MUST_HAVE_ROLE_USER;
 
@@ -36,11 +35,9 @@ import static org.sonar.server.notification.NotificationManager.SubscriberPermis
 public class NewIssuesNotificationDispatcher extends NotificationDispatcher {
 
   public static final String KEY = "NewIssues";
-  private final NotificationManager manager;
 
-  public NewIssuesNotificationDispatcher(NotificationManager manager) {
+  public NewIssuesNotificationDispatcher() {
     super(NewIssuesNotification.TYPE);
-    this.manager = manager;
   }
 
   @Override
@@ -57,8 +54,7 @@ public class NewIssuesNotificationDispatcher extends NotificationDispatcher {
   @Override
   public void dispatch(Notification notification, Context context) {
     String projectKey = notification.getFieldValue("projectKey");
-    Multimap<String, NotificationChannel> subscribedRecipients = manager
-      .findSubscribedRecipientsForDispatcher(this, projectKey, ALL_MUST_HAVE_ROLE_USER);
+    Multimap<String, NotificationChannel> subscribedRecipients = context.findSubscribedRecipients(projectKey, ALL_MUST_HAVE_ROLE_USER);
 
     for (Map.Entry<String, Collection<NotificationChannel>> channelsByRecipients : subscribedRecipients.asMap().entrySet()) {
       String userLogin = channelsByRecipients.getKey();
@@ -196,7 +196,7 @@ public class BulkChangeAction implements IssuesWsAction {
 
     refreshLiveMeasures(dbSession, bulkChangeData, result);
 
-    items.forEach(sendNotification(issueChangeContext, bulkChangeData));
+    sendNotifications(items, issueChangeContext, bulkChangeData);
 
     return result;
   }
@@ -244,17 +244,19 @@ public class BulkChangeAction implements IssuesWsAction {
     bulkChangeData.getCommentAction().ifPresent(action -> action.execute(bulkChangeData.getProperties(action.key()), actionContext));
   }
 
-  private Consumer<DefaultIssue> sendNotification(IssueChangeContext issueChangeContext, BulkChangeData bulkChangeData) {
-    return issue -> {
-      if (bulkChangeData.sendNotification) {
-        notificationService.scheduleForSending(new IssueChangeNotification()
-          .setIssue(issue)
-          .setChangeAuthorLogin(issueChangeContext.login())
-          .setRuleName(bulkChangeData.rulesByKey.get(issue.ruleKey()).getName())
-          .setProject(bulkChangeData.projectsByUuid.get(issue.projectUuid()))
-          .setComponent(bulkChangeData.componentsByUuid.get(issue.componentUuid())));
-      }
-    };
+  private void sendNotifications(Collection<DefaultIssue> issues, IssueChangeContext issueChangeContext, BulkChangeData bulkChangeData) {
+    if (!bulkChangeData.sendNotification) {
+      return;
+    }
+    List<IssueChangeNotification> notifications = issues.stream()
+      .map(issue -> new IssueChangeNotification()
+        .setIssue(issue)
+        .setChangeAuthorLogin(issueChangeContext.login())
+        .setRuleName(bulkChangeData.rulesByKey.get(issue.ruleKey()).getName())
+        .setProject(bulkChangeData.projectsByUuid.get(issue.projectUuid()))
+        .setComponent(bulkChangeData.componentsByUuid.get(issue.componentUuid())))
+      .collect(MoreCollectors.toList(issues.size()));
+    notificationService.scheduleForSending(notifications);
   }
 
   private static Issues.BulkChangeWsResponse toWsResponse(BulkChangeResult result) {
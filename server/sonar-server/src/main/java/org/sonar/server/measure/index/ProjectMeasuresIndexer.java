@@ -24,11 +24,15 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import javax.annotation.Nullable;
+import org.elasticsearch.action.get.GetResponse;
 import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.update.UpdateRequest;
 import org.sonar.api.resources.Qualifiers;
 import org.sonar.core.util.stream.MoreCollectors;
 import org.sonar.db.DbClient;
@@ -47,6 +51,11 @@ import org.sonar.server.es.ProjectIndexer;
 import org.sonar.server.permission.index.AuthorizationScope;
 import org.sonar.server.permission.index.NeedAuthorizationIndexer;
 
+import static java.util.Collections.singletonList;
+import static org.sonar.db.measure.ProjectMeasuresIndexerIterator.METRIC_KEYS;
+import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.FIELD_MEASURES;
+import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.FIELD_MEASURES_KEY;
+import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.FIELD_MEASURES_VALUE;
 import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.INDEX_TYPE_PROJECT_MEASURES;
 
 public class ProjectMeasuresIndexer implements ProjectIndexer, NeedAuthorizationIndexer {
@@ -117,6 +126,43 @@ public class ProjectMeasuresIndexer implements ProjectIndexer, NeedAuthorization
     return index(dbSession, items);
   }
 
+  /**
+   * Commits the DB transaction and updates only the given measures of the document of the project,
+   * instead of rebuilding the whole document from db. This is used when live measures are refreshed,
+   * for example after changes on issues.
+   * <p/>
+   * The document is fully rebuilt from db if it does not exist yet or if the partial update fails,
+   * for instance because the document has been concurrently modified. As for {@link #commitAndIndex(DbSession, Collection)},
+   * the item in table es_queue is kept on failure, so the recovery daemon eventually rebuilds the document.
+   *
+   * @param numericMeasures the changed numeric values, by metric key. Metrics that are not
+   *                        indexed (see {@link ProjectMeasuresIndexerIterator#METRIC_KEYS}) are ignored.
+   * @param qualityGateStatus the new quality gate status, or {@code null} if it did not change
+   */
+  public IndexingResult commitAndIndexMeasures(DbSession dbSession, String projectUuid, Map<String, Double> numericMeasures, @Nullable String qualityGateStatus) {
+    List<EsQueueDto> items = singletonList(EsQueueDto.create(INDEX_TYPE_PROJECT_MEASURES.format(), projectUuid, null, projectUuid));
+    dbClient.esQueueDao().insert(dbSession, items);
+
+    dbSession.commit();
+
+    GetResponse existingDoc = esClient.prepareGet(INDEX_TYPE_PROJECT_MEASURES, projectUuid)
+      .setRouting(projectUuid)
+      .get();
+    if (!existingDoc.isExists()) {
+      return index(dbSession, items);
+    }
+
+    OneToOneResilientIndexingListener listener = new OneToOneResilientIndexingListener(dbClient, dbSession, items);
+    BulkIndexer bulkIndexer = createBulkIndexer(Size.REGULAR, listener);
+    bulkIndexer.start();
+    bulkIndexer.add(newUpdateRequest(existingDoc, numericMeasures, qualityGateStatus));
+    IndexingResult result = bulkIndexer.stop();
+    if (!result.isSuccess()) {
+      return index(dbSession, items);
+    }
+    return result;
+  }
+
   @Override
   public IndexingResult index(DbSession dbSession, Collection<EsQueueDto> items) {
     if (items.isEmpty()) {
@@ -171,6 +217,33 @@ public class ProjectMeasuresIndexer implements ProjectIndexer, NeedAuthorization
       .source(doc.getFields());
   }
 
+  /**
+   * Nested field "measures" can't be partially updated, so the new list is the existing one
+   * merged with the changed values. The version of the existing document is checked to
+   * not override concurrent modifications.
+   */
+  private static UpdateRequest newUpdateRequest(GetResponse existingDoc, Map<String, Double> numericMeasures, @Nullable String qualityGateStatus) {
+    Map<String, Double> measures = new HashMap<>();
+    Collection<Map<String, Object>> existingMeasures = (Collection<Map<String, Object>>) existingDoc.getSource().get(FIELD_MEASURES);
+    if (existingMeasures != null) {
+      existingMeasures.forEach(m -> measures.put((String) m.get(FIELD_MEASURES_KEY), ((Number) m.get(FIELD_MEASURES_VALUE)).doubleValue()));
+    }
+    numericMeasures.entrySet().stream()
+      .filter(e -> METRIC_KEYS.contains(e.getKey()))
+      .forEach(e -> measures.put(e.getKey(), e.getValue()));
+
+    ProjectMeasuresDoc doc = new ProjectMeasuresDoc().setMeasuresFromMap(measures);
+    if (qualityGateStatus != null) {
+      doc.setQualityGateStatus(qualityGateStatus);
+    }
+    String projectUuid = existingDoc.getId();
+    return new UpdateRequest(INDEX_TYPE_PROJECT_MEASURES.getIndex(), INDEX_TYPE_PROJECT_MEASURES.getType(), projectUuid)
+      .routing(projectUuid)
+      .parent(projectUuid)
+      .version(existingDoc.getVersion())
+      .doc(doc.getFields());
+  }
+
   private static ProjectMeasuresDoc toProjectMeasuresDoc(ProjectMeasures projectMeasures) {
     ProjectMeasuresIndexerIterator.Project project = projectMeasures.getProject();
     Long analysisDate = project.getAnalysisDate();
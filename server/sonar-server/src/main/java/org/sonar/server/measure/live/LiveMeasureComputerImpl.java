@@ -21,6 +21,7 @@ package org.sonar.server.measure.live;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -41,8 +42,7 @@ import org.sonar.db.metric.MetricDto;
 import org.sonar.db.organization.OrganizationDto;
 import org.sonar.server.computation.task.projectanalysis.qualitymodel.DebtRatingGrid;
 import org.sonar.server.computation.task.projectanalysis.qualitymodel.Rating;
-import org.sonar.server.es.ProjectIndexer;
-import org.sonar.server.es.ProjectIndexers;
+import org.sonar.server.measure.index.ProjectMeasuresIndexer;
 import org.sonar.server.qualitygate.EvaluatedQualityGate;
 import org.sonar.server.qualitygate.QualityGate;
 import org.sonar.server.qualitygate.changeevent.QGChangeEvent;
@@ -50,7 +50,6 @@ import org.sonar.server.settings.ProjectConfigurationLoader;
 
 import static com.google.common.base.Preconditions.checkState;
 import static java.util.Collections.emptyList;
-import static java.util.Collections.singleton;
 import static java.util.stream.Collectors.groupingBy;
 import static org.sonar.api.measures.CoreMetrics.ALERT_STATUS_KEY;
 import static org.sonar.core.util.stream.MoreCollectors.toArrayList;
@@ -62,15 +61,15 @@ public class LiveMeasureComputerImpl implements LiveMeasureComputer {
   private final IssueMetricFormulaFactory formulaFactory;
   private final LiveQualityGateComputer qGateComputer;
   private final ProjectConfigurationLoader projectConfigurationLoader;
-  private final ProjectIndexers projectIndexer;
+  private final ProjectMeasuresIndexer projectMeasuresIndexer;
 
   public LiveMeasureComputerImpl(DbClient dbClient, IssueMetricFormulaFactory formulaFactory,
-    LiveQualityGateComputer qGateComputer, ProjectConfigurationLoader projectConfigurationLoader, ProjectIndexers projectIndexer) {
+    LiveQualityGateComputer qGateComputer, ProjectConfigurationLoader projectConfigurationLoader, ProjectMeasuresIndexer projectMeasuresIndexer) {
     this.dbClient = dbClient;
     this.formulaFactory = formulaFactory;
     this.qGateComputer = qGateComputer;
     this.projectConfigurationLoader = projectConfigurationLoader;
-    this.projectIndexer = projectIndexer;
+    this.projectMeasuresIndexer = projectMeasuresIndexer;
   }
 
   @Override
@@ -135,13 +134,39 @@ public class LiveMeasureComputerImpl implements LiveMeasureComputer {
     EvaluatedQualityGate evaluatedQualityGate = qGateComputer.refreshGateStatus(project, qualityGate, matrix);
 
     // persist the measures that have been created or updated
-    matrix.getChanged().forEach(m -> dbClient.liveMeasureDao().insertOrUpdate(dbSession, m, null));
-    projectIndexer.commitAndIndex(dbSession, singleton(project), ProjectIndexer.Cause.MEASURE_CHANGE);
+    List<LiveMeasureDto> changedMeasures = matrix.getChanged().collect(toArrayList());
+    changedMeasures.forEach(m -> dbClient.liveMeasureDao().insertOrUpdate(dbSession, m));
+    indexChangedMeasures(dbSession, project, metricsPerId, changedMeasures);
 
     return Optional.of(
       new QGChangeEvent(project, branch, lastAnalysis.get(), config, previousStatus, () -> Optional.of(evaluatedQualityGate)));
   }
 
+  /**
+   * Only the measures of the project are indexed, so the document of the project
+   * is partially updated with them instead of being rebuilt from db.
+   */
+  private void indexChangedMeasures(DbSession dbSession, ComponentDto project, Map<Integer, MetricDto> metricsPerId, List<LiveMeasureDto> changedMeasures) {
+    Map<String, Double> numericMeasures = new HashMap<>();
+    String qualityGateStatus = null;
+    for (LiveMeasureDto measure : changedMeasures) {
+      if (!project.uuid().equals(measure.getComponentUuid())) {
+        continue;
+      }
+      String metricKey = metricsPerId.get(measure.getMetricId()).getKey();
+      if (ALERT_STATUS_KEY.equals(metricKey)) {
+        qualityGateStatus = measure.getTextValue();
+        continue;
+      }
+      // same convention as ProjectMeasuresIndexerIterator: the value of leak metrics is the variation
+      Double value = metricKey.startsWith("new_") ? measure.getVariation() : measure.getValue();
+      if (value != null) {
+        numericMeasures.put(metricKey, value);
+      }
+    }
+    projectMeasuresIndexer.commitAndIndexMeasures(dbSession, project.uuid(), numericMeasures, qualityGateStatus);
+  }
+
   @CheckForNull
   private static Metric.Level loadPreviousStatus(List<MetricDto> metrics, List<LiveMeasureDto> dbMeasures) {
     MetricDto alertStatusMetric = metrics.stream()
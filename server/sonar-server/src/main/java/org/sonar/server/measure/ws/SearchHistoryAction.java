@@ -20,7 +20,9 @@
 package org.sonar.server.measure.ws;
 
 import com.google.common.collect.Sets;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.function.Function;
@@ -39,6 +41,7 @@ import org.sonar.db.component.SnapshotQuery;
 import org.sonar.db.component.SnapshotQuery.SORT_FIELD;
 import org.sonar.db.component.SnapshotQuery.SORT_ORDER;
 import org.sonar.db.measure.MeasureDto;
+import org.sonar.db.measure.MeasureHistoryDto;
 import org.sonar.db.measure.PastMeasureQuery;
 import org.sonar.db.metric.MetricDto;
 import org.sonar.server.component.ComponentFinder;
@@ -164,12 +167,24 @@ public class SearchHistoryAction implements MeasuresWsAction {
   private List<MeasureDto> searchMeasures(DbSession dbSession, SearchHistoryRequest request, SearchHistoryResult result) {
     Date from = parseStartingDateOrDateTime(request.getFrom());
     Date to = parseEndingDateOrDateTime(request.getTo());
-    PastMeasureQuery dbQuery = new PastMeasureQuery(
-      result.getComponent().uuid(),
-      result.getMetrics().stream().map(MetricDto::getId).collect(MoreCollectors.toList()),
-      from == null ? null : from.getTime(),
-      to == null ? null : (to.getTime() + 1_000L));
-    return dbClient.measureDao().selectPastMeasures(dbSession, dbQuery);
+    Long fromTime = from == null ? null : from.getTime();
+    Long toTime = to == null ? null : (to.getTime() + 1_000L);
+    ComponentDto component = result.getComponent();
+    Set<Integer> metricIds = new HashSet<>(result.getMetrics().stream().map(MetricDto::getId).collect(MoreCollectors.toList()));
+
+    List<MeasureDto> measures = new ArrayList<>();
+    if (component.uuid().equals(component.projectUuid())) {
+      // the whole history of a metric on a project, branch or view is stored in a single row
+      for (MeasureHistoryDto history : dbClient.measureDao().selectHistory(dbSession, component.uuid(), metricIds)) {
+        measures.addAll(history.getMeasures(fromTime, toTime));
+        metricIds.remove(history.getMetricId());
+      }
+    }
+    if (!metricIds.isEmpty()) {
+      PastMeasureQuery dbQuery = new PastMeasureQuery(component.uuid(), new ArrayList<>(metricIds), fromTime, toTime);
+      measures.addAll(dbClient.measureDao().selectPastMeasures(dbSession, dbQuery));
+    }
+    return measures;
   }
 
   private List<SnapshotDto> searchAnalyses(DbSession dbSession, SearchHistoryRequest request, ComponentDto component) {
@@ -25,13 +25,16 @@ import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.Multimap;
 import java.io.IOException;
 import java.io.InvalidClassException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonar.api.notifications.Notification;
 import org.sonar.api.notifications.NotificationChannel;
@@ -76,23 +79,44 @@ public class DefaultNotificationManager implements NotificationManager {
   }
 
   /**
-   * Give the notification queue so that it can be processed
+   * {@inheritDoc}
+   */
+  @Override
+  public void scheduleForSending(Collection<? extends Notification> notifications) {
+    if (notifications.isEmpty()) {
+      return;
+    }
+    List<NotificationQueueDto> dtos = notifications.stream()
+      .map(NotificationQueueDto::toNotificationQueueDto)
+      .collect(Collectors.toList());
+    dbClient.notificationQueueDao().insert(dtos);
+  }
+
+  /**
+   * Claims at most {@code batchSize} of the oldest notifications of the queue. They are removed from the queue
+   * before being returned. Notifications which can't be deserialized are ignored.
    */
-  public Notification getFromQueue() {
-    int batchSize = 1;
+  public List<Notification> getFromQueue(int batchSize) {
     List<NotificationQueueDto> notificationDtos = dbClient.notificationQueueDao().selectOldest(batchSize);
     if (notificationDtos.isEmpty()) {
-      return null;
+      return Collections.emptyList();
     }
     dbClient.notificationQueueDao().delete(notificationDtos);
 
-    return convertToNotification(notificationDtos);
+    List<Notification> notifications = new ArrayList<>(notificationDtos.size());
+    for (NotificationQueueDto notificationDto : notificationDtos) {
+      Notification notification = convertToNotification(notificationDto);
+      if (notification != null) {
+        notifications.add(notification);
+      }
+    }
+    return notifications;
   }
 
-  private Notification convertToNotification(List<NotificationQueueDto> notifications) {
+  @CheckForNull
+  private Notification convertToNotification(NotificationQueueDto notification) {
     try {
-      // If batchSize is increased then we should return a list instead of a single element
-      return notifications.get(0).toNotification();
+      return notification.toNotification();
     } catch (InvalidClassException e) {
       // SONAR-4739
       if (!alreadyLoggedDeserializationIssue) {
@@ -19,6 +19,7 @@
  */
 package org.sonar.server.notification;
 
+import com.google.common.collect.Multimap;
 import org.apache.commons.lang.StringUtils;
 import org.sonar.api.ExtensionPoint;
 import org.sonar.api.notifications.Notification;
@@ -58,6 +59,15 @@ public abstract class NotificationDispatcher {
      * @param notificationChannel the notification channel to use for this user
      */
     void addUser(String userLogin, NotificationChannel notificationChannel);
+
+    /**
+     * Users subscribed to this dispatcher on the given project, along with their notification channels. They are
+     * resolved once per batch of notifications being delivered, so that a dispatcher can call this method for
+     * every notification without loading the subscriptions again.
+     *
+     * @see NotificationManager#findSubscribedRecipientsForDispatcher(NotificationDispatcher, String, NotificationManager.SubscriberPermissionsOnProject)
+     */
+    Multimap<String, NotificationChannel> findSubscribedRecipients(String projectKey, NotificationManager.SubscriberPermissionsOnProject subscriberPermissionsOnProject);
   }
 
   /**
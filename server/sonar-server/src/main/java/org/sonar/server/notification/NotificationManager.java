@@ -20,6 +20,7 @@
 package org.sonar.server.notification;
 
 import com.google.common.collect.Multimap;
+import java.util.Collection;
 import java.util.Objects;
 import org.sonar.api.notifications.Notification;
 import org.sonar.api.notifications.NotificationChannel;
@@ -43,6 +44,13 @@ public interface NotificationManager {
    */
   void scheduleForSending(Notification notification);
 
+  /**
+   * Receives notifications and stores them at once so that they are processed by the notification service.
+   *
+   * @param notifications the notifications.
+   */
+  void scheduleForSending(Collection<? extends Notification> notifications);
+
   /**
    * <p>
    * Returns the list of users who subscribed to the given dispatcher, along with the notification channels (email, twitter, ...) that they choose
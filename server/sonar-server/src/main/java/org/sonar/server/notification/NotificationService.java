@@ -26,9 +26,16 @@ import com.google.common.collect.Multimap;
 import com.google.common.collect.SetMultimap;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import javax.annotation.Nullable;
 import org.sonar.api.ce.ComputeEngineSide;
 import org.sonar.api.notifications.Notification;
@@ -38,6 +45,8 @@ import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.db.DbClient;
 
+import static java.util.Objects.requireNonNull;
+
 @ServerSide
 @ComputeEngineSide
 public class NotificationService {
@@ -46,23 +55,84 @@ public class NotificationService {
 
   private final List<NotificationDispatcher> dispatchers;
   private final DbClient dbClient;
+  private final DefaultNotificationManager manager;
 
-  public NotificationService(DbClient dbClient, NotificationDispatcher[] dispatchers) {
+  public NotificationService(DbClient dbClient, DefaultNotificationManager manager, NotificationDispatcher[] dispatchers) {
     this.dbClient = dbClient;
+    this.manager = manager;
     this.dispatchers = ImmutableList.copyOf(dispatchers);
   }
 
   /**
    * Default constructor when no dispatchers.
    */
-  public NotificationService(DbClient dbClient) {
-    this(dbClient, new NotificationDispatcher[0]);
+  public NotificationService(DbClient dbClient, DefaultNotificationManager manager) {
+    this(dbClient, manager, new NotificationDispatcher[0]);
   }
 
   public void deliver(Notification notification) {
+    deliver(notification, new HashMap<>());
+  }
+
+  /**
+   * Delivers a batch of notifications in sequence. Subscribers are resolved once per dispatcher and project
+   * for the whole batch, instead of once per notification.
+   */
+  public void deliver(Collection<? extends Notification> notifications) {
+    Map<RecipientsKey, Multimap<String, NotificationChannel>> subscribedRecipients = new HashMap<>();
+    for (Notification notification : notifications) {
+      deliver(notification, subscribedRecipients);
+    }
+  }
+
+  private void deliver(Notification notification, Map<RecipientsKey, Multimap<String, NotificationChannel>> subscribedRecipients) {
+    SetMultimap<String, NotificationChannel> recipients = findRecipients(notification, subscribedRecipients);
+    for (Map.Entry<String, Collection<NotificationChannel>> entry : recipients.asMap().entrySet()) {
+      deliver(notification, entry.getKey(), entry.getValue());
+    }
+  }
+
+  /**
+   * Delivers a batch of notifications using the threads of {@code executorService}. Recipients of the
+   * notifications are resolved first, once per dispatcher and project for the whole batch. Then the
+   * notifications of a given user are delivered in sequence, in the order of {@code notifications}, while
+   * distinct users are served concurrently.
+   * <p>
+   * This method returns when all the notifications are delivered.
+   * </p>
+   */
+  public void deliver(List<Notification> notifications, ExecutorService executorService) {
+    Map<RecipientsKey, Multimap<String, NotificationChannel>> subscribedRecipients = new ConcurrentHashMap<>();
+    List<Future<SetMultimap<String, NotificationChannel>>> recipientsFutures = new ArrayList<>(notifications.size());
+    for (Notification notification : notifications) {
+      recipientsFutures.add(executorService.submit(() -> findRecipients(notification, subscribedRecipients)));
+    }
+
+    Map<String, List<Delivery>> deliveriesByUser = new LinkedHashMap<>();
+    for (int i = 0; i < notifications.size(); i++) {
+      Notification notification = notifications.get(i);
+      for (Map.Entry<String, Collection<NotificationChannel>> entry : waitFor(recipientsFutures.get(i)).asMap().entrySet()) {
+        deliveriesByUser.computeIfAbsent(entry.getKey(), username -> new ArrayList<>()).add(new Delivery(notification, entry.getValue()));
+      }
+    }
+
+    List<Future<?>> deliveryFutures = new ArrayList<>(deliveriesByUser.size());
+    for (Map.Entry<String, List<Delivery>> entry : deliveriesByUser.entrySet()) {
+      String username = entry.getKey();
+      deliveryFutures.add(executorService.submit(
+        () -> entry.getValue().forEach(delivery -> deliver(delivery.notification, username, delivery.channels))));
+    }
+    deliveryFutures.forEach(NotificationService::waitFor);
+  }
+
+  /**
+   * @param subscribedRecipients subscribers resolved so far for the current batch of notifications, by dispatcher and project
+   */
+  private SetMultimap<String, NotificationChannel> findRecipients(Notification notification,
+    Map<RecipientsKey, Multimap<String, NotificationChannel>> subscribedRecipients) {
     SetMultimap<String, NotificationChannel> recipients = HashMultimap.create();
     for (NotificationDispatcher dispatcher : dispatchers) {
-      NotificationDispatcher.Context context = new ContextImpl(recipients);
+      NotificationDispatcher.Context context = new ContextImpl(recipients, dispatcher, subscribedRecipients);
       try {
         dispatcher.performDispatch(notification, context);
       } catch (Exception e) {
@@ -70,25 +140,32 @@ public class NotificationService {
         LOG.warn(String.format("Unable to dispatch notification %s using %s", notification, dispatcher), e);
       }
     }
-    dispatch(notification, recipients);
+    return recipients;
   }
 
-  private static void dispatch(Notification notification, SetMultimap<String, NotificationChannel> recipients) {
-    for (Map.Entry<String, Collection<NotificationChannel>> entry : recipients.asMap().entrySet()) {
-      String username = entry.getKey();
-      Collection<NotificationChannel> userChannels = entry.getValue();
-      LOG.debug("For user {} via {}", username, userChannels);
-      for (NotificationChannel channel : userChannels) {
-        try {
-          channel.deliver(notification, username);
-        } catch (Exception e) {
-          // catch all exceptions in order to deliver via other channels
-          LOG.warn("Unable to deliver notification " + notification + " for user " + username + " via " + channel, e);
-        }
+  private static void deliver(Notification notification, String username, Collection<NotificationChannel> userChannels) {
+    LOG.debug("For user {} via {}", username, userChannels);
+    for (NotificationChannel channel : userChannels) {
+      try {
+        channel.deliver(notification, username);
+      } catch (Exception e) {
+        // catch all exceptions in order to deliver via other channels
+        LOG.warn("Unable to deliver notification " + notification + " for user " + username + " via " + channel, e);
       }
     }
   }
 
+  private static <T> T waitFor(Future<T> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while delivering notifications", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Fail to deliver notifications", e.getCause());
+    }
+  }
+
   @VisibleForTesting
   List<NotificationDispatcher> getDispatchers() {
     return dispatchers;
@@ -109,11 +186,57 @@ public class NotificationService {
     return dbClient.propertiesDao().hasProjectNotificationSubscribersForDispatchers(projectUuid, dispatcherKeys);
   }
 
-  private static class ContextImpl implements NotificationDispatcher.Context {
+  private static class Delivery {
+    private final Notification notification;
+    private final Collection<NotificationChannel> channels;
+
+    private Delivery(Notification notification, Collection<NotificationChannel> channels) {
+      this.notification = notification;
+      this.channels = channels;
+    }
+  }
+
+  private static final class RecipientsKey {
+    private final String dispatcherKey;
+    private final String projectKey;
+    private final NotificationManager.SubscriberPermissionsOnProject permissions;
+
+    private RecipientsKey(String dispatcherKey, String projectKey, NotificationManager.SubscriberPermissionsOnProject permissions) {
+      this.dispatcherKey = dispatcherKey;
+      this.projectKey = projectKey;
+      this.permissions = permissions;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      RecipientsKey that = (RecipientsKey) o;
+      return dispatcherKey.equals(that.dispatcherKey) &&
+        projectKey.equals(that.projectKey) &&
+        permissions.equals(that.permissions);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(dispatcherKey, projectKey, permissions);
+    }
+  }
+
+  private class ContextImpl implements NotificationDispatcher.Context {
     private final Multimap<String, NotificationChannel> recipients;
+    private final NotificationDispatcher dispatcher;
+    private final Map<RecipientsKey, Multimap<String, NotificationChannel>> subscribedRecipients;
 
-    ContextImpl(Multimap<String, NotificationChannel> recipients) {
+    ContextImpl(Multimap<String, NotificationChannel> recipients, NotificationDispatcher dispatcher,
+      Map<RecipientsKey, Multimap<String, NotificationChannel>> subscribedRecipients) {
       this.recipients = recipients;
+      this.dispatcher = dispatcher;
+      this.subscribedRecipients = subscribedRecipients;
     }
 
     @Override
@@ -122,5 +245,13 @@ public class NotificationService {
         recipients.put(userLogin, notificationChannel);
       }
     }
+
+    @Override
+    public Multimap<String, NotificationChannel> findSubscribedRecipients(String projectKey,
+      NotificationManager.SubscriberPermissionsOnProject subscriberPermissionsOnProject) {
+      requireNonNull(projectKey, "projectKey is mandatory");
+      return subscribedRecipients.computeIfAbsent(new RecipientsKey(dispatcher.getKey(), projectKey, subscriberPermissionsOnProject),
+        key -> manager.findSubscribedRecipientsForDispatcher(dispatcher, projectKey, subscriberPermissionsOnProject));
+    }
   }
 }
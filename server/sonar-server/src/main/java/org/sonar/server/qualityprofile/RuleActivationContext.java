@@ -25,8 +25,10 @@ import com.google.common.collect.Maps;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
@@ -68,6 +70,9 @@ class RuleActivationContext {
   private final Map<RuleKey, RuleWrapper> rulesByKey;
   private final Map<ActiveRuleKey, ActiveRuleWrapper> activeRulesByKey;
 
+  // uuids of the profiles (or rules profiles of built-in profiles) whose dates are already updated
+  private final Set<String> updatedProfileUuids = new HashSet<>();
+
   // cursor, moved in the tree of profiles
   private boolean cascading = false;
   private RulesProfileDto currentRulesProfile;
@@ -166,6 +171,16 @@ class RuleActivationContext {
       .collect(Collectors.toList());
   }
 
+  /**
+   * Marks the profile under the cursor as updated. Returns {@code false} if it was
+   * already marked, in which case its dates, which only depend on {@link #getDate()},
+   * do not need to be persisted again.
+   */
+  boolean markProfileAsUpdated() {
+    String uuid = currentProfile != null ? currentProfile.getKee() : currentRulesProfile.getKee();
+    return updatedProfileUuids.add(uuid);
+  }
+
   /**
    * Resets cursor to base profile and selects the rule with specified key.
    */
@@ -134,10 +134,6 @@ public class RuleActivator {
     if (!stopCascading) {
       changes.addAll(propagateActivationToDescendants(dbSession, activation, context));
     }
-
-    if (!changes.isEmpty()) {
-      updateProfileDates(dbSession, context);
-    }
     return changes;
   }
 
@@ -237,6 +233,11 @@ public class RuleActivator {
     return changes;
   }
 
+  /**
+   * Changes are computed against the in-memory {@link RuleActivationContext} but written one statement at a time:
+   * parameters of an activated rule reference the id generated by the insertion of the active rule, and the
+   * caller's session may be non-batch. Only the dates of profiles are written once per context.
+   */
   private void persist(ActiveRuleChange change, RuleActivationContext context, DbSession dbSession) {
     ActiveRuleDto activeRule = null;
     if (change.getType() == ActiveRuleChange.Type.ACTIVATED) {
@@ -250,6 +251,10 @@ public class RuleActivator {
     }
     change.setActiveRule(activeRule);
     db.qProfileChangeDao().insert(dbSession, change.toDto(userSession.getLogin()));
+    if (context.markProfileAsUpdated()) {
+      // a single update per profile, whatever the number of rules changed within the context
+      updateProfileDates(dbSession, context);
+    }
   }
 
   private ActiveRuleDto doInsert(ActiveRuleChange change, RuleActivationContext context, DbSession dbSession) {
@@ -343,10 +348,6 @@ public class RuleActivator {
       changes.addAll(doDeactivate(dbSession, context, force));
     });
 
-    if (!changes.isEmpty()) {
-      updateProfileDates(dbSession, context);
-    }
-
     return changes;
   }
 
@@ -20,9 +20,11 @@
 package org.sonar.server.ws;
 
 import com.google.common.base.Optional;
+import com.google.protobuf.CodedOutputStream;
 import com.google.protobuf.Message;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.util.Iterator;
 import java.util.List;
 import javax.annotation.Nullable;
 import org.apache.commons.io.IOUtils;
@@ -63,6 +65,41 @@ public class WsUtils {
     }
   }
 
+  /**
+   * Streaming variant of {@link #writeProtobuf(Message, Request, Response)}. The elements of the repeated
+   * message field {@code arrayFieldName} are pulled from {@code elements} while being written to the response,
+   * so that they don't have to be all loaded in memory. Elements already set in {@code header} are
+   * written first.
+   * <p>
+   * The protobuf output is the concatenation of {@code header} and of the elements, which is parsed
+   * as a single message. In JSON output, the array is the last property of the root object.
+   * </p>
+   */
+  public static void writeProtobuf(Message header, String arrayFieldName, Iterator<? extends Message> elements, Request request, Response response) {
+    OutputStream output = response.stream().output();
+    try {
+      if (request.getMediaType().equals(PROTOBUF)) {
+        response.stream().setMediaType(PROTOBUF);
+        int fieldNumber = ProtobufJsonFormat.streamableFieldOf(header, arrayFieldName).getNumber();
+        CodedOutputStream codedOutput = CodedOutputStream.newInstance(output);
+        header.writeTo(codedOutput);
+        while (elements.hasNext()) {
+          codedOutput.writeMessage(fieldNumber, elements.next());
+        }
+        codedOutput.flush();
+      } else {
+        response.stream().setMediaType(JSON);
+        try (JsonWriter writer = JsonWriter.of(new OutputStreamWriter(output, UTF_8))) {
+          ProtobufJsonFormat.write(header, arrayFieldName, elements, writer);
+        }
+      }
+    } catch (Exception e) {
+      throw new IllegalStateException("Error while writing protobuf message", e);
+    } finally {
+      IOUtils.closeQuietly(output);
+    }
+  }
+
   /**
    * @throws BadRequestException
    */
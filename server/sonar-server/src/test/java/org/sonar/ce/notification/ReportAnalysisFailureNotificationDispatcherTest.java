@@ -26,7 +26,6 @@ import org.sonar.api.notifications.NotificationChannel;
 import org.sonar.api.web.UserRole;
 import org.sonar.server.notification.NotificationDispatcher;
 import org.sonar.server.notification.NotificationDispatcherMetadata;
-import org.sonar.server.notification.NotificationManager;
 import org.sonar.server.notification.NotificationManager.SubscriberPermissionsOnProject;
 
 import static org.apache.commons.lang.RandomStringUtils.randomAlphanumeric;
@@ -37,10 +36,9 @@ import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 public class ReportAnalysisFailureNotificationDispatcherTest {
-  private NotificationManager notificationManager = mock(NotificationManager.class);
   private Notification notificationMock = mock(Notification.class);
   private NotificationDispatcher.Context contextMock = mock(NotificationDispatcher.Context.class);
-  private ReportAnalysisFailureNotificationDispatcher underTest = new ReportAnalysisFailureNotificationDispatcher(notificationManager);
+  private ReportAnalysisFailureNotificationDispatcher underTest = new ReportAnalysisFailureNotificationDispatcher();
 
   @Test
   public void dispatcher_defines_key() {
@@ -90,7 +88,7 @@ public class ReportAnalysisFailureNotificationDispatcherTest {
     multimap.put(login1, channel2);
     multimap.put(login2, channel2);
     multimap.put(login2, channel3);
-    when(notificationManager.findSubscribedRecipientsForDispatcher(underTest, projectKey, new SubscriberPermissionsOnProject(UserRole.ADMIN, UserRole.USER)))
+    when(contextMock.findSubscribedRecipients(projectKey, new SubscriberPermissionsOnProject(UserRole.ADMIN, UserRole.USER)))
       .thenReturn(multimap);
 
     underTest.performDispatch(notificationMock, contextMock);
@@ -99,6 +97,7 @@ public class ReportAnalysisFailureNotificationDispatcherTest {
     verify(contextMock).addUser(login1, channel2);
     verify(contextMock).addUser(login2, channel2);
     verify(contextMock).addUser(login2, channel3);
+    verify(contextMock).findSubscribedRecipients(projectKey, new SubscriberPermissionsOnProject(UserRole.ADMIN, UserRole.USER));
     verifyNoMoreInteractions(contextMock);
   }
 
@@ -108,11 +107,12 @@ public class ReportAnalysisFailureNotificationDispatcherTest {
     String projectKey = randomAlphanumeric(9);
     when(notificationMock.getFieldValue("project.key")).thenReturn(projectKey);
     HashMultimap<String, NotificationChannel> multimap = HashMultimap.create();
-    when(notificationManager.findSubscribedRecipientsForDispatcher(underTest, projectKey, new SubscriberPermissionsOnProject(UserRole.ADMIN, UserRole.USER)))
+    when(contextMock.findSubscribedRecipients(projectKey, new SubscriberPermissionsOnProject(UserRole.ADMIN, UserRole.USER)))
       .thenReturn(multimap);
 
     underTest.performDispatch(notificationMock, contextMock);
 
+    verify(contextMock).findSubscribedRecipients(projectKey, new SubscriberPermissionsOnProject(UserRole.ADMIN, UserRole.USER));
     verifyNoMoreInteractions(contextMock);
   }
 }
@@ -127,6 +127,21 @@ public class ProjectConfigurationFactoryTest {
     assertThat(config.get("sonar.leak.period")).hasValue("2");
   }
 
+  @Test
+  public void settings_of_branch_component_contains_project_and_branch_settings() {
+    settings.setProperty("global", "global_value");
+    ComponentDto project = db.components().insertMainBranch();
+    db.properties().insertProperties(newComponentPropertyDto(project).setKey("key").setValue("value"));
+    ComponentDto branch = db.components().insertProjectBranch(project);
+    db.properties().insertProperties(newComponentPropertyDto(branch).setKey("sonar.leak.period").setValue("1"));
+
+    assertThat(underTest.newProjectConfiguration(branch).get("global")).hasValue("global_value");
+    assertThat(underTest.newProjectConfiguration(branch).get("key")).hasValue("value");
+    assertThat(underTest.newProjectConfiguration(branch).get("sonar.leak.period")).hasValue("1");
+    assertThat(underTest.newProjectConfiguration(project).get("key")).hasValue("value");
+    assertThat(underTest.newProjectConfiguration(project).get("sonar.leak.period")).isEmpty();
+  }
+
   @Test
   public void main_branch() {
     ComponentDto project = db.components().insertMainBranch();
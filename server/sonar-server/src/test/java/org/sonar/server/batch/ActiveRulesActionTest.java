@@ -0,0 +1,311 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.batch;
+
+import java.util.Date;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.platform.Server;
+import org.sonar.api.rule.RuleStatus;
+import org.sonar.api.utils.System2;
+import org.sonar.core.util.CloseableIterator;
+import org.sonar.core.util.Protobuf;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbTester;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.organization.OrganizationDto;
+import org.sonar.db.qualityprofile.ActiveRuleDao;
+import org.sonar.db.qualityprofile.ActiveRuleDto;
+import org.sonar.db.qualityprofile.ActiveRuleParamDto;
+import org.sonar.db.qualityprofile.QProfileDto;
+import org.sonar.db.rule.RuleDefinitionDto;
+import org.sonar.db.rule.RuleParamDto;
+import org.sonar.scanner.protocol.input.ScannerInput.ActiveRule;
+import org.sonar.server.exceptions.ForbiddenException;
+import org.sonar.server.exceptions.NotFoundException;
+import org.sonar.server.tester.UserSessionRule;
+import org.sonar.server.ws.TestResponse;
+import org.sonar.server.ws.WsActionTester;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.sonar.api.web.UserRole.USER;
+import static org.sonar.db.permission.OrganizationPermission.SCAN;
+
+public class ActiveRulesActionTest {
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+  @Rule
+  public DbTester db = DbTester.create(System2.INSTANCE);
+  @Rule
+  public UserSessionRule userSession = UserSessionRule.standalone();
+
+  private ActiveRuleDao activeRuleDao = spy(db.getDbClient().activeRuleDao());
+  private DbClient dbClient = spy(db.getDbClient());
+  private Server server = mock(Server.class);
+  private WsActionTester tester = new WsActionTester(new ActiveRulesAction(dbClient, userSession, server));
+
+  @Before
+  public void setUp() {
+    doReturn(activeRuleDao).when(dbClient).activeRuleDao();
+    when(server.getStartedAt()).thenReturn(new Date(1_000L));
+  }
+
+  @Test
+  public void return_active_rules_of_profiles() {
+    OrganizationDto organization = db.organizations().insert();
+    userSession.logIn().addPermission(SCAN, organization);
+    QProfileDto profile1 = db.qualityProfiles().insert(organization);
+    QProfileDto profile2 = db.qualityProfiles().insert(organization);
+    RuleDefinitionDto rule1 = db.rules().insert();
+    RuleDefinitionDto rule2 = db.rules().insert();
+    ActiveRuleDto activeRule1 = db.qualityProfiles().activateRule(profile1, rule1);
+    ActiveRuleDto activeRule2 = db.qualityProfiles().activateRule(profile2, rule2);
+
+    List<ActiveRule> activeRules = call(profile1.getKee() + "," + profile2.getKee()).activeRules;
+
+    assertThat(activeRules)
+      .extracting(ActiveRule::getQprofileKey, ActiveRule::getRuleRepository, ActiveRule::getRuleKey, ActiveRule::getName, ActiveRule::getSeverity,
+        ActiveRule::getCreatedAt)
+      .containsExactlyInAnyOrder(
+        tuple(profile1.getKee(), rule1.getRepositoryKey(), rule1.getRuleKey(), rule1.getName(), activeRule1.getSeverityString(), activeRule1.getCreatedAt()),
+        tuple(profile2.getKee(), rule2.getRepositoryKey(), rule2.getRuleKey(), rule2.getName(), activeRule2.getSeverityString(), activeRule2.getCreatedAt()));
+  }
+
+  @Test
+  public void values_of_active_rule_parameters_override_default_values() {
+    OrganizationDto organization = db.organizations().insert();
+    userSession.logIn().addPermission(SCAN, organization);
+    QProfileDto profile = db.qualityProfiles().insert(organization);
+    RuleDefinitionDto rule = db.rules().insert();
+    RuleParamDto overriddenParam = db.rules().insertRuleParam(rule, p -> p.setName("max").setDefaultValue("10"));
+    db.rules().insertRuleParam(rule, p -> p.setName("format").setDefaultValue("^[a-z]+$"));
+    ActiveRuleDto activeRule = db.qualityProfiles().activateRule(profile, rule);
+    db.getDbClient().activeRuleDao().insertParam(db.getSession(), activeRule, ActiveRuleParamDto.createFor(overriddenParam).setValue("20"));
+    db.commit();
+
+    List<ActiveRule> activeRules = call(profile.getKee()).activeRules;
+
+    assertThat(activeRules).hasSize(1);
+    assertThat(activeRules.get(0).getParamsMap()).containsOnly(entry("max", "20"), entry("format", "^[a-z]+$"));
+  }
+
+  @Test
+  public void return_key_of_template_rule() {
+    OrganizationDto organization = db.organizations().insert();
+    userSession.logIn().addPermission(SCAN, organization);
+    QProfileDto profile = db.qualityProfiles().insert(organization);
+    RuleDefinitionDto template = db.rules().insert(r -> r.setIsTemplate(true));
+    RuleDefinitionDto custom = db.rules().insert(r -> r.setTemplateId(template.getId()));
+    db.qualityProfiles().activateRule(profile, custom);
+
+    List<ActiveRule> activeRules = call(profile.getKee()).activeRules;
+
+    assertThat(activeRules).extracting(ActiveRule::getRuleKey, ActiveRule::getTemplateRuleKey)
+      .containsExactly(tuple(custom.getRuleKey(), template.getRuleKey()));
+  }
+
+  @Test
+  public void ignore_removed_rules() {
+    OrganizationDto organization = db.organizations().insert();
+    userSession.logIn().addPermission(SCAN, organization);
+    QProfileDto profile = db.qualityProfiles().insert(organization);
+    RuleDefinitionDto rule = db.rules().insert();
+    RuleDefinitionDto removedRule = db.rules().insert(r -> r.setStatus(RuleStatus.REMOVED));
+    db.qualityProfiles().activateRule(profile, rule);
+    db.qualityProfiles().activateRule(profile, removedRule);
+
+    List<ActiveRule> activeRules = call(profile.getKee()).activeRules;
+
+    assertThat(activeRules).extracting(ActiveRule::getRuleKey).containsExactly(rule.getRuleKey());
+  }
+
+  @Test
+  public void return_304_if_etag_did_not_change() {
+    OrganizationDto organization = db.organizations().insert();
+    userSession.logIn().addPermission(SCAN, organization);
+    QProfileDto profile = db.qualityProfiles().insert(organization);
+    db.qualityProfiles().activateRule(profile, db.rules().insert());
+    String etag = call(profile.getKee()).etag;
+
+    TestResponse response = tester.newRequest()
+      .setParam("qprofile", profile.getKee())
+      .setHeader("If-None-Match", etag)
+      .execute();
+
+    assertThat(response.getStatus()).isEqualTo(304);
+    assertThat(response.getHeader("ETag")).isEqualTo(etag);
+    assertThat(response.getInput()).isEmpty();
+    verify(activeRuleDao, never()).selectByProfile(any(), any());
+  }
+
+  @Test
+  public void etag_changes_when_active_rules_change() {
+    OrganizationDto organization = db.organizations().insert();
+    userSession.logIn().addPermission(SCAN, organization);
+    QProfileDto profile = db.qualityProfiles().insert(organization);
+    db.qualityProfiles().activateRule(profile, db.rules().insert());
+    String etag = call(profile.getKee()).etag;
+
+    db.qualityProfiles().activateRule(profile, db.rules().insert());
+    db.getDbClient().qualityProfileDao().update(db.getSession(), profile.setRulesUpdatedAtAsDate(new Date()));
+    db.commit();
+
+    assertThat(callWithEtag(profile, etag).getStatus()).isEqualTo(200);
+  }
+
+  @Test
+  public void etag_changes_when_rule_is_updated() {
+    OrganizationDto organization = db.organizations().insert();
+    userSession.logIn().addPermission(SCAN, organization);
+    QProfileDto profile = db.qualityProfiles().insert(organization);
+    RuleDefinitionDto rule = db.rules().insert(r -> r.setUpdatedAt(1_000L));
+    db.qualityProfiles().activateRule(profile, rule);
+    String etag = call(profile.getKee()).etag;
+
+    db.rules().update(rule.setName("new name").setUpdatedAt(2_000L));
+
+    assertThat(callWithEtag(profile, etag).getStatus()).isEqualTo(200);
+  }
+
+  @Test
+  public void etag_changes_when_server_restarts() {
+    OrganizationDto organization = db.organizations().insert();
+    userSession.logIn().addPermission(SCAN, organization);
+    QProfileDto profile = db.qualityProfiles().insert(organization);
+    db.qualityProfiles().activateRule(profile, db.rules().insert());
+    String etag = call(profile.getKee()).etag;
+
+    when(server.getStartedAt()).thenReturn(new Date(2_000L));
+
+    assertThat(callWithEtag(profile, etag).getStatus()).isEqualTo(200);
+  }
+
+  @Test
+  public void return_active_rules_if_user_can_browse_project() {
+    OrganizationDto organization = db.organizations().insert();
+    ComponentDto project = db.components().insertPrivateProject(organization);
+    userSession.logIn().addProjectPermission(USER, project);
+    QProfileDto profile = db.qualityProfiles().insert(organization);
+    db.qualityProfiles().activateRule(profile, db.rules().insert());
+
+    TestResponse response = tester.newRequest()
+      .setParam("qprofile", profile.getKee())
+      .setParam("project", project.getKey())
+      .execute();
+
+    assertThat(response.getStatus()).isEqualTo(200);
+  }
+
+  @Test
+  public void fail_if_user_has_no_permission_on_project() {
+    OrganizationDto organization = db.organizations().insert();
+    ComponentDto project = db.components().insertPrivateProject(organization);
+    userSession.logIn();
+    QProfileDto profile = db.qualityProfiles().insert(organization);
+
+    expectedException.expect(ForbiddenException.class);
+    expectedException.expectMessage(Messages.NO_PERMISSION);
+
+    tester.newRequest()
+      .setParam("qprofile", profile.getKee())
+      .setParam("project", project.getKey())
+      .execute();
+  }
+
+  @Test
+  public void fail_if_profile_does_not_belong_to_organization_of_project() {
+    OrganizationDto organization = db.organizations().insert();
+    ComponentDto project = db.components().insertPrivateProject(organization);
+    userSession.logIn().addProjectPermission(USER, project);
+    QProfileDto profileOfOtherOrganization = db.qualityProfiles().insert(db.organizations().insert());
+
+    expectedException.expect(ForbiddenException.class);
+
+    tester.newRequest()
+      .setParam("qprofile", profileOfOtherOrganization.getKee())
+      .setParam("project", project.getKey())
+      .execute();
+  }
+
+  @Test
+  public void fail_if_user_is_not_allowed_to_analyze_in_organization_of_profile() {
+    OrganizationDto organization = db.organizations().insert();
+    userSession.logIn();
+    QProfileDto profile = db.qualityProfiles().insert(organization);
+
+    expectedException.expect(ForbiddenException.class);
+    expectedException.expectMessage(Messages.NO_PERMISSION);
+
+    tester.newRequest()
+      .setParam("qprofile", profile.getKee())
+      .setParam("project", "unknown")
+      .execute();
+  }
+
+  @Test
+  public void fail_if_profile_does_not_exist() {
+    OrganizationDto organization = db.organizations().insert();
+    userSession.logIn().addPermission(SCAN, organization);
+    QProfileDto profile = db.qualityProfiles().insert(organization);
+
+    expectedException.expect(NotFoundException.class);
+    expectedException.expectMessage("Quality profiles not found: unknown");
+
+    tester.newRequest().setParam("qprofile", profile.getKee() + ",unknown").execute();
+  }
+
+  private TestResponse callWithEtag(QProfileDto profile, String etag) {
+    return tester.newRequest()
+      .setParam("qprofile", profile.getKee())
+      .setHeader("If-None-Match", etag)
+      .execute();
+  }
+
+  private Result call(String profileKeys) {
+    TestResponse response = tester.newRequest().setParam("qprofile", profileKeys).execute();
+    try (CloseableIterator<ActiveRule> it = Protobuf.readStream(response.getInputStream(), ActiveRule.parser())) {
+      return new Result(response.getHeader("ETag"), newArrayList(it));
+    }
+  }
+
+  private static class Result {
+    private final String etag;
+    private final List<ActiveRule> activeRules;
+
+    private Result(String etag, List<ActiveRule> activeRules) {
+      this.etag = etag;
+      this.activeRules = activeRules;
+    }
+  }
+}
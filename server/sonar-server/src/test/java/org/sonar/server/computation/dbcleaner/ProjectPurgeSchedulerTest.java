@@ -0,0 +1,99 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.dbcleaner;
+
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.internal.TestSystem2;
+import org.sonar.ce.queue.CeQueue;
+import org.sonar.ce.queue.CeQueueImpl;
+import org.sonar.core.util.UuidFactoryImpl;
+import org.sonar.db.DbTester;
+import org.sonar.db.ce.CeQueueDto;
+import org.sonar.db.ce.CeTaskTypes;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.server.organization.TestDefaultOrganizationProvider;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ProjectPurgeSchedulerTest {
+
+  private System2 system2 = new TestSystem2().setNow(1_450_000_000_000L);
+
+  @Rule
+  public DbTester db = DbTester.create(system2);
+
+  private CeQueue ceQueue = new CeQueueImpl(db.getDbClient(), UuidFactoryImpl.INSTANCE, TestDefaultOrganizationProvider.from(db));
+  private ProjectPurgeScheduler underTest = new ProjectPurgeScheduler(db.getDbClient(), ceQueue);
+
+  @Test
+  public void submit_purge_task_of_project() {
+    ComponentDto project = db.components().insertPrivateProject();
+
+    underTest.schedule(project.uuid());
+
+    List<CeQueueDto> tasks = db.getDbClient().ceQueueDao().selectByComponentUuid(db.getSession(), project.uuid());
+    assertThat(tasks).hasSize(1);
+    assertThat(tasks.get(0).getTaskType()).isEqualTo(CeTaskTypes.PROJECT_PURGE);
+    assertThat(tasks.get(0).getStatus()).isEqualTo(CeQueueDto.Status.PENDING);
+  }
+
+  @Test
+  public void do_not_submit_purge_task_if_one_is_already_pending() {
+    ComponentDto project = db.components().insertPrivateProject();
+
+    underTest.schedule(project.uuid());
+    underTest.schedule(project.uuid());
+
+    assertThat(db.getDbClient().ceQueueDao().selectByComponentUuid(db.getSession(), project.uuid())).hasSize(1);
+  }
+
+  @Test
+  public void pending_purge_task_of_another_project_is_ignored() {
+    ComponentDto project1 = db.components().insertPrivateProject();
+    ComponentDto project2 = db.components().insertPrivateProject();
+
+    underTest.schedule(project1.uuid());
+    underTest.schedule(project2.uuid());
+
+    assertThat(db.getDbClient().ceQueueDao().selectByComponentUuid(db.getSession(), project1.uuid())).hasSize(1);
+    assertThat(db.getDbClient().ceQueueDao().selectByComponentUuid(db.getSession(), project2.uuid())).hasSize(1);
+  }
+
+  @Test
+  public void submit_purge_task_if_pending_task_of_project_is_not_a_purge() {
+    ComponentDto project = db.components().insertPrivateProject();
+    CeQueueDto report = new CeQueueDto()
+      .setUuid("REPORT_1")
+      .setTaskType(CeTaskTypes.REPORT)
+      .setComponentUuid(project.uuid())
+      .setStatus(CeQueueDto.Status.PENDING);
+    db.getDbClient().ceQueueDao().insert(db.getSession(), report);
+    db.commit();
+
+    underTest.schedule(project.uuid());
+
+    assertThat(db.getDbClient().ceQueueDao().selectByComponentUuid(db.getSession(), project.uuid()))
+      .extracting(CeQueueDto::getTaskType)
+      .containsOnly(CeTaskTypes.REPORT, CeTaskTypes.PROJECT_PURGE);
+  }
+}
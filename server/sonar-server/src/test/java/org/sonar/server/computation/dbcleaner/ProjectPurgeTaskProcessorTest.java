@@ -0,0 +1,146 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.dbcleaner;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.sonar.api.config.Configuration;
+import org.sonar.api.config.PropertyDefinitions;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.internal.TestSystem2;
+import org.sonar.ce.queue.CeTask;
+import org.sonar.ce.settings.ProjectConfigurationFactory;
+import org.sonar.core.config.PurgeConstants;
+import org.sonar.core.config.PurgeProperties;
+import org.sonar.db.DbTester;
+import org.sonar.db.ce.CeTaskTypes;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.component.SnapshotDto;
+import org.sonar.db.metric.MetricDto;
+import org.sonar.db.purge.IdUuidPair;
+import org.sonar.db.purge.PurgeDao;
+import org.sonar.db.purge.PurgeListener;
+import org.sonar.db.purge.PurgeProfiler;
+import org.sonar.db.purge.PurgeThrottler;
+import org.sonar.db.purge.period.DefaultPeriodCleaner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+public class ProjectPurgeTaskProcessorTest {
+
+  private System2 system2 = new TestSystem2().setNow(1_450_000_000_000L);
+
+  @Rule
+  public DbTester db = DbTester.create(system2);
+
+  private ProjectCleaner projectCleaner = mock(ProjectCleaner.class);
+  private ProjectConfigurationFactory projectConfigurationFactory = mock(ProjectConfigurationFactory.class);
+  private MapSettings settings = new MapSettings(new PropertyDefinitions(PurgeProperties.all()));
+
+  private ProjectPurgeTaskProcessor underTest = new ProjectPurgeTaskProcessor(db.getDbClient(), projectCleaner, projectConfigurationFactory, system2);
+
+  @Test
+  public void handles_PROJECT_PURGE_tasks() {
+    assertThat(underTest.getHandledCeTaskTypes()).containsOnly(CeTaskTypes.PROJECT_PURGE);
+  }
+
+  @Test
+  public void purge_history_of_project_without_throttling_by_default() {
+    ComponentDto project = db.components().insertPrivateProject();
+    Configuration config = settings.asConfig();
+    when(projectConfigurationFactory.newProjectConfiguration(any(ComponentDto.class))).thenReturn(config);
+
+    assertThat(underTest.process(createTask(project.uuid()))).isNull();
+
+    ArgumentCaptor<IdUuidPair> rootId = ArgumentCaptor.forClass(IdUuidPair.class);
+    verify(projectCleaner).purgeHistory(any(), rootId.capture(), eq(config), eq(PurgeThrottler.NONE));
+    assertThat(rootId.getValue().getId()).isEqualTo(project.getId());
+    assertThat(rootId.getValue().getUuid()).isEqualTo(project.uuid());
+  }
+
+  @Test
+  public void throttle_purge_when_max_rows_per_second_is_set() {
+    ComponentDto project = db.components().insertPrivateProject();
+    settings.setProperty(PurgeConstants.BACKGROUND_PURGE_MAX_ROWS_PER_SECOND, 1_000);
+    when(projectConfigurationFactory.newProjectConfiguration(any(ComponentDto.class))).thenReturn(settings.asConfig());
+
+    underTest.process(createTask(project.uuid()));
+
+    ArgumentCaptor<PurgeThrottler> throttler = ArgumentCaptor.forClass(PurgeThrottler.class);
+    verify(projectCleaner).purgeHistory(any(), any(), any(), throttler.capture());
+    assertThat(throttler.getValue()).isInstanceOf(RowsPerSecondPurgeThrottler.class);
+  }
+
+  @Test
+  public void pause_purge_of_measures_according_to_max_rows_per_second() {
+    ComponentDto project = db.components().insertPrivateProject();
+    long now = System.currentTimeMillis();
+    SnapshotDto pastAnalysis = db.components().insertSnapshot(project, s -> s.setLast(false).setCreatedAt(now - 2 * 3_600_000L));
+    db.components().insertSnapshot(project, s -> s.setLast(true).setCreatedAt(now - 3_600_000L));
+    for (int i = 0; i < 3; i++) {
+      MetricDto metricWithoutHistory = db.measures().insertMetric(m -> m.setDeleteHistoricalData(true));
+      db.measures().insertMeasure(project, pastAnalysis, metricWithoutHistory);
+    }
+    settings.setProperty(PurgeConstants.BACKGROUND_PURGE_MAX_ROWS_PER_SECOND, 1);
+    when(projectConfigurationFactory.newProjectConfiguration(any(ComponentDto.class))).thenReturn(settings.asConfig());
+    PurgeDao purgeDao = db.getDbClient().purgeDao();
+    PurgeProfiler profiler = new PurgeProfiler();
+    ProjectPurgeTaskProcessor processor = spy(new ProjectPurgeTaskProcessor(db.getDbClient(),
+      new ProjectCleaner(purgeDao, new DefaultPeriodCleaner(purgeDao, profiler), profiler, mock(PurgeListener.class)), projectConfigurationFactory, system2));
+    RowsPerSecondPurgeThrottler throttler = spy(new RowsPerSecondPurgeThrottler(system2, 1));
+    doNothing().when(throttler).pause(anyLong());
+    doReturn(throttler).when(processor).newRowsPerSecondThrottler(1);
+
+    processor.process(createTask(project.uuid()));
+
+    // the 3 measures of the past analysis are deleted by a single statement, time is frozen
+    verify(throttler).onRowsDeleted(3);
+    verify(throttler).pause(3_000L);
+    assertThat(db.countRowsOfTable("project_measures")).isZero();
+  }
+
+  @Test
+  public void do_nothing_if_component_does_not_exist_anymore() {
+    assertThat(underTest.process(createTask("missing"))).isNull();
+
+    verifyZeroInteractions(projectCleaner, projectConfigurationFactory);
+  }
+
+  private static CeTask createTask(String componentUuid) {
+    return new CeTask.Builder()
+      .setOrganizationUuid("org1")
+      .setUuid("TASK_1")
+      .setType(CeTaskTypes.PROJECT_PURGE)
+      .setComponentUuid(componentUuid)
+      .build();
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.dbcleaner;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.utils.internal.TestSystem2;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RowsPerSecondPurgeThrottlerTest {
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private TestSystem2 system2 = new TestSystem2().setNow(1_000_000L);
+  private List<Long> pauses = new ArrayList<>();
+
+  @Test
+  public void fail_if_max_rows_per_second_is_not_strictly_positive() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Maximum number of rows per second must be strictly positive");
+
+    new RowsPerSecondPurgeThrottler(system2, 0);
+  }
+
+  @Test
+  public void pause_until_rate_of_deleted_rows_is_respected() {
+    RowsPerSecondPurgeThrottler underTest = newThrottler(100);
+
+    underTest.onRowsDeleted(50);
+    assertThat(pauses).containsExactly(500L);
+
+    system2.setNow(1_000_500L);
+    underTest.onRowsDeleted(100);
+    assertThat(pauses).containsExactly(500L, 1_000L);
+  }
+
+  @Test
+  public void do_not_pause_when_deletions_are_slower_than_max_rate() {
+    RowsPerSecondPurgeThrottler underTest = newThrottler(100);
+
+    underTest.onRowsDeleted(0);
+    system2.setNow(1_002_000L);
+    underTest.onRowsDeleted(150);
+
+    assertThat(pauses).isEmpty();
+  }
+
+  private RowsPerSecondPurgeThrottler newThrottler(int maxRowsPerSecond) {
+    return new RowsPerSecondPurgeThrottler(system2, maxRowsPerSecond) {
+      @Override
+      void pause(long durationMs) {
+        pauses.add(durationMs);
+      }
+    };
+  }
+}
@@ -25,6 +25,7 @@ import org.apache.commons.io.FileUtils;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.sonar.api.utils.ZipUtils;
 import org.sonar.api.utils.internal.JUnitTempFolder;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.scanner.protocol.output.ScannerReport;
@@ -54,12 +55,14 @@ public class BatchReportReaderImplTest {
   @Rule
   public JUnitTempFolder tempFolder = new JUnitTempFolder();
 
+  private File reportDir;
   private ScannerReportWriter writer;
   private BatchReportReaderImpl underTest;
 
   @Before
   public void setUp() {
-    BatchReportDirectoryHolder holder = new ImmutableBatchReportDirectoryHolder(tempFolder.newDir());
+    reportDir = tempFolder.newDir();
+    BatchReportDirectoryHolder holder = new ImmutableBatchReportDirectoryHolder(reportDir);
     underTest = new BatchReportReaderImpl(holder);
     writer = new ScannerReportWriter(holder.getDirectory());
   }
@@ -314,4 +317,87 @@ public class BatchReportReaderImplTest {
     assertThat(res).containsExactly(COVERAGE_DETAIL_1, COVERAGE_DETAIL_2);
     res.close();
   }
+
+  @Test
+  public void read_report_from_zip_file() throws IOException {
+    ScannerReport.Metadata metadata = ScannerReport.Metadata.newBuilder().setProjectKey("P1").build();
+    writer.writeMetadata(metadata);
+    writer.writeComponent(COMPONENT);
+    writer.writeComponentMeasures(COMPONENT_REF, of(MEASURE));
+    writer.writeComponentChangesets(CHANGESETS);
+    writer.writeTests(COMPONENT_REF, of(TEST_1, TEST_2));
+    FileUtils.writeLines(writer.getSourceFile(COMPONENT_REF), of("1", "2", "3"));
+    FileUtils.write(writer.getFileStructure().analysisLog(), "log1\nlog2");
+
+    BatchReportReaderImpl zipReader = newZipReader();
+    try {
+      assertThat(zipReader.readMetadata()).isEqualTo(metadata);
+      assertThat(zipReader.readComponent(COMPONENT_REF)).isEqualTo(COMPONENT);
+      assertThat(zipReader.readChangesets(COMPONENT_REF)).isEqualTo(CHANGESETS);
+      try (CloseableIterator<ScannerReport.Measure> measures = zipReader.readComponentMeasures(COMPONENT_REF)) {
+        assertThat(measures).containsExactly(MEASURE);
+      }
+      try (CloseableIterator<ScannerReport.Test> tests = zipReader.readTests(COMPONENT_REF)) {
+        assertThat(tests).containsExactly(TEST_1, TEST_2);
+      }
+      try (CloseableIterator<String> lines = zipReader.readFileSource(COMPONENT_REF).get()) {
+        assertThat(lines).containsExactly("1", "2", "3");
+      }
+      try (CloseableIterator<String> logs = zipReader.readScannerLogs()) {
+        assertThat(logs).containsExactly("log1", "log2");
+      }
+    } finally {
+      zipReader.stop();
+    }
+  }
+
+  @Test
+  public void read_missing_files_from_zip_file() throws IOException {
+    writer.writeMetadata(ScannerReport.Metadata.newBuilder().build());
+
+    BatchReportReaderImpl zipReader = newZipReader();
+    try {
+      assertThat(zipReader.readChangesets(COMPONENT_REF)).isNull();
+      assertThat(zipReader.readComponentIssues(COMPONENT_REF)).isEmpty();
+      assertThat(zipReader.readCoverageDetails(COMPONENT_REF)).isEmpty();
+      assertThat(zipReader.readFileSource(COMPONENT_REF)).isEmpty();
+      assertThat(zipReader.readScannerLogs()).isEmpty();
+      assertThat(zipReader.readContextProperties()).isEmpty();
+    } finally {
+      zipReader.stop();
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void readComponent_from_zip_file_throws_ISE_if_file_does_not_exist() throws IOException {
+    writer.writeMetadata(ScannerReport.Metadata.newBuilder().build());
+
+    newZipReader().readComponent(COMPONENT_REF);
+  }
+
+  @Test
+  public void zip_file_is_preferred_to_directory() throws IOException {
+    writer.writeMetadata(ScannerReport.Metadata.newBuilder().setProjectKey("in zip").build());
+    File zipFile = tempFolder.newFile();
+    ZipUtils.zipDir(reportDir, zipFile);
+    writer.writeMetadata(ScannerReport.Metadata.newBuilder().setProjectKey("in directory").build());
+    BatchReportDirectoryHolderImpl holder = new BatchReportDirectoryHolderImpl();
+    holder.setDirectory(reportDir);
+    holder.setZipFile(zipFile);
+
+    BatchReportReaderImpl zipReader = new BatchReportReaderImpl(holder);
+    try {
+      assertThat(zipReader.readMetadata().getProjectKey()).isEqualTo("in zip");
+    } finally {
+      zipReader.stop();
+    }
+  }
+
+  private BatchReportReaderImpl newZipReader() throws IOException {
+    File zipFile = tempFolder.newFile();
+    ZipUtils.zipDir(reportDir, zipFile);
+    BatchReportDirectoryHolderImpl holder = new BatchReportDirectoryHolderImpl();
+    holder.setZipFile(zipFile);
+    return new BatchReportReaderImpl(holder);
+  }
 }
@@ -26,6 +26,7 @@ import org.sonar.db.DbTester;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.ComponentTesting;
 
+import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class ComponentUuidFactoryTest {
@@ -43,6 +44,17 @@ public class ComponentUuidFactoryTest {
     assertThat(underTest.getOrCreateForKey(module.getDbKey())).isEqualTo(module.uuid());
   }
 
+  @Test
+  public void load_uuids_from_already_loaded_components() {
+    ComponentDto project = ComponentTesting.newPrivateProjectDto(db.getDefaultOrganization());
+    ComponentDto module = ComponentTesting.newModuleDto(project);
+
+    ComponentUuidFactory underTest = new ComponentUuidFactory(asList(project, module));
+    assertThat(underTest.getOrCreateForKey(project.getDbKey())).isEqualTo(project.uuid());
+    assertThat(underTest.getOrCreateForKey(module.getDbKey())).isEqualTo(module.uuid());
+    assertThat(underTest.getOrCreateForKey("foo")).isNotEmpty().isNotIn(project.uuid(), module.uuid());
+  }
+
   @Test
   public void generate_uuid_if_it_does_not_exist_in_db() {
     ComponentUuidFactory underTest = new ComponentUuidFactory(db.getDbClient(), db.getSession(), "theProjectKey");
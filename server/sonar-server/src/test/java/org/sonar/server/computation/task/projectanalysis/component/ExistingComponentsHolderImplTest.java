@@ -0,0 +1,75 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.component;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.db.component.ComponentDto;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ExistingComponentsHolderImplTest {
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private ExistingComponentsHolderImpl underTest = new ExistingComponentsHolderImpl();
+
+  @Test
+  public void set_and_get_components() {
+    ComponentDto c1 = new ComponentDto().setUuid("U1");
+    ComponentDto c2 = new ComponentDto().setUuid("U2");
+    underTest.setComponents(asList(c1, c2));
+
+    assertThat(underTest.getComponents().get()).containsExactly(c1, c2);
+  }
+
+  @Test
+  public void getComponents_is_empty_if_not_initialized() {
+    assertThat(underTest.getComponents()).isEmpty();
+  }
+
+  @Test
+  public void clear_releases_components() {
+    underTest.setComponents(asList(new ComponentDto().setUuid("U1")));
+
+    underTest.clear();
+
+    assertThat(underTest.getComponents()).isEmpty();
+  }
+
+  @Test
+  public void setComponents_fails_if_called_twice() {
+    underTest.setComponents(asList(new ComponentDto().setUuid("U1")));
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Components have already been set in holder");
+    underTest.setComponents(asList(new ComponentDto().setUuid("U1")));
+  }
+
+  @Test
+  public void setComponents_fails_if_null() {
+    expectedException.expect(NullPointerException.class);
+    expectedException.expectMessage("Components can't be null");
+    underTest.setComponents(null);
+  }
+}
@@ -0,0 +1,170 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.DIRECTORY;
+import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.FILE;
+import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.MODULE;
+import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.PROJECT;
+import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.POST_ORDER;
+import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.PRE_ORDER;
+
+public class ReportForkJoinVisitorsCrawlerTest {
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  private static final Component FILE_41 = component(FILE, 41);
+  private static final Component FILE_42 = component(FILE, 42);
+  private static final Component FILE_51 = component(FILE, 51);
+  private static final Component FILE_52 = component(FILE, 52);
+  private static final Component FILE_6 = component(FILE, 6);
+  private static final Component DIRECTORY_4 = component(DIRECTORY, 4, FILE_41, FILE_42);
+  private static final Component DIRECTORY_5 = component(DIRECTORY, 5, FILE_51, FILE_52);
+  private static final Component DIRECTORY_3 = component(DIRECTORY, 3, FILE_6);
+  private static final Component MODULE_2 = component(MODULE, 2, DIRECTORY_3, DIRECTORY_4, DIRECTORY_5);
+  private static final Component COMPONENT_TREE = component(PROJECT, 1, MODULE_2);
+
+  private final ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+  private final List<String> visits = Collections.synchronizedList(new ArrayList<>());
+
+  @After
+  public void tearDown() {
+    forkJoinPool.shutdown();
+  }
+
+  @Test
+  public void visit_each_component_before_its_children_in_pre_order_and_after_them_in_post_order() {
+    VisitorsCrawler underTest = new VisitorsCrawler(
+      Arrays.asList(new RecordingVisitor("pre", PRE_ORDER), new RecordingVisitor("post", POST_ORDER)), false, forkJoinPool);
+
+    underTest.visit(COMPONENT_TREE);
+
+    assertThat(visits).hasSize(2 * 10);
+    verifyOrder(COMPONENT_TREE);
+  }
+
+  @Test
+  public void visit_each_component_with_all_visitors_in_the_order_of_the_list() {
+    VisitorsCrawler underTest = new VisitorsCrawler(
+      Arrays.asList(new RecordingVisitor("first", POST_ORDER), new RecordingVisitor("second", POST_ORDER)), false, forkJoinPool);
+
+    underTest.visit(COMPONENT_TREE);
+
+    for (int ref : new int[] {1, 2, 3, 4, 5, 6, 41, 42, 51, 52}) {
+      assertThat(visits.indexOf("first-" + ref)).isLessThan(visits.indexOf("second-" + ref));
+    }
+  }
+
+  @Test
+  public void getCumulativeDurations_returns_durations_of_all_visitors_when_computation_is_enabled() {
+    VisitorsCrawler underTest = new VisitorsCrawler(
+      Arrays.asList(new RecordingVisitor("pre", PRE_ORDER), new RecordingVisitor("post", POST_ORDER)), true, forkJoinPool);
+
+    underTest.visit(COMPONENT_TREE);
+
+    assertThat(underTest.getCumulativeDurations()).hasSize(2);
+  }
+
+  @Test
+  public void wrap_exception_thrown_by_a_visitor_in_a_forked_subtree() {
+    RecordingVisitor failingVisitor = new RecordingVisitor("post", POST_ORDER) {
+      @Override
+      public void visitFile(Component file) {
+        if (file == FILE_52) {
+          throw new IllegalStateException("faking a failure");
+        }
+      }
+    };
+    VisitorsCrawler underTest = new VisitorsCrawler(Collections.singletonList(failingVisitor), false, forkJoinPool);
+
+    thrown.expect(VisitException.class);
+    thrown.expectMessage("Visit of Component {key=key_52,type=FILE} failed");
+
+    underTest.visit(COMPONENT_TREE);
+  }
+
+  @Test
+  public void fail_with_IAE_when_visitor_is_not_thread_safe() {
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("Only thread-safe TypeAwareVisitor can be used in fork/join mode");
+
+    new VisitorsCrawler(Collections.singletonList(new TypeAwareVisitorAdapter(CrawlerDepthLimit.FILE, PRE_ORDER) {
+    }), false, forkJoinPool);
+  }
+
+  @Test
+  public void fail_with_IAE_when_visitor_is_path_aware() {
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("Only thread-safe TypeAwareVisitor can be used in fork/join mode");
+
+    new VisitorsCrawler(Collections.singletonList(new ThreadSafePathAwareVisitor()), false, forkJoinPool);
+  }
+
+  private void verifyOrder(Component component) {
+    int ref = component.getReportAttributes().getRef();
+    for (Component child : component.getChildren()) {
+      int childRef = child.getReportAttributes().getRef();
+      assertThat(visits.indexOf("pre-" + ref)).isLessThan(visits.indexOf("pre-" + childRef));
+      assertThat(visits.indexOf("post-" + ref)).isGreaterThan(visits.indexOf("post-" + childRef));
+      verifyOrder(child);
+    }
+  }
+
+  private static Component component(final Component.Type type, final int ref, final Component... children) {
+    return ReportComponent.builder(type, ref).addChildren(children).build();
+  }
+
+  private class RecordingVisitor extends TypeAwareVisitorAdapter implements ThreadSafeVisitor {
+    private final String name;
+
+    RecordingVisitor(String name, Order order) {
+      super(CrawlerDepthLimit.FILE, order);
+      this.name = name;
+    }
+
+    @Override
+    public void visitAny(Component any) {
+      visits.add(name + "-" + any.getReportAttributes().getRef());
+    }
+  }
+
+  private static class ThreadSafePathAwareVisitor extends PathAwareVisitorAdapter<Integer> implements ThreadSafeVisitor {
+    ThreadSafePathAwareVisitor() {
+      super(CrawlerDepthLimit.FILE, POST_ORDER, new SimpleStackElementFactory<Integer>() {
+        @Override
+        public Integer createForAny(Component component) {
+          return component.getReportAttributes().getRef();
+        }
+      });
+    }
+  }
+}
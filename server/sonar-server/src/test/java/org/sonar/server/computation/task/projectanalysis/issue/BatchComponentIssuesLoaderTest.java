@@ -0,0 +1,87 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.ReportComponent;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolderRule;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.server.computation.task.projectanalysis.component.ReportComponent.builder;
+
+public class BatchComponentIssuesLoaderTest {
+
+  private static final Component FILE_1 = builder(Component.Type.FILE, 3).setUuid("FILE_1").build();
+  private static final Component FILE_2 = builder(Component.Type.FILE, 4).setUuid("FILE_2").build();
+  private static final Component DIRECTORY = builder(Component.Type.DIRECTORY, 2).setUuid("DIRECTORY").addChildren(FILE_1, FILE_2).build();
+  private static final ReportComponent PROJECT = builder(Component.Type.PROJECT, 1).setUuid("PROJECT").addChildren(DIRECTORY).build();
+
+  @Rule
+  public TreeRootHolderRule treeRootHolder = new TreeRootHolderRule().setRoot(PROJECT);
+
+  private final List<Collection<String>> loadedBatches = new ArrayList<>();
+
+  private BatchComponentIssuesLoader underTest = new BatchComponentIssuesLoader(treeRootHolder, Component::getUuid, this::load);
+
+  @Test
+  public void load_issues_of_following_components_in_post_order_with_a_single_call() {
+    assertThat(underTest.load("FILE_1")).extracting(DefaultIssue::key).containsOnly("FILE_1-issue");
+    assertThat(underTest.load("FILE_2")).extracting(DefaultIssue::key).containsOnly("FILE_2-issue");
+    assertThat(underTest.load("DIRECTORY")).extracting(DefaultIssue::key).containsOnly("DIRECTORY-issue");
+    assertThat(underTest.load("PROJECT")).extracting(DefaultIssue::key).containsOnly("PROJECT-issue");
+
+    assertThat(loadedBatches).containsExactly(asList("FILE_1", "FILE_2", "DIRECTORY", "PROJECT"));
+  }
+
+  @Test
+  public void load_again_issues_already_handed_out() {
+    DefaultIssue first = underTest.load("FILE_2").get(0);
+    DefaultIssue second = underTest.load("FILE_2").get(0);
+
+    assertThat(second).isNotSameAs(first);
+    assertThat(loadedBatches).containsExactly(asList("FILE_2", "DIRECTORY", "PROJECT"), asList("FILE_2", "DIRECTORY", "PROJECT"));
+  }
+
+  @Test
+  public void load_component_outside_of_tree_without_discarding_current_batch() {
+    underTest.load("FILE_1");
+    assertThat(underTest.load("unknown")).extracting(DefaultIssue::key).containsOnly("unknown-issue");
+    underTest.load("FILE_2");
+
+    assertThat(loadedBatches).containsExactly(asList("FILE_1", "FILE_2", "DIRECTORY", "PROJECT"), singletonList("unknown"));
+  }
+
+  private Map<String, List<DefaultIssue>> load(Collection<String> uuids) {
+    loadedBatches.add(new ArrayList<>(uuids));
+    Map<String, List<DefaultIssue>> result = new HashMap<>();
+    uuids.forEach(uuid -> result.put(uuid, new ArrayList<>(singletonList(new DefaultIssue().setKey(uuid + "-issue")))));
+    return result;
+  }
+}
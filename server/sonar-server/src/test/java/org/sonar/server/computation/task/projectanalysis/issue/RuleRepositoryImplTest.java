@@ -63,7 +63,7 @@ public class RuleRepositoryImplTest {
   private DbSession dbSession = mock(DbSession.class);
   private RuleDao ruleDao = mock(RuleDao.class);
 
-  RuleRepositoryImpl underTest = new RuleRepositoryImpl(dbClient, analysisMetadataHolder);
+  RuleRepositoryImpl underTest = new RuleRepositoryImpl(new RuleSnapshotCache(dbClient), analysisMetadataHolder);
 
   @Before
   public void setUp() throws Exception {
@@ -0,0 +1,93 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbTester;
+import org.sonar.db.organization.OrganizationDto;
+import org.sonar.db.rule.RuleDefinitionDto;
+import org.sonar.server.computation.task.projectanalysis.issue.RuleSnapshotCache.RuleSnapshot;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RuleSnapshotCacheTest {
+
+  @org.junit.Rule
+  public DbTester db = DbTester.create(System2.INSTANCE);
+
+  private RuleSnapshotCache underTest = new RuleSnapshotCache(db.getDbClient());
+
+  @Test
+  public void load_rules_of_organization() {
+    OrganizationDto organization = db.organizations().insert();
+    RuleDefinitionDto rule1 = db.rules().insert();
+    RuleDefinitionDto rule2 = db.rules().insert();
+    db.rules().insertOrUpdateMetadata(rule2, organization, m -> m.setTags(ImmutableSet.of("foo")));
+
+    RuleSnapshot snapshot = underTest.get(organization.getUuid());
+
+    assertThat(snapshot.getByKey(rule1.getKey()).getId()).isEqualTo(rule1.getId());
+    assertThat(snapshot.getById(rule2.getId()).getTags()).contains("foo");
+    assertThat(snapshot.getByKey(RuleKey.of("unknown", "unknown"))).isNull();
+    assertThat(snapshot.getById(-1)).isNull();
+  }
+
+  @Test
+  public void reuse_snapshot_if_no_rules_changed() {
+    OrganizationDto organization = db.organizations().insert();
+    db.rules().insert();
+
+    RuleSnapshot snapshot = underTest.get(organization.getUuid());
+
+    assertThat(underTest.get(organization.getUuid())).isSameAs(snapshot);
+  }
+
+  @Test
+  public void refresh_snapshot_with_added_and_updated_rules() {
+    OrganizationDto organization = db.organizations().insert();
+    RuleDefinitionDto rule = db.rules().insert(r -> r.setUpdatedAt(1_000L));
+    RuleSnapshot initial = underTest.get(organization.getUuid());
+
+    db.rules().insertOrUpdateMetadata(rule, organization, m -> m.setTags(ImmutableSet.of("foo")).setUpdatedAt(2_000L));
+    RuleDefinitionDto newRule = db.rules().insert(r -> r.setUpdatedAt(3_000L));
+    RuleSnapshot refreshed = underTest.get(organization.getUuid());
+
+    assertThat(refreshed).isNotSameAs(initial);
+    assertThat(refreshed.getById(rule.getId()).getTags()).contains("foo");
+    assertThat(refreshed.getByKey(newRule.getKey())).isNotNull();
+    // snapshots are immutable
+    assertThat(initial.getById(rule.getId()).getTags()).doesNotContain("foo");
+    assertThat(initial.getByKey(newRule.getKey())).isNull();
+  }
+
+  @Test
+  public void snapshots_are_specific_to_organizations() {
+    OrganizationDto organization1 = db.organizations().insert();
+    OrganizationDto organization2 = db.organizations().insert();
+    RuleDefinitionDto rule = db.rules().insert();
+    db.rules().insertOrUpdateMetadata(rule, organization1, m -> m.setTags(ImmutableSet.of("foo")));
+
+    assertThat(underTest.get(organization1.getUuid()).getById(rule.getId()).getTags()).contains("foo");
+    assertThat(underTest.get(organization2.getUuid()).getById(rule.getId()).getTags()).doesNotContain("foo");
+  }
+}
@@ -20,16 +20,24 @@
 package org.sonar.server.computation.task.projectanalysis.issue;
 
 import com.google.common.base.Optional;
+import java.util.Collection;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.source.FileSourceDao;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.ReportComponent;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolderRule;
 import org.sonar.server.computation.task.projectanalysis.filemove.MovedFilesRepository;
 
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -46,7 +54,10 @@ public class TrackerBaseInputFactoryTest {
 
   private MovedFilesRepository movedFilesRepository = mock(MovedFilesRepository.class);
 
-  private TrackerBaseInputFactory underTest = new TrackerBaseInputFactory(issuesLoader, dbClient, movedFilesRepository);
+  @Rule
+  public TreeRootHolderRule treeRootHolder = new TreeRootHolderRule().setRoot(FILE);
+
+  private TrackerBaseInputFactory underTest = new TrackerBaseInputFactory(issuesLoader, dbClient, movedFilesRepository, treeRootHolder);
 
   @Before
   public void setUp() throws Exception {
@@ -54,6 +65,8 @@ public class TrackerBaseInputFactoryTest {
     when(dbClient.fileSourceDao()).thenReturn(fileSourceDao);
     when(movedFilesRepository.getOriginalFile(any(Component.class)))
       .thenReturn(Optional.absent());
+    when(issuesLoader.loadForComponentUuids(anyCollectionOf(String.class)))
+      .thenAnswer(invocation -> ((Collection<String>) invocation.getArguments()[0]).stream().collect(toMap(identity(), uuid -> emptyList())));
   }
 
   @Test
@@ -80,7 +93,7 @@ public class TrackerBaseInputFactoryTest {
   public void create_returns_Input_which_retrieves_issues_of_specified_file_component_when_it_has_no_original_file() {
     underTest.create(FILE).getIssues();
 
-    verify(issuesLoader).loadForComponentUuid(FILE_UUID);
+    verify(issuesLoader).loadForComponentUuids(singletonList(FILE_UUID));
   }
 
   @Test
@@ -92,7 +105,7 @@ public class TrackerBaseInputFactoryTest {
 
     underTest.create(FILE).getIssues();
 
-    verify(issuesLoader).loadForComponentUuid(originalUuid);
-    verify(issuesLoader, times(0)).loadForComponentUuid(FILE_UUID);
+    verify(issuesLoader).loadForComponentUuids(singletonList(originalUuid));
+    verify(issuesLoader, times(0)).loadForComponentUuids(singletonList(FILE_UUID));
   }
 }
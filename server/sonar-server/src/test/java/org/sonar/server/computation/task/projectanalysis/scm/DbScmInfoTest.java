@@ -23,6 +23,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.sonar.db.protobuf.DbFileSources;
+import org.sonar.db.source.FileSourceDto;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -157,6 +158,45 @@ public class DbScmInfoTest {
     DbScmInfo.create(FILE, fileDataBuilder.getLinesList()).get().getAllChangesets();
   }
 
+  @Test
+  public void create_scm_info_from_scm_data_with_same_changesets_as_from_lines() {
+    DbFileSources.Data.Builder fileDataBuilder = DbFileSources.Data.newBuilder();
+    addLine(fileDataBuilder, 1, "john", 123456789L, "rev-1");
+    addLine(fileDataBuilder, 2, "henry", 1234567810L, "rev-2");
+    addLine(fileDataBuilder, 3, "henry", 1234567810L, "rev-2");
+    addLine(fileDataBuilder, 4, "john", 123456789L, "rev-1");
+
+    ScmInfo fromLines = DbScmInfo.create(FILE, fileDataBuilder.getLinesList()).get();
+    ScmInfo fromScmData = DbScmInfo.create(FILE, FileSourceDto.toScmData(fileDataBuilder.getLinesList())).get();
+
+    assertThat(fromScmData.getAllChangesets()).containsExactlyElementsOf(fromLines.getAllChangesets());
+    assertThat(fromScmData.getLatestChangeset()).isEqualTo(fromLines.getLatestChangeset());
+    assertThat(fromScmData.getChangesetForLine(1)).isSameAs(fromScmData.getChangesetForLine(4));
+  }
+
+  @Test
+  public void return_absent_scm_info_when_scm_data_has_no_changeset() {
+    DbFileSources.Scm scm = DbFileSources.Scm.newBuilder()
+      .addChangesets(DbFileSources.Scm.Changeset.newBuilder().setLineCount(3))
+      .build();
+
+    assertThat(DbScmInfo.create(FILE, scm)).isAbsent();
+  }
+
+  @Test
+  public void fail_with_ISE_when_scm_data_is_partial() {
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("Partial scm information stored in DB for component 'ReportComponent{ref=1, key='FILE_KEY', type=FILE}'. " +
+      "Not all lines have SCM info. Can not proceed");
+
+    DbFileSources.Scm scm = DbFileSources.Scm.newBuilder()
+      .addChangesets(DbFileSources.Scm.Changeset.newBuilder().setRevision("rev").setDate(543L).setLineCount(1))
+      .addChangesets(DbFileSources.Scm.Changeset.newBuilder().setLineCount(1))
+      .build();
+
+    DbScmInfo.create(FILE, scm);
+  }
+
   private static void addLine(DbFileSources.Data.Builder dataBuilder, Integer line, String author, Long date, String revision) {
     dataBuilder.addLinesBuilder()
       .setLine(line)
@@ -29,6 +29,7 @@ import org.junit.Test;
 import org.sonar.api.utils.System2;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.core.hash.SourceHashComputer;
+import org.sonar.db.DbClient;
 import org.sonar.db.DbTester;
 import org.sonar.db.protobuf.DbFileSources;
 import org.sonar.db.source.FileSourceDto;
@@ -39,12 +40,16 @@ import org.sonar.server.computation.task.projectanalysis.analysis.Branch;
 import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReaderRule;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.MergeBranchComponentUuids;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolderRule;
 import org.sonar.server.computation.task.projectanalysis.scm.ScmInfoRepositoryImpl.NoScmInfo;
 import org.sonar.server.computation.task.projectanalysis.source.SourceHashRepositoryImpl;
 import org.sonar.server.computation.task.projectanalysis.source.SourceLinesRepositoryImpl;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.sonar.api.utils.log.LoggerLevel.TRACE;
 import static org.sonar.server.computation.task.projectanalysis.component.ReportComponent.builder;
@@ -69,12 +74,15 @@ public class ScmInfoDbLoaderTest {
   public DbTester dbTester = DbTester.create(System2.INSTANCE);
   @Rule
   public BatchReportReaderRule reportReader = new BatchReportReaderRule();
+  @Rule
+  public TreeRootHolderRule treeRootHolder = new TreeRootHolderRule().setRoot(FILE);
 
   private Branch branch = mock(Branch.class);
   private SourceHashRepositoryImpl sourceHashRepository = new SourceHashRepositoryImpl(new SourceLinesRepositoryImpl(reportReader));
   private MergeBranchComponentUuids mergeBranchComponentUuids = mock(MergeBranchComponentUuids.class);
 
-  private ScmInfoDbLoader underTest = new ScmInfoDbLoader(analysisMetadataHolder, dbTester.getDbClient(), sourceHashRepository, mergeBranchComponentUuids);
+  private ScmInfoDbLoader underTest = new ScmInfoDbLoader(analysisMetadataHolder, dbTester.getDbClient(), sourceHashRepository, mergeBranchComponentUuids,
+    treeRootHolder);
 
   @Test
   public void returns_ScmInfo_from_DB_if_hashes_are_the_same() {
@@ -90,6 +98,30 @@ public class ScmInfoDbLoaderTest {
     assertThat(logTester.logs(TRACE)).containsOnly("Reading SCM info from db for file 'FILE_UUID'");
   }
 
+  @Test
+  public void returns_ScmInfo_from_SCM_data_column_if_hashes_are_the_same() {
+    analysisMetadataHolder.setBaseAnalysis(baseProjectAnalysis);
+    analysisMetadataHolder.setBranch(null);
+
+    dbTester.getDbClient().fileSourceDao().insert(dbTester.getSession(), new FileSourceDto()
+      .setFileUuid(FILE.getUuid())
+      .setProjectUuid("PROJECT_UUID")
+      .setSourceData(DbFileSources.Data.getDefaultInstance())
+      .setScmData(DbFileSources.Scm.newBuilder()
+        .addChangesets(DbFileSources.Scm.Changeset.newBuilder().setRevision("rev-1").setAuthor("henry").setDate(DATE_1).setLineCount(2))
+        .addChangesets(DbFileSources.Scm.Changeset.newBuilder().setRevision("rev-2").setDate(DATE_2).setLineCount(1))
+        .build())
+      .setSrcHash(computeSourceHash(3)));
+    dbTester.commit();
+    addFileSourceInReport(3);
+
+    ScmInfo scmInfo = underTest.getScmInfoFromDb(FILE);
+    assertThat(scmInfo.getAllChangesets()).hasSize(3);
+    assertThat(scmInfo.getChangesetForLine(2).getAuthor()).isEqualTo("henry");
+    assertThat(scmInfo.getChangesetForLine(3).getRevision()).isEqualTo("rev-2");
+    assertThat(scmInfo.getLatestChangeset().getDate()).isEqualTo(DATE_2);
+  }
+
   @Test
   public void read_from_merge_branch_if_no_base() {
     analysisMetadataHolder.setBaseAnalysis(null);
@@ -133,6 +165,19 @@ public class ScmInfoDbLoaderTest {
     assertThat(logTester.logs(TRACE)).containsOnly("Reading SCM info from db for file 'FILE_UUID'");
   }
 
+  @Test
+  public void do_not_query_db_again_when_prefetched_file_has_no_sources() {
+    analysisMetadataHolder.setBaseAnalysis(baseProjectAnalysis);
+    analysisMetadataHolder.setBranch(null);
+    DbClient dbClient = spy(dbTester.getDbClient());
+    underTest = new ScmInfoDbLoader(analysisMetadataHolder, dbClient, sourceHashRepository, mergeBranchComponentUuids, treeRootHolder);
+
+    addFileSourceInReport(1);
+
+    assertThat(underTest.getScmInfoFromDb(FILE)).isEqualTo(NoScmInfo.INSTANCE);
+    verify(dbClient, times(1)).openSession(false);
+  }
+
   @Test
   public void not_read_in_db_on_first_analysis_and_no_merge_branch() {
     Branch branch = mock(Branch.class);
@@ -0,0 +1,124 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.step;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.server.computation.task.projectanalysis.component.FileAttributes;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolderRule;
+import org.sonar.server.computation.task.projectanalysis.measure.MeasureRepositoryRule;
+import org.sonar.server.computation.task.projectanalysis.metric.MetricRepositoryRule;
+import org.sonar.server.computation.task.projectanalysis.period.PeriodHolderRule;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.sonar.api.measures.CoreMetrics.COMPLEXITY_KEY;
+import static org.sonar.api.measures.CoreMetrics.FILES_KEY;
+import static org.sonar.api.measures.CoreMetrics.FILE_COMPLEXITY_KEY;
+import static org.sonar.api.measures.CoreMetrics.LINES_KEY;
+import static org.sonar.api.measures.CoreMetrics.NCLOC_KEY;
+import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.DIRECTORY;
+import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.FILE;
+import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.PROJECT;
+import static org.sonar.server.computation.task.projectanalysis.component.ReportComponent.builder;
+import static org.sonar.server.computation.task.projectanalysis.measure.Measure.newMeasureBuilder;
+
+public class ExecuteFormulasStepTest {
+
+  private static final int ROOT_REF = 1;
+  private static final int DIRECTORY_REF = 11;
+  private static final int FILE_1_REF = 111;
+  private static final int FILE_2_REF = 112;
+
+  @Rule
+  public TreeRootHolderRule treeRootHolder = new TreeRootHolderRule().setRoot(
+    builder(PROJECT, ROOT_REF)
+      .addChildren(
+        builder(DIRECTORY, DIRECTORY_REF)
+          .addChildren(
+            builder(FILE, FILE_1_REF).setFileAttributes(new FileAttributes(false, null, 5)).build(),
+            builder(FILE, FILE_2_REF).setFileAttributes(new FileAttributes(false, null, 15)).build())
+          .build())
+      .build());
+  @Rule
+  public MetricRepositoryRule metricRepository = new MetricRepositoryRule()
+    .add(CoreMetrics.FILES)
+    .add(CoreMetrics.DIRECTORIES)
+    .add(CoreMetrics.LINES)
+    .add(CoreMetrics.GENERATED_LINES)
+    .add(CoreMetrics.NCLOC)
+    .add(CoreMetrics.GENERATED_NCLOC)
+    .add(CoreMetrics.FUNCTIONS)
+    .add(CoreMetrics.STATEMENTS)
+    .add(CoreMetrics.CLASSES)
+    .add(CoreMetrics.ACCESSORS)
+    .add(CoreMetrics.COMPLEXITY)
+    .add(CoreMetrics.COMPLEXITY_IN_CLASSES)
+    .add(CoreMetrics.COMPLEXITY_IN_FUNCTIONS)
+    .add(CoreMetrics.COGNITIVE_COMPLEXITY)
+    .add(CoreMetrics.FUNCTION_COMPLEXITY_DISTRIBUTION)
+    .add(CoreMetrics.FILE_COMPLEXITY_DISTRIBUTION)
+    .add(CoreMetrics.CLASS_COMPLEXITY_DISTRIBUTION)
+    .add(CoreMetrics.FILE_COMPLEXITY)
+    .add(CoreMetrics.CLASS_COMPLEXITY)
+    .add(CoreMetrics.FUNCTION_COMPLEXITY);
+  @Rule
+  public MeasureRepositoryRule measureRepository = MeasureRepositoryRule.create(treeRootHolder, metricRepository);
+  @Rule
+  public PeriodHolderRule periodHolder = new PeriodHolderRule();
+
+  private SizeMeasuresStep sizeMeasuresStep = spy(new SizeMeasuresStep(treeRootHolder, metricRepository, measureRepository));
+  private ComplexityMeasuresStep complexityMeasuresStep = spy(new ComplexityMeasuresStep(treeRootHolder, metricRepository, measureRepository));
+  private ExecuteFormulasStep underTest = new ExecuteFormulasStep(treeRootHolder, metricRepository, measureRepository, periodHolder,
+    asList(sizeMeasuresStep, complexityMeasuresStep));
+
+  @Test
+  public void execute_visitors_and_formulas_of_all_steps_in_a_single_traversal() {
+    measureRepository.addRawMeasure(FILE_1_REF, NCLOC_KEY, newMeasureBuilder().create(4));
+    measureRepository.addRawMeasure(FILE_2_REF, NCLOC_KEY, newMeasureBuilder().create(12));
+    measureRepository.addRawMeasure(FILE_1_REF, COMPLEXITY_KEY, newMeasureBuilder().create(2));
+    measureRepository.addRawMeasure(FILE_2_REF, COMPLEXITY_KEY, newMeasureBuilder().create(6));
+
+    underTest.execute();
+
+    verify(sizeMeasuresStep, never()).execute();
+    verify(complexityMeasuresStep, never()).execute();
+    // created by the visitor of SizeMeasuresStep
+    assertThat(measureRepository.getAddedRawMeasure(FILE_1_REF, FILES_KEY).get().getIntValue()).isEqualTo(1);
+    assertThat(measureRepository.getAddedRawMeasure(DIRECTORY_REF, LINES_KEY).get().getIntValue()).isEqualTo(20);
+    // created by the formulas of SizeMeasuresStep
+    assertThat(measureRepository.getAddedRawMeasure(ROOT_REF, NCLOC_KEY).get().getIntValue()).isEqualTo(16);
+    // created by the formulas of ComplexityMeasuresStep, file complexity depending on the files measures of the visitor
+    assertThat(measureRepository.getAddedRawMeasure(ROOT_REF, COMPLEXITY_KEY).get().getIntValue()).isEqualTo(8);
+    assertThat(measureRepository.getAddedRawMeasure(ROOT_REF, FILE_COMPLEXITY_KEY).get().getDoubleValue()).isEqualTo(4d);
+    assertThat(measureRepository.getAddedRawMeasure(DIRECTORY_REF, FILE_COMPLEXITY_KEY).get().getDoubleValue()).isEqualTo(4d);
+  }
+
+  @Test
+  public void does_nothing_if_no_steps() {
+    new ExecuteFormulasStep(treeRootHolder, metricRepository, measureRepository, periodHolder, asList()).execute();
+
+    assertThat(measureRepository.getAddedRawMeasures(ROOT_REF)).isEmpty();
+  }
+}
@@ -22,6 +22,7 @@ package org.sonar.server.computation.task.projectanalysis.step;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.zip.ZipFile;
 import org.apache.commons.io.FileUtils;
 import org.junit.Rule;
 import org.junit.Test;
@@ -70,21 +71,38 @@ public class ExtractReportStepTest {
   }
 
   @Test
-  public void unzip_report() throws Exception {
-    File reportFile = generateReport();
+  public void copy_report_to_zip_file_without_extracting_it() throws Exception {
+    insertReport(generateReport());
+
+    underTest.execute();
+
+    // zip file contains the compressed report (which contains only metadata.pb in this test)
+    File zipFile = reportDirectoryHolder.getZipFile().get();
+    assertThat(zipFile).isFile().exists();
+    try (ZipFile zip = new ZipFile(zipFile)) {
+      assertThat(zip.size()).isEqualTo(1);
+      assertThat(zip.getEntry("metadata.pb")).isNotNull();
+    }
+  }
+
+  @Test
+  public void fail_if_report_is_not_a_zip_file() throws Exception {
+    File reportFile = tempFolder.newFile();
+    FileUtils.write(reportFile, "not a zip");
+    insertReport(reportFile);
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Report 1 is not a valid zip file");
+
+    underTest.execute();
+  }
+
+  private void insertReport(File reportFile) throws IOException {
     try (InputStream input = FileUtils.openInputStream(reportFile)) {
       dbTester.getDbClient().ceTaskInputDao().insert(dbTester.getSession(), TASK_UUID, input);
     }
     dbTester.getSession().commit();
     dbTester.getSession().close();
-
-    underTest.execute();
-
-    // directory contains the uncompressed report (which contains only metadata.pb in this test)
-    File unzippedDir = reportDirectoryHolder.getDirectory();
-    assertThat(unzippedDir).isDirectory().exists();
-    assertThat(unzippedDir.listFiles()).hasSize(1);
-    assertThat(new File(unzippedDir, "metadata.pb")).hasContent("{metadata}");
   }
 
   private File generateReport() throws IOException {
@@ -181,6 +181,12 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
     assertThat(data.getLines(0).getScmAuthor()).isEqualTo("john");
     assertThat(data.getLines(0).getScmDate()).isEqualTo(123456789L);
     assertThat(data.getLines(0).getScmRevision()).isEqualTo("rev-1");
+
+    DbFileSources.Scm scm = fileSourceDto.getScmData();
+    assertThat(scm.getChangesetsList()).hasSize(1);
+    assertThat(scm.getChangesets(0).getAuthor()).isEqualTo("john");
+    assertThat(scm.getChangesets(0).getRevision()).isEqualTo("rev-1");
+    assertThat(scm.getChangesets(0).getLineCount()).isEqualTo(1);
   }
 
   @Test
@@ -291,6 +297,7 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
       .setSrcHash(srcHash)
       .setLineHashes(lineHashes)
       .setDataHash(dataHash)
+      .setScmData(DbFileSources.Scm.getDefaultInstance())
       .setSourceData(DbFileSources.Data.newBuilder()
         .addLines(DbFileSources.Line.newBuilder()
           .setLine(1)
@@ -315,6 +322,39 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
     assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(past);
   }
 
+  @Test
+  public void update_sources_when_scm_data_is_missing() {
+    // Existing sources
+    long past = 150000L;
+    dbClient.fileSourceDao().insert(dbTester.getSession(), new FileSourceDto()
+      .setProjectUuid(PROJECT_UUID)
+      .setFileUuid(FILE1_UUID)
+      .setDataType(Type.SOURCE)
+      .setSrcHash("137f72c3708c6bd0de00a0e5a69c699b")
+      .setLineHashes("137f72c3708c6bd0de00a0e5a69c699b")
+      .setDataHash("29f25900140c94db38035128cb6de6a2")
+      // SCM data is missing, update will be made
+      .setSourceData(DbFileSources.Data.newBuilder()
+        .addLines(DbFileSources.Line.newBuilder()
+          .setLine(1)
+          .setSource("line1")
+          .build())
+        .build())
+      .setCreatedAt(past)
+      .setUpdatedAt(past));
+    dbTester.getSession().commit();
+
+    initBasicReport(1);
+
+    underTest.execute();
+
+    assertThat(dbTester.countRowsOfTable("file_sources")).isEqualTo(1);
+    FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE1_UUID);
+    assertThat(fileSourceDto.getCreatedAt()).isEqualTo(past);
+    assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(NOW);
+    assertThat(fileSourceDto.getScmData()).isNotNull();
+  }
+
   @Test
   public void update_sources_when_source_updated() {
     // Existing sources
@@ -156,6 +156,50 @@ public class PersistLiveMeasuresStepTest extends BaseStepTest {
     assertThatMeasureHasValue(measureInOtherProject, (int)measureInOtherProject.getValue().doubleValue());
   }
 
+  @Test
+  public void do_not_update_measures_which_have_not_changed() {
+    prepareProject();
+    LiveMeasureDto unchangedMeasure = insertMeasure("file-uuid", "project-uuid", INT_METRIC, 42.0);
+    LiveMeasureDto changedMeasure = insertMeasure("project-uuid", "project-uuid", INT_METRIC, 1.0);
+    db.commit();
+    db.executeUpdateSql("update live_measures set updated_at=1");
+
+    measureRepository.addRawMeasure(REF_4, INT_METRIC.getKey(), newMeasureBuilder().create(42));
+    measureRepository.addRawMeasure(REF_1, INT_METRIC.getKey(), newMeasureBuilder().create(2));
+
+    step().execute();
+
+    assertThatMeasureHasValue(unchangedMeasure, 42);
+    assertThat(selectUpdatedAt(unchangedMeasure)).isEqualTo(1L);
+    assertThatMeasureHasValue(changedMeasure, 2);
+    assertThat(selectUpdatedAt(changedMeasure)).isNotEqualTo(1L);
+  }
+
+  @Test
+  public void persist_measures_of_more_components_than_the_size_of_a_batch() {
+    ReportComponent.Builder projectBuilder = ReportComponent.builder(PROJECT, REF_1).setUuid("project-uuid");
+    int nbFiles = 250;
+    for (int i = 0; i < nbFiles; i++) {
+      projectBuilder.addChildren(ReportComponent.builder(FILE, 100 + i).setUuid("file-uuid-" + i).build());
+    }
+    Component project = projectBuilder.build();
+    treeRootHolder.setRoot(project);
+    analysisMetadataHolder.setProject(Project.copyOf(project));
+    for (int i = 0; i < nbFiles; i++) {
+      measureRepository.addRawMeasure(100 + i, INT_METRIC.getKey(), newMeasureBuilder().create(i + 1));
+    }
+    // measure of the last batch to be deleted because not computed anymore
+    LiveMeasureDto notComputedMeasure = insertMeasure("file-uuid-" + (nbFiles - 1), "project-uuid", STRING_METRIC);
+    db.commit();
+
+    step().execute();
+
+    assertThat(db.countRowsOfTable("live_measures")).isEqualTo(nbFiles);
+    assertThatMeasureHasValue("file-uuid-0", INT_METRIC, 1);
+    assertThatMeasureHasValue("file-uuid-" + (nbFiles - 1), INT_METRIC, nbFiles);
+    assertThatMeasureDoesNotExist(notComputedMeasure);
+  }
+
   @Test
   public void do_not_persist_file_measures_with_best_value() {
     prepareProject();
@@ -196,10 +240,25 @@ public class PersistLiveMeasuresStepTest extends BaseStepTest {
       .setComponentUuid(componentUuid)
       .setProjectUuid(projectUuid)
       .setMetricId(metricRepository.getByKey(metric.getKey()).getId());
-    dbClient.liveMeasureDao().insertOrUpdate(db.getSession(), measure, null);
+    dbClient.liveMeasureDao().insertOrUpdate(db.getSession(), measure);
     return measure;
   }
 
+  private LiveMeasureDto insertMeasure(String componentUuid, String projectUuid, Metric metric, double value) {
+    LiveMeasureDto measure = new LiveMeasureDto()
+      .setComponentUuid(componentUuid)
+      .setProjectUuid(projectUuid)
+      .setMetricId(metricRepository.getByKey(metric.getKey()).getId())
+      .setValue(value);
+    dbClient.liveMeasureDao().insertOrUpdate(db.getSession(), measure);
+    return measure;
+  }
+
+  private Long selectUpdatedAt(LiveMeasureDto template) {
+    return (Long) db.selectFirst("select updated_at as \"updatedAt\" from live_measures where component_uuid='" + template.getComponentUuid()
+      + "' and metric_id=" + template.getMetricId()).get("updatedAt");
+  }
+
   private void assertThatMeasureHasValue(LiveMeasureDto template, int expectedValue) {
     Optional<LiveMeasureDto> persisted = dbClient.liveMeasureDao().selectMeasure(db.getSession(),
       template.getComponentUuid(), metricRepository.getById(template.getMetricId()).getKey());
@@ -19,6 +19,7 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
+import java.util.List;
 import java.util.Optional;
 import org.junit.Before;
 import org.junit.Rule;
@@ -28,7 +29,9 @@ import org.sonar.api.utils.System2;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbTester;
 import org.sonar.db.component.ComponentDto;
+import org.sonar.db.component.SnapshotDto;
 import org.sonar.db.measure.MeasureDto;
+import org.sonar.db.measure.MeasureHistoryDto;
 import org.sonar.db.metric.MetricDto;
 import org.sonar.server.computation.task.projectanalysis.analysis.MutableAnalysisMetadataHolderRule;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
@@ -40,7 +43,11 @@ import org.sonar.server.computation.task.projectanalysis.measure.MeasureToMeasur
 import org.sonar.server.computation.task.projectanalysis.metric.MetricRepositoryRule;
 import org.sonar.server.computation.task.step.ComputationStep;
 
+import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
 import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.DIRECTORY;
 import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.FILE;
 import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.MODULE;
@@ -56,6 +63,7 @@ public class PersistMeasuresStepTest extends BaseStepTest {
   private static final Metric INT_METRIC = new Metric.Builder("int-metric", "int metric", Metric.ValueType.INT).create();
 
   private static final String ANALYSIS_UUID = "a1";
+  private static final long ANALYSIS_DATE = 1_500_000_000_000L;
 
   private static final int REF_1 = 1;
   private static final int REF_2 = 2;
@@ -78,6 +86,7 @@ public class PersistMeasuresStepTest extends BaseStepTest {
   @Before
   public void setUp() {
     analysisMetadataHolder.setUuid(ANALYSIS_UUID);
+    analysisMetadataHolder.setAnalysisDate(ANALYSIS_DATE);
     MetricDto stringMetricDto = db.measures().insertMetric(m -> m.setKey(STRING_METRIC.getKey()).setValueType(Metric.ValueType.STRING.name()));
     MetricDto intMetricDto = db.measures().insertMetric(m -> m.setKey(INT_METRIC.getKey()).setValueType(Metric.ValueType.INT.name()));
     metricRepository.add(stringMetricDto.getId(), STRING_METRIC);
@@ -165,6 +174,75 @@ public class PersistMeasuresStepTest extends BaseStepTest {
     assertThat(selectMeasure("project-uuid", STRING_METRIC).get().getData()).isEqualTo("project-value");
   }
 
+  @Test
+  public void add_measures_of_root_to_history_initialized_with_past_measures() {
+    prepareProject();
+    ComponentDto projectDto = dbClient.componentDao().selectOrFailByUuid(db.getSession(), "project-uuid");
+    SnapshotDto pastAnalysis = db.components().insertSnapshot(projectDto, s -> s.setUuid("a0").setCreatedAt(ANALYSIS_DATE - 1_000L));
+    dbClient.measureDao().insert(db.getSession(), new MeasureDto().setAnalysisUuid(pastAnalysis.getUuid()).setComponentUuid("project-uuid")
+      .setMetricId(metricRepository.getByKey(INT_METRIC.getKey()).getId()).setValue(10d));
+    db.commit();
+    measureRepository.addRawMeasure(REF_1, INT_METRIC.getKey(), newMeasureBuilder().create(20));
+    measureRepository.addRawMeasure(REF_2, INT_METRIC.getKey(), newMeasureBuilder().create(30));
+
+    execute(true);
+
+    List<MeasureHistoryDto> histories = dbClient.measureDao().selectHistory(db.getSession(), "project-uuid");
+    assertThat(histories).hasSize(1);
+    assertThat(histories.get(0).getMeasures(null, null))
+      .extracting(MeasureDto::getAnalysisUuid, MeasureDto::getValue)
+      .containsExactly(tuple("a0", 10d), tuple(ANALYSIS_UUID, 20d));
+    // history is maintained only for the root component
+    assertThat(dbClient.measureDao().selectHistory(db.getSession(), "module-uuid")).isEmpty();
+  }
+
+  @Test
+  public void add_measures_of_root_to_existing_history() {
+    prepareProject();
+    int metricId = metricRepository.getByKey(STRING_METRIC.getKey()).getId();
+    dbClient.measureDao().insertHistory(db.getSession(), new MeasureHistoryDto()
+      .setComponentUuid("project-uuid")
+      .setMetricId(metricId)
+      .addMeasure(ANALYSIS_DATE - 1_000L, new MeasureDto().setAnalysisUuid("a0").setData("past-value")));
+    db.commit();
+    measureRepository.addRawMeasure(REF_1, STRING_METRIC.getKey(), newMeasureBuilder().create("project-value"));
+
+    execute(true);
+
+    List<MeasureHistoryDto> histories = dbClient.measureDao().selectHistory(db.getSession(), "project-uuid", singletonList(metricId));
+    assertThat(histories).hasSize(1);
+    assertThat(histories.get(0).getMeasures(null, null))
+      .extracting(MeasureDto::getAnalysisUuid, MeasureDto::getData)
+      .containsExactly(tuple("a0", "past-value"), tuple(ANALYSIS_UUID, "project-value"));
+  }
+
+  @Test
+  public void insert_and_update_histories_in_batch_session() {
+    prepareProject();
+    int stringMetricId = metricRepository.getByKey(STRING_METRIC.getKey()).getId();
+    dbClient.measureDao().insertHistory(db.getSession(), new MeasureHistoryDto()
+      .setComponentUuid("project-uuid")
+      .setMetricId(stringMetricId)
+      .addMeasure(ANALYSIS_DATE - 1_000L, new MeasureDto().setAnalysisUuid("a0").setData("past-value")));
+    db.commit();
+    measureRepository.addRawMeasure(REF_1, STRING_METRIC.getKey(), newMeasureBuilder().create("project-value"));
+    measureRepository.addRawMeasure(REF_1, INT_METRIC.getKey(), newMeasureBuilder().create(20));
+    // the number of rows updated by a statement is not known in a batch session
+    DbClient batchDbClient = spy(dbClient);
+    doAnswer(invocation -> db.myBatis().openSession(true)).when(batchDbClient).openSession(true);
+
+    new PersistMeasuresStep(batchDbClient, metricRepository, new MeasureToMeasureDto(analysisMetadataHolder, treeRootHolder), treeRootHolder, measureRepository,
+      analysisMetadataHolder, true).execute();
+
+    assertThat(dbClient.measureDao().selectHistory(db.getSession(), "project-uuid", singletonList(stringMetricId)).get(0).getMeasures(null, null))
+      .extracting(MeasureDto::getAnalysisUuid, MeasureDto::getData)
+      .containsExactly(tuple("a0", "past-value"), tuple(ANALYSIS_UUID, "project-value"));
+    int intMetricId = metricRepository.getByKey(INT_METRIC.getKey()).getId();
+    assertThat(dbClient.measureDao().selectHistory(db.getSession(), "project-uuid", singletonList(intMetricId)).get(0).getMeasures(null, null))
+      .extracting(MeasureDto::getAnalysisUuid, MeasureDto::getValue)
+      .containsExactly(tuple(ANALYSIS_UUID, 20d));
+  }
+
   private void prepareProject() {
     // tree of components as defined by scanner report
     Component project = ReportComponent.builder(PROJECT, REF_1).setUuid("project-uuid")
@@ -217,7 +295,7 @@ public class PersistMeasuresStepTest extends BaseStepTest {
   }
 
   private void execute(boolean persistDirectories) {
-    new PersistMeasuresStep(dbClient, metricRepository, new MeasureToMeasureDto(analysisMetadataHolder, treeRootHolder), treeRootHolder, measureRepository, persistDirectories)
+    new PersistMeasuresStep(dbClient, metricRepository, new MeasureToMeasureDto(analysisMetadataHolder, treeRootHolder), treeRootHolder, measureRepository, analysisMetadataHolder, persistDirectories)
       .execute();
   }
 
@@ -239,6 +317,6 @@ public class PersistMeasuresStepTest extends BaseStepTest {
 
   @Override
   protected ComputationStep step() {
-    return new PersistMeasuresStep(dbClient, metricRepository, new MeasureToMeasureDto(analysisMetadataHolder, treeRootHolder), treeRootHolder, measureRepository, true);
+    return new PersistMeasuresStep(dbClient, metricRepository, new MeasureToMeasureDto(analysisMetadataHolder, treeRootHolder), treeRootHolder, measureRepository, analysisMetadataHolder, true);
   }
 }
@@ -43,6 +43,7 @@ import org.sonar.server.computation.task.projectanalysis.analysis.Project;
 import org.sonar.server.computation.task.projectanalysis.component.BranchPersister;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.DefaultBranchImpl;
+import org.sonar.server.computation.task.projectanalysis.component.ExistingComponentsHolderImpl;
 import org.sonar.server.computation.task.projectanalysis.component.FileAttributes;
 import org.sonar.server.computation.task.projectanalysis.component.MutableDbIdsRepositoryRule;
 import org.sonar.server.computation.task.projectanalysis.component.MutableDisabledComponentsHolder;
@@ -50,11 +51,15 @@ import org.sonar.server.computation.task.projectanalysis.component.ReportCompone
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolderRule;
 import org.sonar.server.computation.task.step.ComputationStep;
 
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
 import static org.apache.commons.lang.StringUtils.isEmpty;
 import static org.apache.commons.lang.StringUtils.trimToNull;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.guava.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.sonar.db.component.ComponentDto.UUID_PATH_OF_ROOT;
@@ -90,6 +95,7 @@ public class ReportPersistComponentsStepTest extends BaseStepTest {
   private MutableDisabledComponentsHolder disabledComponentsHolder = mock(MutableDisabledComponentsHolder.class, RETURNS_DEEP_STUBS);
   private PersistComponentsStep underTest;
   private BranchPersister branchPersister;
+  private ExistingComponentsHolderImpl existingComponentsHolder = new ExistingComponentsHolderImpl();
 
   @Before
   public void setup() throws Exception {
@@ -98,7 +104,8 @@ public class ReportPersistComponentsStepTest extends BaseStepTest {
 
     db.organizations().insertForUuid(ORGANIZATION_UUID);
     branchPersister = mock(BranchPersister.class);
-    underTest = new PersistComponentsStep(dbClient, treeRootHolder, dbIdsRepository, system2, disabledComponentsHolder, analysisMetadataHolder, branchPersister);
+    underTest = new PersistComponentsStep(dbClient, treeRootHolder, dbIdsRepository, system2, disabledComponentsHolder, analysisMetadataHolder, branchPersister,
+      existingComponentsHolder);
   }
 
   @Override
@@ -866,6 +873,47 @@ public class ReportPersistComponentsStepTest extends BaseStepTest {
         .isEqualTo(true));
   }
 
+  @Test
+  public void use_existing_components_loaded_when_building_the_tree() {
+    ComponentDto project = prepareProject(p -> p.setPrivate(true));
+    // visibility of root is read from the components in holder, not from database
+    existingComponentsHolder.setComponents(singletonList(project.copy().setPrivate(false)));
+    treeRootHolder.setRoot(createSampleProjectComponentTree(project));
+
+    underTest.execute();
+
+    assertThat(dbClient.componentDao().selectByUuid(db.getSession(), project.uuid()).get().isPrivate()).isFalse();
+    assertThat(dbClient.componentDao().selectByKey(db.getSession(), "FILE").isPresent()).isTrue();
+  }
+
+  @Test
+  public void load_existing_components_from_db_when_root_is_not_in_holder() {
+    ComponentDto project = prepareProject(p -> p.setPrivate(true));
+    existingComponentsHolder.setComponents(emptyList());
+    treeRootHolder.setRoot(createSampleProjectComponentTree(project));
+
+    underTest.execute();
+
+    assertThat(dbClient.componentDao().selectByUuid(db.getSession(), project.uuid()).get().isPrivate()).isTrue();
+    assertThat(dbClient.componentDao().selectByKey(db.getSession(), "FILE").isPresent()).isTrue();
+  }
+
+  @Test
+  public void load_existing_components_from_db_when_root_is_inserted_by_branch_persister() {
+    ComponentDto project = prepareBranch("feature/foo");
+    // first analysis of the branch: no component of the branch exists when the tree is built
+    existingComponentsHolder.setComponents(emptyList());
+    doAnswer(invocation -> db.components().insertProjectBranch(project, b -> b.setKey("feature/foo").setUuid("BRANCH_UUID")))
+      .when(branchPersister).persist(any());
+    treeRootHolder.setRoot(createSampleProjectComponentTree("BRANCH_UUID", project.getDbKey() + ":BRANCH:feature/foo"));
+
+    underTest.execute();
+
+    assertThat(dbClient.componentDao().selectByUuid(db.getSession(), "BRANCH_UUID").get().isPrivate()).isTrue();
+    assertThat(dbClient.componentDao().selectByUuid(db.getSession(), "CDEF").get().projectUuid()).isEqualTo("BRANCH_UUID");
+    assertThat(existingComponentsHolder.getComponents()).isEmpty();
+  }
+
   private ReportComponent createSampleProjectComponentTree(ComponentDto project) {
     return createSampleProjectComponentTree(project.uuid(), project.getDbKey());
   }
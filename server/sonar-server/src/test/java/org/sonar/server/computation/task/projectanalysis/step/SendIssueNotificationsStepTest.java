@@ -20,6 +20,7 @@
 package org.sonar.server.computation.task.projectanalysis.step;
 
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
@@ -65,6 +66,7 @@ import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.sonar.db.component.ComponentTesting.newBranchDto;
@@ -370,9 +372,7 @@ public class SendIssueNotificationsStepTest extends BaseStepTest {
 
     underTest.execute();
 
-    ArgumentCaptor<IssueChangeNotification> issueChangeNotificationCaptor = ArgumentCaptor.forClass(IssueChangeNotification.class);
-    verify(notificationService).deliver(issueChangeNotificationCaptor.capture());
-    IssueChangeNotification issueChangeNotification = issueChangeNotificationCaptor.getValue();
+    IssueChangeNotification issueChangeNotification = captureIssueChangeNotification();
     assertThat(issueChangeNotification.getFieldValue("key")).isEqualTo(issue.key());
     assertThat(issueChangeNotification.getFieldValue("assignee")).isEqualTo(issue.assignee());
     assertThat(issueChangeNotification.getFieldValue("message")).isEqualTo(issue.message());
@@ -412,9 +412,7 @@ public class SendIssueNotificationsStepTest extends BaseStepTest {
 
     underTest.execute();
 
-    ArgumentCaptor<IssueChangeNotification> issueChangeNotificationCaptor = ArgumentCaptor.forClass(IssueChangeNotification.class);
-    verify(notificationService).deliver(issueChangeNotificationCaptor.capture());
-    IssueChangeNotification issueChangeNotification = issueChangeNotificationCaptor.getValue();
+    IssueChangeNotification issueChangeNotification = captureIssueChangeNotification();
     assertThat(issueChangeNotification.getFieldValue("projectName")).isEqualTo(branch.longName());
     assertThat(issueChangeNotification.getFieldValue("projectKey")).isEqualTo(branch.getKey());
     assertThat(issueChangeNotification.getFieldValue("branch")).isEqualTo(BRANCH_NAME);
@@ -422,6 +420,35 @@ public class SendIssueNotificationsStepTest extends BaseStepTest {
     assertThat(issueChangeNotification.getFieldValue("componentName")).isEqualTo(file.longName());
   }
 
+  @Test
+  public void send_issues_change_notifications_by_batches() {
+    RuleDefinitionDto ruleDefinitionDto = newRule();
+    ruleRepository.add(ruleDefinitionDto.getKey()).setName(ruleDefinitionDto.getName());
+    ComponentDto project = newPrivateProjectDto(newOrganizationDto());
+    ComponentDto file = newFileDto(project);
+    DiskCache<DefaultIssue>.DiskAppender appender = issueCache.newAppender();
+    for (int i = 0; i < SendIssueNotificationsStep.CHANGE_NOTIFICATIONS_BATCH_SIZE + 1; i++) {
+      appender.append(newIssue(ruleDefinitionDto, project, file).toDefaultIssue()
+        .setNew(false).setChanged(true).setSendNotifications(true).setCreationDate(new Date(ANALYSE_DATE)));
+    }
+    appender.close();
+    when(notificationService.hasProjectSubscribersForTypes(PROJECT.getUuid(), SendIssueNotificationsStep.NOTIF_TYPES)).thenReturn(true);
+
+    underTest.execute();
+
+    ArgumentCaptor<Collection> captor = ArgumentCaptor.forClass(Collection.class);
+    verify(notificationService, times(2)).deliver(captor.capture());
+    assertThat(captor.getAllValues()).extracting(Collection::size).containsExactly(SendIssueNotificationsStep.CHANGE_NOTIFICATIONS_BATCH_SIZE, 1);
+  }
+
+  private IssueChangeNotification captureIssueChangeNotification() {
+    ArgumentCaptor<Collection> captor = ArgumentCaptor.forClass(Collection.class);
+    verify(notificationService).deliver(captor.capture());
+    Collection<IssueChangeNotification> notifications = captor.getValue();
+    assertThat(notifications).hasSize(1);
+    return notifications.iterator().next();
+  }
+
   private NewIssuesNotification createNewIssuesNotificationMock() {
     NewIssuesNotification notification = mock(NewIssuesNotification.class);
     when(notification.setProject(any(), any(), any())).thenReturn(notification);
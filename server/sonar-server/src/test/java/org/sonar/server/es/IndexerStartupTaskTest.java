@@ -23,21 +23,30 @@ import com.google.common.collect.ImmutableSet;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.mockito.InOrder;
 import org.mockito.Mockito;
 import org.sonar.api.config.internal.MapSettings;
 import org.sonar.server.es.metadata.MetadataIndex;
 
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.sonar.server.es.FakeIndexDefinition.INDEX_TYPE_FAKE;
+import static org.sonar.server.es.NewIndex.SettingsConfiguration.newBuilder;
 
 public class IndexerStartupTaskTest {
 
+  private static final IndexType INDEX_TYPE_OTHER = new IndexType("others", "other");
+
+  @Rule
+  public EsTester es = new EsTester(new FakeIndexDefinition(), new OtherIndexDefinition());
   @Rule
-  public EsTester es = new EsTester(new FakeIndexDefinition());
+  public ExpectedException expectedException = ExpectedException.none();
 
   private final MapSettings settings = new MapSettings();
   private final MetadataIndex metadataIndex = mock(MetadataIndex.class);
@@ -78,6 +87,51 @@ public class IndexerStartupTaskTest {
     verifyNoMoreInteractions(indexer);
   }
 
+  @Test
+  public void index_sequentially_the_indexers_sharing_the_same_index() {
+    StartupIndexer otherIndexer = mock(StartupIndexer.class);
+    doReturn(ImmutableSet.of(INDEX_TYPE_FAKE)).when(otherIndexer).getIndexTypes();
+    doReturn(false).when(metadataIndex).getInitialized(INDEX_TYPE_FAKE);
+    IndexerStartupTask underTest = new IndexerStartupTask(es.client(), settings.asConfig(), metadataIndex, indexer, otherIndexer);
+
+    underTest.execute();
+
+    InOrder inOrder = inOrder(indexer, otherIndexer);
+    inOrder.verify(indexer).indexOnStartup(ImmutableSet.of(INDEX_TYPE_FAKE));
+    inOrder.verify(otherIndexer).indexOnStartup(ImmutableSet.of(INDEX_TYPE_FAKE));
+  }
+
+  @Test
+  public void index_concurrently_the_indexers_of_different_indices() {
+    StartupIndexer otherIndexer = mock(StartupIndexer.class);
+    doReturn(ImmutableSet.of(INDEX_TYPE_OTHER)).when(otherIndexer).getIndexTypes();
+    doReturn(false).when(metadataIndex).getInitialized(INDEX_TYPE_FAKE);
+    doReturn(false).when(metadataIndex).getInitialized(INDEX_TYPE_OTHER);
+    IndexerStartupTask underTest = new IndexerStartupTask(es.client(), settings.asConfig(), metadataIndex, indexer, otherIndexer);
+
+    underTest.execute();
+
+    verify(indexer).indexOnStartup(ImmutableSet.of(INDEX_TYPE_FAKE));
+    verify(otherIndexer).indexOnStartup(ImmutableSet.of(INDEX_TYPE_OTHER));
+    verify(metadataIndex).setInitialized(eq(INDEX_TYPE_FAKE), eq(true));
+    verify(metadataIndex).setInitialized(eq(INDEX_TYPE_OTHER), eq(true));
+  }
+
+  @Test
+  public void fail_if_an_indexer_of_a_concurrent_lane_fails() {
+    StartupIndexer otherIndexer = mock(StartupIndexer.class);
+    doReturn(ImmutableSet.of(INDEX_TYPE_OTHER)).when(otherIndexer).getIndexTypes();
+    doThrow(new IllegalStateException("Fail to index others")).when(otherIndexer).indexOnStartup(ImmutableSet.of(INDEX_TYPE_OTHER));
+    doReturn(false).when(metadataIndex).getInitialized(INDEX_TYPE_FAKE);
+    doReturn(false).when(metadataIndex).getInitialized(INDEX_TYPE_OTHER);
+    IndexerStartupTask underTest = new IndexerStartupTask(es.client(), settings.asConfig(), metadataIndex, indexer, otherIndexer);
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Fail to index others");
+
+    underTest.execute();
+  }
+
   @Test
   public void do_not_index_if_indexes_are_disabled() {
     settings.setProperty("sonar.internal.es.disableIndexes", "true");
@@ -88,4 +142,12 @@ public class IndexerStartupTaskTest {
     // do not index
     verifyNoMoreInteractions(indexer);
   }
+
+  private static class OtherIndexDefinition implements IndexDefinition {
+    @Override
+    public void define(IndexDefinitionContext context) {
+      NewIndex index = context.create(INDEX_TYPE_OTHER.getIndex(), newBuilder(new MapSettings().asConfig()).build());
+      index.createType(INDEX_TYPE_OTHER.getType());
+    }
+  }
 }
@@ -37,11 +37,10 @@ import static org.mockito.Mockito.when;
 
 public class NewAlertsTest {
 
-  private NotificationManager notificationManager = mock(NotificationManager.class);
   private NotificationDispatcher.Context context = mock(NotificationDispatcher.Context.class);
   private NotificationChannel emailChannel = mock(NotificationChannel.class);
   private NotificationChannel twitterChannel = mock(NotificationChannel.class);
-  private NewAlerts dispatcher = new NewAlerts(notificationManager);
+  private NewAlerts dispatcher = new NewAlerts();
 
   @Test
   public void should_not_dispatch_if_not_alerts_notification() {
@@ -56,7 +55,7 @@ public class NewAlertsTest {
     Multimap<String, NotificationChannel> recipients = HashMultimap.create();
     recipients.put("user1", emailChannel);
     recipients.put("user2", twitterChannel);
-    when(notificationManager.findSubscribedRecipientsForDispatcher(dispatcher, "key_34", new NotificationManager.SubscriberPermissionsOnProject(UserRole.USER)))
+    when(context.findSubscribedRecipients("key_34", new NotificationManager.SubscriberPermissionsOnProject(UserRole.USER)))
       .thenReturn(recipients);
 
     Notification notification = new Notification("alerts")
@@ -65,6 +64,7 @@ public class NewAlertsTest {
 
     verify(context).addUser("user1", emailChannel);
     verify(context).addUser("user2", twitterChannel);
+    verify(context).findSubscribedRecipients("key_34", new NotificationManager.SubscriberPermissionsOnProject(UserRole.USER));
     verifyNoMoreInteractions(context);
   }
 
@@ -73,7 +73,7 @@ public class NewAlertsTest {
     Multimap<String, NotificationChannel> recipients = HashMultimap.create();
     recipients.put("user1", emailChannel);
     recipients.put("user2", twitterChannel);
-    when(notificationManager.findSubscribedRecipientsForDispatcher(dispatcher, "key_34", new NotificationManager.SubscriberPermissionsOnProject(UserRole.USER)))
+    when(context.findSubscribedRecipients("key_34", new NotificationManager.SubscriberPermissionsOnProject(UserRole.USER)))
       .thenReturn(recipients);
 
     Notification notification = new Notification("alerts");
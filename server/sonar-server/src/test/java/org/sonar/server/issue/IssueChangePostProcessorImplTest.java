@@ -0,0 +1,129 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue;
+
+import java.util.Collection;
+import java.util.List;
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.server.measure.live.LiveMeasureComputer;
+import org.sonar.server.qualitygate.changeevent.QGChangeEventListeners;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollection;
+import static org.mockito.Matchers.anyList;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import static org.sonar.db.component.ComponentTesting.newFileDto;
+import static org.sonar.db.component.ComponentTesting.newPrivateProjectDto;
+import static org.sonar.db.organization.OrganizationTesting.newOrganizationDto;
+
+public class IssueChangePostProcessorImplTest {
+
+  private DbClient dbClient = mock(DbClient.class);
+  private DbSession dbSession = mock(DbSession.class);
+  private LiveMeasureComputer liveMeasureComputer = mock(LiveMeasureComputer.class);
+  private QGChangeEventListeners qualityGateListeners = mock(QGChangeEventListeners.class);
+  private MapSettings settings = new MapSettings();
+  private IssueChangePostProcessorImpl underTest;
+
+  private ComponentDto project = newPrivateProjectDto(newOrganizationDto());
+  private ComponentDto file1 = newFileDto(project);
+  private ComponentDto file2 = newFileDto(project);
+
+  @After
+  public void tearDown() {
+    if (underTest != null) {
+      underTest.stop();
+    }
+  }
+
+  @Test
+  public void refresh_synchronously_by_default() {
+    startUnderTest();
+    List<DefaultIssue> issues = singletonList(newIssue("I1"));
+
+    underTest.process(dbSession, issues, singletonList(file1));
+
+    verify(liveMeasureComputer).refresh(dbSession, singletonList(file1));
+    verify(qualityGateListeners).broadcastOnIssueChange(eq(issues), anyCollection());
+  }
+
+  @Test
+  public void merge_changes_of_same_project_when_refresh_is_delayed() {
+    settings.setProperty(IssueChangePostProcessorImpl.PROPERTY_REFRESH_DELAY, 60_000L);
+    when(dbClient.openSession(false)).thenReturn(dbSession);
+    startUnderTest();
+
+    DefaultIssue issue = newIssue("I1");
+    underTest.process(dbSession, singletonList(issue), singletonList(file1));
+    underTest.process(dbSession, asList(issue, newIssue("I2")), asList(file1, file2));
+    verifyZeroInteractions(liveMeasureComputer, qualityGateListeners);
+
+    underTest.refreshPending(project.uuid());
+
+    ArgumentCaptor<Collection> componentsCaptor = ArgumentCaptor.forClass(Collection.class);
+    verify(liveMeasureComputer, times(1)).refresh(eq(dbSession), componentsCaptor.capture());
+    assertThat(componentsCaptor.getValue()).containsExactlyInAnyOrder(file1, file2);
+    ArgumentCaptor<List> issuesCaptor = ArgumentCaptor.forClass(List.class);
+    verify(qualityGateListeners).broadcastOnIssueChange(issuesCaptor.capture(), anyCollection());
+    assertThat(issuesCaptor.getValue()).extracting("key").containsExactly("I1", "I2");
+
+    // nothing left to refresh
+    underTest.refreshPending(project.uuid());
+    verify(liveMeasureComputer, times(1)).refresh(any(DbSession.class), anyCollection());
+  }
+
+  @Test
+  public void pending_changes_are_refreshed_on_stop() {
+    settings.setProperty(IssueChangePostProcessorImpl.PROPERTY_REFRESH_DELAY, 60_000L);
+    when(dbClient.openSession(false)).thenReturn(dbSession);
+    startUnderTest();
+
+    underTest.process(dbSession, singletonList(newIssue("I1")), singletonList(file1));
+    underTest.stop();
+    underTest = null;
+
+    verify(liveMeasureComputer).refresh(eq(dbSession), anyCollection());
+    verify(qualityGateListeners).broadcastOnIssueChange(anyList(), anyCollection());
+  }
+
+  private void startUnderTest() {
+    underTest = new IssueChangePostProcessorImpl(dbClient, settings.asConfig(), liveMeasureComputer, qualityGateListeners);
+    underTest.start();
+  }
+
+  private DefaultIssue newIssue(String key) {
+    return new DefaultIssue().setKey(key).setProjectUuid(project.uuid()).setComponentUuid(file1.uuid());
+  }
+}
@@ -105,6 +105,34 @@ public class IssueIndexerTest {
     assertThatIndexHasOnly(issue1, issue2);
   }
 
+  @Test
+  public void indexOnStartup_indexes_issues_of_all_projects_and_branches() {
+    RuleDefinitionDto rule = db.rules().insert();
+    ComponentDto project1 = db.components().insertPrivateProject(organization);
+    ComponentDto project2 = db.components().insertPrivateProject(organization);
+    ComponentDto branch = db.components().insertProjectBranch(project1, b -> b.setKey("feature/foo"));
+    IssueDto issue1 = db.issues().insertIssue(IssueTesting.newIssue(rule, project1, db.components().insertComponent(newFileDto(project1))));
+    IssueDto issue2 = db.issues().insertIssue(IssueTesting.newIssue(rule, project2, db.components().insertComponent(newFileDto(project2))));
+    IssueDto issue3 = db.issues().insertIssue(IssueTesting.newIssue(rule, branch, db.components().insertComponent(newFileDto(branch))));
+
+    underTest.indexOnStartup(emptySet());
+
+    assertThatIndexHasOnly(issue1, issue2, issue3);
+  }
+
+  @Test
+  public void indexOnStartup_does_not_index_issues_of_disabled_projects() {
+    RuleDefinitionDto rule = db.rules().insert();
+    ComponentDto project = db.components().insertPrivateProject(organization);
+    ComponentDto disabledProject = db.components().insertPrivateProject(organization, p -> p.setEnabled(false));
+    IssueDto issue = db.issues().insertIssue(IssueTesting.newIssue(rule, project, db.components().insertComponent(newFileDto(project))));
+    db.issues().insertIssue(IssueTesting.newIssue(rule, disabledProject, db.components().insertComponent(newFileDto(disabledProject))));
+
+    underTest.indexOnStartup(emptySet());
+
+    assertThatIndexHasOnly(issue);
+  }
+
   @Test
   public void verify_indexed_fields() {
     RuleDefinitionDto rule = db.rules().insert();
@@ -33,18 +33,18 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 public class ChangesOnMyIssueNotificationDispatcherTest {
 
-  private NotificationManager notifications = mock(NotificationManager.class);
   private NotificationDispatcher.Context context = mock(NotificationDispatcher.Context.class);
   private NotificationChannel emailChannel = mock(NotificationChannel.class);
   private NotificationChannel twitterChannel = mock(NotificationChannel.class);
 
-  private ChangesOnMyIssueNotificationDispatcher underTest = new ChangesOnMyIssueNotificationDispatcher(notifications);
+  private ChangesOnMyIssueNotificationDispatcher underTest = new ChangesOnMyIssueNotificationDispatcher();
 
   @Test
   public void test_metadata() {
@@ -68,7 +68,7 @@ public class ChangesOnMyIssueNotificationDispatcherTest {
     recipients.put("simon", emailChannel);
     recipients.put("freddy", twitterChannel);
     recipients.put("godin", twitterChannel);
-    when(notifications.findSubscribedRecipientsForDispatcher(underTest, "struts",
+    when(context.findSubscribedRecipients("struts",
       new NotificationManager.SubscriberPermissionsOnProject(UserRole.USER))).thenReturn(recipients);
 
     Notification notification = new IssueChangeNotification()
@@ -79,6 +79,7 @@ public class ChangesOnMyIssueNotificationDispatcherTest {
 
     verify(context).addUser("freddy", twitterChannel);
     verify(context, never()).addUser("godin", twitterChannel);
+    verify(context).findSubscribedRecipients("struts", new NotificationManager.SubscriberPermissionsOnProject(UserRole.USER));
     verifyNoMoreInteractions(context);
   }
 
@@ -88,7 +89,7 @@ public class ChangesOnMyIssueNotificationDispatcherTest {
     recipients.put("simon", emailChannel);
     recipients.put("freddy", twitterChannel);
     recipients.put("godin", twitterChannel);
-    when(notifications.findSubscribedRecipientsForDispatcher(underTest, "uuid1", new NotificationManager.SubscriberPermissionsOnProject(UserRole.USER))).thenReturn(recipients);
+    when(context.findSubscribedRecipients("uuid1", new NotificationManager.SubscriberPermissionsOnProject(UserRole.USER))).thenReturn(recipients);
 
     // change author is the assignee
     underTest.performDispatch(
@@ -103,6 +104,7 @@ public class ChangesOnMyIssueNotificationDispatcherTest {
     underTest.performDispatch(new IssueChangeNotification().setFieldValue("projectKey", "struts")
       .setFieldValue("new.resolution", "FIXED"), context);
 
+    verify(context, times(2)).findSubscribedRecipients("struts", new NotificationManager.SubscriberPermissionsOnProject(UserRole.USER));
     verifyNoMoreInteractions(context);
   }
 }
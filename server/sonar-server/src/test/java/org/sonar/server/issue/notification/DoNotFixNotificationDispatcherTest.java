@@ -40,11 +40,10 @@ import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 public class DoNotFixNotificationDispatcherTest {
-  NotificationManager notifications = mock(NotificationManager.class);
   NotificationDispatcher.Context context = mock(NotificationDispatcher.Context.class);
   NotificationChannel emailChannel = mock(NotificationChannel.class);
   NotificationChannel twitterChannel = mock(NotificationChannel.class);
-  DoNotFixNotificationDispatcher underTest = new DoNotFixNotificationDispatcher(notifications);
+  DoNotFixNotificationDispatcher underTest = new DoNotFixNotificationDispatcher();
 
   @Test
   public void test_metadata() {
@@ -68,7 +67,7 @@ public class DoNotFixNotificationDispatcherTest {
     recipients.put("simon", emailChannel);
     recipients.put("freddy", twitterChannel);
     recipients.put("godin", twitterChannel);
-    when(notifications.findSubscribedRecipientsForDispatcher(underTest, "struts", new NotificationManager.SubscriberPermissionsOnProject(UserRole.USER))).thenReturn(recipients);
+    when(context.findSubscribedRecipients("struts", new NotificationManager.SubscriberPermissionsOnProject(UserRole.USER))).thenReturn(recipients);
 
     Notification fpNotif = new IssueChangeNotification()
       .setFieldValue("projectKey", "struts")
@@ -81,6 +80,7 @@ public class DoNotFixNotificationDispatcherTest {
     verify(context).addUser("freddy", twitterChannel);
     // do not notify the person who flagged the issue as false-positive
     verify(context, never()).addUser("godin", twitterChannel);
+    verify(context).findSubscribedRecipients("struts", new NotificationManager.SubscriberPermissionsOnProject(UserRole.USER));
     verifyNoMoreInteractions(context);
   }
 
@@ -35,7 +35,6 @@ public class MyNewIssuesNotificationDispatcherTest {
 
   private MyNewIssuesNotificationDispatcher underTest;
 
-  private NotificationManager notificationManager = mock(NotificationManager.class);
   private NotificationDispatcher.Context context = mock(NotificationDispatcher.Context.class);
   private NotificationChannel emailChannel = mock(NotificationChannel.class);
   private NotificationChannel twitterChannel = mock(NotificationChannel.class);
@@ -43,7 +42,7 @@ public class MyNewIssuesNotificationDispatcherTest {
 
   @Before
   public void setUp() {
-    underTest = new MyNewIssuesNotificationDispatcher(notificationManager);
+    underTest = new MyNewIssuesNotificationDispatcher();
   }
 
   @Test
@@ -59,7 +58,7 @@ public class MyNewIssuesNotificationDispatcherTest {
     Multimap<String, NotificationChannel> recipients = HashMultimap.create();
     recipients.put("user1", emailChannel);
     recipients.put("user2", twitterChannel);
-    when(notificationManager.findSubscribedRecipientsForDispatcher(underTest, "struts", new NotificationManager.SubscriberPermissionsOnProject(UserRole.USER))).thenReturn(recipients);
+    when(context.findSubscribedRecipients("struts", new NotificationManager.SubscriberPermissionsOnProject(UserRole.USER))).thenReturn(recipients);
 
     Notification notification = new Notification(MyNewIssuesNotification.MY_NEW_ISSUES_NOTIF_TYPE)
       .setFieldValue("projectKey", "struts")
@@ -67,6 +66,7 @@ public class MyNewIssuesNotificationDispatcherTest {
     underTest.performDispatch(notification, context);
 
     verify(context).addUser("user1", emailChannel);
+    verify(context).findSubscribedRecipients("struts", new NotificationManager.SubscriberPermissionsOnProject(UserRole.USER));
     verifyNoMoreInteractions(context);
   }
 }
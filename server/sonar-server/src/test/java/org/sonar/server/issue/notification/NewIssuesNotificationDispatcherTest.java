@@ -33,7 +33,6 @@ import static org.mockito.Mockito.*;
 
 public class NewIssuesNotificationDispatcherTest {
 
-  private NotificationManager notifications = mock(NotificationManager.class);
   private NotificationDispatcher.Context context = mock(NotificationDispatcher.Context.class);
   private NotificationChannel emailChannel = mock(NotificationChannel.class);
   private NotificationChannel twitterChannel = mock(NotificationChannel.class);
@@ -41,7 +40,7 @@ public class NewIssuesNotificationDispatcherTest {
 
   @Before
   public void setUp() {
-    dispatcher = new NewIssuesNotificationDispatcher(notifications);
+    dispatcher = new NewIssuesNotificationDispatcher();
   }
 
   @Test
@@ -57,7 +56,7 @@ public class NewIssuesNotificationDispatcherTest {
     Multimap<String, NotificationChannel> recipients = HashMultimap.create();
     recipients.put("user1", emailChannel);
     recipients.put("user2", twitterChannel);
-    when(notifications.findSubscribedRecipientsForDispatcher(dispatcher, "struts", new NotificationManager.SubscriberPermissionsOnProject(UserRole.USER))).thenReturn(recipients);
+    when(context.findSubscribedRecipients("struts", new NotificationManager.SubscriberPermissionsOnProject(UserRole.USER))).thenReturn(recipients);
 
     Notification notification = new Notification(NewIssuesNotification.TYPE)
       .setFieldValue("projectKey", "struts");
@@ -65,6 +64,7 @@ public class NewIssuesNotificationDispatcherTest {
 
     verify(context).addUser("user1", emailChannel);
     verify(context).addUser("user2", twitterChannel);
+    verify(context).findSubscribedRecipients("struts", new NotificationManager.SubscriberPermissionsOnProject(UserRole.USER));
     verifyNoMoreInteractions(context);
   }
 }
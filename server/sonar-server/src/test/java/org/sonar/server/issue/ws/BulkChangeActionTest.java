@@ -20,6 +20,7 @@
 package org.sonar.server.issue.ws;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -31,6 +32,7 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.mockito.ArgumentCaptor;
 import org.sonar.api.config.internal.MapSettings;
+import org.sonar.api.notifications.Notification;
 import org.sonar.api.rules.RuleType;
 import org.sonar.api.server.ws.WebService;
 import org.sonar.api.utils.System2;
@@ -53,7 +55,6 @@ import org.sonar.server.issue.TransitionService;
 import org.sonar.server.issue.index.IssueIndexDefinition;
 import org.sonar.server.issue.index.IssueIndexer;
 import org.sonar.server.issue.index.IssueIteratorFactory;
-import org.sonar.server.issue.notification.IssueChangeNotification;
 import org.sonar.server.issue.workflow.FunctionExecutor;
 import org.sonar.server.issue.workflow.IssueWorkflow;
 import org.sonar.server.notification.NotificationManager;
@@ -270,15 +271,16 @@ public class BulkChangeActionTest {
 
     checkResponse(response, 1, 1, 0, 0);
 
-    ArgumentCaptor<IssueChangeNotification> issueChangeNotificationCaptor = ArgumentCaptor.forClass(IssueChangeNotification.class);
-    verify(notificationManager).scheduleForSending(issueChangeNotificationCaptor.capture());
-    assertThat(issueChangeNotificationCaptor.getValue().getFieldValue("key")).isEqualTo(issueDto.getKey());
-    assertThat(issueChangeNotificationCaptor.getValue().getFieldValue("componentName")).isEqualTo(file.longName());
-    assertThat(issueChangeNotificationCaptor.getValue().getFieldValue("projectName")).isEqualTo(project.name());
-    assertThat(issueChangeNotificationCaptor.getValue().getFieldValue("projectKey")).isEqualTo(project.getDbKey());
-    assertThat(issueChangeNotificationCaptor.getValue().getFieldValue("ruleName")).isEqualTo(rule.getName());
-    assertThat(issueChangeNotificationCaptor.getValue().getFieldValue("changeAuthor")).isEqualTo(user.getLogin());
-    assertThat(issueChangeNotificationCaptor.getValue().getFieldValue("branch")).isNull();
+    List<Notification> notifications = verifyNotificationsScheduled();
+    assertThat(notifications).hasSize(1);
+    Notification notification = notifications.get(0);
+    assertThat(notification.getFieldValue("key")).isEqualTo(issueDto.getKey());
+    assertThat(notification.getFieldValue("componentName")).isEqualTo(file.longName());
+    assertThat(notification.getFieldValue("projectName")).isEqualTo(project.name());
+    assertThat(notification.getFieldValue("projectKey")).isEqualTo(project.getDbKey());
+    assertThat(notification.getFieldValue("ruleName")).isEqualTo(rule.getName());
+    assertThat(notification.getFieldValue("changeAuthor")).isEqualTo(user.getLogin());
+    assertThat(notification.getFieldValue("branch")).isNull();
   }
 
   @Test
@@ -298,15 +300,16 @@ public class BulkChangeActionTest {
 
     checkResponse(response, 1, 1, 0, 0);
 
-    ArgumentCaptor<IssueChangeNotification> issueChangeNotificationCaptor = ArgumentCaptor.forClass(IssueChangeNotification.class);
-    verify(notificationManager).scheduleForSending(issueChangeNotificationCaptor.capture());
-    assertThat(issueChangeNotificationCaptor.getValue().getFieldValue("key")).isEqualTo(issueDto.getKey());
-    assertThat(issueChangeNotificationCaptor.getValue().getFieldValue("componentName")).isEqualTo(fileOnBranch.longName());
-    assertThat(issueChangeNotificationCaptor.getValue().getFieldValue("projectName")).isEqualTo(project.name());
-    assertThat(issueChangeNotificationCaptor.getValue().getFieldValue("projectKey")).isEqualTo(project.getDbKey());
-    assertThat(issueChangeNotificationCaptor.getValue().getFieldValue("ruleName")).isEqualTo(rule.getName());
-    assertThat(issueChangeNotificationCaptor.getValue().getFieldValue("changeAuthor")).isEqualTo(user.getLogin());
-    assertThat(issueChangeNotificationCaptor.getValue().getFieldValue("branch")).isEqualTo(branchName);
+    List<Notification> notifications = verifyNotificationsScheduled();
+    assertThat(notifications).hasSize(1);
+    Notification notification = notifications.get(0);
+    assertThat(notification.getFieldValue("key")).isEqualTo(issueDto.getKey());
+    assertThat(notification.getFieldValue("componentName")).isEqualTo(fileOnBranch.longName());
+    assertThat(notification.getFieldValue("projectName")).isEqualTo(project.name());
+    assertThat(notification.getFieldValue("projectKey")).isEqualTo(project.getDbKey());
+    assertThat(notification.getFieldValue("ruleName")).isEqualTo(rule.getName());
+    assertThat(notification.getFieldValue("changeAuthor")).isEqualTo(user.getLogin());
+    assertThat(notification.getFieldValue("branch")).isEqualTo(branchName);
 
     verifyPostProcessorCalled(fileOnBranch);
   }
@@ -317,8 +320,6 @@ public class BulkChangeActionTest {
     IssueDto issue1 = db.issues().insertIssue(newUnresolvedIssue().setType(BUG));
     IssueDto issue2 = db.issues().insertIssue(newUnresolvedIssue().setType(BUG));
     IssueDto issue3 = db.issues().insertIssue(newUnresolvedIssue().setType(VULNERABILITY));
-    ArgumentCaptor<IssueChangeNotification> issueChangeNotificationCaptor = ArgumentCaptor.forClass(IssueChangeNotification.class);
-
     BulkChangeWsResponse response = call(builder()
       .setIssues(asList(issue1.getKey(), issue2.getKey(), issue3.getKey()))
       .setSetType(RuleType.BUG.name())
@@ -326,9 +327,9 @@ public class BulkChangeActionTest {
       .build());
 
     checkResponse(response, 3, 1, 2, 0);
-    verify(notificationManager).scheduleForSending(issueChangeNotificationCaptor.capture());
-    assertThat(issueChangeNotificationCaptor.getAllValues()).hasSize(1);
-    assertThat(issueChangeNotificationCaptor.getValue().getFieldValue("key")).isEqualTo(issue3.getKey());
+    List<Notification> notifications = verifyNotificationsScheduled();
+    assertThat(notifications).hasSize(1);
+    assertThat(notifications.get(0).getFieldValue("key")).isEqualTo(issue3.getKey());
 
     verifyPostProcessorCalled(file);
   }
@@ -573,6 +574,12 @@ public class BulkChangeActionTest {
     return db.getDbClient().issueDao().selectByKeys(db.getSession(), asList(issueKeys));
   }
 
+  private List<Notification> verifyNotificationsScheduled() {
+    ArgumentCaptor<Collection<Notification>> notificationsCaptor = ArgumentCaptor.forClass((Class) Collection.class);
+    verify(notificationManager).scheduleForSending(notificationsCaptor.capture());
+    return new ArrayList<>(notificationsCaptor.getValue());
+  }
+
   private void verifyPostProcessorCalled(ComponentDto... components) {
     assertThat(issueChangePostProcessor.calledComponents()).containsExactlyInAnyOrder(components);
   }
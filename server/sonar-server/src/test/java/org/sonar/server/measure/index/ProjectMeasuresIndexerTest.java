@@ -21,6 +21,8 @@ package org.sonar.server.measure.index;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.search.SearchHit;
 import org.junit.Rule;
@@ -32,15 +34,19 @@ import org.sonar.db.DbTester;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.SnapshotDto;
 import org.sonar.db.es.EsQueueDto;
+import org.sonar.db.metric.MetricDto;
 import org.sonar.db.organization.OrganizationDto;
 import org.sonar.server.es.EsTester;
 import org.sonar.server.es.IndexingResult;
 import org.sonar.server.es.ProjectIndexer;
 
+import static com.google.common.collect.ImmutableMap.of;
 import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
 import static java.util.Collections.emptySet;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.elasticsearch.index.query.QueryBuilders.boolQuery;
 import static org.elasticsearch.index.query.QueryBuilders.termQuery;
 import static org.sonar.db.component.ComponentTesting.newPrivateProjectDto;
@@ -48,6 +54,8 @@ import static org.sonar.server.es.ProjectIndexer.Cause.PROJECT_CREATION;
 import static org.sonar.server.es.ProjectIndexer.Cause.PROJECT_DELETION;
 import static org.sonar.server.es.ProjectIndexer.Cause.PROJECT_KEY_UPDATE;
 import static org.sonar.server.es.ProjectIndexer.Cause.PROJECT_TAGS_UPDATE;
+import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.FIELD_MEASURES;
+import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.FIELD_QUALITY_GATE_STATUS;
 import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.FIELD_TAGS;
 import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.INDEX_TYPE_PROJECT_MEASURES;
 
@@ -209,6 +217,58 @@ public class ProjectMeasuresIndexerTest {
     assertThat(es.countDocuments(INDEX_TYPE_PROJECT_MEASURES)).isEqualTo(0);
   }
 
+  @Test
+  public void commitAndIndexMeasures_updates_only_changed_measures() {
+    ComponentDto project = db.components().insertPrivateProject();
+    MetricDto ncloc = db.measures().insertMetric(m -> m.setKey("ncloc"));
+    MetricDto coverage = db.measures().insertMetric(m -> m.setKey("coverage"));
+    db.measures().insertLiveMeasure(project, ncloc, m -> m.setValue(10d));
+    db.measures().insertLiveMeasure(project, coverage, m -> m.setValue(50d));
+    underTest.indexOnAnalysis(project.uuid());
+
+    IndexingResult result = underTest.commitAndIndexMeasures(db.getSession(), project.uuid(), of("coverage", 80d, "unknown_metric", 1d), "ERROR");
+
+    assertThat(result.getTotal()).isEqualTo(1L);
+    assertThat(result.getSuccess()).isEqualTo(1L);
+    assertThatIndexContainsOnly(project);
+    Map<String, Object> source = es.getDocuments(INDEX_TYPE_PROJECT_MEASURES).get(0).getSource();
+    assertThat((List<Map<String, Object>>) source.get(FIELD_MEASURES))
+      .extracting(m -> m.get("key"), m -> ((Number) m.get("value")).doubleValue())
+      .containsExactlyInAnyOrder(tuple("ncloc", 10d), tuple("coverage", 80d));
+    assertThat(source.get(FIELD_QUALITY_GATE_STATUS)).isEqualTo(ProjectMeasuresDoc.QUALITY_GATE_STATUS.get("ERROR"));
+    assertThatEsQueueTableHasSize(0);
+  }
+
+  @Test
+  public void commitAndIndexMeasures_indexes_whole_project_if_document_does_not_exist() {
+    ComponentDto project = db.components().insertPrivateProject();
+
+    IndexingResult result = underTest.commitAndIndexMeasures(db.getSession(), project.uuid(), emptyMap(), null);
+
+    assertThat(result.getTotal()).isEqualTo(1L);
+    assertThat(result.getSuccess()).isEqualTo(1L);
+    assertThatIndexContainsOnly(project);
+    assertThatEsQueueTableHasSize(0);
+  }
+
+  @Test
+  public void errors_during_partial_update_are_recovered() {
+    ComponentDto project = db.components().insertPrivateProject();
+    underTest.indexOnAnalysis(project.uuid());
+    es.lockWrites(INDEX_TYPE_PROJECT_MEASURES);
+
+    IndexingResult result = underTest.commitAndIndexMeasures(db.getSession(), project.uuid(), of("coverage", 80d), null);
+    assertThat(result.getFailures()).isEqualTo(1L);
+    assertThatEsQueueTableHasSize(1);
+
+    es.unlockWrites(INDEX_TYPE_PROJECT_MEASURES);
+
+    result = recover();
+    assertThat(result.getFailures()).isEqualTo(0L);
+    assertThatEsQueueTableHasSize(0);
+    assertThatIndexContainsOnly(project);
+  }
+
   private IndexingResult indexProject(ComponentDto project, ProjectIndexer.Cause cause) {
     DbSession dbSession = db.getSession();
     Collection<EsQueueDto> items = underTest.prepareForRecovery(dbSession, singletonList(project.uuid()), cause);
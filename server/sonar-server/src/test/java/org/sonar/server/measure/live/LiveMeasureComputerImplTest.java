@@ -48,8 +48,7 @@ import org.sonar.db.measure.LiveMeasureDto;
 import org.sonar.db.metric.MetricDto;
 import org.sonar.db.organization.OrganizationDto;
 import org.sonar.server.computation.task.projectanalysis.qualitymodel.Rating;
-import org.sonar.server.es.ProjectIndexer;
-import org.sonar.server.es.TestProjectIndexers;
+import org.sonar.server.measure.index.ProjectMeasuresIndexer;
 import org.sonar.server.qualitygate.EvaluatedQualityGate;
 import org.sonar.server.qualitygate.QualityGate;
 import org.sonar.server.qualitygate.changeevent.QGChangeEvent;
@@ -61,9 +60,12 @@ import static java.util.Collections.emptyList;
 import static java.util.Collections.singleton;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.same;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.sonar.api.resources.Qualifiers.ORDERED_BOTTOM_UP;
@@ -76,7 +78,7 @@ public class LiveMeasureComputerImplTest {
   @Rule
   public ExpectedException expectedException = ExpectedException.none();
 
-  private TestProjectIndexers projectIndexer = new TestProjectIndexers();
+  private ProjectMeasuresIndexer projectMeasuresIndexer = mock(ProjectMeasuresIndexer.class);
   private MetricDto intMetric;
   private MetricDto ratingMetric;
   private MetricDto alertStatusMetric;
@@ -374,7 +376,7 @@ public class LiveMeasureComputerImplTest {
     MapSettings settings = new MapSettings(new PropertyDefinitions(CorePropertyDefinitions.all()));
     ProjectConfigurationLoader configurationLoader = new TestProjectConfigurationLoader(settings.asConfig());
 
-    LiveMeasureComputerImpl underTest = new LiveMeasureComputerImpl(db.getDbClient(), formulaFactory, qGateComputer, configurationLoader, projectIndexer);
+    LiveMeasureComputerImpl underTest = new LiveMeasureComputerImpl(db.getDbClient(), formulaFactory, qGateComputer, configurationLoader, projectMeasuresIndexer);
 
     return underTest.refresh(db.getSession(), components);
   }
@@ -465,7 +467,7 @@ public class LiveMeasureComputerImplTest {
 
   private void assertThatProjectChanged(List<QGChangeEvent> events, ComponentDto... projects) {
     for (ComponentDto p : projects) {
-      assertThat(projectIndexer.hasBeenCalled(p.uuid(), ProjectIndexer.Cause.MEASURE_CHANGE)).isTrue();
+      verify(projectMeasuresIndexer).commitAndIndexMeasures(any(DbSession.class), eq(p.uuid()), anyMapOf(String.class, Double.class), any());
     }
 
     assertThat(events).extracting(e -> e.getProject().uuid())
@@ -473,7 +475,7 @@ public class LiveMeasureComputerImplTest {
   }
 
   private void assertThatProjectNotChanged(List<QGChangeEvent> events, ComponentDto project) {
-    assertThat(projectIndexer.hasBeenCalled(project.uuid(), ProjectIndexer.Cause.MEASURE_CHANGE)).isFalse();
+    verify(projectMeasuresIndexer, never()).commitAndIndexMeasures(any(DbSession.class), anyString(), anyMapOf(String.class, Double.class), any());
     assertThat(events).hasSize(0);
   }
 }
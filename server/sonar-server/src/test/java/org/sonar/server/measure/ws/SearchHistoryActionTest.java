@@ -38,6 +38,7 @@ import org.sonar.db.DbTester;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.SnapshotDto;
 import org.sonar.db.measure.MeasureDto;
+import org.sonar.db.measure.MeasureHistoryDto;
 import org.sonar.db.metric.MetricDto;
 import org.sonar.db.organization.OrganizationDto;
 import org.sonar.server.component.TestComponentFinder;
@@ -231,6 +232,50 @@ public class SearchHistoryActionTest {
       analysisDates.get(1), analysisDates.get(2), analysisDates.get(3));
   }
 
+  @Test
+  public void read_measures_of_project_from_history() {
+    project = db.components().insertPrivateProject();
+    userSession.addProjectPermission(UserRole.USER, project);
+    SnapshotDto firstAnalysis = dbClient.snapshotDao().insert(dbSession, newAnalysis(project).setCreatedAt(1_000_000_000L));
+    SnapshotDto secondAnalysis = dbClient.snapshotDao().insert(dbSession, newAnalysis(project).setCreatedAt(2_000_000_000L));
+    dbClient.measureDao().insertHistory(dbSession, new MeasureHistoryDto()
+      .setComponentUuid(project.uuid())
+      .setMetricId(complexityMetric.getId())
+      .addMeasure(firstAnalysis.getCreatedAt(), newMeasureDto(complexityMetric, project, firstAnalysis).setValue(10d))
+      .addMeasure(secondAnalysis.getCreatedAt(), newMeasureDto(complexityMetric, project, secondAnalysis).setValue(20d)));
+    // measures of metrics without history are read from table project_measures
+    dbClient.measureDao().insert(dbSession, newMeasureDto(nclocMetric, project, secondAnalysis).setValue(300d));
+    db.commit();
+    wsRequest.setComponent(project.getDbKey()).setMetrics(Arrays.asList(complexityMetric.getKey(), nclocMetric.getKey()));
+
+    SearchHistoryResponse result = call();
+
+    assertThat(result.getMeasures(0).getHistoryList()).extracting(HistoryValue::getDate, HistoryValue::getValue).containsExactly(
+      tuple(formatDateTime(firstAnalysis.getCreatedAt()), "10"),
+      tuple(formatDateTime(secondAnalysis.getCreatedAt()), "20"));
+    assertThat(result.getMeasures(1).getHistoryList()).extracting(HistoryValue::getValue).containsExactly("", "300");
+  }
+
+  @Test
+  public void apply_from_and_to_dates_on_history() {
+    project = db.components().insertPrivateProject();
+    userSession.addProjectPermission(UserRole.USER, project);
+    MeasureHistoryDto history = new MeasureHistoryDto().setComponentUuid(project.uuid()).setMetricId(complexityMetric.getId());
+    List<String> analysisDates = LongStream.rangeClosed(1, 5)
+      .mapToObj(i -> dbClient.snapshotDao().insert(dbSession, newAnalysis(project).setCreatedAt(System2.INSTANCE.now() + i * 1_000_000_000L)))
+      .peek(a -> history.addMeasure(a.getCreatedAt(), newMeasureDto(complexityMetric, project, a).setValue(Double.valueOf(a.getCreatedAt()))))
+      .map(a -> formatDateTime(a.getCreatedAt()))
+      .collect(MoreCollectors.toList());
+    dbClient.measureDao().insertHistory(dbSession, history);
+    db.commit();
+    wsRequest.setComponent(project.getDbKey()).setMetrics(singletonList(complexityMetric.getKey())).setFrom(analysisDates.get(1)).setTo(analysisDates.get(3));
+
+    SearchHistoryResponse result = call();
+
+    assertThat(result.getMeasures(0).getHistoryList()).extracting(HistoryValue::getDate).containsExactly(
+      analysisDates.get(1), analysisDates.get(2), analysisDates.get(3));
+  }
+
   @Test
   public void return_best_values_for_files() {
     dbClient.metricDao().insert(dbSession, newMetricDto().setKey("optimized").setValueType(ValueType.INT.name()).setOptimizedBestValue(true).setBestValue(456d));
@@ -23,11 +23,13 @@ import com.google.common.collect.Multimap;
 import java.io.InvalidClassException;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import org.apache.commons.lang.RandomStringUtils;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InOrder;
 import org.sonar.api.notifications.Notification;
 import org.sonar.api.notifications.NotificationChannel;
@@ -50,9 +52,11 @@ import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.only;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 import static org.mockito.internal.verification.VerificationModeFactory.times;
 
@@ -98,6 +102,22 @@ public class DefaultNotificationManagerTest {
     verify(notificationQueueDao, only()).insert(any(List.class));
   }
 
+  @Test
+  public void shouldPersistBatchInSingleInsert() {
+    underTest.scheduleForSending(Arrays.asList(new Notification("test"), new Notification("test")));
+
+    ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+    verify(notificationQueueDao, only()).insert(captor.capture());
+    assertThat(captor.getValue()).hasSize(2);
+  }
+
+  @Test
+  public void shouldNotPersistEmptyBatch() {
+    underTest.scheduleForSending(Collections.emptyList());
+
+    verifyZeroInteractions(notificationQueueDao);
+  }
+
   @Test
   public void shouldGetFromQueueAndDelete() {
     Notification notification = new Notification("test");
@@ -105,13 +125,32 @@ public class DefaultNotificationManagerTest {
     List<NotificationQueueDto> dtos = Arrays.asList(dto);
     when(notificationQueueDao.selectOldest(1)).thenReturn(dtos);
 
-    assertThat(underTest.getFromQueue()).isNotNull();
+    assertThat(underTest.getFromQueue(1)).hasSize(1);
 
     InOrder inOrder = inOrder(notificationQueueDao);
     inOrder.verify(notificationQueueDao).selectOldest(1);
     inOrder.verify(notificationQueueDao).delete(dtos);
   }
 
+  @Test
+  public void shouldGetBatchFromQueue() {
+    List<NotificationQueueDto> dtos = Arrays.asList(
+      NotificationQueueDto.toNotificationQueueDto(new Notification("first")),
+      NotificationQueueDto.toNotificationQueueDto(new Notification("second")));
+    when(notificationQueueDao.selectOldest(10)).thenReturn(dtos);
+
+    assertThat(underTest.getFromQueue(10)).extracting(Notification::getType).containsExactly("first", "second");
+
+    verify(notificationQueueDao).delete(dtos);
+  }
+
+  @Test
+  public void shouldGetEmptyBatchWhenQueueIsEmpty() {
+    assertThat(underTest.getFromQueue(10)).isEmpty();
+
+    verify(notificationQueueDao, never()).delete(any(List.class));
+  }
+
   // SONAR-4739
   @Test
   public void shouldNotFailWhenUnableToDeserialize() throws Exception {
@@ -121,8 +160,8 @@ public class DefaultNotificationManagerTest {
     when(notificationQueueDao.selectOldest(1)).thenReturn(dtos);
 
     underTest = spy(underTest);
-    assertThat(underTest.getFromQueue()).isNull();
-    assertThat(underTest.getFromQueue()).isNull();
+    assertThat(underTest.getFromQueue(1)).isEmpty();
+    assertThat(underTest.getFromQueue(1)).isEmpty();
 
     verify(underTest, times(1)).logDeserializationIssue();
   }
@@ -19,9 +19,11 @@
  */
 package org.sonar.server.notification;
 
+import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.Sets;
 import java.util.Arrays;
 import org.junit.Test;
+import org.mockito.InOrder;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import org.sonar.api.config.PropertyDefinitions;
@@ -32,17 +34,24 @@ import org.sonar.api.notifications.NotificationChannel;
 import org.sonar.db.DbClient;
 import org.sonar.db.property.PropertiesDao;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.same;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.sonar.server.notification.NotificationManager.SubscriberPermissionsOnProject.ALL_MUST_HAVE_ROLE_USER;
 
 public class NotificationDaemonTest {
   private static String CREATOR_SIMON = "simon";
@@ -57,7 +66,7 @@ public class NotificationDaemonTest {
   private NotificationDispatcher commentOnIssueCreatedByMe = mock(NotificationDispatcher.class);
   private NotificationDispatcher qualityGateChange = mock(NotificationDispatcher.class);
   private DbClient dbClient = mock(DbClient.class);
-  private NotificationService service = new NotificationService(dbClient, new NotificationDispatcher[] {commentOnIssueAssignedToMe, commentOnIssueCreatedByMe, qualityGateChange});
+  private NotificationService service = new NotificationService(dbClient, manager, new NotificationDispatcher[] {commentOnIssueAssignedToMe, commentOnIssueCreatedByMe, qualityGateChange});
   private NotificationDaemon underTest = null;
 
   private void setUpMocks() {
@@ -69,7 +78,7 @@ public class NotificationDaemonTest {
     when(commentOnIssueCreatedByMe.getType()).thenReturn("issue-changes");
     when(qualityGateChange.getKey()).thenReturn("QGateChange");
     when(qualityGateChange.getType()).thenReturn("qgate-changes");
-    when(manager.getFromQueue()).thenReturn(notification).thenReturn(null);
+    when(manager.getFromQueue(anyInt())).thenReturn(singletonList(notification)).thenReturn(emptyList());
 
     MapSettings settings = new MapSettings(new PropertyDefinitions(NotificationDaemon.class)).setProperty("sonar.notifications.delay", 1L);
 
@@ -171,11 +180,65 @@ public class NotificationDaemonTest {
     verify(gtalkChannel, never()).deliver(any(Notification.class), anyString());
   }
 
+  @Test
+  public void deliver_notifications_of_a_batch_in_order_to_each_user() {
+    setUpMocks();
+    Notification otherNotification = mock(Notification.class);
+    when(manager.getFromQueue(anyInt())).thenReturn(asList(notification, otherNotification)).thenReturn(emptyList());
+    doAnswer(addUser(ASSIGNEE_SIMON, emailChannel)).when(commentOnIssueAssignedToMe).dispatch(any(Notification.class), any(NotificationDispatcher.Context.class));
+    doAnswer(addUser(CREATOR_EVGENY, gtalkChannel)).when(commentOnIssueCreatedByMe).dispatch(same(otherNotification), any(NotificationDispatcher.Context.class));
+
+    underTest.start();
+    verify(emailChannel, timeout(2000)).deliver(otherNotification, ASSIGNEE_SIMON);
+    verify(gtalkChannel, timeout(2000)).deliver(otherNotification, CREATOR_EVGENY);
+    underTest.stop();
+
+    InOrder inOrder = inOrder(emailChannel);
+    inOrder.verify(emailChannel).deliver(notification, ASSIGNEE_SIMON);
+    inOrder.verify(emailChannel).deliver(otherNotification, ASSIGNEE_SIMON);
+    verify(gtalkChannel, never()).deliver(notification, CREATOR_EVGENY);
+  }
+
+  @Test
+  public void resolve_subscribed_recipients_once_per_dispatcher_and_project_of_a_batch() {
+    setUpMocks();
+    Notification otherNotification = mock(Notification.class);
+    when(manager.getFromQueue(anyInt())).thenReturn(asList(notification, otherNotification)).thenReturn(emptyList());
+    when(manager.findSubscribedRecipientsForDispatcher(commentOnIssueAssignedToMe, "struts", ALL_MUST_HAVE_ROLE_USER))
+      .thenReturn(ImmutableSetMultimap.of(ASSIGNEE_SIMON, emailChannel));
+    doAnswer(addSubscribedUsers("struts")).when(commentOnIssueAssignedToMe).dispatch(any(Notification.class), any(NotificationDispatcher.Context.class));
+
+    underTest.start();
+    verify(emailChannel, timeout(2000)).deliver(notification, ASSIGNEE_SIMON);
+    verify(emailChannel, timeout(2000)).deliver(otherNotification, ASSIGNEE_SIMON);
+    underTest.stop();
+
+    verify(manager, times(1)).findSubscribedRecipientsForDispatcher(commentOnIssueAssignedToMe, "struts", ALL_MUST_HAVE_ROLE_USER);
+  }
+
+  @Test
+  public void do_not_share_subscribed_recipients_between_deliveries() {
+    setUpMocks();
+    Notification otherNotification = mock(Notification.class);
+    when(manager.findSubscribedRecipientsForDispatcher(commentOnIssueAssignedToMe, "struts", ALL_MUST_HAVE_ROLE_USER))
+      .thenReturn(ImmutableSetMultimap.of(ASSIGNEE_SIMON, emailChannel));
+    doAnswer(addSubscribedUsers("struts")).when(commentOnIssueAssignedToMe).dispatch(any(Notification.class), any(NotificationDispatcher.Context.class));
+
+    service.deliver(asList(notification, otherNotification));
+    verify(manager, times(1)).findSubscribedRecipientsForDispatcher(commentOnIssueAssignedToMe, "struts", ALL_MUST_HAVE_ROLE_USER);
+
+    service.deliver(notification);
+    service.deliver(otherNotification);
+    verify(manager, times(3)).findSubscribedRecipientsForDispatcher(commentOnIssueAssignedToMe, "struts", ALL_MUST_HAVE_ROLE_USER);
+    verify(emailChannel, times(2)).deliver(notification, ASSIGNEE_SIMON);
+    verify(emailChannel, times(2)).deliver(otherNotification, ASSIGNEE_SIMON);
+  }
+
   // SONAR-4548
   @Test
   public void shouldNotStopWhenException() {
     setUpMocks();
-    when(manager.getFromQueue()).thenThrow(new RuntimeException("Unexpected exception")).thenReturn(notification).thenReturn(null);
+    when(manager.getFromQueue(anyInt())).thenThrow(new RuntimeException("Unexpected exception")).thenReturn(singletonList(notification)).thenReturn(emptyList());
     doAnswer(addUser(ASSIGNEE_SIMON, emailChannel)).when(commentOnIssueAssignedToMe).dispatch(same(notification), any(NotificationDispatcher.Context.class));
     doAnswer(addUser(CREATOR_SIMON, emailChannel)).when(commentOnIssueCreatedByMe).dispatch(same(notification), any(NotificationDispatcher.Context.class));
 
@@ -209,7 +272,7 @@ public class NotificationDaemonTest {
   public void getDispatchers_empty() {
     Settings settings = new MapSettings().setProperty("sonar.notifications.delay", 1L);
 
-    service = new NotificationService(dbClient);
+    service = new NotificationService(dbClient, manager);
     assertThat(service.getDispatchers()).hasSize(0);
   }
 
@@ -217,7 +280,7 @@ public class NotificationDaemonTest {
   public void shouldLogEvery10Minutes() {
     setUpMocks();
     // Emulate 2 notifications in DB
-    when(manager.getFromQueue()).thenReturn(notification).thenReturn(notification).thenReturn(null);
+    when(manager.getFromQueue(anyInt())).thenReturn(singletonList(notification)).thenReturn(singletonList(notification)).thenReturn(emptyList());
     when(manager.count()).thenReturn(1L).thenReturn(0L);
     underTest = spy(underTest);
     // Emulate processing of each notification take 10 min to have a log each time
@@ -244,6 +307,15 @@ public class NotificationDaemonTest {
     assertThat(service.hasProjectSubscribersForTypes("PROJECT_UUID", Sets.newHashSet("issue-changes"))).isTrue();
   }
 
+  private static Answer<Object> addSubscribedUsers(String projectKey) {
+    return invocation -> {
+      NotificationDispatcher.Context context = (NotificationDispatcher.Context) invocation.getArguments()[1];
+      context.findSubscribedRecipients(projectKey, ALL_MUST_HAVE_ROLE_USER).entries()
+        .forEach(entry -> context.addUser(entry.getKey(), entry.getValue()));
+      return null;
+    };
+  }
+
   private static Answer<Object> addUser(final String user, final NotificationChannel channel) {
     return addUser(user, new NotificationChannel[] {channel});
   }
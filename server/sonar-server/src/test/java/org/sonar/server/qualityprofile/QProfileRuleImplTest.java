@@ -474,6 +474,26 @@ public class QProfileRuleImplTest {
     assertThatRuleIsActivated(grandChildProfile, rule, changes, rule.getSeverityString(), INHERITED, emptyMap());
   }
 
+  @Test
+  public void activation_updates_dates_of_each_changed_profile() {
+    RuleDefinitionDto rule1 = createRule();
+    RuleDefinitionDto rule2 = db.rules().insert(r -> r.setLanguage(rule1.getLanguage()));
+    QProfileDto parentProfile = createProfile(rule1);
+    QProfileDto childProfile = createChildProfile(parentProfile);
+    QProfileDto grandChildProfile = createChildProfile(childProfile);
+
+    List<ActiveRuleChange> changes = underTest.activateAndCommit(db.getSession(), childProfile,
+      asList(RuleActivation.create(rule1.getKey()), RuleActivation.create(rule2.getKey())));
+
+    assertThat(changes).hasSize(4);
+    QProfileDto loadedParent = db.getDbClient().qualityProfileDao().selectByUuid(db.getSession(), parentProfile.getKee());
+    QProfileDto loadedChild = db.getDbClient().qualityProfileDao().selectByUuid(db.getSession(), childProfile.getKee());
+    QProfileDto loadedGrandChild = db.getDbClient().qualityProfileDao().selectByUuid(db.getSession(), grandChildProfile.getKee());
+    assertThat(loadedParent.getRulesUpdatedAt()).isNull();
+    assertThat(loadedChild.getRulesUpdatedAt()).isNotEmpty();
+    assertThat(loadedGrandChild.getRulesUpdatedAt()).isEqualTo(loadedChild.getRulesUpdatedAt());
+  }
+
   @Test
   public void update_on_child_profile_is_propagated_to_descendants() {
     RuleDefinitionDto rule = createRule();
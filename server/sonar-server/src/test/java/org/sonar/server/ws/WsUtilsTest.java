@@ -20,6 +20,7 @@
 package org.sonar.server.ws;
 
 import java.io.IOException;
+import java.util.Iterator;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -29,6 +30,8 @@ import org.sonarqube.ws.Issues;
 import org.sonarqube.ws.MediaTypes;
 import org.sonarqube.ws.Permissions;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.sonar.test.ExceptionCauseMatcher.hasType;
 
@@ -68,6 +71,40 @@ public class WsUtilsTest {
     assertThat(Issues.Issue.parseFrom(response.getFlushedOutput()).getKey()).isEqualTo("I1");
   }
 
+  @Test
+  public void write_streamed_json() {
+    TestRequest request = new TestRequest();
+    DumbResponse response = new DumbResponse();
+
+    Issues.SearchWsResponse header = Issues.SearchWsResponse.newBuilder().setTotal(2).build();
+    Iterator<Issues.Issue> issues = asList(Issues.Issue.newBuilder().setKey("I1").build(), Issues.Issue.newBuilder().setKey("I2").build()).iterator();
+    WsUtils.writeProtobuf(header, "issues", issues, request, response);
+
+    assertThat(response.stream().mediaType()).isEqualTo(MediaTypes.JSON);
+    assertThat(response.outputAsString())
+      .startsWith("{")
+      .contains("\"total\":2")
+      .contains("\"issues\":[{\"key\":\"I1\"")
+      .contains("{\"key\":\"I2\"")
+      .endsWith("}");
+  }
+
+  @Test
+  public void write_streamed_protobuf() throws Exception {
+    TestRequest request = new TestRequest();
+    request.setMediaType(MediaTypes.PROTOBUF);
+    DumbResponse response = new DumbResponse();
+
+    Issues.SearchWsResponse header = Issues.SearchWsResponse.newBuilder().setTotal(2).addIssues(Issues.Issue.newBuilder().setKey("I1")).build();
+    Iterator<Issues.Issue> issues = singletonList(Issues.Issue.newBuilder().setKey("I2").build()).iterator();
+    WsUtils.writeProtobuf(header, "issues", issues, request, response);
+
+    assertThat(response.stream().mediaType()).isEqualTo(MediaTypes.PROTOBUF);
+    Issues.SearchWsResponse parsed = Issues.SearchWsResponse.parseFrom(response.getFlushedOutput());
+    assertThat(parsed.getTotal()).isEqualTo(2);
+    assertThat(parsed.getIssuesList()).extracting(Issues.Issue::getKey).containsExactly("I1", "I2");
+  }
+
   @Test
   public void rethrow_error_as_ISE_when_error_writing_message() {
     TestRequest request = new TestRequest();
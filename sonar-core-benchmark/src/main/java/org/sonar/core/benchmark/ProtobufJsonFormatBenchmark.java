@@ -0,0 +1,151 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.benchmark;
+
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.api.utils.text.JsonWriter;
+import org.sonar.core.util.ProtobufJsonFormat;
+import org.sonarqube.ws.Common;
+import org.sonarqube.ws.Components;
+
+/**
+ * Serialization to JSON of a response of api/components/tree, as done by web services:
+ * <ul>
+ *   <li>legacy: the response is built, then written by {@link LegacyProtobufJsonFormat}</li>
+ *   <li>write: the response is built, then written by {@link ProtobufJsonFormat#write(com.google.protobuf.Message, JsonWriter)}</li>
+ *   <li>writeStreaming: only the header of the response is built, components are pulled from an iterator while being written
+ *   by {@link ProtobufJsonFormat#write(com.google.protobuf.Message, String, java.util.Iterator, JsonWriter)}</li>
+ * </ul>
+ * JSON is written to a {@link Writer} that only counts characters. Allocations are measured with the GC profiler
+ * (option {@code -prof gc}, enabled by run-benchmarks.sh).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ProtobufJsonFormatBenchmark {
+
+  @Param({"100", "10000"})
+  public int components;
+
+  private Components.TreeWsResponse header;
+  private final List<Components.Component> componentList = new ArrayList<>();
+
+  @Setup
+  public void setUp() {
+    Components.Component baseComponent = newComponent(0, "TRK");
+    header = Components.TreeWsResponse.newBuilder()
+      .setPaging(Common.Paging.newBuilder().setPageIndex(1).setPageSize(components).setTotal(components))
+      .setBaseComponent(baseComponent)
+      .build();
+    for (int i = 1; i <= components; i++) {
+      componentList.add(newComponent(i, "FIL"));
+    }
+  }
+
+  private static Components.Component newComponent(int index, String qualifier) {
+    return Components.Component.newBuilder()
+      .setOrganization("my-org")
+      .setId("AVHE6Jo2EplJjXTo0Rzw" + index)
+      .setKey("org.sonarsource.sonarqube:sonarqube:src/main/java/org/sonar/File" + index + ".java")
+      .setName("File" + index + ".java")
+      .setQualifier(qualifier)
+      .setPath("src/main/java/org/sonar/File" + index + ".java")
+      .setLanguage("java")
+      .setVisibility("public")
+      .setTags(Components.Component.Tags.newBuilder().addTags("security").addTags("performance"))
+      .build();
+  }
+
+  @Benchmark
+  public long legacy() {
+    CountingWriter output = new CountingWriter();
+    try (JsonWriter json = JsonWriter.of(output)) {
+      LegacyProtobufJsonFormat.write(header.toBuilder().addAllComponents(componentList).build(), json);
+    }
+    return output.count;
+  }
+
+  @Benchmark
+  public long write() {
+    CountingWriter output = new CountingWriter();
+    try (JsonWriter json = JsonWriter.of(output)) {
+      ProtobufJsonFormat.write(header.toBuilder().addAllComponents(componentList).build(), json);
+    }
+    return output.count;
+  }
+
+  @Benchmark
+  public long writeStreaming() {
+    CountingWriter output = new CountingWriter();
+    try (JsonWriter json = JsonWriter.of(output)) {
+      ProtobufJsonFormat.write(header, "components", componentList.iterator(), json);
+    }
+    return output.count;
+  }
+
+  /**
+   * Output of web services is streamed to the HTTP response, so characters are not kept in memory
+   */
+  private static class CountingWriter extends Writer {
+    private long count = 0;
+
+    @Override
+    public void write(char[] cbuf, int off, int len) {
+      count += len;
+    }
+
+    @Override
+    public void write(int c) {
+      count++;
+    }
+
+    @Override
+    public void write(String str, int off, int len) {
+      count += len;
+    }
+
+    @Override
+    public void flush() {
+      // nothing to flush
+    }
+
+    @Override
+    public void close() {
+      // nothing to close
+    }
+  }
+}
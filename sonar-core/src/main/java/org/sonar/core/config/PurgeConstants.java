@@ -29,4 +29,14 @@ public interface PurgeConstants {
   String WEEKS_BEFORE_DELETING_ALL_SNAPSHOTS = "sonar.dbcleaner.weeksBeforeDeletingAllSnapshots";
   String DAYS_BEFORE_DELETING_CLOSED_ISSUES = "sonar.dbcleaner.daysBeforeDeletingClosedIssues";
   String DAYS_BEFORE_DELETING_INACTIVE_SHORT_LIVING_BRANCHES = "sonar.dbcleaner.daysBeforeDeletingInactiveShortLivingBranches";
+
+  /**
+   * When true, history is purged by a dedicated Compute Engine task rather than during analysis. Default is false.
+   */
+  String PURGE_IN_BACKGROUND = "sonar.dbcleaner.purgeInBackground";
+  /**
+   * Maximum number of measures deleted per second by the background purge. Zero or negative value means no limit.
+   * The next analysis of a project waits for the purge of the project in progress, if any, to be over.
+   */
+  String BACKGROUND_PURGE_MAX_ROWS_PER_SECOND = "sonar.dbcleaner.backgroundPurge.maxRowsPerSecond";
 }
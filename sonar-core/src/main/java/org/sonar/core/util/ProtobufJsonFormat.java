@@ -24,8 +24,10 @@ import com.google.protobuf.MapEntry;
 import com.google.protobuf.Message;
 import java.io.StringWriter;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.sonar.api.utils.text.JsonWriter;
 
 /**
@@ -131,24 +133,134 @@ public class ProtobufJsonFormat {
     // only statics
   }
 
+  /**
+   * Writes a single value of a field. Implementations are resolved once per field
+   * descriptor, so that the type of field is not evaluated again for each value.
+   */
+  @FunctionalInterface
+  private interface ValueWriter {
+    void write(Object value, JsonWriter writer);
+  }
+
+  /**
+   * Writer of a field of message, compiled from its {@link Descriptors.FieldDescriptor}.
+   */
+  private abstract static class FieldWriter {
+    final Descriptors.FieldDescriptor descriptor;
+    final String name;
+
+    FieldWriter(Descriptors.FieldDescriptor descriptor) {
+      this.descriptor = descriptor;
+      this.name = descriptor.getName();
+    }
+
+    abstract void write(Message message, JsonWriter writer);
+
+    abstract void writeValue(Object fieldValue, JsonWriter writer);
+  }
+
+  private static class SingularFieldWriter extends FieldWriter {
+    private final ValueWriter valueWriter;
+
+    SingularFieldWriter(Descriptors.FieldDescriptor descriptor) {
+      super(descriptor);
+      this.valueWriter = valueWriterOf(descriptor);
+    }
+
+    @Override
+    void write(Message message, JsonWriter writer) {
+      if (message.hasField(descriptor)) {
+        writer.name(name);
+        writeValue(message.getField(descriptor), writer);
+      }
+    }
+
+    @Override
+    void writeValue(Object fieldValue, JsonWriter writer) {
+      valueWriter.write(fieldValue, writer);
+    }
+  }
+
+  private static class ArrayFieldWriter extends FieldWriter {
+    private final ValueWriter valueWriter;
+
+    ArrayFieldWriter(Descriptors.FieldDescriptor descriptor) {
+      super(descriptor);
+      this.valueWriter = valueWriterOf(descriptor);
+    }
+
+    @Override
+    void write(Message message, JsonWriter writer) {
+      writer.name(name);
+      writeValue(message.getField(descriptor), writer);
+    }
+
+    @Override
+    void writeValue(Object fieldValue, JsonWriter writer) {
+      writer.beginArray();
+      for (Object o : (Collection) fieldValue) {
+        valueWriter.write(o, writer);
+      }
+      writer.endArray();
+    }
+  }
+
+  private static class MapFieldWriter extends FieldWriter {
+    private final ValueWriter entryValueWriter;
+
+    MapFieldWriter(Descriptors.FieldDescriptor descriptor) {
+      super(descriptor);
+      this.entryValueWriter = valueWriterOf(descriptor.getMessageType().findFieldByName("value"));
+    }
+
+    @Override
+    void write(Message message, JsonWriter writer) {
+      writer.name(name);
+      writeValue(message.getField(descriptor), writer);
+    }
+
+    @Override
+    void writeValue(Object fieldValue, JsonWriter writer) {
+      writer.beginObject();
+      for (MapEntry mapEntry : (Collection<MapEntry>) fieldValue) {
+        // Key fields are always double-quoted in json
+        writer.name(mapEntry.getKey().toString());
+        entryValueWriter.write(mapEntry.getValue(), writer);
+      }
+      writer.endObject();
+    }
+  }
+
   static class MessageType {
-    private static final Map<Class<? extends Message>, MessageType> TYPES_BY_CLASS = new HashMap<>();
+    private static final Map<Descriptors.Descriptor, MessageType> TYPES_BY_DESCRIPTOR = new ConcurrentHashMap<>();
 
-    private final Descriptors.FieldDescriptor[] fieldDescriptors;
+    private final FieldWriter[] fieldWriters;
     private final boolean doesWrapRepeated;
 
     private MessageType(Descriptors.Descriptor descriptor) {
-      this.fieldDescriptors = descriptor.getFields().toArray(new Descriptors.FieldDescriptor[descriptor.getFields().size()]);
-      this.doesWrapRepeated = fieldDescriptors.length == 1 && fieldDescriptors[0].isRepeated() && descriptor.getName().equalsIgnoreCase(fieldDescriptors[0].getName());
+      List<Descriptors.FieldDescriptor> fields = descriptor.getFields();
+      this.fieldWriters = new FieldWriter[fields.size()];
+      for (int i = 0; i < fieldWriters.length; i++) {
+        fieldWriters[i] = fieldWriterOf(fields.get(i));
+      }
+      this.doesWrapRepeated = fieldWriters.length == 1 && fields.get(0).isRepeated() && descriptor.getName().equalsIgnoreCase(fields.get(0).getName());
     }
 
     static MessageType of(Message message) {
-      MessageType type = TYPES_BY_CLASS.get(message.getClass());
-      if (type == null) {
-        type = new MessageType(message.getDescriptorForType());
-        TYPES_BY_CLASS.put(message.getClass(), type);
+      return of(message.getDescriptorForType());
+    }
+
+    static MessageType of(Descriptors.Descriptor descriptor) {
+      return TYPES_BY_DESCRIPTOR.computeIfAbsent(descriptor, MessageType::new);
+    }
+
+    private FieldWriter fieldWriter(Descriptors.FieldDescriptor descriptor) {
+      for (FieldWriter fieldWriter : fieldWriters) {
+        if (fieldWriter.descriptor.equals(descriptor)) {
+          return fieldWriter;
+        }
       }
-      return type;
+      throw new IllegalArgumentException(String.format("Field '%s' does not belong to message '%s'", descriptor.getName(), descriptor.getContainingType().getName()));
     }
   }
 
@@ -159,6 +271,54 @@ public class ProtobufJsonFormat {
     writer.endObject();
   }
 
+  /**
+   * Same as {@link #write(Message, JsonWriter)}, except that the elements of the repeated field {@code arrayFieldName}
+   * are not read from {@code header} but are pulled from {@code elements} while being written. It allows
+   * to serialize a large response without loading all its elements in memory.
+   * <p>
+   * Elements already set in {@code header} are written first. The array is the last property of the generated
+   * JSON object.
+   * </p>
+   *
+   * @throws IllegalArgumentException if {@code arrayFieldName} is not a repeated message field of {@code header}
+   */
+  public static void write(Message header, String arrayFieldName, Iterator<? extends Message> elements, JsonWriter writer) {
+    Descriptors.FieldDescriptor arrayDescriptor = streamableFieldOf(header, arrayFieldName);
+    MessageType type = MessageType.of(header);
+    FieldWriter arrayWriter = type.fieldWriter(arrayDescriptor);
+    ValueWriter elementWriter = valueWriterOf(arrayDescriptor);
+
+    writer.setSerializeNulls(false).setSerializeEmptys(true);
+    writer.beginObject();
+    for (FieldWriter fieldWriter : type.fieldWriters) {
+      if (fieldWriter != arrayWriter) {
+        fieldWriter.write(header, writer);
+      }
+    }
+    writer.name(arrayWriter.name);
+    writer.beginArray();
+    for (Object o : (Collection) header.getField(arrayDescriptor)) {
+      elementWriter.write(o, writer);
+    }
+    while (elements.hasNext()) {
+      elementWriter.write(elements.next(), writer);
+    }
+    writer.endArray();
+    writer.endObject();
+  }
+
+  /**
+   * @throws IllegalArgumentException if {@code fieldName} is not a repeated message field of {@code message}
+   */
+  public static Descriptors.FieldDescriptor streamableFieldOf(Message message, String fieldName) {
+    Descriptors.FieldDescriptor descriptor = message.getDescriptorForType().findFieldByName(fieldName);
+    if (descriptor == null || !descriptor.isRepeated() || descriptor.isMapField() || descriptor.getJavaType() != Descriptors.FieldDescriptor.JavaType.MESSAGE) {
+      throw new IllegalArgumentException(String.format("Field '%s' of message '%s' is not a repeated message field",
+        fieldName, message.getDescriptorForType().getName()));
+    }
+    return descriptor;
+  }
+
   public static String toJson(Message message) {
     StringWriter json = new StringWriter();
     try (JsonWriter jsonWriter = JsonWriter.of(json)) {
@@ -168,79 +328,50 @@ public class ProtobufJsonFormat {
   }
 
   private static void writeMessage(Message message, JsonWriter writer) {
-    MessageType type = MessageType.of(message);
-    for (Descriptors.FieldDescriptor fieldDescriptor : type.fieldDescriptors) {
-      if (fieldDescriptor.isRepeated()) {
-        writer.name(fieldDescriptor.getName());
-        if (fieldDescriptor.isMapField()) {
-          writeMap((Collection<MapEntry>) message.getField(fieldDescriptor), writer);
-        } else {
-          writeArray(writer, fieldDescriptor, (Collection) message.getField(fieldDescriptor));
-        }
-      } else if (message.hasField(fieldDescriptor)) {
-        writer.name(fieldDescriptor.getName());
-        Object fieldValue = message.getField(fieldDescriptor);
-        writeFieldValue(fieldDescriptor, fieldValue, writer);
-      }
+    for (FieldWriter fieldWriter : MessageType.of(message).fieldWriters) {
+      fieldWriter.write(message, writer);
     }
   }
 
-  private static void writeArray(JsonWriter writer, Descriptors.FieldDescriptor fieldDescriptor, Collection array) {
-    writer.beginArray();
-    for (Object o : array) {
-      writeFieldValue(fieldDescriptor, o, writer);
+  private static FieldWriter fieldWriterOf(Descriptors.FieldDescriptor fieldDescriptor) {
+    if (fieldDescriptor.isMapField()) {
+      return new MapFieldWriter(fieldDescriptor);
     }
-    writer.endArray();
-  }
-
-  private static void writeMap(Collection<MapEntry> mapEntries, JsonWriter writer) {
-    writer.beginObject();
-    for (MapEntry mapEntry : mapEntries) {
-      // Key fields are always double-quoted in json
-      writer.name(mapEntry.getKey().toString());
-      Descriptors.FieldDescriptor valueDescriptor = mapEntry.getDescriptorForType().findFieldByName("value");
-      writeFieldValue(valueDescriptor, mapEntry.getValue(), writer);
+    if (fieldDescriptor.isRepeated()) {
+      return new ArrayFieldWriter(fieldDescriptor);
     }
-    writer.endObject();
+    return new SingularFieldWriter(fieldDescriptor);
   }
 
-  private static void writeFieldValue(Descriptors.FieldDescriptor fieldDescriptor, Object value, JsonWriter writer) {
+  private static ValueWriter valueWriterOf(Descriptors.FieldDescriptor fieldDescriptor) {
     switch (fieldDescriptor.getJavaType()) {
       case INT:
-        writer.value((Integer) value);
-        break;
+        return (value, writer) -> writer.value((Integer) value);
       case LONG:
-        writer.value((Long) value);
-        break;
+        return (value, writer) -> writer.value((Long) value);
       case DOUBLE:
-        writer.value((Double) value);
-        break;
+        return (value, writer) -> writer.value((Double) value);
       case BOOLEAN:
-        writer.value((Boolean) value);
-        break;
+        return (value, writer) -> writer.value((Boolean) value);
       case STRING:
-        writer.value((String) value);
-        break;
+        return (value, writer) -> writer.value((String) value);
       case ENUM:
-        writer.value(((Descriptors.EnumValueDescriptor) value).getName());
-        break;
+        return (value, writer) -> writer.value(((Descriptors.EnumValueDescriptor) value).getName());
       case MESSAGE:
-        writeMessageValue((Message) value, writer);
-        break;
+        return (value, writer) -> writeMessageValue((Message) value, writer);
       default:
-        throw new IllegalStateException(String.format("JSON format does not support type '%s' of field '%s'", fieldDescriptor.getJavaType(), fieldDescriptor.getName()));
+        // the field is supported as long as it's not set
+        return (value, writer) -> {
+          throw new IllegalStateException(String.format("JSON format does not support type '%s' of field '%s'", fieldDescriptor.getJavaType(), fieldDescriptor.getName()));
+        };
     }
   }
 
   private static void writeMessageValue(Message message, JsonWriter writer) {
     MessageType messageType = MessageType.of(message);
     if (messageType.doesWrapRepeated) {
-      Descriptors.FieldDescriptor repeatedDescriptor = messageType.fieldDescriptors[0];
-      if (repeatedDescriptor.isMapField()) {
-        writeMap((Collection<MapEntry>) message.getField(repeatedDescriptor), writer);
-      } else {
-        writeArray(writer, repeatedDescriptor, (Collection) message.getField(repeatedDescriptor));
-      }
+      FieldWriter repeatedWriter = messageType.fieldWriters[0];
+      repeatedWriter.writeValue(message.getField(repeatedWriter.descriptor), writer);
     } else {
       writer.beginObject();
       writeMessage(message, writer);
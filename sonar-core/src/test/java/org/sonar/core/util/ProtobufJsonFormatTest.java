@@ -21,6 +21,8 @@ package org.sonar.core.util;
 
 import com.google.protobuf.ByteString;
 import java.io.StringWriter;
+import java.util.Collections;
+import java.util.Iterator;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -38,6 +40,7 @@ import org.sonar.core.test.Test.TestNullableMap;
 import org.sonar.core.test.Test.Translations;
 import org.sonar.test.TestUtils;
 
+import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.sonar.core.util.ProtobufJsonFormat.toJson;
 
@@ -210,6 +213,51 @@ public class ProtobufJsonFormatTest {
     assertThat(toJson(msg.build())).isEqualTo("{\"catalogs\":{\"numbers\":{\"one\":\"un\",\"two\":\"deux\"}}}");
   }
 
+  @Test
+  public void write_streamed_array() {
+    TestArray header = TestArray.newBuilder()
+      .addNesteds(NestedMsg.newBuilder().setLabel("nestedOne"))
+      .addStrings("one")
+      .build();
+    Iterator<NestedMsg> elements = asList(
+      NestedMsg.newBuilder().setLabel("nestedTwo").build(),
+      NestedMsg.newBuilder().setLabel("nestedThree").build()).iterator();
+
+    StringWriter json = new StringWriter();
+    try (JsonWriter jsonWriter = JsonWriter.of(json)) {
+      ProtobufJsonFormat.write(header, "nesteds", elements, jsonWriter);
+    }
+
+    assertThat(json.toString())
+      .isEqualTo("{\"strings\":[\"one\"],\"nesteds\":[{\"label\":\"nestedOne\"},{\"label\":\"nestedTwo\"},{\"label\":\"nestedThree\"}]}");
+  }
+
+  @Test
+  public void write_empty_streamed_array() {
+    StringWriter json = new StringWriter();
+    try (JsonWriter jsonWriter = JsonWriter.of(json)) {
+      ProtobufJsonFormat.write(TestArray.newBuilder().build(), "nesteds", Collections.emptyIterator(), jsonWriter);
+    }
+
+    assertThat(json.toString()).isEqualTo("{\"strings\":[],\"nesteds\":[]}");
+  }
+
+  @Test
+  public void fail_to_stream_array_of_scalar_values() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Field 'strings' of message 'TestArray' is not a repeated message field");
+
+    ProtobufJsonFormat.write(TestArray.newBuilder().build(), "strings", Collections.emptyIterator(), JsonWriter.of(new StringWriter()));
+  }
+
+  @Test
+  public void fail_to_stream_unknown_field() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Field 'unknown' of message 'TestArray' is not a repeated message field");
+
+    ProtobufJsonFormat.write(TestArray.newBuilder().build(), "unknown", Collections.emptyIterator(), JsonWriter.of(new StringWriter()));
+  }
+
   @Test
   public void constructor_is_private() {
     assertThat(TestUtils.hasOnlyPrivateConstructors(ProtobufJsonFormat.class)).isTrue();
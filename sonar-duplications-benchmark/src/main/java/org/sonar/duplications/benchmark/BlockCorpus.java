@@ -0,0 +1,141 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.duplications.benchmark;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.BlockChunker;
+import org.sonar.duplications.block.ByteArray;
+import org.sonar.duplications.java.JavaStatementBuilder;
+import org.sonar.duplications.java.JavaTokenProducer;
+import org.sonar.duplications.statement.Statement;
+import org.sonar.duplications.statement.StatementChunker;
+import org.sonar.duplications.token.TokenChunker;
+
+/**
+ * Blocks of realistic Java sources, by file. The Java files of the integration test projects
+ * (directory "tests/projects" by default, see {@link #SOURCES_PROPERTY}) are tokenized
+ * like the scanner does, then copied as many times as requested to simulate bigger
+ * projects. A ratio of the blocks of each copy is replaced by unique hashes to simulate
+ * modified code, so that copies are not only exact clones.
+ */
+public class BlockCorpus {
+
+  public static final String SOURCES_PROPERTY = "sonar.duplications.benchmark.sources";
+  private static final String DEFAULT_SOURCES = "tests/projects";
+
+  /**
+   * Same as the scanner, see JavaCpdBlockIndexer
+   */
+  private static final int BLOCK_SIZE = 10;
+  private static final long SEED = 42L;
+
+  private final List<List<Block>> blocksByFile;
+  private final int size;
+
+  private BlockCorpus(List<List<Block>> blocksByFile) {
+    this.blocksByFile = Collections.unmodifiableList(blocksByFile);
+    this.size = blocksByFile.stream().mapToInt(List::size).sum();
+  }
+
+  /**
+   * @param copies number of copies of the original sources, at least 1
+   * @param mutationRatio ratio of the blocks of each copy that get a unique hash, between 0 and 1
+   */
+  public static BlockCorpus generate(int copies, double mutationRatio) {
+    List<List<Statement>> statementsByFile = loadStatements(Paths.get(System.getProperty(SOURCES_PROPERTY, DEFAULT_SOURCES)));
+    BlockChunker blockChunker = new BlockChunker(BLOCK_SIZE);
+    Random random = new Random(SEED);
+    List<List<Block>> blocksByFile = new ArrayList<>(statementsByFile.size() * copies);
+    for (int copy = 0; copy < copies; copy++) {
+      for (int file = 0; file < statementsByFile.size(); file++) {
+        String resourceId = "copy" + copy + "/file" + file;
+        List<Block> blocks = blockChunker.chunk(resourceId, statementsByFile.get(file));
+        blocksByFile.add(copy == 0 ? blocks : mutate(blocks, mutationRatio, random));
+      }
+    }
+    return new BlockCorpus(blocksByFile);
+  }
+
+  private static List<List<Statement>> loadStatements(Path sourcesDir) {
+    if (!Files.isDirectory(sourcesDir)) {
+      throw new IllegalStateException("Directory of sources does not exist: " + sourcesDir.toAbsolutePath()
+        + ". Run benchmarks from the root of the repository or set the system property " + SOURCES_PROPERTY);
+    }
+    TokenChunker tokenChunker = JavaTokenProducer.build();
+    StatementChunker statementChunker = JavaStatementBuilder.build();
+    try (Stream<Path> paths = Files.walk(sourcesDir)) {
+      List<Path> javaFiles = paths
+        .filter(p -> p.toString().endsWith(".java"))
+        .sorted()
+        .collect(Collectors.toList());
+      List<List<Statement>> result = new ArrayList<>(javaFiles.size());
+      for (Path javaFile : javaFiles) {
+        try (Reader reader = Files.newBufferedReader(javaFile, StandardCharsets.UTF_8)) {
+          result.add(statementChunker.chunk(tokenChunker.chunk(reader)));
+        }
+      }
+      return result;
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to read sources from " + sourcesDir, e);
+    }
+  }
+
+  private static List<Block> mutate(List<Block> blocks, double mutationRatio, Random random) {
+    List<Block> result = new ArrayList<>(blocks.size());
+    Block.Builder builder = Block.builder();
+    for (Block block : blocks) {
+      if (random.nextDouble() < mutationRatio) {
+        result.add(builder
+          .setResourceId(block.getResourceId())
+          .setBlockHash(new ByteArray(random.nextLong()))
+          .setIndexInFile(block.getIndexInFile())
+          .setLines(block.getStartLine(), block.getEndLine())
+          .setUnit(block.getStartUnit(), block.getEndUnit())
+          .build());
+      } else {
+        result.add(block);
+      }
+    }
+    return result;
+  }
+
+  public List<List<Block>> getBlocksByFile() {
+    return blocksByFile;
+  }
+
+  /**
+   * Total number of blocks
+   */
+  public int size() {
+    return size;
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.duplications.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.detector.original.OriginalCloneDetectionAlgorithm;
+import org.sonar.duplications.detector.suffixtree.SuffixTreeCloneDetectionAlgorithm;
+import org.sonar.duplications.index.CloneIndex;
+
+/**
+ * Detection of the clones of the files of the original sources, as executed by the scanner
+ * for each file once the index is complete.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class CloneDetectionBenchmark {
+
+  public enum Algorithm {
+    SUFFIX_TREE, ORIGINAL
+  }
+
+  @Param({"SUFFIX_TREE", "ORIGINAL"})
+  public Algorithm algorithm;
+
+  @Param({"PACKED"})
+  public CloneIndexType indexType;
+
+  @Param({"1", "20"})
+  public int copies;
+
+  @Param({"0.2"})
+  public double mutationRatio;
+
+  private CloneIndex index;
+  private final List<Collection<Block>> filesToDetect = new ArrayList<>();
+
+  @Setup
+  public void setUp() {
+    BlockCorpus corpus = BlockCorpus.generate(copies, mutationRatio);
+    index = indexType.build(corpus);
+    List<List<Block>> files = corpus.getBlocksByFile();
+    // files of the first copy
+    int originalFiles = files.size() / copies;
+    for (int i = 0; i < originalFiles; i++) {
+      if (!files.get(i).isEmpty()) {
+        filesToDetect.add(files.get(i));
+      }
+    }
+  }
+
+  /**
+   * One operation is the detection on all the files of the original sources
+   */
+  @Benchmark
+  public void detect(Blackhole blackhole) {
+    for (Collection<Block> fileBlocks : filesToDetect) {
+      if (algorithm == Algorithm.SUFFIX_TREE) {
+        blackhole.consume(SuffixTreeCloneDetectionAlgorithm.detect(index, fileBlocks));
+      } else {
+        blackhole.consume(OriginalCloneDetectionAlgorithm.detect(index, fileBlocks));
+      }
+    }
+  }
+}
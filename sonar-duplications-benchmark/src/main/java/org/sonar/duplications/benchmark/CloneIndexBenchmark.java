@@ -0,0 +1,103 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.duplications.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+import org.sonar.duplications.index.CloneIndex;
+
+/**
+ * Build and lookups of the indices. Lookup benchmarks execute {@link #LOOKUPS} queries
+ * per invocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class CloneIndexBenchmark {
+
+  static final int LOOKUPS = 1_000;
+
+  @Param({"MEMORY", "PACKED", "SHARDED"})
+  public CloneIndexType indexType;
+
+  @Param({"1", "20"})
+  public int copies;
+
+  @Param({"0.2"})
+  public double mutationRatio;
+
+  private BlockCorpus corpus;
+  private CloneIndex index;
+  private final List<ByteArray> hashes = new ArrayList<>(LOOKUPS);
+  private final List<String> resourceIds = new ArrayList<>(LOOKUPS);
+
+  @Setup
+  public void setUp() {
+    corpus = BlockCorpus.generate(copies, mutationRatio);
+    index = indexType.build(corpus);
+
+    // blocks and files evenly distributed over the corpus
+    List<List<Block>> files = corpus.getBlocksByFile();
+    for (int i = 0; i < LOOKUPS; i++) {
+      List<Block> blocks = files.get(i * files.size() / LOOKUPS);
+      resourceIds.add(blocks.isEmpty() ? "unknown" : blocks.get(0).getResourceId());
+      if (!blocks.isEmpty()) {
+        hashes.add(blocks.get(i % blocks.size()).getBlockHash());
+      }
+    }
+  }
+
+  @Benchmark
+  public CloneIndex build() {
+    return indexType.build(corpus);
+  }
+
+  @Benchmark
+  public void lookupBySequenceHash(Blackhole blackhole) {
+    for (ByteArray hash : hashes) {
+      blackhole.consume(index.getBySequenceHash(hash));
+    }
+  }
+
+  @Benchmark
+  public void lookupByResourceId(Blackhole blackhole) {
+    for (String resourceId : resourceIds) {
+      blackhole.consume(index.getByResourceId(resourceId));
+    }
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.duplications.benchmark;
+
+import java.util.List;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.index.CloneIndex;
+import org.sonar.duplications.index.MemoryCloneIndex;
+import org.sonar.duplications.index.PackedMemoryCloneIndex;
+import org.sonar.duplications.index.ShardedPackedCloneIndex;
+
+/**
+ * Implementations of {@link CloneIndex} compared by benchmarks
+ */
+public enum CloneIndexType {
+  MEMORY {
+    @Override
+    CloneIndex newIndex(int expectedBlocks) {
+      return new MemoryCloneIndex();
+    }
+  },
+  PACKED {
+    @Override
+    CloneIndex newIndex(int expectedBlocks) {
+      return new PackedMemoryCloneIndex(8, expectedBlocks);
+    }
+  },
+  SHARDED {
+    @Override
+    CloneIndex newIndex(int expectedBlocks) {
+      return new ShardedPackedCloneIndex();
+    }
+  };
+
+  abstract CloneIndex newIndex(int expectedBlocks);
+
+  /**
+   * Creates an index containing all the blocks of the corpus. A first lookup is executed so that
+   * lazy structures, for example the sorted arrays of {@link PackedMemoryCloneIndex}, are built.
+   */
+  CloneIndex build(BlockCorpus corpus) {
+    CloneIndex index = newIndex(corpus.size());
+    for (List<Block> blocks : corpus.getBlocksByFile()) {
+      blocks.forEach(index::insert);
+    }
+    index.getBySequenceHash(corpus.getBlocksByFile().stream()
+      .filter(blocks -> !blocks.isEmpty())
+      .findFirst()
+      .map(blocks -> blocks.get(0).getBlockHash())
+      .orElseThrow(() -> new IllegalStateException("Corpus has no blocks")));
+    return index;
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.duplications.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.index.CloneIndex;
+import org.sonar.duplications.index.ShardedPackedCloneIndex;
+
+/**
+ * Insertion of the corpus into {@link ShardedPackedCloneIndex} by concurrent threads, each one
+ * inserting a subset of files, followed by the sort and merge of {@link ShardedPackedCloneIndex#seal()}.
+ * Compare with {@link CloneIndexBenchmark#build()}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ConcurrentInsertionBenchmark {
+
+  @Param({"1", "4", "8"})
+  public int threads;
+
+  @Param({"20"})
+  public int copies;
+
+  @Param({"0.2"})
+  public double mutationRatio;
+
+  private BlockCorpus corpus;
+  private ExecutorService executor;
+
+  @Setup
+  public void setUp() {
+    corpus = BlockCorpus.generate(copies, mutationRatio);
+    executor = Executors.newFixedThreadPool(threads);
+  }
+
+  @TearDown
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Benchmark
+  public CloneIndex insertAndSeal() throws InterruptedException, ExecutionException {
+    ShardedPackedCloneIndex index = new ShardedPackedCloneIndex();
+    List<List<Block>> files = corpus.getBlocksByFile();
+    List<Future<?>> futures = new ArrayList<>(threads);
+    for (int t = 0; t < threads; t++) {
+      int first = t;
+      futures.add(executor.submit(() -> {
+        for (int i = first; i < files.size(); i += threads) {
+          files.get(i).forEach(index::insert);
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    index.seal();
+    return index;
+  }
+}
@@ -0,0 +1,447 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.duplications.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import javax.annotation.Nullable;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+import org.sonar.duplications.index.PackedMemoryCloneIndex.ResourceBlocks;
+import org.sonar.duplications.utils.FastStringComparator;
+
+/**
+ * Variant of {@link PackedMemoryCloneIndex} that supports concurrent insertions and concurrent lookups.
+ * <p>
+ * Life-cycle is in two phases:
+ * <ol>
+ *   <li>insertion: {@link #insert(Block)} can be called by many threads without locking. Each thread
+ *   appends blocks to its own packed buffer.</li>
+ *   <li>lookups: the first lookup, or an explicit call to {@link #seal()}, sorts the buffers in parallel then merges
+ *   them into immutable packed arrays. Blocks can't be inserted anymore and lookups are thread-safe.</li>
+ * </ol>
+ * All the insertions must happen-before the call to {@link #seal()}, for example by waiting for the termination
+ * of the threads that insert blocks.
+ * </p>
+ * <p>
+ * Memory per block with the default 8 bytes hash, on a 64-bit JVM with compressed references, is the same as
+ * {@link PackedMemoryCloneIndex}: 4 bytes for the reference to resource id, 28 bytes for hash, index, lines and units,
+ * and 4 bytes of index by resource, so 36 bytes (resource ids are shared). The peak during {@link #seal()} is
+ * twice as large, as buffers and merged arrays briefly coexist. For comparison {@link MemoryCloneIndex}
+ * needs around 200 bytes per block ({@link Block} and {@link ByteArray} objects, entries of two maps).
+ * </p>
+ *
+ * @since 7.1
+ */
+public class ShardedPackedCloneIndex extends AbstractCloneIndex {
+
+  private static final int BLOCK_INTS = 5;
+  private static final int DEFAULT_INITIAL_CAPACITY = 1024;
+
+  private final int hashInts;
+  private final int blockInts;
+  private final Queue<Buffer> buffers = new ConcurrentLinkedQueue<>();
+  private final ThreadLocal<Buffer> localBuffer = ThreadLocal.withInitial(this::newBuffer);
+
+  private volatile Sealed sealed;
+
+  public ShardedPackedCloneIndex() {
+    this(8);
+  }
+
+  /**
+   * @param hashBytes size of hash in bytes
+   */
+  public ShardedPackedCloneIndex(int hashBytes) {
+    this.hashInts = hashBytes / 4;
+    this.blockInts = hashInts + BLOCK_INTS;
+  }
+
+  private Buffer newBuffer() {
+    Buffer buffer = new Buffer();
+    buffers.add(buffer);
+    return buffer;
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Can be called concurrently, but not after {@link #seal()}.
+   * </p>
+   */
+  @Override
+  public void insert(Block block) {
+    if (sealed != null) {
+      throw new IllegalStateException("Index is sealed, blocks can't be inserted anymore");
+    }
+    localBuffer.get().add(block);
+  }
+
+  /**
+   * Sorts and merges the blocks inserted so far, then releases the buffers. Called automatically by the first lookup.
+   */
+  public synchronized void seal() {
+    if (sealed != null) {
+      return;
+    }
+    List<Buffer> toMerge = new ArrayList<>(buffers);
+    toMerge.parallelStream().forEach(Buffer::sort);
+    sealed = new Sealed(toMerge);
+    // buffers may still be referenced by the thread locals of the inserting threads, which can be long-lived
+    toMerge.forEach(Buffer::release);
+    buffers.clear();
+    localBuffer.remove();
+  }
+
+  private Sealed ensureSealed() {
+    Sealed result = sealed;
+    if (result == null) {
+      seal();
+      result = sealed;
+    }
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * <strong>Note that this implementation does not guarantee that blocks would be sorted by index.</strong>
+   * </p>
+   */
+  @Override
+  public Collection<Block> getByResourceId(String resourceId) {
+    return ensureSealed().getByResourceId(resourceId);
+  }
+
+  @Override
+  public Collection<Block> getBySequenceHash(ByteArray sequenceHash) {
+    return ensureSealed().getBySequenceHash(sequenceHash);
+  }
+
+  @Override
+  public Iterator<ResourceBlocks> iterator() {
+    return ensureSealed().new ResourceIterator();
+  }
+
+  @Override
+  public int noResources() {
+    return ensureSealed().noResources();
+  }
+
+  private int[] toHashInts(ByteArray hash) {
+    int[] ints = hash.toIntArray();
+    if (ints.length != hashInts) {
+      throw new IllegalArgumentException("Expected " + hashInts + " ints in hash, but got " + ints.length);
+    }
+    return ints;
+  }
+
+  private int compareHash(int[] data, int index, int[] otherData, int otherIndex) {
+    int offset = index * blockInts;
+    int otherOffset = otherIndex * blockInts;
+    for (int k = 0; k < hashInts; k++, offset++, otherOffset++) {
+      int cmp = Integer.compare(data[offset], otherData[otherOffset]);
+      if (cmp != 0) {
+        return cmp;
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Packed blocks inserted by a single thread
+   */
+  private class Buffer {
+    private String[] resourceIds = new String[DEFAULT_INITIAL_CAPACITY];
+    private int[] blockData = new int[DEFAULT_INITIAL_CAPACITY * blockInts];
+    private int[] byResource;
+    private int size = 0;
+
+    void add(Block block) {
+      ensureCapacity();
+      resourceIds[size] = block.getResourceId();
+      int[] hash = toHashInts(block.getBlockHash());
+      int offset = size * blockInts;
+      for (int i = 0; i < hashInts; i++) {
+        blockData[offset++] = hash[i];
+      }
+      blockData[offset++] = block.getIndexInFile();
+      blockData[offset++] = block.getStartLine();
+      blockData[offset++] = block.getEndLine();
+      blockData[offset++] = block.getStartUnit();
+      blockData[offset] = block.getEndUnit();
+      size++;
+    }
+
+    private void ensureCapacity() {
+      if (size < resourceIds.length) {
+        return;
+      }
+      int newCapacity = (resourceIds.length * 3) / 2 + 1;
+      String[] oldResourceIds = resourceIds;
+      resourceIds = new String[newCapacity];
+      System.arraycopy(oldResourceIds, 0, resourceIds, 0, size);
+      int[] oldBlockData = blockData;
+      blockData = new int[newCapacity * blockInts];
+      System.arraycopy(oldBlockData, 0, blockData, 0, size * blockInts);
+    }
+
+    /**
+     * Frees the arrays once they have been merged. The buffer can't be used anymore.
+     */
+    void release() {
+      resourceIds = null;
+      blockData = null;
+      byResource = null;
+      size = 0;
+    }
+
+    /**
+     * Sorts blocks by hash, then computes the order of blocks by resource id
+     */
+    void sort() {
+      DataUtils.sort(new DataUtils.Sortable() {
+        @Override
+        public int size() {
+          return size;
+        }
+
+        @Override
+        public void swap(int i, int j) {
+          String tmp = resourceIds[i];
+          resourceIds[i] = resourceIds[j];
+          resourceIds[j] = tmp;
+          int i2 = i * blockInts;
+          int j2 = j * blockInts;
+          for (int k = 0; k < blockInts; k++, i2++, j2++) {
+            int x = blockData[i2];
+            blockData[i2] = blockData[j2];
+            blockData[j2] = x;
+          }
+        }
+
+        @Override
+        public boolean isLess(int i, int j) {
+          return compareHash(blockData, i, blockData, j) < 0;
+        }
+      });
+
+      byResource = new int[size];
+      for (int i = 0; i < size; i++) {
+        byResource[i] = i;
+      }
+      DataUtils.sort(new DataUtils.Sortable() {
+        @Override
+        public int size() {
+          return size;
+        }
+
+        @Override
+        public void swap(int i, int j) {
+          int tmp = byResource[i];
+          byResource[i] = byResource[j];
+          byResource[j] = tmp;
+        }
+
+        @Override
+        public boolean isLess(int i, int j) {
+          return FastStringComparator.INSTANCE.compare(resourceIds[byResource[i]], resourceIds[byResource[j]]) < 0;
+        }
+      });
+    }
+  }
+
+  /**
+   * Immutable merge of the sorted buffers
+   */
+  private class Sealed {
+    private final int size;
+    private final String[] resourceIds;
+    private final int[] blockData;
+    private final int[] byResource;
+
+    Sealed(List<Buffer> sortedBuffers) {
+      int total = 0;
+      for (Buffer buffer : sortedBuffers) {
+        total += buffer.size;
+      }
+      this.size = total;
+      this.resourceIds = new String[total];
+      this.blockData = new int[total * blockInts];
+      this.byResource = new int[total];
+
+      int[][] positions = mergeByHash(sortedBuffers);
+      mergeByResource(sortedBuffers, positions);
+    }
+
+    /**
+     * @return for each buffer, the position of its blocks in the merged arrays
+     */
+    private int[][] mergeByHash(List<Buffer> sortedBuffers) {
+      int[][] positions = new int[sortedBuffers.size()][];
+      int[] cursors = new int[sortedBuffers.size()];
+      for (int b = 0; b < sortedBuffers.size(); b++) {
+        positions[b] = new int[sortedBuffers.get(b).size];
+      }
+      for (int position = 0; position < size; position++) {
+        int min = -1;
+        for (int b = 0; b < sortedBuffers.size(); b++) {
+          Buffer buffer = sortedBuffers.get(b);
+          if (cursors[b] < buffer.size
+            && (min < 0 || compareHash(buffer.blockData, cursors[b], sortedBuffers.get(min).blockData, cursors[min]) < 0)) {
+            min = b;
+          }
+        }
+        Buffer buffer = sortedBuffers.get(min);
+        int local = cursors[min];
+        resourceIds[position] = buffer.resourceIds[local];
+        System.arraycopy(buffer.blockData, local * blockInts, blockData, position * blockInts, blockInts);
+        positions[min][local] = position;
+        cursors[min]++;
+      }
+      return positions;
+    }
+
+    private void mergeByResource(List<Buffer> sortedBuffers, int[][] positions) {
+      int[] cursors = new int[sortedBuffers.size()];
+      for (int position = 0; position < size; position++) {
+        int min = -1;
+        String minResourceId = null;
+        for (int b = 0; b < sortedBuffers.size(); b++) {
+          Buffer buffer = sortedBuffers.get(b);
+          if (cursors[b] < buffer.size) {
+            String resourceId = buffer.resourceIds[buffer.byResource[cursors[b]]];
+            if (min < 0 || FastStringComparator.INSTANCE.compare(resourceId, minResourceId) < 0) {
+              min = b;
+              minResourceId = resourceId;
+            }
+          }
+        }
+        Buffer buffer = sortedBuffers.get(min);
+        byResource[position] = positions[min][buffer.byResource[cursors[min]]];
+        cursors[min]++;
+      }
+    }
+
+    Collection<Block> getBySequenceHash(ByteArray sequenceHash) {
+      int[] hash = toHashInts(sequenceHash);
+      int lower = 0;
+      int upper = size;
+      while (lower < upper) {
+        int mid = (lower + upper) >>> 1;
+        if (compareHash(blockData, mid, hash, 0) < 0) {
+          lower = mid + 1;
+        } else {
+          upper = mid;
+        }
+      }
+      List<Block> result = new ArrayList<>();
+      Block.Builder builder = Block.builder();
+      for (int index = lower; index < size && compareHash(blockData, index, hash, 0) == 0; index++) {
+        result.add(createBlock(builder, index, sequenceHash));
+      }
+      return result;
+    }
+
+    Collection<Block> getByResourceId(String resourceId) {
+      int lower = lowerBoundByResource(resourceId);
+      List<Block> result = new ArrayList<>();
+      Block.Builder builder = Block.builder();
+      for (int index = lower; index < size && resourceIds[byResource[index]].equals(resourceId); index++) {
+        result.add(createBlock(builder, byResource[index], null));
+      }
+      return result;
+    }
+
+    private int lowerBoundByResource(String resourceId) {
+      int lower = 0;
+      int upper = size;
+      while (lower < upper) {
+        int mid = (lower + upper) >>> 1;
+        if (FastStringComparator.INSTANCE.compare(resourceIds[byResource[mid]], resourceId) < 0) {
+          lower = mid + 1;
+        } else {
+          upper = mid;
+        }
+      }
+      return lower;
+    }
+
+    int noResources() {
+      int count = 0;
+      String lastResource = null;
+      for (int i = 0; i < size; i++) {
+        String resource = resourceIds[byResource[i]];
+        if (!resource.equals(lastResource)) {
+          count++;
+          lastResource = resource;
+        }
+      }
+      return count;
+    }
+
+    private Block createBlock(Block.Builder builder, int index, @Nullable ByteArray hash) {
+      int offset = index * blockInts;
+      ByteArray blockHash = hash;
+      if (blockHash == null) {
+        int[] ints = new int[hashInts];
+        System.arraycopy(blockData, offset, ints, 0, hashInts);
+        blockHash = new ByteArray(ints);
+      }
+      offset += hashInts;
+      return builder
+        .setResourceId(resourceIds[index])
+        .setBlockHash(blockHash)
+        .setIndexInFile(blockData[offset])
+        .setLines(blockData[offset + 1], blockData[offset + 2])
+        .setUnit(blockData[offset + 3], blockData[offset + 4])
+        .build();
+    }
+
+    private class ResourceIterator implements Iterator<ResourceBlocks> {
+      private final Block.Builder builder = Block.builder();
+      private int index = 0;
+
+      @Override
+      public boolean hasNext() {
+        return index < size;
+      }
+
+      @Override
+      public ResourceBlocks next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        String resourceId = resourceIds[byResource[index]];
+        List<Block> blocks = new ArrayList<>();
+        do {
+          blocks.add(createBlock(builder, byResource[index], null));
+          index++;
+        } while (hasNext() && resourceIds[byResource[index]].equals(resourceId));
+        return new ResourceBlocks(resourceId, blocks);
+      }
+    }
+  }
+}
@@ -0,0 +1,168 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.duplications.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+import org.sonar.duplications.index.PackedMemoryCloneIndex.ResourceBlocks;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ShardedPackedCloneIndexTest {
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private ShardedPackedCloneIndex underTest = new ShardedPackedCloneIndex();
+
+  @Test
+  public void lookups() {
+    underTest.insert(newBlock("a", 1, 0));
+    underTest.insert(newBlock("a", 2, 1));
+    underTest.insert(newBlock("b", 1, 0));
+    underTest.insert(newBlock("c", 1, 0));
+    underTest.insert(newBlock("e", 1, 0));
+    underTest.insert(newBlock("e", 2, 1));
+    underTest.insert(newBlock("e", 3, 2));
+
+    assertThat(underTest.noResources()).isEqualTo(4);
+    assertThat(underTest.getBySequenceHash(new ByteArray(1L))).extracting(Block::getResourceId).containsExactlyInAnyOrder("a", "b", "c", "e");
+    assertThat(underTest.getBySequenceHash(new ByteArray(2L))).extracting(Block::getResourceId).containsExactlyInAnyOrder("a", "e");
+    assertThat(underTest.getBySequenceHash(new ByteArray(4L))).isEmpty();
+    assertThat(underTest.getByResourceId("e")).extracting(Block::getIndexInFile).containsExactlyInAnyOrder(0, 1, 2);
+    assertThat(underTest.getByResourceId("does not exist")).isEmpty();
+  }
+
+  @Test
+  public void blocks_have_the_requested_hash_instance() {
+    underTest.insert(newBlock("a", 1, 0));
+    underTest.insert(newBlock("b", 1, 0));
+    ByteArray requestedHash = new ByteArray(1L);
+
+    Collection<Block> blocks = underTest.getBySequenceHash(requestedHash);
+
+    assertThat(blocks).hasSize(2).allMatch(b -> b.getBlockHash() == requestedHash);
+  }
+
+  @Test
+  public void iterate_by_resource() {
+    underTest.insert(newBlock("a", 1, 0));
+    underTest.insert(newBlock("c", 1, 0));
+    underTest.insert(newBlock("b", 1, 0));
+    underTest.insert(newBlock("c", 2, 1));
+    underTest.insert(newBlock("a", 2, 1));
+
+    List<ResourceBlocks> resourcesBlocks = new ArrayList<>();
+    underTest.iterator().forEachRemaining(resourcesBlocks::add);
+
+    assertThat(resourcesBlocks).extracting(ResourceBlocks::resourceId).containsExactly("a", "b", "c");
+    assertThat(resourcesBlocks.get(0).blocks()).extracting(Block::getBlockHash).containsExactlyInAnyOrder(new ByteArray(1L), new ByteArray(2L));
+    assertThat(resourcesBlocks.get(1).blocks()).hasSize(1);
+    assertThat(resourcesBlocks.get(2).blocks()).hasSize(2);
+  }
+
+  @Test
+  public void empty_index() {
+    assertThat(underTest.noResources()).isZero();
+    assertThat(underTest.getBySequenceHash(new ByteArray(1L))).isEmpty();
+    assertThat(underTest.iterator().hasNext()).isFalse();
+  }
+
+  @Test
+  public void concurrent_insertions_are_equivalent_to_PackedMemoryCloneIndex() throws Exception {
+    List<Block> blocks = new ArrayList<>();
+    for (int file = 0; file < 200; file++) {
+      for (int i = 0; i < 30; i++) {
+        blocks.add(newBlock("file" + file, (file * 31L + i * 17L) % 500, i));
+      }
+    }
+    PackedMemoryCloneIndex reference = new PackedMemoryCloneIndex();
+    blocks.forEach(reference::insert);
+
+    int threads = 4;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        int first = t;
+        futures.add(executor.submit(() -> {
+          for (int i = first; i < blocks.size(); i += threads) {
+            underTest.insert(blocks.get(i));
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    underTest.seal();
+
+    assertThat(underTest.noResources()).isEqualTo(reference.noResources());
+    for (long hash = 0; hash < 500; hash++) {
+      assertThat(underTest.getBySequenceHash(new ByteArray(hash))).containsOnlyElementsOf(reference.getBySequenceHash(new ByteArray(hash)))
+        .hasSameSizeAs(reference.getBySequenceHash(new ByteArray(hash)));
+    }
+    for (int file = 0; file < 200; file++) {
+      assertThat(underTest.getByResourceId("file" + file)).containsOnlyElementsOf(reference.getByResourceId("file" + file))
+        .hasSize(30);
+    }
+  }
+
+  @Test
+  public void fail_to_insert_once_sealed() {
+    underTest.insert(newBlock("a", 1, 0));
+    underTest.getByResourceId("a");
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Index is sealed, blocks can't be inserted anymore");
+
+    underTest.insert(newBlock("b", 1, 0));
+  }
+
+  @Test
+  public void fail_to_insert_hash_of_incorrect_size() {
+    ShardedPackedCloneIndex index = new ShardedPackedCloneIndex(4);
+
+    expectedException.expect(IllegalArgumentException.class);
+
+    index.insert(newBlock("a", 1, 0));
+  }
+
+  private static Block newBlock(String resourceId, long hash, int indexInFile) {
+    return Block.builder()
+      .setResourceId(resourceId)
+      .setBlockHash(new ByteArray(hash))
+      .setIndexInFile(indexInFile)
+      .setLines(indexInFile, indexInFile + 1)
+      .setUnit(indexInFile, indexInFile + 2)
+      .build();
+  }
+}
@@ -95,6 +95,8 @@ public class FileCache {
     download(downloader, targetFile.getName(), tempFile);
     String downloadedHash = hashes.of(tempFile);
     if (!expectedHash.equals(downloadedHash)) {
+      // corrupted downloads must not pile up in the temp dir, for instance when plugins are downloaded concurrently
+      deleteQuietly(tempFile);
       throw new IllegalStateException("INVALID HASH: File " + tempFile.getAbsolutePath() + " was expected to have hash " + expectedHash
         + " but was downloaded with hash " + downloadedHash);
     }
@@ -157,6 +159,14 @@ public class FileCache {
     }
   }
 
+  private void deleteQuietly(File file) {
+    try {
+      Files.deleteIfExists(file.toPath());
+    } catch (IOException e) {
+      logger.warn(String.format("Unable to delete %s", file.getAbsolutePath()));
+    }
+  }
+
   private File hashDir(String hash) {
     return new File(cacheDir, hash);
   }
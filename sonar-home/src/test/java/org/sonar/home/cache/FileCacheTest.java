@@ -29,6 +29,7 @@ import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verifyZeroInteractions;
@@ -182,6 +183,22 @@ public class FileCacheTest {
     cache.get("sonar-foo-plugin-1.5.jar", "ABCDE", downloader);
   }
 
+  @Test
+  public void corrupted_file_is_removed_from_temp_dir() throws IOException {
+    when(fileHashes.of(any(File.class))).thenReturn("VWXYZ");
+
+    FileCache.Downloader downloader = (filename, toFile) -> FileUtils.write(toFile, "corrupted body");
+    try {
+      cache.get("sonar-foo-plugin-1.5.jar", "ABCDE", downloader);
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessageContaining("INVALID HASH");
+    }
+
+    assertThat(new File(cache.getDir(), "_tmp").list()).isEmpty();
+    assertThat(new File(cache.getDir(), "ABCDE")).doesNotExist();
+  }
+
   @Test
   public void concurrent_download() throws IOException {
     when(fileHashes.of(any(File.class))).thenReturn("ABCDE");
@@ -0,0 +1,137 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.api.benchmark;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.api.batch.fs.internal.PathPattern;
+import org.sonar.api.batch.fs.internal.PathPatternMatcher;
+
+/**
+ * Matching of {@link #FILES} paths against groups of patterns, as done by the scanner when indexing files:
+ * <ul>
+ *   <li>LANGUAGES: a group of extensions per language, like the default suffixes of languages</li>
+ *   <li>EXCLUSIONS: a single group of patterns, like the properties sonar.exclusions and sonar.test.inclusions</li>
+ * </ul>
+ * Each benchmark compares the loop on {@link PathPattern} with {@link PathPatternMatcher}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class PathPatternMatcherBenchmark {
+
+  static final int FILES = 10_000;
+
+  private static final String[][] LANGUAGE_SUFFIXES = {
+    {"java", "jav"}, {"js", "jsx", "vue"}, {"ts", "tsx"}, {"py"}, {"cs"}, {"vb"}, {"c", "h"},
+    {"cpp", "cc", "cxx", "c++", "hpp", "hh", "hxx", "h++", "ipp"}, {"m"}, {"swift"}, {"go"}, {"php", "php3", "php4", "php5", "phtml", "inc"},
+    {"rb"}, {"scala"}, {"kt"}, {"xml", "xsd", "xsl"}, {"html", "xhtml", "cshtml", "vbhtml", "aspx", "ascx", "rhtml", "erb", "shtm", "shtml"},
+    {"css", "less", "scss"}, {"cbl", "ccp", "cob", "cpy"}, {"abap", "ab4", "flow", "asprog"}, {"pls", "pkb", "pks", "sql"}, {"fls"}};
+
+  private static final String[] EXCLUSIONS = {"**/generated/**", "**/*Test.java", "**/*IT.java", "**/test/**", "**/node_modules/**",
+    "**/*.min.js", "src/main/webapp/vendor/**", "**/package-info.java", "target/**", "**/*.designer.cs"};
+
+  private static final String[] DIRECTORIES = {"src/main/java/org/sonar/core", "src/test/java/org/sonar/core", "src/main/js/components/ui",
+    "app/models", "lib/vendor/generated", "modules/web/src/main/webapp/vendor/jquery", "include/sonar", "db/migrations", "node_modules/react/lib"};
+
+  private static final String[] EXTENSIONS = {"java", "java", "java", "js", "ts", "py", "xml", "cpp", "h", "sql", "txt", "md", "json", "properties", "JAVA"};
+
+  public enum PatternSet {
+    LANGUAGES, EXCLUSIONS
+  }
+
+  @Param({"LANGUAGES", "EXCLUSIONS"})
+  public PatternSet patternSet;
+
+  private final List<Path> absolutePaths = new ArrayList<>(FILES);
+  private final List<Path> relativePaths = new ArrayList<>(FILES);
+  private List<PathPattern[]> groups;
+  private PathPatternMatcher matcher;
+
+  @Setup
+  public void setUp() {
+    Path baseDir = Paths.get("/home/project").toAbsolutePath();
+    Random random = new Random(42);
+    for (int i = 0; i < FILES; i++) {
+      String suffix = i % 10 == 0 ? "Test" : "";
+      String path = DIRECTORIES[random.nextInt(DIRECTORIES.length)] + "/File" + i + suffix + "." + EXTENSIONS[random.nextInt(EXTENSIONS.length)];
+      relativePaths.add(Paths.get(path));
+      absolutePaths.add(baseDir.resolve(path));
+    }
+
+    groups = new ArrayList<>();
+    if (patternSet == PatternSet.LANGUAGES) {
+      for (String[] suffixes : LANGUAGE_SUFFIXES) {
+        String[] patterns = new String[suffixes.length];
+        for (int i = 0; i < suffixes.length; i++) {
+          patterns[i] = "**/*." + suffixes[i];
+        }
+        groups.add(PathPattern.create(patterns));
+      }
+    } else {
+      groups.add(PathPattern.create(EXCLUSIONS));
+    }
+    matcher = PathPatternMatcher.create(groups);
+  }
+
+  @Benchmark
+  public void pathPatterns(Blackhole blackhole) {
+    for (int file = 0; file < FILES; file++) {
+      for (PathPattern[] group : groups) {
+        blackhole.consume(matchAny(group, absolutePaths.get(file), relativePaths.get(file)));
+      }
+    }
+  }
+
+  @Benchmark
+  public void pathPatternMatcher(Blackhole blackhole) {
+    for (int file = 0; file < FILES; file++) {
+      blackhole.consume(matcher.matchingGroups(absolutePaths.get(file), relativePaths.get(file), false));
+    }
+  }
+
+  private static boolean matchAny(PathPattern[] patterns, Path absolutePath, Path relativePath) {
+    for (PathPattern pattern : patterns) {
+      if (pattern.match(absolutePath, relativePath, false)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -48,6 +48,11 @@ public abstract class PathPattern {
 
   public abstract boolean match(Path absolutePath, Path relativePath, boolean caseSensitiveFileExtension);
 
+  /**
+   * Whether the pattern applies to the absolute path of files (deprecated) or to their path relative to module basedir
+   */
+  abstract boolean isAbsolute();
+
   public static PathPattern create(String s) {
     String trimmed = StringUtils.trim(s);
     if (StringUtils.startsWithIgnoreCase(trimmed, ABSOLUTE_PATH_PATTERN_PREFIX)) {
@@ -83,15 +88,16 @@ public abstract class PathPattern {
     public boolean match(Path absolutePath, Path relativePath, boolean caseSensitiveFileExtension) {
       String path = PathUtils.sanitize(absolutePath.toString());
       if (!caseSensitiveFileExtension) {
-        String extension = sanitizeExtension(FilenameUtils.getExtension(path));
-        if (StringUtils.isNotBlank(extension)) {
-          path = StringUtils.removeEndIgnoreCase(path, extension);
-          path = path + extension;
-        }
+        path = lowerCaseExtension(path);
       }
       return pattern.match(path);
     }
 
+    @Override
+    boolean isAbsolute() {
+      return true;
+    }
+
     @Override
     public String toString() {
       return ABSOLUTE_PATH_PATTERN_PREFIX + pattern.toString();
@@ -115,21 +121,33 @@ public abstract class PathPattern {
     public boolean match(Path absolutePath, Path relativePath, boolean caseSensitiveFileExtension) {
       String path = PathUtils.sanitize(relativePath.toString());
       if (!caseSensitiveFileExtension) {
-        String extension = sanitizeExtension(FilenameUtils.getExtension(path));
-        if (StringUtils.isNotBlank(extension)) {
-          path = StringUtils.removeEndIgnoreCase(path, extension);
-          path = path + extension;
-        }
+        path = lowerCaseExtension(path);
       }
       return path != null && pattern.match(path);
     }
 
+    @Override
+    boolean isAbsolute() {
+      return false;
+    }
+
     @Override
     public String toString() {
       return pattern.toString();
     }
   }
 
+  /**
+   * Lower-cases the extension of the file, if any
+   */
+  static String lowerCaseExtension(String path) {
+    String extension = sanitizeExtension(FilenameUtils.getExtension(path));
+    if (StringUtils.isNotBlank(extension)) {
+      return StringUtils.removeEndIgnoreCase(path, extension) + extension;
+    }
+    return path;
+  }
+
   static String sanitizeExtension(String suffix) {
     return StringUtils.lowerCase(StringUtils.removeStart(suffix, "."));
   }
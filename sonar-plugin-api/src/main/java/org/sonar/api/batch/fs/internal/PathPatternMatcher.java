@@ -0,0 +1,248 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.api.batch.fs.internal;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.commons.lang.StringUtils;
+import org.sonar.api.utils.PathUtils;
+
+import static java.util.stream.Collectors.joining;
+
+/**
+ * Matches paths against groups of {@link PathPattern}, for example the patterns of each language, without
+ * evaluating the patterns one by one. The result is the same as calling {@link PathPattern#match(Path, Path, boolean)}
+ * on every pattern of every group:
+ * <ul>
+ *   <li>patterns <code>**&#47;*.ext</code> are indexed by suffix, so that a lookup per dot in the file name is enough</li>
+ *   <li>other patterns <code>**&#47;*suffix</code>, where suffix has no wildcard, are checked with {@link String#endsWith(String)}</li>
+ *   <li>remaining patterns of a group are merged in a single regular expression</li>
+ * </ul>
+ *
+ * @since 7.1
+ */
+@ThreadSafe
+public class PathPatternMatcher {
+
+  private static final int[] NO_GROUPS = new int[0];
+
+  private final int groupCount;
+  private final Map<String, int[]> groupsByExtension;
+  private final String[] suffixes;
+  private final int[] suffixGroups;
+  private final Pattern[] regexpsByGroup;
+  private final PathPattern[][] absolutePatternsByGroup;
+
+  private PathPatternMatcher(List<PathPattern[]> groups) {
+    this.groupCount = groups.size();
+    Map<String, int[]> extensions = new HashMap<>();
+    List<String> suffixList = new ArrayList<>();
+    List<Integer> suffixGroupList = new ArrayList<>();
+    this.regexpsByGroup = new Pattern[groupCount];
+    this.absolutePatternsByGroup = new PathPattern[groupCount][];
+
+    for (int group = 0; group < groupCount; group++) {
+      List<String> regexps = new ArrayList<>();
+      List<PathPattern> absolutePatterns = new ArrayList<>();
+      for (PathPattern pathPattern : groups.get(group)) {
+        if (pathPattern.isAbsolute()) {
+          absolutePatterns.add(pathPattern);
+          continue;
+        }
+        String suffix = literalSuffixOf(pathPattern.pattern.toString());
+        if (suffix == null) {
+          regexps.add(pathPattern.pattern.regexp());
+        } else if (suffix.charAt(0) == '.') {
+          extensions.merge(suffix, new int[] {group}, PathPatternMatcher::union);
+        } else {
+          suffixList.add(suffix);
+          suffixGroupList.add(group);
+        }
+      }
+      if (!regexps.isEmpty()) {
+        regexpsByGroup[group] = Pattern.compile(regexps.stream().map(r -> "(?:" + r + ")").collect(joining("|")));
+      }
+      absolutePatternsByGroup[group] = absolutePatterns.toArray(new PathPattern[absolutePatterns.size()]);
+    }
+
+    this.groupsByExtension = Collections.unmodifiableMap(extensions);
+    this.suffixes = suffixList.toArray(new String[suffixList.size()]);
+    this.suffixGroups = suffixGroupList.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  /**
+   * @param groups the groups of patterns. The index of a group in this list is its index in the results of
+   * {@link #matchingGroups(Path, Path, boolean)}
+   */
+  public static PathPatternMatcher create(List<PathPattern[]> groups) {
+    return new PathPatternMatcher(groups);
+  }
+
+  /**
+   * Matcher of a single group of patterns
+   */
+  public static PathPatternMatcher create(PathPattern[] patterns) {
+    return new PathPatternMatcher(Collections.singletonList(patterns));
+  }
+
+  public int groupCount() {
+    return groupCount;
+  }
+
+  /**
+   * Whether at least one of the patterns matches, whatever its group. Extensions are case-sensitive, like
+   * {@link PathPattern#match(Path, Path)}.
+   */
+  public boolean matchAny(Path absolutePath, Path relativePath) {
+    return match(absolutePath, relativePath, true, null);
+  }
+
+  /**
+   * Indices of the groups having at least one pattern that matches the file.
+   */
+  public BitSet matchingGroups(Path absolutePath, Path relativePath, boolean caseSensitiveFileExtension) {
+    BitSet result = new BitSet(groupCount);
+    match(absolutePath, relativePath, caseSensitiveFileExtension, result);
+    return result;
+  }
+
+  /**
+   * Adds the indices of matching groups to {@code result}. If {@code result} is null, then stops at the
+   * first match.
+   *
+   * @return whether at least one group matches
+   */
+  private boolean match(Path absolutePath, Path relativePath, boolean caseSensitiveFileExtension, @Nullable BitSet result) {
+    boolean matched = false;
+    String value = relativeValue(relativePath, caseSensitiveFileExtension);
+    if (value != null) {
+      matched = matchSuffixes(value, result);
+      if (matched && result == null) {
+        return true;
+      }
+      for (int group = 0; group < groupCount; group++) {
+        if (result != null && result.get(group)) {
+          continue;
+        }
+        Pattern regexp = regexpsByGroup[group];
+        if (regexp != null && regexp.matcher(value).matches()) {
+          if (result == null) {
+            return true;
+          }
+          result.set(group);
+          matched = true;
+        }
+      }
+    }
+    for (int group = 0; group < groupCount; group++) {
+      if (result != null && result.get(group)) {
+        continue;
+      }
+      for (PathPattern pathPattern : absolutePatternsByGroup[group]) {
+        if (pathPattern.match(absolutePath, relativePath, caseSensitiveFileExtension)) {
+          if (result == null) {
+            return true;
+          }
+          result.set(group);
+          matched = true;
+          break;
+        }
+      }
+    }
+    return matched;
+  }
+
+  private boolean matchSuffixes(String value, @Nullable BitSet result) {
+    boolean matched = false;
+    if (!groupsByExtension.isEmpty()) {
+      // extensions can contain dots, for example "d.ts", so every dot of the file name is tested
+      int nameStart = value.lastIndexOf('/') + 1;
+      for (int dot = value.indexOf('.', nameStart); dot >= 0; dot = value.indexOf('.', dot + 1)) {
+        int[] groups = groupsByExtension.getOrDefault(value.substring(dot), NO_GROUPS);
+        for (int group : groups) {
+          if (result == null) {
+            return true;
+          }
+          result.set(group);
+          matched = true;
+        }
+      }
+    }
+    for (int i = 0; i < suffixes.length; i++) {
+      if (value.endsWith(suffixes[i])) {
+        if (result == null) {
+          return true;
+        }
+        result.set(suffixGroups[i]);
+        matched = true;
+      }
+    }
+    return matched;
+  }
+
+  /**
+   * Path as matched by {@link PathPattern} and {@link org.sonar.api.utils.WildcardPattern}
+   */
+  @CheckForNull
+  private static String relativeValue(Path relativePath, boolean caseSensitiveFileExtension) {
+    String path = PathUtils.sanitize(relativePath.toString());
+    if (path == null) {
+      return null;
+    }
+    if (!caseSensitiveFileExtension) {
+      path = PathPattern.lowerCaseExtension(path);
+    }
+    return StringUtils.removeEnd(StringUtils.removeStart(path, "/"), "/");
+  }
+
+  /**
+   * Returns the suffix of patterns <code>**&#47;*suffix</code>, where suffix has no wildcards nor directory separators,
+   * else null. Such patterns match the paths ending with the suffix.
+   */
+  @CheckForNull
+  static String literalSuffixOf(String pattern) {
+    String glob = pattern.startsWith("/") || pattern.startsWith("\\") ? pattern.substring(1) : pattern;
+    if (glob.length() <= 4 || !glob.startsWith("**") || !isSlash(glob.charAt(2)) || glob.charAt(3) != '*') {
+      return null;
+    }
+    String suffix = glob.substring(4);
+    return StringUtils.containsNone(suffix, "*?/\\") ? suffix : null;
+  }
+
+  private static boolean isSlash(char ch) {
+    return ch == '/' || ch == '\\';
+  }
+
+  private static int[] union(int[] groups, int[] others) {
+    int[] result = new int[groups.length + others.length];
+    System.arraycopy(groups, 0, result, 0, groups.length);
+    System.arraycopy(others, 0, result, groups.length, others.length);
+    return result;
+  }
+}
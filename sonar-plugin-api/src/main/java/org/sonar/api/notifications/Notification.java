@@ -20,6 +20,7 @@
 package org.sonar.api.notifications;
 
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import javax.annotation.CheckForNull;
@@ -115,6 +116,16 @@ public class Notification implements Serializable {
     return fields.get(field);
   }
 
+  /**
+   * Returns all the fields of the notification, including those with a {@code null} value.
+   *
+   * @return an unmodifiable view of the fields, by name
+   * @since 7.1
+   */
+  public Map<String, String> getFieldValues() {
+    return Collections.unmodifiableMap(fields);
+  }
+
   @Override
   public boolean equals(Object obj) {
     if (!(obj instanceof Notification)) {
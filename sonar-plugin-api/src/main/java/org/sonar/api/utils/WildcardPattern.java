@@ -136,6 +136,16 @@ public class WildcardPattern {
     return stringRepresentation;
   }
 
+  /**
+   * Returns the regular expression applied by {@link #match(String)}, once the leading and trailing
+   * slashes of the value are removed. It allows to merge several patterns in a single expression.
+   *
+   * @since 7.1
+   */
+  public String regexp() {
+    return pattern.pattern();
+  }
+
   /**
    * Returns true if specified value matches this pattern.
    */
@@ -0,0 +1,164 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.api.batch.fs.internal;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PathPatternMatcherTest {
+
+  private static final Path BASE_DIR = Paths.get("/home/project").toAbsolutePath();
+
+  private static final String[] PATTERNS = {
+    "**/*.java", "**/*.JAVA", "**/*.jav", "**/*.d.ts", "**/*.ts", "**/*.", "/**/*.cpp", "**\\*.h", "**/*.c++",
+    "**/*Test.java", "**/*IT.java", "**/*$1.java", "**/*[x].java", "**/package-info.java",
+    "src/main/**", "src/*/java/**/*.java", "**/generated/**", "**/test/**/Foo?.java", "*.xml", "**", "**/*", "org/**",
+    "src/**/*.java", "**/*.*", "*", "  **/*.py  ",
+    "file:**/src/main/**/*.java", "FILE:**/*.kt"
+  };
+
+  private static final String[] PATHS = {
+    "Foo.java", "Foo.JAVA", "Foo.Java", "src/main/java/org/Foo.java", "src/main/java/org/FooTest.java",
+    "src/test/java/org/FooIT.java", "src/test/java/org/Foo1.java", "src/test/java/org/test/Foo2.java",
+    "src/main/java/org/Foo$1.java", "src/main/java/org/Foo[x].java", "src/main/java/org/package-info.java",
+    "app/types.d.ts", "app/types.D.TS", "app/main.ts", "app/main.d.TS", "lib/math.cpp", "lib/math.CPP", "include/math.h",
+    "lib/algo.c++", "lib/.java", "lib/java", "lib/noext", "lib/trailing.", "generated/Foo.java",
+    "src/generated/org/Foo.java", "pom.xml", "module/pom.xml", "org/Foo.kt", "src/Foo.KT", "script.py",
+    "a.b.c/file", "dir.java/file", "dir.java/file.java", "src/main/resources/app.properties"
+  };
+
+  @Test
+  public void same_results_as_path_patterns_when_patterns_are_in_a_single_group() {
+    for (String pattern : PATTERNS) {
+      assertSameResults(singletonList(PathPattern.create(new String[] {pattern})));
+    }
+    assertSameResults(singletonList(PathPattern.create(PATTERNS)));
+  }
+
+  @Test
+  public void same_results_as_path_patterns_when_patterns_are_in_multiple_groups() {
+    // a group per pattern
+    assertSameResults(Arrays.stream(PATTERNS).map(p -> PathPattern.create(new String[] {p})).collect(Collectors.toList()));
+
+    // some patterns in several groups, and an empty group
+    assertSameResults(asList(
+      PathPattern.create(new String[] {"**/*.java", "**/*.jav"}),
+      PathPattern.create(new String[0]),
+      PathPattern.create(new String[] {"**/*.java", "**/*Test.java", "src/main/**"}),
+      PathPattern.create(new String[] {"**/*.d.ts", "**/*.ts", "file:**/*.ts"})));
+  }
+
+  @Test
+  public void match_extensions_of_a_group() {
+    PathPatternMatcher underTest = PathPatternMatcher.create(asList(
+      PathPattern.create(new String[] {"**/*.java", "**/*.jav"}),
+      PathPattern.create(new String[] {"**/*.d.ts", "**/*.ts"}),
+      PathPattern.create(new String[] {"**/*.ts"})));
+
+    assertThat(underTest.groupCount()).isEqualTo(3);
+    assertThat(underTest.matchingGroups(absolute("src/Foo.JAVA"), Paths.get("src/Foo.JAVA"), false)).isEqualTo(bits(0));
+    assertThat(underTest.matchingGroups(absolute("src/Foo.JAVA"), Paths.get("src/Foo.JAVA"), true)).isEqualTo(bits());
+    assertThat(underTest.matchingGroups(absolute("src/Foo.d.ts"), Paths.get("src/Foo.d.ts"), true)).isEqualTo(bits(1, 2));
+    assertThat(underTest.matchingGroups(absolute("src.java/Foo"), Paths.get("src.java/Foo"), true)).isEqualTo(bits());
+  }
+
+  @Test
+  public void match_any() {
+    PathPatternMatcher underTest = PathPatternMatcher.create(PathPattern.create(new String[] {"**/*Test.java", "**/generated/**"}));
+
+    assertThat(underTest.matchAny(absolute("src/FooTest.java"), Paths.get("src/FooTest.java"))).isTrue();
+    assertThat(underTest.matchAny(absolute("src/generated/Foo.java"), Paths.get("src/generated/Foo.java"))).isTrue();
+    assertThat(underTest.matchAny(absolute("src/Foo.java"), Paths.get("src/Foo.java"))).isFalse();
+    // case sensitive
+    assertThat(underTest.matchAny(absolute("src/FooTest.JAVA"), Paths.get("src/FooTest.JAVA"))).isFalse();
+  }
+
+  @Test
+  public void no_patterns() {
+    PathPatternMatcher underTest = PathPatternMatcher.create(new PathPattern[0]);
+
+    assertThat(underTest.matchAny(absolute("src/Foo.java"), Paths.get("src/Foo.java"))).isFalse();
+    assertThat(underTest.matchingGroups(absolute("src/Foo.java"), Paths.get("src/Foo.java"), false).isEmpty()).isTrue();
+  }
+
+  @Test
+  public void literal_suffix_of_patterns() {
+    assertThat(PathPatternMatcher.literalSuffixOf("**/*.java")).isEqualTo(".java");
+    assertThat(PathPatternMatcher.literalSuffixOf("/**/*.java")).isEqualTo(".java");
+    assertThat(PathPatternMatcher.literalSuffixOf("**\\*.java")).isEqualTo(".java");
+    assertThat(PathPatternMatcher.literalSuffixOf("**/*Test.java")).isEqualTo("Test.java");
+    assertThat(PathPatternMatcher.literalSuffixOf("**/*")).isNull();
+    assertThat(PathPatternMatcher.literalSuffixOf("**/*.*")).isNull();
+    assertThat(PathPatternMatcher.literalSuffixOf("**/*Fo?.java")).isNull();
+    assertThat(PathPatternMatcher.literalSuffixOf("**/*/Foo.java")).isNull();
+    assertThat(PathPatternMatcher.literalSuffixOf("**/Foo.java")).isNull();
+    assertThat(PathPatternMatcher.literalSuffixOf("src/**/*.java")).isNull();
+    assertThat(PathPatternMatcher.literalSuffixOf("**/**.java")).isNull();
+  }
+
+  private static void assertSameResults(List<PathPattern[]> groups) {
+    PathPatternMatcher underTest = PathPatternMatcher.create(groups);
+    for (String path : PATHS) {
+      Path relativePath = Paths.get(path);
+      Path absolutePath = absolute(path);
+      for (boolean caseSensitive : new boolean[] {true, false}) {
+        BitSet expected = new BitSet();
+        for (int group = 0; group < groups.size(); group++) {
+          for (PathPattern pattern : groups.get(group)) {
+            if (pattern.match(absolutePath, relativePath, caseSensitive)) {
+              expected.set(group);
+            }
+          }
+        }
+        assertThat(underTest.matchingGroups(absolutePath, relativePath, caseSensitive))
+          .as("path %s, case sensitive: %s, patterns %s", path, caseSensitive, describe(groups))
+          .isEqualTo(expected);
+        if (caseSensitive) {
+          assertThat(underTest.matchAny(absolutePath, relativePath)).as("path %s, patterns %s", path, describe(groups)).isEqualTo(!expected.isEmpty());
+        }
+      }
+    }
+  }
+
+  private static String describe(List<PathPattern[]> groups) {
+    return groups.stream().map(group -> Arrays.toString(group)).collect(Collectors.joining(", "));
+  }
+
+  private static Path absolute(String relativePath) {
+    return BASE_DIR.resolve(relativePath);
+  }
+
+  private static BitSet bits(int... indices) {
+    BitSet bits = new BitSet();
+    for (int index : indices) {
+      bits.set(index);
+    }
+    return bits;
+  }
+}
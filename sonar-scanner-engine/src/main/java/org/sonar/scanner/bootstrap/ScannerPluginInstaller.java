@@ -20,15 +20,22 @@
 package org.sonar.scanner.bootstrap;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.gson.Gson;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import org.apache.commons.io.FileUtils;
 import org.sonar.api.utils.log.Logger;
@@ -49,6 +56,7 @@ public class ScannerPluginInstaller implements PluginInstaller {
 
   private static final Logger LOG = Loggers.get(ScannerPluginInstaller.class);
   private static final String PLUGINS_WS_URL = "/api/plugins/installed";
+  private static final int MAX_DOWNLOAD_THREADS = 4;
 
   private final FileCache fileCache;
   private final ScannerPluginPredicate pluginPredicate;
@@ -66,21 +74,58 @@ public class ScannerPluginInstaller implements PluginInstaller {
   }
 
   private Map<String, ScannerPlugin> loadPlugins(InstalledPlugin[] remotePlugins) {
-    Map<String, ScannerPlugin> infosByKey = new HashMap<>(remotePlugins.length);
+    List<InstalledPlugin> toLoad = Arrays.stream(remotePlugins)
+      .filter(installedPlugin -> pluginPredicate.apply(installedPlugin.key))
+      .collect(Collectors.toList());
+    Map<String, ScannerPlugin> infosByKey = new HashMap<>(toLoad.size());
 
     Profiler profiler = Profiler.create(LOG).startInfo("Load/download plugins");
 
-    for (InstalledPlugin installedPlugin : remotePlugins) {
-      if (pluginPredicate.apply(installedPlugin.key)) {
-        File jarFile = download(installedPlugin);
-        PluginInfo info = PluginInfo.create(jarFile);
-        infosByKey.put(info.getKey(), new ScannerPlugin(installedPlugin.key, installedPlugin.updatedAt, info));
+    if (toLoad.size() <= 1) {
+      toLoad.forEach(installedPlugin -> addPlugin(infosByKey, loadPlugin(installedPlugin)));
+    } else {
+      // plugins are downloaded concurrently, as most of the time is spent waiting for the server
+      ExecutorService executorService = Executors.newFixedThreadPool(Math.min(toLoad.size(), MAX_DOWNLOAD_THREADS), new ThreadFactoryBuilder()
+        .setNameFormat("PluginDownloader-%d")
+        .setDaemon(true)
+        .build());
+      try {
+        List<Future<ScannerPlugin>> tasks = toLoad.stream()
+          .map(installedPlugin -> executorService.submit(() -> loadPlugin(installedPlugin)))
+          .collect(Collectors.toList());
+        for (Future<ScannerPlugin> task : tasks) {
+          addPlugin(infosByKey, waitFor(task));
+        }
+      } finally {
+        executorService.shutdownNow();
       }
     }
     profiler.stopInfo();
     return infosByKey;
   }
 
+  private ScannerPlugin loadPlugin(InstalledPlugin installedPlugin) {
+    File jarFile = download(installedPlugin);
+    PluginInfo info = PluginInfo.create(jarFile);
+    return new ScannerPlugin(installedPlugin.key, installedPlugin.updatedAt, info);
+  }
+
+  private static void addPlugin(Map<String, ScannerPlugin> infosByKey, ScannerPlugin plugin) {
+    infosByKey.put(plugin.getInfo().getKey(), plugin);
+  }
+
+  private static ScannerPlugin waitFor(Future<ScannerPlugin> task) {
+    try {
+      return task.get();
+    } catch (ExecutionException e) {
+      // Unwrap ExecutionException
+      throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while downloading plugins", e);
+    }
+  }
+
   /**
    * Returns empty on purpose. This method is used only by medium tests.
    * @see org.sonar.scanner.mediumtest.ScannerMediumTester
@@ -0,0 +1,178 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.issue.ignore.scanner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+import javax.annotation.CheckForNull;
+import javax.annotation.concurrent.Immutable;
+
+import static java.util.stream.Collectors.joining;
+
+/**
+ * Finds several regular expressions in a line with a single evaluation in most cases:
+ * <ul>
+ *   <li>lines that contain none of the literals required by the expressions are skipped without evaluating any of them</li>
+ *   <li>expressions are merged in a single alternation, except the ones that can't be safely embedded in
+ *   another expression (capturing groups, inline flags, quotes)</li>
+ * </ul>
+ * The result is the same as calling {@link java.util.regex.Matcher#find()} on each expression.
+ */
+@Immutable
+final class CombinedRegexp {
+
+  private static final String META_CHARS = "\\[](){}.*+?^$|";
+  private static final String QUANTIFIERS = "*+?{";
+
+  private final List<Pattern> patterns;
+  @CheckForNull
+  private final Pattern union;
+  private final List<Pattern> others;
+  /**
+   * Each line matching one of the patterns contains at least one of these literals. Null if unknown.
+   */
+  @CheckForNull
+  private final String[] requiredLiterals;
+
+  CombinedRegexp(List<Pattern> patterns) {
+    this.patterns = Collections.unmodifiableList(new ArrayList<>(patterns));
+    List<Pattern> mergeable = new ArrayList<>();
+    List<Pattern> notMergeable = new ArrayList<>();
+    for (Pattern pattern : patterns) {
+      if (isMergeable(pattern)) {
+        mergeable.add(pattern);
+      } else {
+        notMergeable.add(pattern);
+      }
+    }
+    if (mergeable.size() == 1) {
+      this.union = mergeable.get(0);
+    } else if (mergeable.isEmpty()) {
+      this.union = null;
+    } else {
+      this.union = Pattern.compile(mergeable.stream().map(p -> "(?:" + p.pattern() + ")").collect(joining("|")));
+    }
+    this.others = notMergeable;
+    this.requiredLiterals = requiredLiteralsOf(patterns);
+  }
+
+  boolean isEmpty() {
+    return patterns.isEmpty();
+  }
+
+  /**
+   * Whether at least one of the patterns is found in the line
+   */
+  boolean find(String line) {
+    if (!mayMatch(line)) {
+      return false;
+    }
+    if (union != null && union.matcher(line).find()) {
+      return true;
+    }
+    for (Pattern other : others) {
+      if (other.matcher(line).find()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Index of the first pattern, in the order of the constructor, that is found in the line, or -1 if none.
+   */
+  int indexOfFirstFound(String line) {
+    if (!find(line)) {
+      return -1;
+    }
+    for (int i = 0; i < patterns.size(); i++) {
+      if (patterns.get(i).matcher(line).find()) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  Pattern get(int index) {
+    return patterns.get(index);
+  }
+
+  private boolean mayMatch(String line) {
+    if (requiredLiterals == null) {
+      return true;
+    }
+    for (String literal : requiredLiterals) {
+      if (line.contains(literal)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Capturing groups would shift the numbers of back references, and inline flags, quotes or comments could
+   * apply to the following expressions.
+   */
+  private static boolean isMergeable(Pattern pattern) {
+    String regexp = pattern.pattern();
+    return pattern.flags() == 0
+      && pattern.matcher("").groupCount() == 0
+      && !regexp.contains("(?")
+      && !regexp.contains("\\Q");
+  }
+
+  @CheckForNull
+  private static String[] requiredLiteralsOf(List<Pattern> patterns) {
+    if (patterns.isEmpty()) {
+      return null;
+    }
+    String[] literals = new String[patterns.size()];
+    for (int i = 0; i < patterns.size(); i++) {
+      String literal = requiredLiteral(patterns.get(i));
+      if (literal.isEmpty()) {
+        return null;
+      }
+      literals[i] = literal;
+    }
+    return literals;
+  }
+
+  /**
+   * Literal that is part of all the matches of the pattern, or an empty string if not known. It's the leading
+   * characters of the expression, until the first meta-character. The expression must not contain alternations.
+   */
+  static String requiredLiteral(Pattern pattern) {
+    String regexp = pattern.pattern();
+    if (pattern.flags() != 0 || regexp.indexOf('|') >= 0) {
+      return "";
+    }
+    int end = 0;
+    while (end < regexp.length() && META_CHARS.indexOf(regexp.charAt(end)) < 0) {
+      end++;
+    }
+    if (end < regexp.length() && end > 0 && QUANTIFIERS.indexOf(regexp.charAt(end)) >= 0) {
+      // the quantifier applies to the last character, which is so optional
+      end--;
+    }
+    return regexp.substring(0, end);
+  }
+}
@@ -21,6 +21,7 @@ package org.sonar.scanner.issue.ignore.scanner;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 import javax.annotation.CheckForNull;
 import org.apache.commons.lang.StringUtils;
 import org.sonar.api.batch.fs.internal.charhandler.CharHandler;
@@ -30,8 +31,9 @@ import org.sonar.scanner.issue.ignore.pattern.IssuePattern;
 import org.sonar.scanner.issue.ignore.pattern.PatternMatcher;
 
 public final class IssueExclusionsLoader {
-  private final List<java.util.regex.Pattern> allFilePatterns;
+  private final CombinedRegexp allFilePatterns;
   private final List<DoubleRegexpMatcher> blockMatchers;
+  private final CombinedRegexp blockStartPatterns;
   private final PatternMatcher patternMatcher;
   private final IssueExclusionPatternInitializer patternsInitializer;
   private final boolean enableCharHandler;
@@ -39,17 +41,20 @@ public final class IssueExclusionsLoader {
   public IssueExclusionsLoader(IssueExclusionPatternInitializer patternsInitializer, PatternMatcher patternMatcher) {
     this.patternsInitializer = patternsInitializer;
     this.patternMatcher = patternMatcher;
-    this.allFilePatterns = new ArrayList<>();
+    List<java.util.regex.Pattern> filePatterns = new ArrayList<>();
     this.blockMatchers = new ArrayList<>();
 
     for (String pattern : patternsInitializer.getAllFilePatterns()) {
-      allFilePatterns.add(java.util.regex.Pattern.compile(pattern));
+      filePatterns.add(java.util.regex.Pattern.compile(pattern));
     }
     for (BlockIssuePattern pattern : patternsInitializer.getBlockPatterns()) {
       blockMatchers.add(new DoubleRegexpMatcher(
         java.util.regex.Pattern.compile(pattern.getBeginBlockRegexp()),
         java.util.regex.Pattern.compile(pattern.getEndBlockRegexp())));
     }
+    // patterns are compiled once for all files
+    this.allFilePatterns = new CombinedRegexp(filePatterns);
+    this.blockStartPatterns = new CombinedRegexp(blockMatchers.stream().map(DoubleRegexpMatcher::firstPattern).collect(Collectors.toList()));
     enableCharHandler = !allFilePatterns.isEmpty() || !blockMatchers.isEmpty();
   }
 
@@ -68,7 +73,7 @@ public final class IssueExclusionsLoader {
   @CheckForNull
   public CharHandler createCharHandlerFor(String componentKey) {
     if (enableCharHandler) {
-      return new IssueExclusionsRegexpScanner(componentKey, allFilePatterns, blockMatchers, patternMatcher);
+      return new IssueExclusionsRegexpScanner(componentKey, allFilePatterns, blockMatchers, blockStartPatterns, patternMatcher);
     }
     return null;
   }
@@ -83,8 +88,8 @@ public final class IssueExclusionsLoader {
       this.secondPattern = secondPattern;
     }
 
-    boolean matchesFirstPattern(String line) {
-      return firstPattern.matcher(line).find();
+    java.util.regex.Pattern firstPattern() {
+      return firstPattern;
     }
 
     boolean matchesSecondPattern(String line) {
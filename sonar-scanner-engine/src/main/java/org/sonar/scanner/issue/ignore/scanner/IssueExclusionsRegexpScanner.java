@@ -23,7 +23,6 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.regex.Pattern;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -36,8 +35,12 @@ public class IssueExclusionsRegexpScanner extends CharHandler {
   private static final Logger LOG = LoggerFactory.getLogger(IssueExclusionsLoader.class);
 
   private final StringBuilder sb = new StringBuilder();
-  private final List<Pattern> allFilePatterns;
+  private final CombinedRegexp allFilePatterns;
   private final List<DoubleRegexpMatcher> blockMatchers;
+  /**
+   * Start patterns of {@link #blockMatchers}, in the same order
+   */
+  private final CombinedRegexp blockStartPatterns;
   private final String componentKey;
   private final PatternMatcher patternMatcher;
 
@@ -46,10 +49,13 @@ public class IssueExclusionsRegexpScanner extends CharHandler {
   private LineExclusion currentLineExclusion = null;
   private int fileLength = 0;
   private DoubleRegexpMatcher currentMatcher;
+  private boolean fileExcluded = false;
 
-  IssueExclusionsRegexpScanner(String componentKey, List<Pattern> allFilePatterns, List<DoubleRegexpMatcher> blockMatchers, PatternMatcher patternMatcher) {
+  IssueExclusionsRegexpScanner(String componentKey, CombinedRegexp allFilePatterns, List<DoubleRegexpMatcher> blockMatchers, CombinedRegexp blockStartPatterns,
+    PatternMatcher patternMatcher) {
     this.allFilePatterns = allFilePatterns;
     this.blockMatchers = blockMatchers;
+    this.blockStartPatterns = blockStartPatterns;
     this.patternMatcher = patternMatcher;
     this.componentKey = componentKey;
     String relativePath = StringUtils.substringAfterLast(componentKey, ":");
@@ -92,13 +98,14 @@ public class IssueExclusionsRegexpScanner extends CharHandler {
     }
 
     // first check the single regexp patterns that can be used to totally exclude a file
-    for (Pattern pattern : allFilePatterns) {
-      if (pattern.matcher(line).find()) {
+    if (allFilePatterns.find(line)) {
+      if (!fileExcluded) {
+        fileExcluded = true;
         patternMatcher.addPatternToExcludeResource(componentKey);
         // nothing more to do on this file
-        LOG.debug("- Exclusion pattern '{}': every issue in this file will be ignored.", pattern);
-        return;
+        LOG.debug("- Exclusion pattern '{}': every issue in this file will be ignored.", allFilePatterns.get(allFilePatterns.indexOfFirstFound(line)));
       }
+      return;
     }
 
     // then check the double regexps if we're still here
@@ -115,12 +122,10 @@ public class IssueExclusionsRegexpScanner extends CharHandler {
 
   private void checkDoubleRegexps(String line, int lineIndex) {
     if (currentMatcher == null) {
-      for (DoubleRegexpMatcher matcher : blockMatchers) {
-        if (matcher.matchesFirstPattern(line)) {
-          startExclusion(lineIndex);
-          currentMatcher = matcher;
-          break;
-        }
+      int matcherIndex = blockStartPatterns.indexOfFirstFound(line);
+      if (matcherIndex >= 0) {
+        startExclusion(lineIndex);
+        currentMatcher = blockMatchers.get(matcherIndex);
       }
     } else {
       if (currentMatcher.matchesSecondPattern(line)) {
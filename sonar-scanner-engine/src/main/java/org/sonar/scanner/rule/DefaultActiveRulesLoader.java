@@ -19,115 +19,160 @@
  */
 package org.sonar.scanner.rule;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.sonar.api.batch.bootstrap.ProjectKey;
 import org.sonar.api.rule.RuleKey;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.home.cache.FileCache;
 import org.sonar.scanner.bootstrap.ScannerWsClient;
+import org.sonar.scanner.protocol.input.ScannerInput.ActiveRule;
 import org.sonar.scanner.util.ScannerUtils;
-import org.sonarqube.ws.Rules;
-import org.sonarqube.ws.Rules.Active;
-import org.sonarqube.ws.Rules.Active.Param;
-import org.sonarqube.ws.Rules.ActiveList;
-import org.sonarqube.ws.Rules.Rule;
-import org.sonarqube.ws.Rules.SearchResponse;
 import org.sonarqube.ws.client.GetRequest;
+import org.sonarqube.ws.client.WsResponse;
 
-import static org.sonar.api.utils.DateUtils.dateToLong;
-import static org.sonar.api.utils.DateUtils.parseDateTime;
+import static java.net.HttpURLConnection.HTTP_NOT_MODIFIED;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 
+/**
+ * Loads the active rules of a quality profile from the web service api/batch/active_rules. The response is
+ * kept in the user cache (see {@link FileCache}) along with its ETag, so that it is downloaded again only
+ * when the profile or the definitions of its rules changed on server side. A cached file that can't be read is
+ * dropped and downloaded again, otherwise the server would keep on answering 304 to its ETag.
+ */
 public class DefaultActiveRulesLoader implements ActiveRulesLoader {
-  private static final String RULES_SEARCH_URL = "/api/rules/search.protobuf?f=repo,name,severity,lang,internalKey,templateKey,params,actives,createdAt&activation=true";
+
+  private static final Logger LOG = Loggers.get(DefaultActiveRulesLoader.class);
+  private static final String ACTIVE_RULES_URL = "/batch/active_rules.protobuf";
+  private static final String CACHE_FILENAME = "active_rules.pb";
 
   private final ScannerWsClient wsClient;
+  private final FileCache fileCache;
+  private final ProjectKey projectKey;
 
-  public DefaultActiveRulesLoader(ScannerWsClient wsClient) {
+  public DefaultActiveRulesLoader(ScannerWsClient wsClient, FileCache fileCache, ProjectKey projectKey) {
     this.wsClient = wsClient;
+    this.fileCache = fileCache;
+    this.projectKey = projectKey;
   }
 
   @Override
   public List<LoadedActiveRule> load(String qualityProfileKey) {
-    List<LoadedActiveRule> ruleList = new LinkedList<>();
-    int page = 1;
-    int pageSize = 500;
-    int loaded = 0;
-
-    while (true) {
-      GetRequest getRequest = new GetRequest(getUrl(qualityProfileKey, page, pageSize));
-      SearchResponse response = loadFromStream(wsClient.call(getRequest).contentStream());
-      List<LoadedActiveRule> pageRules = readPage(response);
-      ruleList.addAll(pageRules);
-      loaded += response.getPs();
-
-      if (response.getTotal() <= loaded) {
-        break;
+    File cachedFile = new File(new File(fileCache.getDir(), cacheKey(qualityProfileKey)), CACHE_FILENAME);
+    String cachedEtag = readEtag(cachedFile);
+    download(qualityProfileKey, cachedFile, cachedEtag);
+    if (cachedEtag != null) {
+      try {
+        return readCache(cachedFile);
+      } catch (IOException e) {
+        LOG.debug("Ignore corrupted cache file " + cachedFile, e);
+        FileUtils.deleteQuietly(cachedFile);
+        download(qualityProfileKey, cachedFile, null);
       }
-      page++;
     }
+    try {
+      return readCache(cachedFile);
+    } catch (IOException e) {
+      throw new IllegalStateException("Failed to load active rules of quality profile " + qualityProfileKey, e);
+    }
+  }
 
-    return ruleList;
+  private void download(String qualityProfileKey, File cachedFile, @Nullable String cachedEtag) {
+    GetRequest getRequest = new GetRequest(ACTIVE_RULES_URL + "?qprofile=" + ScannerUtils.encodeForUrl(qualityProfileKey) +
+      "&project=" + ScannerUtils.encodeForUrl(projectKey.get()))
+      .setHeader("If-None-Match", cachedEtag);
+    try (WsResponse response = wsClient.call(getRequest)) {
+      if (response.code() == HTTP_NOT_MODIFIED) {
+        LOG.debug("Active rules of quality profile {} are up-to-date in cache", qualityProfileKey);
+      } else {
+        String etag = response.header("ETag").orElse("");
+        try (InputStream input = response.contentStream()) {
+          writeCache(cachedFile, etag, input);
+        }
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Failed to load active rules of quality profile " + qualityProfileKey, e);
+    }
   }
 
-  private static String getUrl(String qualityProfileKey, int page, int pageSize) {
-    StringBuilder builder = new StringBuilder(1024);
-    builder.append(RULES_SEARCH_URL);
-    builder.append("&qprofile=").append(ScannerUtils.encodeForUrl(qualityProfileKey));
-    builder.append("&p=").append(page);
-    builder.append("&ps=").append(pageSize);
-    return builder.toString();
+  private String cacheKey(String qualityProfileKey) {
+    return DigestUtils.md5Hex(wsClient.baseUrl() + "|" + qualityProfileKey);
   }
 
-  private static SearchResponse loadFromStream(InputStream is) {
-    try {
-      return SearchResponse.parseFrom(is);
+  @CheckForNull
+  private static String readEtag(File cachedFile) {
+    if (!cachedFile.exists()) {
+      return null;
+    }
+    try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(cachedFile.toPath())))) {
+      String etag = input.readUTF();
+      return etag.isEmpty() ? null : etag;
     } catch (IOException e) {
-      throw new IllegalStateException("Failed to load quality profiles", e);
-    } finally {
-      IOUtils.closeQuietly(is);
+      LOG.debug("Ignore corrupted cache file " + cachedFile, e);
+      return null;
     }
   }
 
-  private static List<LoadedActiveRule> readPage(SearchResponse response) {
-    List<LoadedActiveRule> loadedRules = new LinkedList<>();
-
-    List<Rule> rulesList = response.getRulesList();
-    Map<String, ActiveList> actives = response.getActives().getActives();
-
-    for (Rule r : rulesList) {
-      ActiveList activeList = actives.get(r.getKey());
-      Active active = activeList.getActiveList(0);
-
-      LoadedActiveRule loadedRule = new LoadedActiveRule();
-
-      loadedRule.setRuleKey(RuleKey.parse(r.getKey()));
-      loadedRule.setName(r.getName());
-      loadedRule.setSeverity(active.getSeverity());
-      loadedRule.setCreatedAt(dateToLong(parseDateTime(active.getCreatedAt())));
-      loadedRule.setLanguage(r.getLang());
-      loadedRule.setInternalKey(r.getInternalKey());
-      if (r.hasTemplateKey()) {
-        RuleKey templateRuleKey = RuleKey.parse(r.getTemplateKey());
-        loadedRule.setTemplateRuleKey(templateRuleKey.rule());
-      }
-
-      Map<String, String> params = new HashMap<>();
-
-      for (Rules.Rule.Param param : r.getParams().getParamsList()) {
-        params.put(param.getKey(), param.getDefaultValue());
+  /**
+   * The file is written aside then moved, so that concurrent analyses never read a partially written file.
+   */
+  private void writeCache(File cachedFile, String etag, InputStream content) throws IOException {
+    File tempDir = fileCache.createTempDir();
+    try {
+      Path tempFile = tempDir.toPath().resolve(CACHE_FILENAME);
+      try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+        output.writeUTF(etag);
+        IOUtils.copy(content, output);
       }
+      Files.createDirectories(cachedFile.getParentFile().toPath());
+      Files.move(tempFile, cachedFile.toPath(), REPLACE_EXISTING, ATOMIC_MOVE);
+    } finally {
+      FileUtils.deleteQuietly(tempDir);
+    }
+  }
 
-      // overrides defaultValue if the key is the same
-      for (Param param : active.getParamsList()) {
-        params.put(param.getKey(), param.getValue());
+  private static List<LoadedActiveRule> readCache(File cachedFile) throws IOException {
+    List<LoadedActiveRule> loadedRules = new ArrayList<>();
+    try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(cachedFile.toPath())))) {
+      // skip ETag
+      input.readUTF();
+      ActiveRule activeRule;
+      while ((activeRule = ActiveRule.parseDelimitedFrom(input)) != null) {
+        loadedRules.add(toLoadedActiveRule(activeRule));
       }
-      loadedRule.setParams(params);
-      loadedRules.add(loadedRule);
     }
-
     return loadedRules;
   }
+
+  private static LoadedActiveRule toLoadedActiveRule(ActiveRule activeRule) {
+    LoadedActiveRule loadedRule = new LoadedActiveRule();
+    loadedRule.setRuleKey(RuleKey.of(activeRule.getRuleRepository(), activeRule.getRuleKey()));
+    loadedRule.setName(activeRule.getName());
+    loadedRule.setSeverity(activeRule.getSeverity());
+    loadedRule.setCreatedAt(activeRule.getCreatedAt());
+    loadedRule.setLanguage(activeRule.getLanguage());
+    loadedRule.setInternalKey(activeRule.getInternalKey());
+    if (!activeRule.getTemplateRuleKey().isEmpty()) {
+      loadedRule.setTemplateRuleKey(activeRule.getTemplateRuleKey());
+    }
+    loadedRule.setParams(new HashMap<>(activeRule.getParamsMap()));
+    return loadedRule;
+  }
 }
@@ -26,6 +26,7 @@ import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.ScannerSide;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.internal.PathPattern;
+import org.sonar.api.batch.fs.internal.PathPatternMatcher;
 import org.sonar.api.scan.filesystem.FileExclusions;
 
 @ScannerSide
@@ -39,6 +40,10 @@ public class ExclusionFilters {
   private PathPattern[] mainExclusions;
   private PathPattern[] testInclusions;
   private PathPattern[] testExclusions;
+  private PathPatternMatcher mainInclusionsMatcher;
+  private PathPatternMatcher mainExclusionsMatcher;
+  private PathPatternMatcher testInclusionsMatcher;
+  private PathPatternMatcher testExclusionsMatcher;
 
   public ExclusionFilters(FileExclusions exclusions) {
     this.exclusionSettings = exclusions;
@@ -49,6 +54,10 @@ public class ExclusionFilters {
     mainExclusions = prepareMainExclusions();
     testInclusions = prepareTestInclusions();
     testExclusions = prepareTestExclusions();
+    mainInclusionsMatcher = PathPatternMatcher.create(mainInclusions);
+    mainExclusionsMatcher = PathPatternMatcher.create(mainExclusions);
+    testInclusionsMatcher = PathPatternMatcher.create(testInclusions);
+    testExclusionsMatcher = PathPatternMatcher.create(testExclusions);
     log("Included sources: ", mainInclusions);
     log("Excluded sources: ", mainExclusions);
     log("Included tests: ", testInclusions);
@@ -70,34 +79,24 @@ public class ExclusionFilters {
 
   public boolean accept(Path absolutePath, Path relativePath, InputFile.Type type) {
     PathPattern[] inclusionPatterns;
-    PathPattern[] exclusionPatterns;
+    PathPatternMatcher inclusionMatcher;
+    PathPatternMatcher exclusionMatcher;
     if (InputFile.Type.MAIN == type) {
       inclusionPatterns = mainInclusions;
-      exclusionPatterns = mainExclusions;
+      inclusionMatcher = mainInclusionsMatcher;
+      exclusionMatcher = mainExclusionsMatcher;
     } else if (InputFile.Type.TEST == type) {
       inclusionPatterns = testInclusions;
-      exclusionPatterns = testExclusions;
+      inclusionMatcher = testInclusionsMatcher;
+      exclusionMatcher = testExclusionsMatcher;
     } else {
       throw new IllegalArgumentException("Unknown file type: " + type);
     }
 
-    if (inclusionPatterns.length > 0) {
-      boolean matchInclusion = false;
-      for (PathPattern pattern : inclusionPatterns) {
-        matchInclusion |= pattern.match(absolutePath, relativePath);
-      }
-      if (!matchInclusion) {
-        return false;
-      }
-    }
-    if (exclusionPatterns.length > 0) {
-      for (PathPattern pattern : exclusionPatterns) {
-        if (pattern.match(absolutePath, relativePath)) {
-          return false;
-        }
-      }
+    if (inclusionPatterns.length > 0 && !inclusionMatcher.matchAny(absolutePath, relativePath)) {
+      return false;
     }
-    return true;
+    return !exclusionMatcher.matchAny(absolutePath, relativePath);
   }
 
   PathPattern[] prepareMainInclusions() {
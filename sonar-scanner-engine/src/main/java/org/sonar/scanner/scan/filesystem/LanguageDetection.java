@@ -23,6 +23,7 @@ import com.google.common.base.Joiner;
 import java.nio.file.Path;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -35,6 +36,7 @@ import org.slf4j.LoggerFactory;
 import org.sonar.api.CoreProperties;
 import org.sonar.api.batch.ScannerSide;
 import org.sonar.api.batch.fs.internal.PathPattern;
+import org.sonar.api.batch.fs.internal.PathPatternMatcher;
 import org.sonar.api.config.Configuration;
 import org.sonar.api.utils.MessageException;
 import org.sonar.scanner.repository.language.Language;
@@ -54,6 +56,10 @@ public class LanguageDetection {
    */
   private final Map<String, PathPattern[]> patternsByLanguage;
   private final List<String> languagesToConsider;
+  /**
+   * Patterns of {@link #languagesToConsider}, in the same order
+   */
+  private final PathPatternMatcher matcher;
   private final String forcedLanguage;
 
   public LanguageDetection(Configuration settings, LanguagesRepository languages) {
@@ -90,6 +96,9 @@ public class LanguageDetection {
     }
 
     patternsByLanguage = Collections.unmodifiableMap(patternsByLanguageBuilder);
+    List<PathPattern[]> patternsToConsider = new ArrayList<>(languagesToConsider.size());
+    languagesToConsider.forEach(languageKey -> patternsToConsider.add(patternsByLanguage.get(languageKey)));
+    matcher = PathPatternMatcher.create(patternsToConsider);
   }
 
   public String getForcedLanguage() {
@@ -102,19 +111,16 @@ public class LanguageDetection {
 
   @CheckForNull
   String language(Path absolutePath, Path relativePath) {
-    String detectedLanguage = null;
-    for (String languageKey : languagesToConsider) {
-      if (isCandidateForLanguage(absolutePath, relativePath, languageKey)) {
-        if (detectedLanguage == null) {
-          detectedLanguage = languageKey;
-        } else {
-          // Language was already forced by another pattern
-          throw MessageException.of(MessageFormat.format("Language of file ''{0}'' can not be decided as the file matches patterns of both {1} and {2}",
-            relativePath, getDetails(detectedLanguage), getDetails(languageKey)));
-        }
+    BitSet matchingLanguages = matcher.matchingGroups(absolutePath, relativePath, false);
+    int detected = matchingLanguages.nextSetBit(0);
+    if (detected >= 0) {
+      String detectedLanguage = languagesToConsider.get(detected);
+      int other = matchingLanguages.nextSetBit(detected + 1);
+      if (other >= 0) {
+        // Language was already forced by another pattern
+        throw MessageException.of(MessageFormat.format("Language of file ''{0}'' can not be decided as the file matches patterns of both {1} and {2}",
+          relativePath, getDetails(detectedLanguage), getDetails(languagesToConsider.get(other))));
       }
-    }
-    if (detectedLanguage != null) {
       return detectedLanguage;
     }
 
@@ -126,18 +132,6 @@ public class LanguageDetection {
     return null;
   }
 
-  private boolean isCandidateForLanguage(Path absolutePath, Path relativePath, String languageKey) {
-    PathPattern[] patterns = patternsByLanguage.get(languageKey);
-    if (patterns != null) {
-      for (PathPattern pathPattern : patterns) {
-        if (pathPattern.match(absolutePath, relativePath, false)) {
-          return true;
-        }
-      }
-    }
-    return false;
-  }
-
   private static String getFileLangPatternPropKey(String languageKey) {
     return "sonar.lang.patterns." + languageKey;
   }
@@ -22,6 +22,7 @@ package org.sonar.scanner.bootstrap;
 import java.io.File;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.util.Map;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -33,8 +34,10 @@ import org.sonar.scanner.bootstrap.ScannerPluginInstaller.InstalledPlugin;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class ScannerPluginInstallerTest {
@@ -98,6 +101,37 @@ public class ScannerPluginInstallerTest {
     assertThat(file).isEqualTo(pluginJar);
   }
 
+  @Test
+  public void should_download_plugins_concurrently() throws Exception {
+    WsTestUtil.mockReader(wsClient, "/api/plugins/installed",
+      new InputStreamReader(this.getClass().getResourceAsStream("ScannerPluginInstallerTest/installed-plugins-ws.json"), StandardCharsets.UTF_8));
+    when(pluginPredicate.apply(anyString())).thenReturn(true);
+    File pluginJar = new File(getClass().getResource("ScannerPluginJarExploderTest/sonar-checkstyle-plugin-2.8.jar").toURI());
+    when(fileCache.get(anyString(), eq("abcdef123456"), any(FileCache.Downloader.class))).thenReturn(pluginJar);
+
+    Map<String, ScannerPlugin> plugins = new ScannerPluginInstaller(wsClient, fileCache, pluginPredicate).installRemotes();
+
+    assertThat(plugins).containsOnlyKeys("checkstyle");
+    verify(fileCache).get(eq("sonar-scm-git-plugin-1.0.jar"), eq("abcdef123456"), any(FileCache.Downloader.class));
+    verify(fileCache).get(eq("sonar-java-plugin-3.0.jar"), eq("abcdef123456"), any(FileCache.Downloader.class));
+    verify(fileCache).get(eq("sonar-scm-svn-plugin-1.0.jar"), eq("abcdef123456"), any(FileCache.Downloader.class));
+  }
+
+  @Test
+  public void should_fail_if_a_concurrent_download_fails() throws Exception {
+    WsTestUtil.mockReader(wsClient, "/api/plugins/installed",
+      new InputStreamReader(this.getClass().getResourceAsStream("ScannerPluginInstallerTest/installed-plugins-ws.json"), StandardCharsets.UTF_8));
+    when(pluginPredicate.apply(anyString())).thenReturn(true);
+    File pluginJar = new File(getClass().getResource("ScannerPluginJarExploderTest/sonar-checkstyle-plugin-2.8.jar").toURI());
+    when(fileCache.get(anyString(), eq("abcdef123456"), any(FileCache.Downloader.class))).thenReturn(pluginJar);
+    when(fileCache.get(eq("sonar-java-plugin-3.0.jar"), eq("abcdef123456"), any(FileCache.Downloader.class))).thenThrow(new IllegalStateException("INVALID HASH"));
+
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("Fail to download plugin: java");
+
+    new ScannerPluginInstaller(wsClient, fileCache, pluginPredicate).installRemotes();
+  }
+
   @Test
   public void should_fail_to_get_plugin_index() {
     WsTestUtil.mockException(wsClient, "/api/plugins/installed", new IllegalStateException());
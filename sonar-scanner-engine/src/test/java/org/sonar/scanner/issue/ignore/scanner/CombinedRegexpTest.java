@@ -0,0 +1,108 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.issue.ignore.scanner;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+import org.junit.Test;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CombinedRegexpTest {
+
+  private static final List<String> REGEXPS = Arrays.asList(
+    "@SONAR-IGNORE-ALL", "// SONAR-OFF", "// FOO-OFF", "^\\s*// generated", "NOSONAR\\b", "ab+c", "colou?r", "x{2}y",
+    "(foo)\\1", "(?i)case", "\\Qa|b)\\E", "a|b.c", "[0-9]{4}-", "end$", "$^");
+
+  private static final List<String> LINES = Arrays.asList(
+    " * @SONAR-IGNORE-ALL", "  // SONAR-OFF", "// FOO-OFF then // SONAR-OFF", "  // generated code", "x = 1; // NOSONAR",
+    "NOSONARX", "ac", "abbc", "color", "colour", "coloor", "xxy", "xy", "foofoo", "foobar", "CASE", "Case", "a|b)",
+    "b.c", "bxc", "2018-10", "the end", "ending", "a", "");
+
+  @Test
+  public void same_results_as_patterns_evaluated_one_by_one() {
+    for (String regexp : REGEXPS) {
+      assertSameResults(singletonList(regexp));
+    }
+    assertSameResults(REGEXPS);
+    assertSameResults(Arrays.asList("// SONAR-OFF", "// FOO-OFF", "@SONAR-IGNORE-ALL"));
+    assertSameResults(Arrays.asList("(foo)\\1", "(?i)case", "ab+c"));
+  }
+
+  @Test
+  public void return_first_found_pattern_in_declaration_order() {
+    CombinedRegexp underTest = new CombinedRegexp(compile(Arrays.asList("// SONAR-OFF", "// FOO-OFF")));
+
+    // FOO-OFF is found first in the line, but SONAR-OFF is declared first
+    assertThat(underTest.indexOfFirstFound("// FOO-OFF then // SONAR-OFF")).isEqualTo(0);
+    assertThat(underTest.indexOfFirstFound("// FOO-OFF")).isEqualTo(1);
+    assertThat(underTest.indexOfFirstFound("// BAR-OFF")).isEqualTo(-1);
+    assertThat(underTest.get(1).pattern()).isEqualTo("// FOO-OFF");
+  }
+
+  @Test
+  public void no_patterns() {
+    CombinedRegexp underTest = new CombinedRegexp(emptyList());
+
+    assertThat(underTest.isEmpty()).isTrue();
+    assertThat(underTest.find("foo")).isFalse();
+    assertThat(underTest.indexOfFirstFound("foo")).isEqualTo(-1);
+  }
+
+  @Test
+  public void required_literal() {
+    assertThat(requiredLiteral("// SONAR-OFF")).isEqualTo("// SONAR-OFF");
+    assertThat(requiredLiteral("NOSONAR\\b")).isEqualTo("NOSONAR");
+    assertThat(requiredLiteral("ab+c")).isEqualTo("a");
+    assertThat(requiredLiteral("colou?r")).isEqualTo("colo");
+    assertThat(requiredLiteral("x{2}y")).isEmpty();
+    assertThat(requiredLiteral("^\\s*// generated")).isEmpty();
+    assertThat(requiredLiteral("a|b.c")).isEmpty();
+    assertThat(requiredLiteral("(?i)case")).isEmpty();
+    assertThat(CombinedRegexp.requiredLiteral(Pattern.compile("case", Pattern.CASE_INSENSITIVE))).isEmpty();
+  }
+
+  private static String requiredLiteral(String regexp) {
+    return CombinedRegexp.requiredLiteral(Pattern.compile(regexp));
+  }
+
+  private static void assertSameResults(List<String> regexps) {
+    List<Pattern> patterns = compile(regexps);
+    CombinedRegexp underTest = new CombinedRegexp(patterns);
+    for (String line : LINES) {
+      int expectedIndex = -1;
+      for (int i = 0; i < patterns.size() && expectedIndex < 0; i++) {
+        if (patterns.get(i).matcher(line).find()) {
+          expectedIndex = i;
+        }
+      }
+      assertThat(underTest.find(line)).as("line '%s', patterns %s", line, regexps).isEqualTo(expectedIndex >= 0);
+      assertThat(underTest.indexOfFirstFound(line)).as("line '%s', patterns %s", line, regexps).isEqualTo(expectedIndex);
+    }
+  }
+
+  private static List<Pattern> compile(List<String> regexps) {
+    return regexps.stream().map(Pattern::compile).collect(toList());
+  }
+}
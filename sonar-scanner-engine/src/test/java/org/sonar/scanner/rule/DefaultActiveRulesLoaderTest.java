@@ -19,110 +19,134 @@
  */
 package org.sonar.scanner.rule;
 
-import com.google.common.collect.ImmutableSortedMap;
-import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.util.Collection;
-import java.util.stream.IntStream;
+import java.io.RandomAccessFile;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.rule.Severity;
-import org.sonar.scanner.WsTestUtil;
+import org.sonar.home.cache.FileCache;
+import org.sonar.home.cache.FileCacheBuilder;
 import org.sonar.scanner.bootstrap.ScannerWsClient;
-import org.sonarqube.ws.Rules;
-import org.sonarqube.ws.Rules.Active;
-import org.sonarqube.ws.Rules.ActiveList;
-import org.sonarqube.ws.Rules.Actives;
-import org.sonarqube.ws.Rules.Rule;
-import org.sonarqube.ws.Rules.SearchResponse;
-import org.sonarqube.ws.Rules.SearchResponse.Builder;
+import org.sonar.scanner.bootstrap.Slf4jLogger;
+import org.sonar.scanner.protocol.input.ScannerInput.ActiveRule;
+import org.sonarqube.ws.client.MockWsResponse;
+import org.sonarqube.ws.client.WsRequest;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class DefaultActiveRulesLoaderTest {
 
-  private static final int PAGE_SIZE_1 = 150;
-  private static final int PAGE_SIZE_2 = 76;
-  private static final RuleKey EXAMPLE_KEY = RuleKey.of("squid", "S108");
-  private static final String FORMAT_KEY = "format";
-  private static final String FORMAT_VALUE = "^[a-z][a-zA-Z0-9]*$";
-  private static final String SEVERITY_VALUE = Severity.MINOR;
+  private static final String QPROFILE_KEY = "c+-test_c+-values-17445";
+  private static final String ETAG = "\"abcdef\"";
 
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private ScannerWsClient wsClient = mock(ScannerWsClient.class);
+  private FileCache fileCache;
   private DefaultActiveRulesLoader loader;
-  private ScannerWsClient wsClient;
 
   @Before
-  public void setUp() {
-    wsClient = mock(ScannerWsClient.class);
-    loader = new DefaultActiveRulesLoader(wsClient);
+  public void setUp() throws IOException {
+    fileCache = new FileCacheBuilder(new Slf4jLogger()).setUserHome(temp.newFolder()).build();
+    when(wsClient.baseUrl()).thenReturn("http://localhost:9000");
+    loader = new DefaultActiveRulesLoader(wsClient, fileCache, () -> "org.foo:bar");
+  }
+
+  @Test
+  public void load_active_rules_from_stream() throws IOException {
+    when(wsClient.call(any())).thenReturn(new MockWsResponse().setHeader("ETag", ETAG).setContent(streamOf(
+      ActiveRule.newBuilder().setRuleRepository("squid").setRuleKey("S108").setName("Nested blocks").setSeverity(Severity.MINOR)
+        .setLanguage("java").setCreatedAt(1_500L).putParams("format", "^[a-z][a-zA-Z0-9]*$").build(),
+      ActiveRule.newBuilder().setRuleRepository("squid").setRuleKey("S109").setTemplateRuleKey("XPath").setInternalKey("internal").build())));
+
+    List<LoadedActiveRule> activeRules = loader.load(QPROFILE_KEY);
+
+    assertThat(activeRules).extracting(LoadedActiveRule::getRuleKey).containsExactly(RuleKey.of("squid", "S108"), RuleKey.of("squid", "S109"));
+    LoadedActiveRule rule = activeRules.get(0);
+    assertThat(rule.getName()).isEqualTo("Nested blocks");
+    assertThat(rule.getSeverity()).isEqualTo(Severity.MINOR);
+    assertThat(rule.getLanguage()).isEqualTo("java");
+    assertThat(rule.getCreatedAt()).isEqualTo(1_500L);
+    assertThat(rule.getTemplateRuleKey()).isNull();
+    assertThat(rule.getParams()).containsOnly(entry("format", "^[a-z][a-zA-Z0-9]*$"));
+    assertThat(activeRules.get(1).getTemplateRuleKey()).isEqualTo("XPath");
+    assertThat(activeRules.get(1).getInternalKey()).isEqualTo("internal");
+
+    WsRequest request = captureRequest(1);
+    assertThat(request.getPath()).isEqualTo("/batch/active_rules.protobuf?qprofile=c%2B-test_c%2B-values-17445&project=org.foo%3Abar");
+    assertThat(request.getHeaders().getValue("If-None-Match")).isEmpty();
+  }
+
+  @Test
+  public void reuse_cached_active_rules_if_not_modified() throws IOException {
+    when(wsClient.call(any())).thenReturn(
+      new MockWsResponse().setHeader("ETag", ETAG).setContent(streamOf(ActiveRule.newBuilder().setRuleRepository("squid").setRuleKey("S108").build())),
+      new MockWsResponse().setCode(304));
+
+    loader.load(QPROFILE_KEY);
+    List<LoadedActiveRule> activeRules = loader.load(QPROFILE_KEY);
+
+    assertThat(activeRules).extracting(LoadedActiveRule::getRuleKey).containsExactly(RuleKey.of("squid", "S108"));
+    assertThat(captureRequest(2).getHeaders().getValue("If-None-Match")).contains(ETAG);
+  }
+
+  @Test
+  public void replace_cached_active_rules_if_modified() throws IOException {
+    when(wsClient.call(any())).thenReturn(
+      new MockWsResponse().setHeader("ETag", ETAG).setContent(streamOf(ActiveRule.newBuilder().setRuleRepository("squid").setRuleKey("S108").build())),
+      new MockWsResponse().setHeader("ETag", "\"other\"").setContent(streamOf(ActiveRule.newBuilder().setRuleRepository("squid").setRuleKey("S109").build())));
+
+    loader.load(QPROFILE_KEY);
+    List<LoadedActiveRule> activeRules = loader.load(QPROFILE_KEY);
+
+    assertThat(activeRules).extracting(LoadedActiveRule::getRuleKey).containsExactly(RuleKey.of("squid", "S109"));
   }
 
   @Test
-  public void feed_real_response_encode_qp() throws IOException {
-    int total = PAGE_SIZE_1 + PAGE_SIZE_2;
-
-    WsTestUtil.mockStream(wsClient, urlOfPage(1), responseOfSize(PAGE_SIZE_1, total));
-    WsTestUtil.mockStream(wsClient, urlOfPage(2), responseOfSize(PAGE_SIZE_2, total));
-
-    Collection<LoadedActiveRule> activeRules = loader.load("c+-test_c+-values-17445");
-    assertThat(activeRules).hasSize(total);
-    assertThat(activeRules)
-      .filteredOn(r -> r.getRuleKey().equals(EXAMPLE_KEY))
-      .extracting(LoadedActiveRule::getParams)
-      .extracting(p -> p.get(FORMAT_KEY))
-      .containsExactly(FORMAT_VALUE);
-    assertThat(activeRules)
-      .filteredOn(r -> r.getRuleKey().equals(EXAMPLE_KEY))
-      .extracting(LoadedActiveRule::getSeverity)
-      .containsExactly(SEVERITY_VALUE);
-
-    WsTestUtil.verifyCall(wsClient, urlOfPage(1));
-    WsTestUtil.verifyCall(wsClient, urlOfPage(2));
-
-    verifyNoMoreInteractions(wsClient);
+  public void download_again_active_rules_if_cache_is_corrupted() throws IOException {
+    when(wsClient.call(any())).thenReturn(
+      new MockWsResponse().setHeader("ETag", ETAG).setContent(streamOf(ActiveRule.newBuilder().setRuleRepository("squid").setRuleKey("S108").build())),
+      new MockWsResponse().setCode(304),
+      new MockWsResponse().setHeader("ETag", ETAG).setContent(streamOf(ActiveRule.newBuilder().setRuleRepository("squid").setRuleKey("S108").build())));
+    loader.load(QPROFILE_KEY);
+    File cachedFile = FileUtils.listFiles(fileCache.getDir(), new String[] {"pb"}, true).iterator().next();
+    try (RandomAccessFile file = new RandomAccessFile(cachedFile, "rw")) {
+      // truncate the content but keep the ETag
+      file.setLength(cachedFile.length() - 1);
+    }
+
+    List<LoadedActiveRule> activeRules = loader.load(QPROFILE_KEY);
+
+    assertThat(activeRules).extracting(LoadedActiveRule::getRuleKey).containsExactly(RuleKey.of("squid", "S108"));
+    assertThat(captureRequest(3).getHeaders().getValue("If-None-Match")).isEmpty();
   }
 
-  private String urlOfPage(int page) {
-    return "/api/rules/search.protobuf?f=repo,name,severity,lang,internalKey,templateKey,params,actives,createdAt&activation=true&qprofile=c%2B-test_c%2B-values-17445&p=" + page
-      + "&ps=500";
+  private WsRequest captureRequest(int calls) {
+    ArgumentCaptor<WsRequest> captor = ArgumentCaptor.forClass(WsRequest.class);
+    verify(wsClient, times(calls)).call(captor.capture());
+    return captor.getValue();
   }
 
-  /**
-   * Generates an imaginary protobuf result.
-   *
-   * @param numberOfRules the number of rules, that the response should contain
-   * @param total the number of results on all pages
-   * @return the binary stream
-   */
-  private InputStream responseOfSize(int numberOfRules, int total) {
-    Builder rules = SearchResponse.newBuilder();
-    Actives.Builder actives = Actives.newBuilder();
-
-    IntStream.rangeClosed(1, numberOfRules)
-      .mapToObj(i -> RuleKey.of("squid", "S" + i))
-      .forEach(key -> {
-
-        Rule.Builder ruleBuilder = Rule.newBuilder();
-        ruleBuilder.setKey(key.toString());
-        rules.addRules(ruleBuilder);
-
-        Active.Builder activeBuilder = Active.newBuilder();
-        activeBuilder.setCreatedAt("2014-05-27T15:50:45+0100");
-        if (EXAMPLE_KEY.equals(key)) {
-          activeBuilder.addParams(Rules.Active.Param.newBuilder().setKey(FORMAT_KEY).setValue(FORMAT_VALUE));
-          activeBuilder.setSeverity(SEVERITY_VALUE);
-        }
-        ActiveList activeList = Rules.ActiveList.newBuilder().addActiveList(activeBuilder).build();
-        actives.putAllActives(ImmutableSortedMap.of(key.toString(), activeList));
-      });
-
-    rules.setActives(actives);
-    rules.setPs(numberOfRules);
-    rules.setTotal(total);
-    return new ByteArrayInputStream(rules.build().toByteArray());
+  private static byte[] streamOf(ActiveRule... activeRules) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    for (ActiveRule activeRule : activeRules) {
+      activeRule.writeDelimitedTo(output);
+    }
+    return output.toByteArray();
   }
 }
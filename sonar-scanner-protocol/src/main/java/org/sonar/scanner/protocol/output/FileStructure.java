@@ -53,6 +53,11 @@ public class FileStructure {
     }
   }
 
+  public static final String METADATA_FILE_NAME = "metadata.pb";
+  public static final String ANALYSIS_LOG_FILE_NAME = "analysis.log";
+  public static final String ACTIVE_RULES_FILE_NAME = "activerules.pb";
+  public static final String CONTEXT_PROPERTIES_FILE_NAME = "context-props.pb";
+
   private final File dir;
 
   public FileStructure(File dir) {
@@ -63,23 +68,31 @@ public class FileStructure {
   }
 
   public File metadataFile() {
-    return new File(dir, "metadata.pb");
+    return new File(dir, METADATA_FILE_NAME);
   }
 
   public File analysisLog() {
-    return new File(dir, "analysis.log");
+    return new File(dir, ANALYSIS_LOG_FILE_NAME);
   }
 
   public File activeRules() {
-    return new File(dir, "activerules.pb");
+    return new File(dir, ACTIVE_RULES_FILE_NAME);
   }
 
   public File fileFor(Domain domain, int componentRef) {
-    return new File(dir, domain.filePrefix + componentRef + domain.fileSuffix);
+    return new File(dir, fileNameFor(domain, componentRef));
+  }
+
+  /**
+   * Name of the file of the specified domain and component, relative to the root of the report. This is also the
+   * name of the entry in the zipped report.
+   */
+  public static String fileNameFor(Domain domain, int componentRef) {
+    return domain.filePrefix + componentRef + domain.fileSuffix;
   }
 
   public File contextProperties() {
-    return new File(dir, "context-props.pb");
+    return new File(dir, CONTEXT_PROPERTIES_FILE_NAME);
   }
   
   public File root() {
@@ -71,6 +71,16 @@ public class FileStructureTest {
     assertThat(structure.fileFor(FileStructure.Domain.ISSUES, 42)).doesNotExist();
   }
 
+  @Test
+  public void fileNameFor_is_the_name_of_the_file_in_the_report_directory() throws Exception {
+    File dir = temp.newFolder();
+    FileStructure structure = new FileStructure(dir);
+
+    assertThat(FileStructure.fileNameFor(FileStructure.Domain.ISSUES, 3)).isEqualTo("issues-3.pb");
+    assertThat(FileStructure.fileNameFor(FileStructure.Domain.SOURCE, 42)).isEqualTo("source-42.txt");
+    assertThat(structure.fileFor(FileStructure.Domain.COMPONENT, 42).getName()).isEqualTo(FileStructure.fileNameFor(FileStructure.Domain.COMPONENT, 42));
+  }
+
   @Test
   public void contextProperties_file() throws Exception {
     File dir = temp.newFolder();
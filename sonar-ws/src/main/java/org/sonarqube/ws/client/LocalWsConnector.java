@@ -103,12 +103,14 @@ class LocalWsConnector implements WsConnector {
     private final byte[] bytes;
     private final String contentType;
     private final int code;
+    private final LocalConnector.LocalResponse localResponse;
 
     ByteArrayResponse(String path, LocalConnector.LocalResponse localResponse) {
       this.path = path;
       this.bytes = localResponse.getBytes();
       this.contentType = localResponse.getMediaType();
       this.code = localResponse.getStatus();
+      this.localResponse = localResponse;
     }
 
     @Override
@@ -126,6 +128,11 @@ class LocalWsConnector implements WsConnector {
       return contentType;
     }
 
+    @Override
+    public Optional<String> header(String name) {
+      return Optional.ofNullable(localResponse.getHeader(name));
+    }
+
     @Override
     public InputStream contentStream() {
       return new ByteArrayInputStream(bytes);
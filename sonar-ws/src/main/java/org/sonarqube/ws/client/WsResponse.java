@@ -22,6 +22,7 @@ package org.sonarqube.ws.client;
 import java.io.Closeable;
 import java.io.InputStream;
 import java.io.Reader;
+import java.util.Optional;
 
 /**
  * @since 5.3
@@ -51,6 +52,16 @@ public interface WsResponse extends Closeable {
 
   String contentType();
 
+  /**
+   * Value of the HTTP header of the response, if present. Implementations which do not
+   * expose headers return {@link Optional#empty()}.
+   *
+   * @since 7.1
+   */
+  default Optional<String> header(String name) {
+    return Optional.empty();
+  }
+
   boolean hasContent();
 
   InputStream contentStream();
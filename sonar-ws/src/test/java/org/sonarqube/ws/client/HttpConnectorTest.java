@@ -125,6 +125,17 @@ public class HttpConnectorTest {
     assertThat(recordedRequest.getHeader("Accept-Encoding")).isEqualTo("gzip");
   }
 
+  @Test
+  public void read_headers_of_response() throws Exception {
+    server.enqueue(new MockResponse().setBody("hello").setHeader("ETag", "\"abc\""));
+
+    underTest = HttpConnector.newBuilder().url(serverUrl).build();
+    WsResponse response = underTest.call(new GetRequest("api/issues/search"));
+
+    assertThat(response.header("ETag")).hasValue("\"abc\"");
+    assertThat(response.header("X-Missing")).isEmpty();
+  }
+
   @Test
   public void add_headers_to_GET_request() throws Exception {
     answerHelloWorld();
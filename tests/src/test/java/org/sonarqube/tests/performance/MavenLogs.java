@@ -42,6 +42,18 @@ public class MavenLogs {
     throw new IllegalStateException("Maven logs do not contain \"Total time\"");
   }
 
+  /**
+   * Load/download plugins (done) | time=1234ms
+   */
+  public static Long extractPhaseTime(String logs, String phase) {
+    Pattern pattern = Pattern.compile(Pattern.quote(phase) + " \\(done\\) \\| time=(\\d+)ms");
+    Matcher matcher = pattern.matcher(logs);
+    if (matcher.find()) {
+      return Long.parseLong(matcher.group(1));
+    }
+    throw new IllegalStateException("Logs do not contain duration of \"" + phase + "\"");
+  }
+
   /**
    * Final Memory: 68M/190M
    */
@@ -85,6 +85,16 @@ public class BootstrappingTest extends AbstractPerfTest {
     perfRule.assertDurationAround(MavenLogs.extractTotalTime(result.getLogs()), 8400L);
   }
 
+  @Test
+  public void downloadPluginsWithEmptyUserCache() throws IOException {
+    // an empty user home forces the download of all the plugins installed on server
+    SonarScanner scanner = newScanner("-Xmx512m -server",
+      "sonar.userHome", temp.newFolder().getAbsolutePath());
+
+    BuildResult result = orchestrator.executeBuild(scanner);
+    assertDurationLessThan(MavenLogs.extractPhaseTime(result.getLogs(), "Load/download plugins"), 5000L);
+  }
+
   private static File prepareProjectWithManyFlatModules(int SIZE) throws IOException {
     File baseDir = temp.newFolder();
     File projectProps = new File(baseDir, "sonar-project.properties");